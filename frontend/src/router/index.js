@@ -51,6 +51,12 @@ const routes = [
     component: () => import('../views/MyOrdersPage.vue'),
     meta: { requiresAuth: true }
   },
+  {
+    path: '/my-waitlist',
+    name: 'MyWaitlist',
+    component: () => import('../views/MyWaitlistPage.vue'),
+    meta: { requiresAuth: true }
+  },
   {
     path: '/landlord/orders',
     name: 'LandlordOrders',
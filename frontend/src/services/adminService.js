@@ -26,6 +26,18 @@ const adminService = {
     return response.data
   },
 
+  async fetchOverview() {
+    const response = await api.get('/admin/stats/overview')
+    return response.data
+  },
+
+  async fetchOccupancyStats({ scope = 'city', key, from, to, granularity = 'month' }) {
+    const response = await api.get('/admin/stats/occupancy', {
+      params: { scope, key, from, to, granularity }
+    })
+    return response.data
+  },
+
   async freezeProperty(id, freeze = true) {
     const response = await api.put(`/admin/properties/${id}/freeze`, null, {
       params: { freeze }
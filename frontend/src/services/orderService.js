@@ -1,3 +1,4 @@
+import dayjs from 'dayjs'
 import api from './api'
 
 const orderService = {
@@ -34,6 +35,90 @@ const orderService = {
   async reviewCancellation(id, approve) {
     const response = await api.post(`/orders/${id}/review`, null, { params: { approve } })
     return response.data
+  },
+
+  async joinWaitlist(data) {
+    const response = await api.post('/waitlist', data)
+    return response.data
+  },
+
+  async getMyWaitlist() {
+    const response = await api.get('/waitlist/my')
+    return response.data
+  },
+
+  async cancelWaitlist(id) {
+    const response = await api.delete(`/waitlist/${id}`)
+    return response.data
+  },
+
+  // 上次打开“我的候补”之后新变为可预订（NOTIFIED）且入住日未到的候补数，用于顶部导航提示
+  async countNewWaitlistNotices() {
+    const response = await api.get('/waitlist/my')
+    if (!response.data?.success) return 0
+    const seenAt = Number(localStorage.getItem('waitlistSeenAt') || 0)
+    return (response.data.data || []).filter((entry) =>
+      entry.status === 'NOTIFIED' &&
+      !dayjs(entry.checkInDate).isBefore(dayjs(), 'day') &&
+      dayjs(entry.notifiedAt).valueOf() > seenAt
+    ).length
+  },
+
+  markWaitlistSeen() {
+    localStorage.setItem('waitlistSeenAt', String(Date.now()))
+  },
+
+  // 订阅房东订单推送（Server-Sent Events）。EventSource 无法携带 Authorization 头，
+  // 这里用 fetch 读取事件流；连接断开后 5 秒重连。返回取消订阅的函数
+  subscribeLandlordEvents(onEvent) {
+    const controller = new AbortController()
+    let retryTimer = null
+
+    const connect = async () => {
+      try {
+        const token = localStorage.getItem('token')
+        const response = await fetch('/api/orders/landlord/stream', {
+          headers: token ? { Authorization: `Bearer ${token}` } : {},
+          signal: controller.signal
+        })
+        if (!response.ok || !response.body) {
+          throw new Error(`stream status ${response.status}`)
+        }
+        const reader = response.body.getReader()
+        const decoder = new TextDecoder()
+        let buffer = ''
+        for (;;) {
+          const { done, value } = await reader.read()
+          if (done) break
+          buffer += decoder.decode(value, { stream: true }).replace(/\r\n?/g, '\n')
+          let boundary
+          while ((boundary = buffer.indexOf('\n\n')) >= 0) {
+            const block = buffer.slice(0, boundary)
+            buffer = buffer.slice(boundary + 2)
+            let name = 'message'
+            const data = []
+            for (const line of block.split('\n')) {
+              if (line.startsWith('event:')) name = line.slice(6).trim()
+              else if (line.startsWith('data:')) data.push(line.slice(5).replace(/^ /, ''))
+            }
+            if (data.length) {
+              onEvent(name, JSON.parse(data.join('\n')))
+            }
+          }
+        }
+      } catch (error) {
+        if (controller.signal.aborted) return
+      }
+      if (!controller.signal.aborted) {
+        retryTimer = setTimeout(connect, 5000)
+      }
+    }
+
+    connect()
+    return () => {
+      clearTimeout(retryTimer)
+      controller.abort()
+    }
   }
 }
 
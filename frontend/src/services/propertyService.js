@@ -62,6 +62,56 @@ const propertyService = {
   async getPropertyOccupancy(params) {
     const response = await api.get('/properties/landlord/occupancy', { params })
     return response.data
+  },
+
+  async getPropertyStats(params) {
+    const response = await api.get('/properties/landlord/stats', { params })
+    return response.data
+  },
+
+  async getQuote(id, checkIn, checkOut) {
+    const response = await api.get(`/properties/${id}/quote`, { params: { checkIn, checkOut } })
+    return response.data
+  },
+
+  async getPriceRules(id) {
+    const response = await api.get(`/properties/${id}/price-rules`)
+    return response.data
+  },
+
+  async addPriceRule(id, data) {
+    const response = await api.post(`/properties/${id}/price-rules`, data)
+    return response.data
+  },
+
+  async deletePriceRule(id, ruleId) {
+    const response = await api.delete(`/properties/${id}/price-rules/${ruleId}`)
+    return response.data
+  },
+
+  async getReviews(id, params) {
+    const response = await api.get(`/properties/${id}/reviews`, { params })
+    return response.data
+  },
+
+  async submitReview(id, data) {
+    const response = await api.post(`/properties/${id}/reviews`, data)
+    return response.data
+  },
+
+  async getFavorites() {
+    const response = await api.get('/favorites')
+    return response.data
+  },
+
+  async addFavorite(id) {
+    const response = await api.post(`/favorites/${id}`)
+    return response.data
+  },
+
+  async removeFavorite(id) {
+    const response = await api.delete(`/favorites/${id}`)
+    return response.data
   }
 }
 
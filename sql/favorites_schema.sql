@@ -0,0 +1,10 @@
+-- Favorites schema additions for Homestay Recommendation System
+USE homestay_recommendation;
+
+-- 收藏复用 user_property_interactions 中 type = 'FAVORITE' 的记录。
+-- favorite_property_id 只在收藏记录上有值：唯一索引保证同一房源只收藏一次，
+-- 同时按 (user_id, favorite_property_id) 读取某个用户的全部收藏。已有重复收藏时需先清理再执行。
+ALTER TABLE user_property_interactions
+    ADD COLUMN favorite_property_id BIGINT
+        GENERATED ALWAYS AS (IF(type = 'FAVORITE', property_id, NULL)) STORED,
+    ADD UNIQUE INDEX uk_user_favorite (user_id, favorite_property_id);
@@ -0,0 +1,14 @@
+-- Landlord order listing schema additions for Homestay Recommendation System
+USE homestay_recommendation;
+
+-- 订单冗余房东ID：房东订单列表直接按 landlord_id 走索引，不再先查出全部房源再拼 IN 列表。
+ALTER TABLE orders ADD COLUMN landlord_id BIGINT NULL AFTER property_id;
+
+-- 回填历史订单（大表可按 id 范围分批执行）
+UPDATE orders o
+JOIN properties p ON p.id = o.property_id
+SET o.landlord_id = p.landlord_id
+WHERE o.landlord_id IS NULL;
+
+-- 键集分页：WHERE landlord_id = ? AND (created_at, id) < (游标) ORDER BY created_at DESC, id DESC
+ALTER TABLE orders ADD INDEX idx_landlord_created (landlord_id, created_at, id);
@@ -0,0 +1,28 @@
+-- Order archive schema additions for Homestay Recommendation System
+USE homestay_recommendation;
+
+-- 冷数据表：已完成、已取消且超过 order.archive.min-age-days 的订单由后台任务从 orders 迁入。
+-- 列与 orders 相同（保留原订单ID），外键不迁移，以免删除用户或房源时级联扫描归档表。
+CREATE TABLE IF NOT EXISTS orders_archive (
+    id BIGINT PRIMARY KEY,
+    order_number VARCHAR(50) NOT NULL,
+    user_id BIGINT NOT NULL,
+    property_id BIGINT NOT NULL,
+    landlord_id BIGINT NULL,
+    check_in_date DATE NOT NULL,
+    check_out_date DATE NOT NULL,
+    guest_count INT NOT NULL,
+    total_price DECIMAL(10, 2) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    remarks TEXT,
+    created_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL,
+    archived_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_order_number (order_number),
+    INDEX idx_user_created (user_id, created_at, id),
+    INDEX idx_landlord_created (landlord_id, created_at, id),
+    INDEX idx_property_dates (property_id, check_in_date, check_out_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 用户订单键集分页：WHERE user_id = ? AND (created_at, id) < (游标) ORDER BY created_at DESC, id DESC
+ALTER TABLE orders ADD INDEX idx_user_created (user_id, created_at, id);
@@ -0,0 +1,18 @@
+-- Per-night pricing schema additions for Homestay Recommendation System
+USE homestay_recommendation;
+
+-- 房源价格规则：[start_date, end_date) 内（可限定星期几）按 price 计价，覆盖房源基础价格。
+-- days_of_week 为位掩码（周一=1、周二=2 … 周日=64），NULL 表示每天；规则重叠时 ID 较大（后创建）的生效。
+-- 一条规则即可表达整个旺季或全年周末，不必逐日存储。
+CREATE TABLE IF NOT EXISTS property_price_rules (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    property_id BIGINT NOT NULL,
+    start_date DATE NOT NULL,
+    end_date DATE NOT NULL,
+    days_of_week TINYINT NULL,
+    price DECIMAL(10, 2) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    FOREIGN KEY (property_id) REFERENCES properties(id) ON DELETE CASCADE,
+    INDEX idx_property_end (property_id, end_date),
+    INDEX idx_end_date (end_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,31 @@
+-- Reservation schema additions for Homestay Recommendation System
+USE homestay_recommendation;
+
+-- 房源每晚库存：每个房源每晚一行，记录已占用的房间数与入住人数。
+-- 下单时以条件 UPDATE 一次性占用所有入住晚，受影响行数必须等于晚数，否则整单回滚，数据库层面杜绝超订。
+CREATE TABLE IF NOT EXISTS property_night_inventory (
+    property_id BIGINT NOT NULL,
+    night DATE NOT NULL,
+    booked_rooms INT NOT NULL DEFAULT 0,
+    booked_guests INT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (property_id, night),
+    CONSTRAINT fk_inventory_property FOREIGN KEY (property_id) REFERENCES properties(id) ON DELETE CASCADE
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
+
+-- 按现有占用状态的订单回填库存（仅回填今天及以后的夜晚，可重复执行）
+INSERT INTO property_night_inventory (property_id, night, booked_rooms, booked_guests)
+WITH RECURSIVE nights (order_id, property_id, night, check_out_date, guest_count) AS (
+    SELECT id, property_id, GREATEST(check_in_date, CURRENT_DATE), check_out_date, guest_count
+    FROM orders
+    WHERE status IN ('PENDING', 'CONFIRMED', 'CANCEL_REQUESTED', 'CANCEL_REJECTED')
+      AND check_out_date > CURRENT_DATE
+    UNION ALL
+    SELECT order_id, property_id, night + INTERVAL 1 DAY, check_out_date, guest_count
+    FROM nights
+    WHERE night + INTERVAL 1 DAY < check_out_date
+)
+SELECT property_id, night, COUNT(*), SUM(guest_count)
+FROM nights
+GROUP BY property_id, night
+ON DUPLICATE KEY UPDATE booked_rooms = VALUES(booked_rooms), booked_guests = VALUES(booked_guests);
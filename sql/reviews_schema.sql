@@ -0,0 +1,25 @@
+-- Review schema additions for Homestay Recommendation System
+USE homestay_recommendation;
+
+-- 评价复用 user_property_interactions 中 type = 'REVIEW' 的记录，增加评价内容。
+-- review_property_id 只在评价记录上有值，借助唯一索引保证每个用户对每个房源只有一条评价
+-- （NULL 不参与唯一约束，其余类型的交互不受影响）。已有重复评价时需先清理再执行。
+ALTER TABLE user_property_interactions
+    ADD COLUMN comment VARCHAR(1000) NULL AFTER rating,
+    ADD COLUMN review_property_id BIGINT
+        GENERATED ALWAYS AS (IF(type = 'REVIEW', property_id, NULL)) STORED,
+    ADD UNIQUE INDEX uk_user_review (user_id, review_property_id),
+    -- 按房源分页读取评价、定时校准时按房源聚合评分
+    ADD INDEX idx_property_type_id (property_id, type, id);
+
+-- 按用户、房源查询是否有已完成的入住
+ALTER TABLE orders ADD INDEX idx_user_property_status (user_id, property_id, status);
+
+-- 评分以 REVIEW 记录为唯一来源：一次性按评价记录重算所有房源的 rating 与 review_count，
+-- 清掉早期手工填写的初始评分（没有评价的房源归零），之后增量折入与定时校准使用同一口径。
+UPDATE properties p LEFT JOIN (
+    SELECT property_id, COUNT(*) AS cnt, ROUND(AVG(rating), 2) AS avg_rating
+    FROM user_property_interactions
+    WHERE type = 'REVIEW'
+    GROUP BY property_id) r ON r.property_id = p.id
+SET p.rating = IFNULL(r.avg_rating, 0), p.review_count = IFNULL(r.cnt, 0);
@@ -15,14 +15,14 @@ INSERT INTO users (username, email, password, phone, role, enabled) VALUES
 ('user_liu', 'liu@example.com', '$2a$10$WaEECV.3IU0KuSgLkODNWeTyDPxVZ49Cnk1xXWu3D8CV/sbopWSYG', '13900139002', 'USER', TRUE)
 ON DUPLICATE KEY UPDATE username=username;
 
--- Sample Properties
+-- Sample Properties (rating and review_count match the REVIEW interactions below)
 INSERT INTO properties (title, description, city, district, address, price, bedrooms, bathrooms, max_guests, property_type, amenities, images, available, landlord_id, rating, review_count, view_count, booking_count) VALUES 
-('Cozy Downtown Apartment', 'Modern apartment in the heart of the city with great amenities', 'Beijing', 'Chaoyang', '123 Chaoyang Road', 500.00, 2, 1, 4, 'apartment', '["WiFi","Air Conditioning","Kitchen","Washer"]', '["image1.jpg","image2.jpg"]', TRUE, 2, 4.5, 20, 150, 35),
-('Luxury Villa with Garden', 'Spacious villa with beautiful garden and pool', 'Shanghai', 'Pudong', '456 Pudong Avenue', 1200.00, 4, 3, 8, 'villa', '["WiFi","Air Conditioning","Pool","Garden","Parking"]', '["villa1.jpg","villa2.jpg","villa3.jpg"]', TRUE, 2, 4.8, 15, 200, 28),
-('Traditional Courtyard House', 'Authentic Beijing courtyard house with modern comfort', 'Beijing', 'Dongcheng', '789 Gulou Street', 800.00, 3, 2, 6, 'house', '["WiFi","Air Conditioning","Traditional Decor","Kitchen"]', '["house1.jpg","house2.jpg"]', TRUE, 3, 4.6, 12, 180, 22),
-('Seaside Studio', 'Comfortable studio with ocean view', 'Qingdao', 'Shinan', '321 Beach Road', 350.00, 1, 1, 2, 'apartment', '["WiFi","Sea View","Kitchen"]', '["studio1.jpg"]', TRUE, 3, 4.3, 8, 95, 18),
-('Mountain Retreat Cabin', 'Peaceful cabin in the mountains, perfect for nature lovers', 'Chengdu', 'Dujiangyan', '555 Mountain Path', 600.00, 2, 1, 4, 'house', '["WiFi","Fireplace","Mountain View","Hiking"]', '["cabin1.jpg","cabin2.jpg"]', TRUE, 4, 4.7, 18, 120, 25),
-('City Center Loft', 'Modern loft in downtown area with metro access', 'Guangzhou', 'Tianhe', '888 Tianhe Road', 700.00, 2, 2, 4, 'apartment', '["WiFi","Air Conditioning","Metro Access","Gym"]', '["loft1.jpg","loft2.jpg"]', TRUE, 4, 4.4, 10, 140, 20)
+('Cozy Downtown Apartment', 'Modern apartment in the heart of the city with great amenities', 'Beijing', 'Chaoyang', '123 Chaoyang Road', 500.00, 2, 1, 4, 'apartment', '["WiFi","Air Conditioning","Kitchen","Washer"]', '["image1.jpg","image2.jpg"]', TRUE, 2, 5.0, 1, 150, 35),
+('Luxury Villa with Garden', 'Spacious villa with beautiful garden and pool', 'Shanghai', 'Pudong', '456 Pudong Avenue', 1200.00, 4, 3, 8, 'villa', '["WiFi","Air Conditioning","Pool","Garden","Parking"]', '["villa1.jpg","villa2.jpg","villa3.jpg"]', TRUE, 2, 0.0, 0, 200, 28),
+('Traditional Courtyard House', 'Authentic Beijing courtyard house with modern comfort', 'Beijing', 'Dongcheng', '789 Gulou Street', 800.00, 3, 2, 6, 'house', '["WiFi","Air Conditioning","Traditional Decor","Kitchen"]', '["house1.jpg","house2.jpg"]', TRUE, 3, 4.0, 1, 180, 22),
+('Seaside Studio', 'Comfortable studio with ocean view', 'Qingdao', 'Shinan', '321 Beach Road', 350.00, 1, 1, 2, 'apartment', '["WiFi","Sea View","Kitchen"]', '["studio1.jpg"]', TRUE, 3, 0.0, 0, 95, 18),
+('Mountain Retreat Cabin', 'Peaceful cabin in the mountains, perfect for nature lovers', 'Chengdu', 'Dujiangyan', '555 Mountain Path', 600.00, 2, 1, 4, 'house', '["WiFi","Fireplace","Mountain View","Hiking"]', '["cabin1.jpg","cabin2.jpg"]', TRUE, 4, 0.0, 0, 120, 25),
+('City Center Loft', 'Modern loft in downtown area with metro access', 'Guangzhou', 'Tianhe', '888 Tianhe Road', 700.00, 2, 2, 4, 'apartment', '["WiFi","Air Conditioning","Metro Access","Gym"]', '["loft1.jpg","loft2.jpg"]', TRUE, 4, 0.0, 0, 140, 20)
 ON DUPLICATE KEY UPDATE title=title;
 
 -- Sample Orders
@@ -0,0 +1,19 @@
+-- Daily statistics schema additions for Homestay Recommendation System
+USE homestay_recommendation;
+
+-- 房源每日汇总：每个房源每天一行，记录当晚被预订的房间数、入住人数与分摊到当晚的收入。
+-- 订单创建和状态变化时增量更新；房东与城市冗余在表中，按房东/城市汇总时无需关联房源表。
+CREATE TABLE IF NOT EXISTS property_daily_stats (
+    property_id BIGINT NOT NULL,
+    stat_date DATE NOT NULL,
+    landlord_id BIGINT,
+    city VARCHAR(50),
+    rooms_booked INT NOT NULL DEFAULT 0,
+    guests INT NOT NULL DEFAULT 0,
+    revenue DECIMAL(12, 2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (property_id, stat_date),
+    INDEX idx_landlord_date (landlord_id, stat_date),
+    INDEX idx_city_date (city, stat_date),
+    INDEX idx_stat_date (stat_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,22 @@
+-- Waitlist schema additions for Homestay Recommendation System
+USE homestay_recommendation;
+
+-- 满房候补：用户登记想入住的 [check_in_date, check_out_date)，有订单取消释放这些夜晚且
+-- 整段重新可订时标记为 NOTIFIED 并记录通知时间；入住日已过仍未等到的标记为 EXPIRED。
+-- WAITING 的记录在内存中按房源建区间索引，取消时按区间匹配，无需扫描本表。
+CREATE TABLE IF NOT EXISTS property_waitlist (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    property_id BIGINT NOT NULL,
+    check_in_date DATE NOT NULL,
+    check_out_date DATE NOT NULL,
+    guest_count INT NOT NULL,
+    status ENUM('WAITING', 'NOTIFIED', 'CANCELLED', 'EXPIRED') NOT NULL DEFAULT 'WAITING',
+    notified_at TIMESTAMP NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE,
+    FOREIGN KEY (property_id) REFERENCES properties(id) ON DELETE CASCADE,
+    INDEX idx_user_created (user_id, created_at),
+    INDEX idx_status_check_in (status, check_in_date)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
@@ -0,0 +1,200 @@
+package com.recommendation.homestay.benchmark;
+
+import com.baomidou.mybatisplus.core.conditions.AbstractWrapper;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.User;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.mapper.UserMapper;
+import com.recommendation.homestay.mapper.UserPropertyInteractionMapper;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * 基于内存列表的 Mapper 替身，让推荐服务在没有 MySQL 的环境下运行基准测试
+ *
+ * UserMapper 替身只为在线推荐路径中的用户存在性校验提供 ID 为 1..userCount 的用户。
+ *
+ * 只实现推荐服务实际用到的查询：selectById、selectBatchIds、selectList/selectCount
+ * （条件仅支持以 AND 连接的 eq），以及 PropertyMapper 的两个 Top10 查询。
+ * 其余方法抛出 UnsupportedOperationException，避免基准结果建立在不真实的实现上。
+ *
+ * @author Homestay Recommendation System
+ */
+public final class InMemoryMappers {
+
+    /**
+     * QueryWrapper 生成的 eq 片段形如 user_id = #{ew.paramNameValuePairs.MPGENVAL1}
+     */
+    private static final Pattern EQ_SEGMENT = Pattern.compile("(\\w+)\\s*=\\s*#\\{ew\\.paramNameValuePairs\\.(\\w+)}");
+
+    private InMemoryMappers() {
+    }
+
+    public static PropertyMapper propertyMapper(List<Property> properties) {
+        Map<String, Function<Property, Object>> columns = new HashMap<>();
+        columns.put("id", Property::getId);
+        columns.put("available", Property::getAvailable);
+        columns.put("city", Property::getCity);
+        columns.put("landlord_id", Property::getLandlordId);
+        columns.put("property_type", Property::getPropertyType);
+        Table<Property> table = new Table<>(properties, Property::getId, columns);
+
+        return proxy(PropertyMapper.class, (method, args) -> {
+            switch (method.getName()) {
+                case "findTop10ByAvailableTrueOrderByBookingCountDesc":
+                    return availableTop10(properties, Comparator.comparing(Property::getBookingCount).reversed());
+                case "findTop10ByAvailableTrueOrderByRatingDesc":
+                    return availableTop10(properties, Comparator.comparing(Property::getRating).reversed());
+                default:
+                    return table.invoke(method, args);
+            }
+        });
+    }
+
+    public static UserPropertyInteractionMapper interactionMapper(List<UserPropertyInteraction> interactions) {
+        Map<String, Function<UserPropertyInteraction, Object>> columns = new HashMap<>();
+        columns.put("id", UserPropertyInteraction::getId);
+        columns.put("user_id", UserPropertyInteraction::getUserId);
+        columns.put("property_id", UserPropertyInteraction::getPropertyId);
+        columns.put("type", UserPropertyInteraction::getType);
+        Table<UserPropertyInteraction> table = new Table<>(interactions, UserPropertyInteraction::getId, columns);
+
+        return proxy(UserPropertyInteractionMapper.class, (method, args) -> {
+            if ("findRecentInteractionsByUser".equals(method.getName())) {
+                return table.rows.stream()
+                        .filter(row -> Objects.equals(row.getUserId(), args[0]))
+                        .sorted(Comparator.comparing(UserPropertyInteraction::getCreatedAt).reversed())
+                        .collect(Collectors.toList());
+            }
+            return table.invoke(method, args);
+        });
+    }
+
+    private static List<Property> availableTop10(List<Property> properties, Comparator<Property> order) {
+        return properties.stream()
+                .filter(property -> Boolean.TRUE.equals(property.getAvailable()))
+                .sorted(order)
+                .limit(10)
+                .collect(Collectors.toList());
+    }
+
+    public static UserMapper userMapper(int userCount) {
+        List<User> users = new ArrayList<>(userCount);
+        for (long id = 1; id <= userCount; id++) {
+            User user = new User();
+            user.setId(id);
+            user.setUsername("user" + id);
+            users.add(user);
+        }
+        Map<String, Function<User, Object>> columns = new HashMap<>();
+        columns.put("id", User::getId);
+        Table<User> table = new Table<>(users, User::getId, columns);
+        return proxy(UserMapper.class, table::invoke);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <M> M proxy(Class<M> mapperType, Handler handler) {
+        InvocationHandler invocationHandler = (proxy, method, args) -> {
+            if (method.getDeclaringClass() == Object.class) {
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    default:
+                        return "InMemory" + mapperType.getSimpleName();
+                }
+            }
+            return handler.handle(method, args);
+        };
+        return (M) Proxy.newProxyInstance(mapperType.getClassLoader(), new Class<?>[]{mapperType}, invocationHandler);
+    }
+
+    @FunctionalInterface
+    private interface Handler {
+        Object handle(Method method, Object[] args);
+    }
+
+    private static final class Table<T> {
+        private final List<T> rows;
+        private final Map<Object, T> byId;
+        private final Map<String, Function<T, Object>> columns;
+
+        Table(List<T> rows, Function<T, Object> idOf, Map<String, Function<T, Object>> columns) {
+            this.rows = rows;
+            this.byId = new LinkedHashMap<>(rows.size() * 2);
+            for (T row : rows) {
+                byId.put(idOf.apply(row), row);
+            }
+            this.columns = columns;
+        }
+
+        Object invoke(Method method, Object[] args) {
+            switch (method.getName()) {
+                case "selectById":
+                    return byId.get(args[0]);
+                case "selectBatchIds":
+                    return ((Collection<?>) args[0]).stream()
+                            .map(byId::get)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList());
+                case "selectList":
+                    return select(args[0]);
+                case "selectCount":
+                    return (long) select(args[0]).size();
+                default:
+                    throw new UnsupportedOperationException("内存 Mapper 不支持方法: " + method.getName());
+            }
+        }
+
+        private List<T> select(Object wrapper) {
+            if (wrapper == null) {
+                return new ArrayList<>(rows);
+            }
+            AbstractWrapper<?, ?, ?> queryWrapper = (AbstractWrapper<?, ?, ?>) wrapper;
+            String segment = queryWrapper.getSqlSegment();
+            Map<String, Object> params = queryWrapper.getParamNameValuePairs();
+
+            Map<Function<T, Object>, Object> conditions = new LinkedHashMap<>();
+            Matcher matcher = EQ_SEGMENT.matcher(segment);
+            int matched = 0;
+            while (matcher.find()) {
+                Function<T, Object> column = columns.get(matcher.group(1));
+                if (column == null) {
+                    throw new UnsupportedOperationException("内存 Mapper 不支持列: " + matcher.group(1));
+                }
+                conditions.put(column, params.get(matcher.group(2)));
+                matched++;
+            }
+            if (matched != params.size()) {
+                throw new UnsupportedOperationException("内存 Mapper 只支持 eq 条件: " + segment);
+            }
+            return rows.stream()
+                    .filter(row -> conditions.entrySet().stream()
+                            .allMatch(condition -> matches(condition.getKey().apply(row), condition.getValue())))
+                    .collect(Collectors.toList());
+        }
+
+        private static boolean matches(Object value, Object expected) {
+            if (value instanceof Enum && expected instanceof String) {
+                return ((Enum<?>) value).name().equals(expected);
+            }
+            return Objects.equals(value, expected);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.recommendation.homestay.benchmark;
+
+import com.recommendation.homestay.mapper.PropertyNightInventoryMapper;
+
+import java.lang.reflect.Proxy;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * property_night_inventory 的内存替身
+ *
+ * 条件占用按 MySQL 的语义逐行判断，但在事务回滚的意义上是“全有或全无”：任意一晚不满足条件时
+ * 不修改任何行，并返回实际满足条件的行数，与预订引擎抛异常回滚后的数据库状态一致。
+ * 同一房源的操作在房源对象上串行执行，模拟行锁。
+ *
+ * @author Homestay Recommendation System
+ */
+public final class InMemoryNightInventory {
+
+    private final Map<Long, Map<LocalDate, int[]>> rows = new ConcurrentHashMap<>();
+
+    public PropertyNightInventoryMapper asMapper() {
+        return (PropertyNightInventoryMapper) Proxy.newProxyInstance(
+                PropertyNightInventoryMapper.class.getClassLoader(),
+                new Class<?>[]{PropertyNightInventoryMapper.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "ensureNights":
+                            return ensure((Long) args[0], cast(args[1]));
+                        case "reserveNights":
+                            return reserve((Long) args[0], (LocalDate) args[1], (LocalDate) args[2],
+                                    (Integer) args[3], (Integer) args[4], (Integer) args[5]);
+                        case "releaseNights":
+                            return release((Long) args[0], (LocalDate) args[1], (LocalDate) args[2], (Integer) args[3]);
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        case "toString":
+                            return "InMemoryNightInventory";
+                        default:
+                            throw new UnsupportedOperationException("内存库存不支持方法: " + method.getName());
+                    }
+                });
+    }
+
+    /**
+     * 房源各晚中最大的已订房间数与入住人数
+     */
+    public int[] peak(Long propertyId) {
+        Map<LocalDate, int[]> nights = nights(propertyId);
+        synchronized (nights) {
+            int[] peak = new int[2];
+            for (int[] row : nights.values()) {
+                peak[0] = Math.max(peak[0], row[0]);
+                peak[1] = Math.max(peak[1], row[1]);
+            }
+            return peak;
+        }
+    }
+
+    /**
+     * 单晚的已订房间数与入住人数
+     */
+    public int[] get(Long propertyId, LocalDate night) {
+        Map<LocalDate, int[]> nights = nights(propertyId);
+        synchronized (nights) {
+            int[] row = nights.get(night);
+            return row == null ? new int[2] : row.clone();
+        }
+    }
+
+    public void clear() {
+        rows.clear();
+    }
+
+    private int ensure(Long propertyId, List<LocalDate> dates) {
+        Map<LocalDate, int[]> nights = nights(propertyId);
+        synchronized (nights) {
+            int inserted = 0;
+            for (LocalDate date : dates) {
+                if (nights.putIfAbsent(date, new int[2]) == null) {
+                    inserted++;
+                }
+            }
+            return inserted;
+        }
+    }
+
+    private int reserve(Long propertyId, LocalDate checkIn, LocalDate checkOut, int guests, int maxRooms, int maxGuests) {
+        Map<LocalDate, int[]> nights = nights(propertyId);
+        synchronized (nights) {
+            int matched = 0;
+            int total = 0;
+            for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+                total++;
+                int[] row = nights.get(night);
+                if (row != null && (maxRooms == 0 || row[0] < maxRooms)
+                        && (maxGuests == 0 || row[1] + guests <= maxGuests)) {
+                    matched++;
+                }
+            }
+            if (matched == total) {
+                for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+                    int[] row = nights.get(night);
+                    row[0] += 1;
+                    row[1] += guests;
+                }
+            }
+            return matched;
+        }
+    }
+
+    private int release(Long propertyId, LocalDate checkIn, LocalDate checkOut, int guests) {
+        Map<LocalDate, int[]> nights = nights(propertyId);
+        synchronized (nights) {
+            int released = 0;
+            for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+                int[] row = nights.get(night);
+                if (row != null) {
+                    row[0] = Math.max(row[0] - 1, 0);
+                    row[1] = Math.max(row[1] - guests, 0);
+                    released++;
+                }
+            }
+            return released;
+        }
+    }
+
+    private Map<LocalDate, int[]> nights(Long propertyId) {
+        return rows.computeIfAbsent(propertyId, id -> new ConcurrentHashMap<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<LocalDate> cast(Object value) {
+        return (List<LocalDate>) value;
+    }
+}
@@ -0,0 +1,138 @@
+package com.recommendation.homestay.benchmark;
+
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成数据集
+ *
+ * 房源热度服从幂律（Zipf）分布：排名第 r 的房源被交互的概率与 1/r^s 成正比，
+ * 用于模拟少数热门房源占据大部分交互的真实情况。每个用户的交互数约为 density × 房源数，
+ * 交互类型按 浏览 60%、收藏 15%、预订 15%、评价 10% 抽取。随机种子固定，结果可复现。
+ *
+ * @author Homestay Recommendation System
+ */
+public final class SyntheticDataset {
+
+    private static final String[] CITIES = {"北京", "上海", "杭州", "成都", "厦门", "大理", "三亚", "西安"};
+    private static final String[] TYPES = {"公寓", "独栋", "别墅", "民宿", "客栈"};
+
+    private final List<Property> properties;
+    private final List<UserPropertyInteraction> interactions;
+    private final int userCount;
+
+    private SyntheticDataset(List<Property> properties, List<UserPropertyInteraction> interactions, int userCount) {
+        this.properties = properties;
+        this.interactions = interactions;
+        this.userCount = userCount;
+    }
+
+    /**
+     * @param userCount     用户数，用户ID为 1..userCount
+     * @param propertyCount 房源数，房源ID为 1..propertyCount
+     * @param density       每个用户交互的房源占比（0-1）
+     * @param zipfExponent  幂律指数，越大热门越集中，0 表示均匀分布
+     * @param seed          随机种子
+     */
+    public static SyntheticDataset generate(int userCount, int propertyCount, double density,
+                                            double zipfExponent, long seed) {
+        if (userCount <= 0 || propertyCount <= 0 || density <= 0 || density > 1) {
+            throw new IllegalArgumentException("用户数、房源数必须为正数，密度必须在0和1之间");
+        }
+        Random random = new Random(seed);
+
+        List<Property> properties = new ArrayList<>(propertyCount);
+        for (long id = 1; id <= propertyCount; id++) {
+            Property property = new Property();
+            property.setId(id);
+            property.setTitle("房源" + id);
+            property.setCity(CITIES[random.nextInt(CITIES.length)]);
+            property.setPropertyType(TYPES[random.nextInt(TYPES.length)]);
+            property.setPrice(BigDecimal.valueOf(100 + random.nextInt(1900)));
+            property.setBedrooms(1 + random.nextInt(5));
+            property.setMaxGuests(2 + random.nextInt(8));
+            property.setRating(BigDecimal.valueOf(3 + random.nextDouble() * 2).setScale(2, RoundingMode.HALF_UP));
+            property.setReviewCount(random.nextInt(200));
+            property.setAvailable(random.nextInt(20) != 0);
+            properties.add(property);
+        }
+
+        // 热度排名随机打乱，避免热门房源总是ID最小的那些
+        List<Long> popularityOrder = new ArrayList<>(propertyCount);
+        for (long id = 1; id <= propertyCount; id++) {
+            popularityOrder.add(id);
+        }
+        Collections.shuffle(popularityOrder, random);
+        double[] cumulative = zipfCumulative(propertyCount, zipfExponent);
+
+        int perUser = Math.max(1, (int) Math.round(density * propertyCount));
+        LocalDateTime start = LocalDateTime.of(2024, 1, 1, 0, 0);
+        List<UserPropertyInteraction> interactions = new ArrayList<>(userCount * perUser);
+        long interactionId = 1;
+        for (long userId = 1; userId <= userCount; userId++) {
+            for (int i = 0; i < perUser; i++) {
+                int rank = Arrays.binarySearch(cumulative, random.nextDouble());
+                rank = rank >= 0 ? rank : Math.min(-rank - 1, propertyCount - 1);
+
+                UserPropertyInteraction interaction = new UserPropertyInteraction();
+                interaction.setId(interactionId++);
+                interaction.setUserId(userId);
+                interaction.setPropertyId(popularityOrder.get(rank));
+                int roll = random.nextInt(100);
+                UserPropertyInteraction.InteractionType type = roll < 60 ? UserPropertyInteraction.InteractionType.VIEW
+                        : roll < 75 ? UserPropertyInteraction.InteractionType.FAVORITE
+                        : roll < 90 ? UserPropertyInteraction.InteractionType.BOOK
+                        : UserPropertyInteraction.InteractionType.REVIEW;
+                interaction.setType(type);
+                if (type == UserPropertyInteraction.InteractionType.REVIEW) {
+                    interaction.setRating(1 + random.nextInt(5));
+                }
+                interaction.setCreatedAt(start.plusMinutes(random.nextInt(365 * 24 * 60)));
+                interactions.add(interaction);
+            }
+        }
+
+        for (UserPropertyInteraction interaction : interactions) {
+            if (interaction.getType() == UserPropertyInteraction.InteractionType.BOOK) {
+                Property property = properties.get((int) (interaction.getPropertyId() - 1));
+                property.setBookingCount(property.getBookingCount() + 1);
+            }
+        }
+        return new SyntheticDataset(Collections.unmodifiableList(properties),
+                Collections.unmodifiableList(interactions), userCount);
+    }
+
+    private static double[] zipfCumulative(int n, double exponent) {
+        double[] cumulative = new double[n];
+        double sum = 0;
+        for (int rank = 0; rank < n; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, exponent);
+            cumulative[rank] = sum;
+        }
+        for (int rank = 0; rank < n; rank++) {
+            cumulative[rank] /= sum;
+        }
+        return cumulative;
+    }
+
+    public List<Property> getProperties() {
+        return properties;
+    }
+
+    public List<UserPropertyInteraction> getInteractions() {
+        return interactions;
+    }
+
+    public int getUserCount() {
+        return userCount;
+    }
+}
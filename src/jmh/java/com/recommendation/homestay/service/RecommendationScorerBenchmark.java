@@ -0,0 +1,151 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.benchmark.SyntheticDataset;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 推荐打分核心（{@link RecommendationScorer}）的基准测试
+ *
+ * 分别测量杰卡德相似度、协同过滤的相似用户汇总、基于内容打分和混合合并，
+ * 配合 -prof gc 运行可同时得到吞吐量与每次调用的分配量（gc.alloc.rate.norm）。
+ * 放在 service 包下以便直接调用包级可见的打分方法。
+ *
+ * @author Homestay Recommendation System
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationScorerBenchmark {
+
+    private static final int LIMIT = 20;
+
+    @Param({"1000", "10000"})
+    private int userCount;
+
+    @Param({"2000"})
+    private int propertyCount;
+
+    @Param({"0.005"})
+    private double density;
+
+    @Param({"1.0"})
+    private double zipfExponent;
+
+    private Map<Long, Set<Long>> userPropertyMap;
+    private Long[] userIds;
+    private Map<Long, Double> neighbourSimilarities;
+    private List<Property> likedProperties;
+    private List<Property> availableProperties;
+    private List<Property> collaborativeList;
+    private List<Property> contentList;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticDataset dataset = SyntheticDataset.generate(userCount, propertyCount, density, zipfExponent, 42L);
+        RecommendationSnapshot snapshot = new RecommendationSnapshot(
+                dataset.getInteractions(), dataset.getProperties(), new ArrayList<>(), new ArrayList<>());
+        userPropertyMap = snapshot.getUserPropertyMap();
+        userIds = userPropertyMap.keySet().toArray(new Long[0]);
+        availableProperties = snapshot.getAvailableProperties();
+
+        // 固定一个代表性用户，预先算好其相似用户与两路推荐结果，供汇总与合并基准单独使用
+        Long target = userIds[0];
+        Set<Long> targetProperties = userPropertyMap.get(target);
+        neighbourSimilarities = new HashMap<>();
+        for (Map.Entry<Long, Set<Long>> entry : userPropertyMap.entrySet()) {
+            if (!entry.getKey().equals(target)) {
+                double similarity = RecommendationScorer.calculateJaccardSimilarity(targetProperties, entry.getValue());
+                if (similarity > 0) {
+                    neighbourSimilarities.put(entry.getKey(), similarity);
+                }
+            }
+        }
+        likedProperties = snapshot.getInteractions(target).stream()
+                .filter(RecommendationScorer::isPositive)
+                .map(UserPropertyInteraction::getPropertyId)
+                .map(snapshot::getProperty)
+                .collect(Collectors.toList());
+        if (likedProperties.isEmpty()) {
+            likedProperties = new ArrayList<>(availableProperties.subList(0, 1));
+        }
+        collaborativeList = toProperties(snapshot, RecommendationScorer.topIds(
+                RecommendationScorer.collaborativeScores(userPropertyMap, target, targetProperties), LIMIT * 2));
+        contentList = toProperties(snapshot, RecommendationScorer.topIds(
+                RecommendationScorer.contentScores(likedProperties, availableProperties, targetProperties), LIMIT * 2));
+    }
+
+    @Benchmark
+    public double jaccardSimilarity() {
+        Long a = nextUser();
+        Long b = userIds[cursor];
+        return RecommendationScorer.calculateJaccardSimilarity(userPropertyMap.get(a), userPropertyMap.get(b));
+    }
+
+    /**
+     * 单个用户的完整协同过滤打分：与全部用户计算相似度并汇总
+     */
+    @Benchmark
+    public List<Long> collaborativeFiltering() {
+        Long userId = nextUser();
+        Map<Long, Double> scores = RecommendationScorer.collaborativeScores(
+                userPropertyMap, userId, userPropertyMap.get(userId));
+        return RecommendationScorer.topIds(scores, LIMIT);
+    }
+
+    @Benchmark
+    public Map<Long, Double> neighbourAggregation() {
+        return RecommendationScorer.aggregateNeighbours(
+                userPropertyMap, neighbourSimilarities, userPropertyMap.get(userIds[0]));
+    }
+
+    @Benchmark
+    public List<Long> contentBasedScoring() {
+        Map<Long, Double> scores = RecommendationScorer.contentScores(
+                likedProperties, availableProperties, userPropertyMap.get(userIds[0]));
+        return RecommendationScorer.topIds(scores, LIMIT);
+    }
+
+    @Benchmark
+    public List<Long> hybridMerge() {
+        return RecommendationScorer.topIds(RecommendationScorer.hybridScores(collaborativeList, contentList), LIMIT);
+    }
+
+    private Long nextUser() {
+        Long userId = userIds[cursor];
+        cursor = (cursor + 1) % userIds.length;
+        return userId;
+    }
+
+    private static List<Property> toProperties(RecommendationSnapshot snapshot, List<Long> ids) {
+        List<Property> properties = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            properties.add(snapshot.getProperty(id));
+        }
+        return properties;
+    }
+}
@@ -0,0 +1,101 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.benchmark.InMemoryMappers;
+import com.recommendation.homestay.benchmark.SyntheticDataset;
+import com.recommendation.homestay.entity.Property;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 推荐服务端到端基准测试
+ *
+ * 用内存 Mapper 替身代替 MySQL，对比在线推荐（每次调用都重新读取交互与房源）
+ * 与基于快照的推荐（数据只加载一次）在单个用户上的耗时和分配量。
+ * 服务实例不经过 Spring 代理，因此 @Cacheable 不生效，测到的是真实计算开销。
+ *
+ * @author Homestay Recommendation System
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecommendationServiceBenchmark {
+
+    private static final int LIMIT = 10;
+
+    @Param({"1000", "10000"})
+    private int userCount;
+
+    @Param({"2000"})
+    private int propertyCount;
+
+    @Param({"0.005"})
+    private double density;
+
+    @Param({"1.0"})
+    private double zipfExponent;
+
+    private RecommendationService recommendationService;
+    private RecommendationSnapshot snapshot;
+    private long cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() throws ReflectiveOperationException {
+        SyntheticDataset dataset = SyntheticDataset.generate(userCount, propertyCount, density, zipfExponent, 42L);
+        recommendationService = new RecommendationService();
+        inject(recommendationService, "propertyMapper", InMemoryMappers.propertyMapper(dataset.getProperties()));
+        inject(recommendationService, "interactionMapper", InMemoryMappers.interactionMapper(dataset.getInteractions()));
+        inject(recommendationService, "userMapper", InMemoryMappers.userMapper(userCount));
+        // 趋势与分群服务未刷新时返回空结果，冷启动回退到 Mapper 的 Top10 查询
+        inject(recommendationService, "trendingService", new TrendingService());
+        inject(recommendationService, "segmentRecommendationService", new SegmentRecommendationService());
+        snapshot = recommendationService.loadSnapshot();
+    }
+
+    @Benchmark
+    public List<Property> onlineHybrid() {
+        return recommendationService.getRecommendations(nextUser(), LIMIT);
+    }
+
+    @Benchmark
+    public List<Property> snapshotHybrid() {
+        return recommendationService.getRecommendations(snapshot, nextUser(), LIMIT);
+    }
+
+    @Benchmark
+    public List<Property> snapshotCollaborative() {
+        return recommendationService.getCollaborativeFilteringRecommendations(snapshot, nextUser(), LIMIT);
+    }
+
+    @Benchmark
+    public List<Property> snapshotContentBased() {
+        return recommendationService.getContentBasedRecommendations(snapshot, nextUser(), LIMIT);
+    }
+
+    private Long nextUser() {
+        cursor = cursor % userCount + 1;
+        return cursor;
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,185 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.benchmark.InMemoryNightInventory;
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.support.AfterCommit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Field;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 预订引擎争用基准测试：200 个线程同时预订同一个热门房源
+ *
+ * 每次操作在模拟事务中预订一段随机的 1-3 晚入住（与 OrderService 一样在提交后更新房态日历），
+ * 每个线程保留最多 2 个有效订单，超出时取消最早的一个，使房源始终处于接近满房的高争用状态。
+ * 吞吐量为每秒预订尝试次数，booked/rejected 辅助计数给出成功与被拒的数量；
+ * 每轮迭代结束时核对每晚库存，任何一晚超过房间数或可住人数即判定超订并使基准失败。
+ *
+ * @author Homestay Recommendation System
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(200)
+@Fork(1)
+public class ReservationContentionBenchmark {
+
+    private static final long PROPERTY_ID = 1L;
+    private static final int BOOKING_WINDOW_DAYS = 30;
+    private static final int MAX_ACTIVE_PER_THREAD = 2;
+
+    @Param({"10"})
+    private int rooms;
+
+    @Param({"30"})
+    private int maxGuests;
+
+    private final InMemoryNightInventory inventory = new InMemoryNightInventory();
+    private final AtomicLong orderIds = new AtomicLong();
+    private ReservationEngine engine;
+    private AvailabilityCalendar calendar;
+    private Property property;
+    private LocalDate firstNight;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws ReflectiveOperationException {
+        inventory.clear();
+        calendar = new AvailabilityCalendar();
+        inject(calendar, "horizonDays", 180);
+        inject(calendar, "ready", true);
+
+        engine = new ReservationEngine();
+        inject(engine, "inventoryMapper", inventory.asMapper());
+        inject(engine, "availabilityCalendar", calendar);
+        inject(engine, "lockStripes", 64);
+        inject(engine, "lockTimeoutMs", 3000L);
+        engine.init();
+
+        property = new Property();
+        property.setId(PROPERTY_ID);
+        property.setBedrooms(rooms);
+        property.setMaxGuests(maxGuests);
+        firstNight = LocalDate.now().plusDays(1);
+    }
+
+    @TearDown(Level.Iteration)
+    public void verifyNoOversell() {
+        for (int day = 0; day < BOOKING_WINDOW_DAYS + 3; day++) {
+            LocalDate night = firstNight.plusDays(day);
+            int[] row = inventory.get(PROPERTY_ID, night);
+            if (row[0] > rooms || row[1] > maxGuests) {
+                throw new IllegalStateException("超订: " + night + " 已订房间 " + row[0] + "/" + rooms
+                        + "，入住人数 " + row[1] + "/" + maxGuests);
+            }
+            AvailabilityCalendar.Occupancy occupancy = calendar.getOccupancy(PROPERTY_ID, night, 1);
+            if (occupancy.getBookedRooms(0) != row[0] || occupancy.getBookedGuests(0) != row[1]) {
+                throw new IllegalStateException("房态日历与库存不一致: " + night);
+            }
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Booker {
+        public long booked;
+        public long rejected;
+        private final Deque<Order> active = new ArrayDeque<>();
+
+        /**
+         * JMH 不会自动清零辅助计数，每轮迭代开始时手动清零，否则预热轮次的计数会累加到测量结果中
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            booked = 0;
+            rejected = 0;
+            active.clear();
+        }
+    }
+
+    @Benchmark
+    public boolean book(Booker booker) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Order order = new Order();
+        order.setId(orderIds.incrementAndGet());
+        order.setPropertyId(PROPERTY_ID);
+        order.setCheckInDate(firstNight.plusDays(random.nextInt(BOOKING_WINDOW_DAYS)));
+        order.setCheckOutDate(order.getCheckInDate().plusDays(1 + random.nextInt(3)));
+        order.setGuestCount(1 + random.nextInt(4));
+        order.setStatus(Order.OrderStatus.PENDING);
+
+        boolean committed = inTransaction(() -> {
+            engine.reserve(property, order.getCheckInDate(), order.getCheckOutDate(), order.getGuestCount());
+            AfterCommit.run(() -> calendar.apply(order));
+        });
+        if (!committed) {
+            booker.rejected++;
+            return false;
+        }
+        booker.booked++;
+        booker.active.addLast(order);
+        if (booker.active.size() > MAX_ACTIVE_PER_THREAD) {
+            Order cancelled = booker.active.removeFirst();
+            cancelled.setStatus(Order.OrderStatus.CANCELLED);
+            inTransaction(() -> {
+                engine.release(cancelled);
+                AfterCommit.run(() -> calendar.apply(cancelled));
+            });
+        }
+        return true;
+    }
+
+    /**
+     * 模拟 Spring 事务的同步回调：成功时先执行 afterCommit 再执行 afterCompletion，失败时只执行 afterCompletion
+     */
+    private static boolean inTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        boolean committed = false;
+        try {
+            work.run();
+            committed = true;
+        } catch (RuntimeException e) {
+            // 已满或等待锁超时，视为预订被拒，事务回滚
+        } finally {
+            List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+            TransactionSynchronizationManager.clearSynchronization();
+            if (committed) {
+                synchronizations.forEach(TransactionSynchronization::afterCommit);
+            }
+            int status = committed ? TransactionSynchronization.STATUS_COMMITTED : TransactionSynchronization.STATUS_ROLLED_BACK;
+            synchronizations.forEach(synchronization -> synchronization.afterCompletion(status));
+        }
+        return committed;
+    }
+
+    private static void inject(Object target, String fieldName, Object value) throws ReflectiveOperationException {
+        Field field = target.getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
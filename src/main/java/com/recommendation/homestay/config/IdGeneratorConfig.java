@@ -0,0 +1,156 @@
+package com.recommendation.homestay.config;
+
+import com.recommendation.homestay.support.SnowflakeIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 订单号生成器配置
+ *
+ * 节点号优先使用 order-number.node-id；未配置（-1）时在 Redis 中领取一个节点号租约：
+ * 从随机位置起依次对 order-number:node:{节点号} 执行 SET NX 并设置 order-number.node-lease-seconds 秒过期，
+ * 值为本实例的随机令牌。后台线程每三分之一租期续约一次；续约时发现节点号已被其他实例领取则换领一个空闲节点号，
+ * Redis 暂时不可用则保持原节点号，租约到期前仍未续上时生成器拒绝生成订单号，不会与其他实例重复。
+ * 未配置节点号且 Redis 不可用或没有空闲节点号时拒绝启动。
+ *
+ * @author Homestay Recommendation System
+ */
+@Configuration
+public class IdGeneratorConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(IdGeneratorConfig.class);
+    private static final String NODE_KEY_PREFIX = "order-number:node:";
+
+    /**
+     * KEYS[1] 节点号键；ARGV[1] 令牌，ARGV[2] 租期毫秒。仍由本实例持有或已过期时续约并返回 1，被其他实例领取时返回 0
+     */
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "local owner = redis.call('GET', KEYS[1]) "
+                    + "if owner == ARGV[1] then redis.call('PEXPIRE', KEYS[1], ARGV[2]) return 1 end "
+                    + "if not owner then redis.call('SET', KEYS[1], ARGV[1], 'PX', ARGV[2]) return 1 end "
+                    + "return 0", Long.class);
+    /**
+     * KEYS[1] 节点号键；ARGV[1] 令牌。仅在仍由本实例持有时删除
+     */
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) end "
+                    + "return 0", Long.class);
+
+    @Value("${order-number.node-id:-1}")
+    private long nodeId;
+
+    @Value("${order-number.epoch:2024-01-01}")
+    private String epoch;
+
+    @Value("${order-number.max-drift-ms:1000}")
+    private long maxDriftMillis;
+
+    @Value("${order-number.max-wait-ms:2000}")
+    private long maxWaitMillis;
+
+    @Value("${order-number.node-lease-seconds:30}")
+    private long leaseSeconds;
+
+    private final String token = UUID.randomUUID().toString();
+    private StringRedisTemplate redisTemplate;
+    private SnowflakeIdGenerator generator;
+    private ScheduledExecutorService renewer;
+    private volatile long leasedNode = -1;
+
+    @Bean
+    public SnowflakeIdGenerator orderNumberGenerator(ObjectProvider<StringRedisTemplate> redisTemplate) {
+        long epochMillis = LocalDate.parse(epoch).atStartOfDay(ZoneOffset.UTC).toInstant().toEpochMilli();
+        if (nodeId >= 0) {
+            log.info("Order number generator using configured node id {}", nodeId);
+            return new SnowflakeIdGenerator(nodeId, epochMillis, maxDriftMillis, maxWaitMillis,
+                    System::currentTimeMillis);
+        }
+        this.redisTemplate = redisTemplate.getIfAvailable();
+        if (this.redisTemplate == null) {
+            throw new IllegalStateException("未配置 order-number.node-id 且没有可用的 Redis，无法分配订单号节点号");
+        }
+        long start = System.nanoTime();
+        long node = claimNode();
+        generator = new SnowflakeIdGenerator(node, epochMillis, maxDriftMillis, maxWaitMillis,
+                System::currentTimeMillis);
+        generator.lease(node, start + TimeUnit.SECONDS.toNanos(leaseSeconds));
+        leasedNode = node;
+        log.info("Order number generator leased node id {} for {} s", node, leaseSeconds);
+
+        long renewMillis = Math.max(1, TimeUnit.SECONDS.toMillis(leaseSeconds) / 3);
+        renewer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "order-number-node-lease");
+            thread.setDaemon(true);
+            return thread;
+        });
+        renewer.scheduleWithFixedDelay(this::renew, renewMillis, renewMillis, TimeUnit.MILLISECONDS);
+        return generator;
+    }
+
+    @PreDestroy
+    public void releaseNode() {
+        if (renewer == null) {
+            return;
+        }
+        renewer.shutdownNow();
+        try {
+            redisTemplate.execute(RELEASE_SCRIPT, Collections.singletonList(NODE_KEY_PREFIX + leasedNode), token);
+        } catch (Exception e) {
+            log.warn("Failed to release order number node id {}, it frees up when the lease expires", leasedNode, e);
+        }
+    }
+
+    /**
+     * 从随机位置起领取第一个空闲节点号
+     */
+    private long claimNode() {
+        long nodes = SnowflakeIdGenerator.MAX_NODE_ID + 1;
+        long offset = ThreadLocalRandom.current().nextLong(nodes);
+        Duration ttl = Duration.ofSeconds(leaseSeconds);
+        for (long i = 0; i < nodes; i++) {
+            long node = (offset + i) % nodes;
+            if (Boolean.TRUE.equals(redisTemplate.opsForValue().setIfAbsent(NODE_KEY_PREFIX + node, token, ttl))) {
+                return node;
+            }
+        }
+        throw new IllegalStateException("没有空闲的订单号节点号（共 " + nodes + " 个）");
+    }
+
+    private void renew() {
+        long start = System.nanoTime();
+        long expiresAt = start + TimeUnit.SECONDS.toNanos(leaseSeconds);
+        try {
+            Long renewed = redisTemplate.execute(RENEW_SCRIPT,
+                    Collections.singletonList(NODE_KEY_PREFIX + leasedNode), token,
+                    Long.toString(TimeUnit.SECONDS.toMillis(leaseSeconds)));
+            if (renewed != null && renewed == 1) {
+                generator.lease(leasedNode, expiresAt);
+                return;
+            }
+            long node = claimNode();
+            log.warn("Order number node id {} was taken by another instance, switched to {}", leasedNode, node);
+            generator.lease(node, expiresAt);
+            leasedNode = node;
+        } catch (Exception e) {
+            log.warn("Failed to renew order number node id {}", leasedNode, e);
+        }
+    }
+}
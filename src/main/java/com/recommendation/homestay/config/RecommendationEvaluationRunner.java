@@ -0,0 +1,87 @@
+package com.recommendation.homestay.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recommendation.homestay.dto.RecommendationEvaluationReport;
+import com.recommendation.homestay.dto.RecommendationEvaluationRequest;
+import com.recommendation.homestay.service.RecommendationEvaluationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * 离线推荐评估
+ *
+ * evaluation.enabled=true 时在启动后执行一次评估，把结果以表格和 JSON 两种形式写入日志；
+ * evaluation.exit-after-run=true 时评估完成后退出应用，可作为批处理任务运行。
+ *
+ * @author Homestay Recommendation System
+ */
+@Component
+@ConditionalOnProperty(name = "evaluation.enabled", havingValue = "true")
+public class RecommendationEvaluationRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationEvaluationRunner.class);
+
+    @Autowired
+    private RecommendationEvaluationService evaluationService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${evaluation.split-at:}")
+    private String splitAt;
+
+    @Value("${evaluation.k:10}")
+    private int k;
+
+    @Value("${evaluation.max-users:1000}")
+    private int maxUsers;
+
+    @Value("${evaluation.engines:}")
+    private String engines;
+
+    @Value("${evaluation.exit-after-run:false}")
+    private boolean exitAfterRun;
+
+    @Override
+    public void run(String... args) throws Exception {
+        RecommendationEvaluationRequest request = new RecommendationEvaluationRequest();
+        if (StringUtils.hasText(splitAt)) {
+            request.setSplitAt(LocalDateTime.parse(splitAt));
+        }
+        request.setK(k);
+        request.setMaxUsers(maxUsers);
+        if (StringUtils.hasText(engines)) {
+            request.setEngines(Arrays.asList(StringUtils.tokenizeToStringArray(engines, ",")));
+        }
+
+        RecommendationEvaluationReport report = evaluationService.evaluate(request);
+        StringBuilder table = new StringBuilder(String.format("%n%-16s %10s %10s %10s %10s %10s %10s %14s%n",
+                "engine", "P@" + k, "R@" + k, "NDCG@" + k, "coverage", "p50(ms)", "p99(ms)", "bytes/call"));
+        for (RecommendationEvaluationReport.EngineResult result : report.getEngines()) {
+            table.append(String.format("%-16s %10.4f %10.4f %10.4f %10.4f %10.3f %10.3f %14d%n",
+                    result.getEngine(), result.getPrecisionAtK(), result.getRecallAtK(), result.getNdcgAtK(),
+                    result.getCatalogueCoverage(), result.getP50LatencyMillis(), result.getP99LatencyMillis(),
+                    result.getBytesAllocatedPerCall()));
+        }
+        log.info("Offline evaluation (split at {}, {} users):{}", report.getSplitAt(), report.getEvaluatedUsers(), table);
+        log.info("Offline evaluation report: {}", objectMapper.writeValueAsString(report));
+
+        if (exitAfterRun) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+}
@@ -6,25 +6,52 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.recommendation.homestay.dto.AdminAccountDTO;
 import com.recommendation.homestay.dto.ApiResponse;
+import com.recommendation.homestay.dto.BulkRecommendationRequest;
 import com.recommendation.homestay.dto.PageResponse;
 import com.recommendation.homestay.dto.PropertyOccupancyDTO;
+import com.recommendation.homestay.dto.RecommendationEvaluationReport;
+import com.recommendation.homestay.dto.RecommendationEvaluationRequest;
+import com.recommendation.homestay.entity.Order;
 import com.recommendation.homestay.entity.Property;
 import com.recommendation.homestay.entity.User;
+import com.recommendation.homestay.event.OrderEventBus;
 import com.recommendation.homestay.mapper.UserMapper;
 import com.recommendation.homestay.security.UserPrincipal;
+import com.recommendation.homestay.service.BulkRecommendationService;
+import com.recommendation.homestay.service.ExportService;
+import com.recommendation.homestay.service.OrderArchiveService;
+import com.recommendation.homestay.service.PlatformStatsService;
 import com.recommendation.homestay.service.PropertyService;
+import com.recommendation.homestay.service.PropertyStatsService;
+import com.recommendation.homestay.service.RecommendationEvaluationService;
+import com.recommendation.homestay.service.ReviewService;
+import com.recommendation.homestay.support.AfterCommit;
+import com.recommendation.homestay.support.TabularExportWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.stream.Collectors;
 
 @RestController
@@ -40,6 +67,30 @@ public class AdminController {
     @Autowired
     private PropertyService propertyService;
 
+    @Autowired
+    private BulkRecommendationService bulkRecommendationService;
+
+    @Autowired
+    private RecommendationEvaluationService recommendationEvaluationService;
+
+    @Autowired
+    private OrderEventBus orderEventBus;
+
+    @Autowired
+    private PropertyStatsService propertyStatsService;
+
+    @Autowired
+    private ExportService exportService;
+
+    @Autowired
+    private OrderArchiveService orderArchiveService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private PlatformStatsService platformStatsService;
+
     /**
      * 分页查询用户/房东账户列表，可按角色过滤。
      * @param role
@@ -110,6 +161,9 @@ public class AdminController {
             return ResponseEntity.badRequest()
                     .body(new ApiResponse(false, "管理员账号不可冻结"));
         }
+        if (!Boolean.valueOf(!freeze).equals(user.getEnabled())) {
+            AfterCommit.run(() -> platformStatsService.userEnabledChanged(!freeze));
+        }
         user.setEnabled(!freeze);
         String message = freeze ? "账户已冻结" : "账户已解冻";
         return ResponseEntity.ok(new ApiResponse(true, message, toAccountDTO(user)));
@@ -164,6 +218,249 @@ public class AdminController {
         }
     }
 
+    /**
+     * 批量计算多个用户的推荐结果，以 NDJSON 流式返回（每行一个用户）。
+     * @param request
+     * @return
+     */
+    @PostMapping("/recommendations/bulk")
+    @Operation(summary = "批量推荐", description = "为指定用户或按角色/状态筛选出的全部用户批量计算推荐，结果以 NDJSON 流式返回")
+    public ResponseEntity<?> bulkRecommendations(@Valid @RequestBody BulkRecommendationRequest request) {
+        BulkRecommendationService.BulkJob job;
+        try {
+            job = bulkRecommendationService.prepare(request);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+        StreamingResponseBody body = out -> bulkRecommendationService.write(job, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    /**
+     * 流式导出订单（CSV 或 NDJSON，可选 gzip），按订单ID升序，适用于百万级数据。
+     * @param format
+     * @param gzip
+     * @param status
+     * @param landlordId
+     * @param from
+     * @param to
+     * @param request
+     * @return
+     */
+    @GetMapping("/export/orders")
+    @Operation(summary = "导出订单", description = "按状态、房东和创建日期筛选订单，以 CSV 或 NDJSON 流式下载")
+    public ResponseEntity<?> exportOrders(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) String status,
+            @RequestParam(required = false) Long landlordId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            HttpServletRequest request) {
+        TabularExportWriter.Format exportFormat;
+        Order.OrderStatus orderStatus;
+        try {
+            exportFormat = TabularExportWriter.Format.parse(format);
+            orderStatus = StringUtils.hasText(status) ? parseOrderStatus(status) : null;
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+        ExportService.Permit permit;
+        try {
+            permit = exportService.acquire();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+        StreamingResponseBody body = out ->
+                exportService.exportOrders(permit, orderStatus, landlordId, from, to, exportFormat, gzip, out);
+        return exportResponse("orders", exportFormat, gzip, body, permit, request);
+    }
+
+    /**
+     * 流式导出房源及当晚入住情况，替代逐页调用房源入住接口。
+     * @param format
+     * @param gzip
+     * @param landlordId
+     * @param request
+     * @return
+     */
+    @GetMapping("/export/occupancy")
+    @Operation(summary = "导出房源入住情况", description = "导出全部（或指定房东的）房源及当晚已住房间、剩余房间和入住人数")
+    public ResponseEntity<?> exportOccupancy(
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(defaultValue = "false") boolean gzip,
+            @RequestParam(required = false) Long landlordId,
+            HttpServletRequest request) {
+        TabularExportWriter.Format exportFormat;
+        try {
+            exportFormat = TabularExportWriter.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+        ExportService.Permit permit;
+        try {
+            permit = exportService.acquire();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+        StreamingResponseBody body = out ->
+                exportService.exportOccupancy(permit, landlordId, exportFormat, gzip, out);
+        return exportResponse("occupancy", exportFormat, gzip, body, permit, request);
+    }
+
+    /**
+     * 离线评估各推荐引擎：按时间切分历史数据，对比推荐质量与调用开销。
+     * @param request
+     * @return
+     */
+    @PostMapping("/recommendations/evaluate")
+    @Operation(summary = "推荐离线评估", description = "按时间切分交互与订单，回放留出期并报告 precision/recall/NDCG@K、覆盖率及 p50/p99 延迟与内存分配")
+    public ResponseEntity<ApiResponse> evaluateRecommendations(@Valid @RequestBody RecommendationEvaluationRequest request) {
+        try {
+            RecommendationEvaluationReport report = recommendationEvaluationService.evaluate(request);
+            return ResponseEntity.ok(new ApiResponse(true, "评估完成", report));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new ApiResponse(false, "推荐离线评估失败"));
+        }
+    }
+
+    /**
+     * 平台总览：按角色的用户数、房源与订单数、今日订单与成交额（内存计数，定期与数据库校准）。
+     * @return
+     */
+    @GetMapping("/stats/overview")
+    @Operation(summary = "平台总览", description = "返回用户、房源、各状态订单总数与今日成交，不扫描数据表")
+    public ResponseEntity<ApiResponse> getPlatformStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "统计获取成功", platformStatsService.getStats()));
+    }
+
+    /**
+     * 订单事件总线统计：各消费者的积压量、已处理数、重试与跳过次数。
+     * @return
+     */
+    @GetMapping("/order-events/stats")
+    @Operation(summary = "订单事件统计", description = "返回订单事件总线容量、已发布与丢弃数量及各消费者积压情况")
+    public ResponseEntity<ApiResponse> getOrderEventStats() {
+        return ResponseEntity.ok(new ApiResponse(true, "统计获取成功", orderEventBus.getStats()));
+    }
+
+    /**
+     * 立即执行一轮订单归档（平时由定时任务执行）。
+     * @return
+     */
+    @PostMapping("/orders/archive")
+    @Operation(summary = "归档历史订单", description = "把超过保留期的已完成、已取消订单迁入归档表，返回迁移数量")
+    public ResponseEntity<ApiResponse> archiveOrders() {
+        int archived = orderArchiveService.archive();
+        if (archived < 0) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse(false, "归档任务正在执行"));
+        }
+        return ResponseEntity.ok(new ApiResponse(true, "订单归档完成", archived));
+    }
+
+    /**
+     * 立即执行一轮房源评分校准。
+     * @return
+     */
+    @PostMapping("/reviews/reconcile")
+    @Operation(summary = "校准房源评分", description = "从评价记录重新聚合评分与评价数，只改写有偏差的房源，返回纠正数量")
+    public ResponseEntity<ApiResponse> reconcileRatings() {
+        int corrected = reviewService.reconcile();
+        if (corrected < 0) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(new ApiResponse(false, "评分校准正在执行"));
+        }
+        return ResponseEntity.ok(new ApiResponse(true, "评分校准完成", corrected));
+    }
+
+    /**
+     * 按房源、房东或城市查询历史入住率与收入时间序列。
+     * @param scope
+     * @param key
+     * @param from
+     * @param to
+     * @param granularity
+     * @return
+     */
+    @GetMapping("/stats/occupancy")
+    @Operation(summary = "历史入住率与收入", description = "scope 为 property、landlord 或 city，from/to 为 yyyy-MM，granularity 为 month 或 day")
+    public ResponseEntity<ApiResponse> getOccupancyStats(
+            @RequestParam(defaultValue = "city") String scope,
+            @RequestParam String key,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(defaultValue = "month") String granularity) {
+        try {
+            return ResponseEntity.ok(new ApiResponse(true, "统计获取成功",
+                    propertyStatsService.getSeries(scope, key, from, to, granularity)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 按订单表重建指定月份范围的每日汇总，用于修复或首次上线回填。
+     * @param from
+     * @param to
+     * @return
+     */
+    @PostMapping("/stats/daily/rebuild")
+    @Operation(summary = "重建每日汇总", description = "按月重建 from ~ to（yyyy-MM）范围内的房源每日入住与收入汇总")
+    public ResponseEntity<ApiResponse> rebuildDailyStats(@RequestParam String from, @RequestParam String to) {
+        try {
+            int rows = propertyStatsService.rebuild(from, to);
+            return ResponseEntity.ok(new ApiResponse(true, "每日汇总重建完成", rows));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 流式响应体只在异步写出时才释放导出名额；异步请求超时、出错或客户端在写出开始前断开时
+     * 写出不会执行，因此同时在异步请求结束（无论原因）时释放，名额只释放一次。
+     */
+    private ResponseEntity<StreamingResponseBody> exportResponse(String name, TabularExportWriter.Format format,
+                                                                 boolean gzip, StreamingResponseBody body,
+                                                                 ExportService.Permit permit,
+                                                                 HttpServletRequest request) {
+        WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(ExportService.Permit.class.getName(),
+                new CallableProcessingInterceptor() {
+                    @Override
+                    public <T> void afterCompletion(NativeWebRequest webRequest, Callable<T> task) {
+                        permit.close();
+                    }
+                });
+        String filename = name + "-" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE)
+                + "." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .header(HttpHeaders.CACHE_CONTROL, "no-store")
+                .body(body);
+    }
+
+    private Order.OrderStatus parseOrderStatus(String status) {
+        try {
+            return Order.OrderStatus.valueOf(status.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("无效的订单状态：" + status);
+        }
+    }
+
     /**
      * 将用户分页结果转换为管理员账户DTO分页结果。
      * @param users
@@ -0,0 +1,89 @@
+package com.recommendation.homestay.controller;
+
+import com.recommendation.homestay.dto.ApiResponse;
+import com.recommendation.homestay.dto.BookingHold;
+import com.recommendation.homestay.dto.BookingHoldRequest;
+import com.recommendation.homestay.security.UserPrincipal;
+import com.recommendation.homestay.service.BookingHoldService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+
+@RestController
+@RequestMapping("/api/holds")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@PreAuthorize("isAuthenticated()")
+@Tag(name = "Booking Hold", description = "预订保留接口")
+public class BookingHoldController {
+
+    @Autowired
+    private BookingHoldService bookingHoldService;
+
+    /**
+     * 为当前用户保留房源的若干晚，保留期内凭保留ID下单。
+     * @param request
+     * @param currentUser
+     * @return
+     */
+    @PostMapping
+    @Operation(summary = "创建预订保留", description = "在支付前短时间保留房源所选日期，到期自动释放")
+    public ResponseEntity<?> createHold(
+            @Valid @RequestBody BookingHoldRequest request,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            BookingHold hold = bookingHoldService.createHold(request, currentUser.getId());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse(true, "预订保留创建成功", hold));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 查询预订保留。
+     * @param id
+     * @param currentUser
+     * @return
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "获取预订保留", description = "返回当前用户的预订保留及到期时间")
+    public ResponseEntity<?> getHold(
+            @PathVariable String id,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            BookingHold hold = bookingHoldService.getHold(id, currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "预订保留获取成功", hold));
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 取消预订保留并立即释放所占日期。
+     * @param id
+     * @param currentUser
+     * @return
+     */
+    @DeleteMapping("/{id}")
+    @Operation(summary = "取消预订保留", description = "取消预订保留并释放所占日期")
+    public ResponseEntity<?> cancelHold(
+            @PathVariable String id,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            bookingHoldService.cancelHold(id, currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "预订保留已取消"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+}
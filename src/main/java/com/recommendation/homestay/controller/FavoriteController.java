@@ -0,0 +1,83 @@
+package com.recommendation.homestay.controller;
+
+import com.recommendation.homestay.dto.ApiResponse;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.security.UserPrincipal;
+import com.recommendation.homestay.service.FavoriteService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/favorites")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@PreAuthorize("isAuthenticated()")
+@Tag(name = "Favorite", description = "房源收藏接口")
+public class FavoriteController {
+
+    @Autowired
+    private FavoriteService favoriteService;
+
+    /**
+     * 收藏房源，重复收藏直接返回成功。
+     * @param propertyId
+     * @param currentUser
+     * @return
+     */
+    @PostMapping("/{propertyId}")
+    @Operation(summary = "收藏房源", description = "收藏房源，收藏会作为内容推荐的正向信号")
+    public ResponseEntity<?> addFavorite(
+            @PathVariable Long propertyId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            favoriteService.addFavorite(currentUser.getId(), propertyId);
+            return ResponseEntity.ok(new ApiResponse(true, "已收藏"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 取消收藏，未收藏时直接返回成功。
+     * @param propertyId
+     * @param currentUser
+     * @return
+     */
+    @DeleteMapping("/{propertyId}")
+    @Operation(summary = "取消收藏", description = "取消对房源的收藏")
+    public ResponseEntity<?> removeFavorite(
+            @PathVariable Long propertyId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            favoriteService.removeFavorite(currentUser.getId(), propertyId);
+            return ResponseEntity.ok(new ApiResponse(true, "已取消收藏"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 当前用户收藏的房源。
+     * @param currentUser
+     * @return
+     */
+    @GetMapping
+    @Operation(summary = "我的收藏", description = "按收藏时间倒序返回当前用户收藏的房源")
+    public ResponseEntity<?> getFavorites(@AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            List<Property> properties = favoriteService.getFavoriteProperties(currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "成功", properties));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+}
@@ -1,22 +1,29 @@
 package com.recommendation.homestay.controller;
 
-import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.recommendation.homestay.dto.ApiResponse;
+import com.recommendation.homestay.dto.CursorPageResponse;
+import com.recommendation.homestay.dto.GroupBookingRequest;
+import com.recommendation.homestay.dto.GroupBookingResult;
 import com.recommendation.homestay.dto.OrderRequest;
-import com.recommendation.homestay.dto.PageResponse;
 import com.recommendation.homestay.entity.Order;
 import com.recommendation.homestay.security.UserPrincipal;
+import com.recommendation.homestay.service.LandlordEventStream;
 import com.recommendation.homestay.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import javax.validation.Valid;
+import java.time.LocalDate;
 
 @RestController
 @RequestMapping("/api/orders")
@@ -28,6 +35,9 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private LandlordEventStream landlordEventStream;
+
     /**
      * 为当前用户创建订单。
      * @param request
@@ -49,6 +59,31 @@ public class OrderController {
         }
     }
 
+    /**
+     * 团体预订：一次提交多个房源或日期段，全部成功才下单，并逐项返回结果。
+     * @param request
+     * @param currentUser
+     * @return
+     */
+    @PostMapping("/group")
+    @Operation(summary = "团体预订", description = "一次预订多个房源或日期段，在一个事务内全部下单；任意一项失败则全部不下单并返回逐项原因")
+    public ResponseEntity<?> createGroupBooking(
+            @Valid @RequestBody GroupBookingRequest request,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            GroupBookingResult result = orderService.createGroupBooking(request, currentUser.getId());
+            if (!result.isBooked()) {
+                return ResponseEntity.status(HttpStatus.CONFLICT)
+                        .body(new ApiResponse(false, "部分预订无法完成，未创建任何订单", result));
+            }
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse(true, "团体预订成功", result));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     /**
      * 按ID查询订单详情。
      * @param id
@@ -90,22 +125,21 @@ public class OrderController {
     }
 
     /**
-     * 分页获取当前登录用户的订单列表。
+     * 获取当前登录用户的订单列表（键集分页，包含已归档的历史订单，传入上一页的 nextCursor 获取下一页）。
      * @param currentUser
-     * @param page
+     * @param cursor
      * @param size
      * @return
      */
     @GetMapping("/my-orders")
-    @Operation(summary = "分页获取我的订单", description = "返回当前用户的订单列表")
+    @Operation(summary = "分页获取我的订单", description = "返回当前用户的订单列表，按下单时间倒序，使用游标分页")
     public ResponseEntity<?> getMyOrders(
             @AuthenticationPrincipal UserPrincipal currentUser,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size) {
         try {
-            IPage<Order> orders = orderService.getUserOrders(currentUser.getId(), page, size);
-            PageResponse<Order> pageResponse = PageResponse.fromIPage(orders);
-            return ResponseEntity.ok(new ApiResponse(true, "订单列表获取成功", pageResponse));
+            CursorPageResponse<Order> orders = orderService.getUserOrders(currentUser.getId(), cursor, size);
+            return ResponseEntity.ok(new ApiResponse(true, "订单列表获取成功", orders));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(new ApiResponse(false, e.getMessage()));
@@ -113,29 +147,52 @@ public class OrderController {
     }
 
     /**
-     * 房东查看自己房源的订单列表。
+     * 房东查看自己房源的订单列表（键集分页，传入上一页的 nextCursor 获取下一页）。
      * @param currentUser
-     * @param page
+     * @param cursor
      * @param size
+     * @param status
+     * @param from
+     * @param to
      * @return
      */
     @GetMapping("/landlord")
     @PreAuthorize("hasAnyAuthority('ROLE_LANDLORD','ROLE_ADMIN','LANDLORD','ADMIN')")
-    @Operation(summary = "房东订单列表", description = "查看房东名下房源的所有订单")
+    @Operation(summary = "房东订单列表", description = "按下单时间倒序分页查看房东名下房源的订单，可按状态和下单日期筛选")
     public ResponseEntity<?> getLandlordOrders(
             @AuthenticationPrincipal UserPrincipal currentUser,
-            @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) Order.OrderStatus status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
         try {
-            IPage<Order> orders = orderService.getOrdersForLandlord(currentUser.getId(), page, size);
-            PageResponse<Order> pageResponse = PageResponse.fromIPage(orders);
-            return ResponseEntity.ok(new ApiResponse(true, "订单列表获取成功", pageResponse));
+            CursorPageResponse<Order> orders = orderService.getOrdersForLandlord(
+                    currentUser.getId(), cursor, size, status, from, to);
+            return ResponseEntity.ok(new ApiResponse(true, "订单列表获取成功", orders));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(new ApiResponse(false, e.getMessage()));
         }
     }
 
+    /**
+     * 房东订单通知推送（Server-Sent Events），收到事件后再刷新订单列表。
+     * @param currentUser
+     * @return
+     */
+    @GetMapping(value = "/landlord/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasAnyAuthority('ROLE_LANDLORD','ROLE_ADMIN','LANDLORD','ADMIN')")
+    @Operation(summary = "房东订单推送", description = "推送新订单、退订申请、订单取消与新评价事件，连接断开后客户端应重连并刷新列表")
+    public SseEmitter streamLandlordEvents(@AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            return landlordEventStream.subscribe(currentUser.getId());
+        } catch (RuntimeException e) {
+            // 事件流响应无法返回 ApiResponse，超出连接数时直接返回 429
+            throw new ResponseStatusException(HttpStatus.TOO_MANY_REQUESTS, e.getMessage());
+        }
+    }
+
     /**
      * 更新订单状态，如支付、取消等。
      * @param id
@@ -3,17 +3,28 @@ package com.recommendation.homestay.controller;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.recommendation.homestay.config.UploadUtils;
 import com.recommendation.homestay.dto.ApiResponse;
+import com.recommendation.homestay.dto.OccupancyStatsDTO;
 import com.recommendation.homestay.dto.PageResponse;
+import com.recommendation.homestay.dto.PriceQuoteDTO;
+import com.recommendation.homestay.dto.PriceRuleRequest;
 import com.recommendation.homestay.dto.PropertyOccupancyDTO;
 import com.recommendation.homestay.dto.PropertyRequest;
 import com.recommendation.homestay.dto.PropertyResponseDTO;
+import com.recommendation.homestay.dto.ReviewRequest;
 import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.PropertyPriceRule;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.recommendation.homestay.security.UserPrincipal;
+import com.recommendation.homestay.service.FavoriteService;
 import com.recommendation.homestay.service.PropertyService;
+import com.recommendation.homestay.service.PropertyStatsService;
+import com.recommendation.homestay.service.ReviewService;
+import com.recommendation.homestay.service.TrendingService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -25,11 +36,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -49,6 +62,18 @@ public class PropertyController {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private PropertyStatsService propertyStatsService;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    @Autowired
+    private FavoriteService favoriteService;
+
     private static final Set<String> ALLOWED_EXTENSIONS = new HashSet<>(Arrays.asList(".jpg", ".jpeg", ".png", ".gif", ".webp"));
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
     private static final int MAX_FILES = 10;
@@ -262,6 +287,138 @@ public class PropertyController {
         }
     }
 
+    /**
+     * 按入住/退房日期计算房源报价（含每晚价格明细）。
+     * @param id
+     * @param checkIn
+     * @param checkOut
+     * @return
+     */
+    @GetMapping("/{id}/quote")
+    @Operation(summary = "房源报价", description = "按价格日历计算入住期间的总价与每晚价格")
+    public ResponseEntity<?> quote(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut) {
+        try {
+            PriceQuoteDTO quote = propertyService.quote(id, checkIn, checkOut);
+            return ResponseEntity.ok(new ApiResponse(true, "成功", quote));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 入住完成的用户评价房源。
+     * @param id
+     * @param request
+     * @param currentUser
+     * @return
+     */
+    @PostMapping("/{id}/reviews")
+    @Operation(summary = "评价房源", description = "有已完成订单的用户对房源评分（1-5）并填写评价，每个房源只能评价一次")
+    public ResponseEntity<?> submitReview(
+            @PathVariable Long id,
+            @Valid @RequestBody ReviewRequest request,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            UserPropertyInteraction review = reviewService.submitReview(id, request, currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "评价已提交", review));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 房源评价列表。
+     * @param id
+     * @param cursor
+     * @param size
+     * @return
+     */
+    @GetMapping("/{id}/reviews")
+    @Operation(summary = "房源评价列表", description = "按时间倒序的键集分页，nextCursor 原样传回获取下一页")
+    public ResponseEntity<?> getReviews(
+            @PathVariable Long id,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size) {
+        try {
+            return ResponseEntity.ok(new ApiResponse(true, "成功", reviewService.getReviews(id, cursor, size)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 房东查看房源的价格规则。
+     * @param id
+     * @param currentUser
+     * @return
+     */
+    @GetMapping("/{id}/price-rules")
+    @PreAuthorize("hasAnyAuthority('ROLE_LANDLORD','ROLE_ADMIN','LANDLORD','ADMIN')")
+    @Operation(summary = "价格规则列表", description = "房东查看房源尚未过期的按日期/星期定价规则")
+    public ResponseEntity<?> getPriceRules(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            List<PropertyPriceRule> rules = propertyService.getPriceRules(id, currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "成功", rules));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 房东新增价格规则。
+     * @param id
+     * @param request
+     * @param currentUser
+     * @return
+     */
+    @PostMapping("/{id}/price-rules")
+    @PreAuthorize("hasAnyAuthority('ROLE_LANDLORD','ROLE_ADMIN','LANDLORD','ADMIN')")
+    @Operation(summary = "新增价格规则", description = "为日期区间（可限定星期几）设置每晚价格，后添加的规则优先")
+    public ResponseEntity<?> addPriceRule(
+            @PathVariable Long id,
+            @Valid @RequestBody PriceRuleRequest request,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            PropertyPriceRule rule = propertyService.addPriceRule(id, request, currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "价格规则已添加", rule));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 房东删除价格规则。
+     * @param id
+     * @param ruleId
+     * @param currentUser
+     * @return
+     */
+    @DeleteMapping("/{id}/price-rules/{ruleId}")
+    @PreAuthorize("hasAnyAuthority('ROLE_LANDLORD','ROLE_ADMIN','LANDLORD','ADMIN')")
+    @Operation(summary = "删除价格规则", description = "删除房源的一条价格规则")
+    public ResponseEntity<?> deletePriceRule(
+            @PathVariable Long id,
+            @PathVariable Long ruleId,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            propertyService.deletePriceRule(id, ruleId, currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "价格规则已删除"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     /**
      * 根据ID删除房源。
      * @param id
@@ -284,17 +441,24 @@ public class PropertyController {
     }
 
     /**
-     * 获取房源详情并增加浏览量。
+     * 获取房源详情并增加浏览量、记录独立访客。
      * @param id
+     * @param currentUser 未登录时为空，按 IP 与 User-Agent 识别访客
+     * @param request
      * @return
      */
     @GetMapping("/{id}")
     @Operation(summary = "获取房源详情", description = "根据ID返回房源信息并增加浏览量")
-    public ResponseEntity<?> getProperty(@PathVariable Long id) {
+    public ResponseEntity<?> getProperty(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            HttpServletRequest request) {
         try {
             Property property = propertyService.getPropertyById(id);
-            propertyService.incrementViewCount(id);
+            propertyService.incrementViewCount(id, visitorKey(currentUser, request));
+            trendingService.recordView(property);
             PropertyResponseDTO dto = propertyService.toResponseDTO(property);
+            favoriteService.markFavorite(userId(currentUser), dto);
             return ResponseEntity.ok(new ApiResponse(true, "房源获取成功", dto));
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.NOT_FOUND)
@@ -308,6 +472,7 @@ public class PropertyController {
      * @param size
      * @param sortBy
      * @param sortDir
+     * @param currentUser 未登录时为空，不标记收藏
      * @return
      */
     @GetMapping
@@ -316,9 +481,11 @@ public class PropertyController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDir) {
+            @RequestParam(defaultValue = "DESC") String sortDir,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
         try {
             IPage<Property> properties = propertyService.getAllProperties(page, size);
+            properties.setRecords(favoriteService.markFavorites(userId(currentUser), properties.getRecords()));
             // 严格转换为自定义DTO，杜绝IPage暴露
             PageResponse<Property> pageResponse = PageResponse.fromIPage(properties);
             return ResponseEntity.ok(new ApiResponse(true, "成功", pageResponse));
@@ -346,6 +513,7 @@ public class PropertyController {
             @RequestParam(defaultValue = "10") int size) {
         try {
             IPage<Property> properties = propertyService.getPropertiesByLandlord(currentUser.getId(), page, size);
+            properties.setRecords(favoriteService.markFavorites(currentUser.getId(), properties.getRecords()));
             PageResponse<Property> pageResponse = PageResponse.fromIPage(properties);
             return ResponseEntity.ok(new ApiResponse(true, "房东房源列表获取成功", pageResponse));
         } catch (Exception e) {
@@ -377,28 +545,74 @@ public class PropertyController {
         }
     }
 
+    /**
+     * 房东查看名下全部房源（或指定房源）按月或按天的历史入住率与收入。
+     * @param currentUser
+     * @param from
+     * @param to
+     * @param propertyId
+     * @param granularity
+     * @return
+     */
+    @GetMapping("/landlord/stats")
+    @PreAuthorize("hasAnyAuthority('ROLE_LANDLORD','ROLE_ADMIN','LANDLORD','ADMIN')")
+    @Operation(summary = "房源历史入住率与收入", description = "按月（yyyy-MM）范围返回房东名下房源的入住率与收入时间序列")
+    public ResponseEntity<?> getLandlordStats(
+            @AuthenticationPrincipal UserPrincipal currentUser,
+            @RequestParam String from,
+            @RequestParam String to,
+            @RequestParam(required = false) Long propertyId,
+            @RequestParam(defaultValue = "month") String granularity) {
+        try {
+            OccupancyStatsDTO stats;
+            if (propertyId != null) {
+                Property property = propertyService.getPropertyById(propertyId);
+                if (!currentUser.getId().equals(property.getLandlordId())) {
+                    throw new IllegalArgumentException("无权查看该房源的统计");
+                }
+                stats = propertyStatsService.getSeries("property", propertyId.toString(), from, to, granularity);
+            } else {
+                stats = propertyStatsService.getSeries("landlord", currentUser.getId().toString(), from, to, granularity);
+            }
+            return ResponseEntity.ok(new ApiResponse(true, "房源统计获取成功", stats));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     /**
      * 按城市、价格、卧室数等条件搜索房源。
      * @param city
      * @param minPrice
      * @param maxPrice
      * @param bedrooms
+     * @param minTotalPrice 按入住日期计算的行程总价下限（需同时传入入住/退房日期）
+     * @param maxTotalPrice 按入住日期计算的行程总价上限
      * @param page
      * @param size
+     * @param currentUser 未登录时为空，不标记收藏
      * @return
      */
     @GetMapping("/search")
-    @Operation(summary = "搜索房源", description = "按城市、价格、卧室数等条件搜索房源")
+    @Operation(summary = "搜索房源", description = "按城市、价格、卧室数等条件搜索房源，可按入住/退房日期和人数只返回可订房源，并按行程总价筛选")
     public ResponseEntity<?> searchProperties(
             @RequestParam(required = false) String city,
             @RequestParam(required = false) BigDecimal minPrice,
             @RequestParam(required = false) BigDecimal maxPrice,
             @RequestParam(required = false) Integer bedrooms,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkIn,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate checkOut,
+            @RequestParam(required = false) Integer guests,
+            @RequestParam(required = false) BigDecimal minTotalPrice,
+            @RequestParam(required = false) BigDecimal maxTotalPrice,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
         try {
-            IPage<Property> properties = propertyService.searchProperties(
-                    city, minPrice, maxPrice, bedrooms, page, size);
+            IPage<Property> properties = propertyService.searchProperties(city, minPrice, maxPrice, bedrooms,
+                    checkIn, checkOut, guests, minTotalPrice, maxTotalPrice, page, size);
+            properties.setRecords(favoriteService.markFavorites(userId(currentUser), properties.getRecords()));
             PageResponse<Property> pageResponse = PageResponse.fromIPage(properties);
             return ResponseEntity.ok(new ApiResponse(true, "成功", pageResponse));
         } catch (Exception e) {
@@ -408,13 +622,15 @@ public class PropertyController {
 
     /**
      * 获取热门房源列表（高浏览量）。
+     * @param currentUser 未登录时为空，不标记收藏
      * @return
      */
     @GetMapping("/popular")
     @Operation(summary = "热门房源", description = "获取浏览量较高的房源列表")
-    public ResponseEntity<?> getPopularProperties() {
+    public ResponseEntity<?> getPopularProperties(@AuthenticationPrincipal UserPrincipal currentUser) {
         try {
-            List<Property> properties = propertyService.getPopularProperties();
+            List<Property> properties = favoriteService.markFavorites(userId(currentUser),
+                    propertyService.getPopularProperties());
             return ResponseEntity.ok(new ApiResponse(true, "热门房源获取成功", properties));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
@@ -422,19 +638,66 @@ public class PropertyController {
         }
     }
 
+    /**
+     * 获取实时趋势房源，按滑动窗口统计浏览与预订热度。
+     * @param window
+     * @param city
+     * @param limit
+     * @param currentUser 未登录时为空，不标记收藏
+     * @return
+     */
+    @GetMapping("/trending")
+    @Operation(summary = "趋势房源", description = "按 1h/24h/7d 滑动窗口返回全局或指定城市的实时热门房源")
+    public ResponseEntity<?> getTrendingProperties(
+            @RequestParam(defaultValue = "24h") String window,
+            @RequestParam(required = false) String city,
+            @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            List<Property> properties = favoriteService.markFavorites(userId(currentUser), trendingService.getTrending(
+                    TrendingService.Window.fromCode(window), city, limit));
+            return ResponseEntity.ok(new ApiResponse(true, "趋势房源获取成功", properties));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
     /**
      * 获取高评分房源列表。
+     * @param currentUser 未登录时为空，不标记收藏
      * @return
      */
     @GetMapping("/top-rated")
     @Operation(summary = "高评分房源", description = "获取评分较高的房源列表")
-    public ResponseEntity<?> getTopRatedProperties() {
+    public ResponseEntity<?> getTopRatedProperties(@AuthenticationPrincipal UserPrincipal currentUser) {
         try {
-            List<Property> properties = propertyService.getTopRatedProperties();
+            List<Property> properties = favoriteService.markFavorites(userId(currentUser),
+                    propertyService.getTopRatedProperties());
             return ResponseEntity.ok(new ApiResponse(true, "高评分房源获取成功", properties));
         } catch (Exception e) {
             return ResponseEntity.badRequest()
                     .body(new ApiResponse(false, e.getMessage()));
         }
     }
+
+    /**
+     * 当前登录用户ID，未登录时为空
+     */
+    private static Long userId(UserPrincipal currentUser) {
+        return currentUser == null ? null : currentUser.getId();
+    }
+
+    /**
+     * 独立访客标识：登录用户按用户ID，未登录按客户端 IP
+     *
+     * 只用连接的对端地址，不读取客户端可随意填写的请求头（X-Forwarded-For、User-Agent），否则每次换个请求头
+     * 刷新都会记成新访客。部署在反向代理之后时由 server.forward-headers-strategy=native 按受信代理还原真实地址。
+     */
+    private static String visitorKey(UserPrincipal currentUser, HttpServletRequest request) {
+        if (currentUser != null) {
+            return "u:" + currentUser.getId();
+        }
+        return "a:" + request.getRemoteAddr();
+    }
 }
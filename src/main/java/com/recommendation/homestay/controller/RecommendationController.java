@@ -3,15 +3,19 @@ package com.recommendation.homestay.controller;
 import com.recommendation.homestay.dto.ApiResponse;
 import com.recommendation.homestay.entity.Property;
 import com.recommendation.homestay.security.UserPrincipal;
+import com.recommendation.homestay.service.FavoriteService;
 import com.recommendation.homestay.service.RecommendationService;
+import com.recommendation.homestay.service.SegmentRecommendationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.util.StringUtils;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Collections;
 import java.util.List;
 
 @RestController
@@ -24,20 +28,33 @@ public class RecommendationController {
     @Autowired
     private RecommendationService recommendationService;
 
+    @Autowired
+    private SegmentRecommendationService segmentRecommendationService;
+
+    @Autowired
+    private FavoriteService favoriteService;
+
     /**
      * 获取综合推荐列表，混合多种推荐算法返回房源。
      * @param currentUser
      * @param limit
+     * @param city 冷启动用户的城市提示
      * @return
      */
     @GetMapping
     @Operation(summary = "获取综合推荐", description = "基于多种算法为当前用户返回推荐房源")
     public ResponseEntity<?> getRecommendations(
             @AuthenticationPrincipal UserPrincipal currentUser,
-            @RequestParam(defaultValue = "10") int limit) {
+            @RequestParam(defaultValue = "10") int limit,
+            @RequestParam(required = false) String city) {
         try {
-            List<Property> recommendations = recommendationService.getRecommendations(
-                    currentUser.getId(), limit);
+            List<Property> recommendations = StringUtils.hasText(city)
+                    ? recommendationService.getColdStartRecommendations(currentUser.getId(), limit, city)
+                    : Collections.emptyList();
+            if (recommendations.isEmpty()) {
+                recommendations = recommendationService.getRecommendations(currentUser.getId(), limit);
+            }
+            recommendations = favoriteService.markFavorites(currentUser.getId(), recommendations);
             return ResponseEntity.ok(new ApiResponse(true, 
                     "推荐列表获取成功", recommendations));
         } catch (Exception e) {
@@ -60,6 +77,7 @@ public class RecommendationController {
         try {
             List<Property> recommendations = recommendationService
                     .getCollaborativeFilteringRecommendations(currentUser.getId(), limit);
+            recommendations = favoriteService.markFavorites(currentUser.getId(), recommendations);
             return ResponseEntity.ok(new ApiResponse(true, 
                     "协同过滤推荐获取成功", recommendations));
         } catch (Exception e) {
@@ -82,6 +100,7 @@ public class RecommendationController {
         try {
             List<Property> recommendations = recommendationService
                     .getContentBasedRecommendations(currentUser.getId(), limit);
+            recommendations = favoriteService.markFavorites(currentUser.getId(), recommendations);
             return ResponseEntity.ok(new ApiResponse(true, 
                     "内容相似推荐获取成功", recommendations));
         } catch (Exception e) {
@@ -89,4 +108,34 @@ public class RecommendationController {
                     .body(new ApiResponse(false, e.getMessage()));
         }
     }
+
+    /**
+     * 匿名访客的分群推荐，按城市、价格档位和房源类型返回预计算的排行。
+     * @param city
+     * @param priceBand
+     * @param propertyType
+     * @param limit
+     * @param currentUser 未登录时为空，不标记收藏
+     * @return
+     */
+    @GetMapping("/segment")
+    @PreAuthorize("permitAll()")
+    @Operation(summary = "分群推荐", description = "无需登录，按城市 × 价格档位 × 房源类型返回预计算的推荐房源")
+    public ResponseEntity<?> getSegmentRecommendations(
+            @RequestParam(required = false) String city,
+            @RequestParam(required = false) String priceBand,
+            @RequestParam(required = false) String propertyType,
+            @RequestParam(defaultValue = "10") int limit,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            List<Property> recommendations = favoriteService.markFavorites(
+                    currentUser == null ? null : currentUser.getId(),
+                    segmentRecommendationService.recommend(city, priceBand, propertyType, limit));
+            return ResponseEntity.ok(new ApiResponse(true,
+                    "分群推荐获取成功", recommendations));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
 }
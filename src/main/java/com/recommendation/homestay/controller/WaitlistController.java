@@ -0,0 +1,87 @@
+package com.recommendation.homestay.controller;
+
+import com.recommendation.homestay.dto.ApiResponse;
+import com.recommendation.homestay.dto.WaitlistRequest;
+import com.recommendation.homestay.entity.WaitlistEntry;
+import com.recommendation.homestay.security.UserPrincipal;
+import com.recommendation.homestay.service.WaitlistService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/waitlist")
+@CrossOrigin(origins = "*", maxAge = 3600)
+@PreAuthorize("isAuthenticated()")
+@Tag(name = "Waitlist", description = "满房候补接口")
+public class WaitlistController {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    /**
+     * 为已满房的日期登记候补，有人取消且整段可订时通知。
+     * @param request
+     * @param currentUser
+     * @return
+     */
+    @PostMapping
+    @Operation(summary = "登记候补", description = "所选日期已满房时登记候补，有订单取消释放这些夜晚后标记为已通知")
+    public ResponseEntity<?> join(
+            @Valid @RequestBody WaitlistRequest request,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            WaitlistEntry entry = waitlistService.join(request, currentUser.getId());
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse(true, "候补登记成功", entry));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 当前用户的候补记录。
+     * @param currentUser
+     * @return
+     */
+    @GetMapping("/my")
+    @Operation(summary = "我的候补", description = "返回当前用户最近的候补记录及通知状态，NOTIFIED 表示日期已重新可订，前端据此提示用户下单")
+    public ResponseEntity<?> getMyWaitlist(@AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            List<WaitlistEntry> entries = waitlistService.getUserWaitlist(currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "成功", entries));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+
+    /**
+     * 取消候补。
+     * @param id
+     * @param currentUser
+     * @return
+     */
+    @DeleteMapping("/{id}")
+    @Operation(summary = "取消候补", description = "取消等待中的候补")
+    public ResponseEntity<?> cancel(
+            @PathVariable Long id,
+            @AuthenticationPrincipal UserPrincipal currentUser) {
+        try {
+            waitlistService.cancel(id, currentUser.getId());
+            return ResponseEntity.ok(new ApiResponse(true, "候补已取消"));
+        } catch (Exception e) {
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse(false, e.getMessage()));
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import java.time.LocalDate;
+
+/**
+ * 预订保留：在 expiresAt（毫秒时间戳）之前为用户占住房源的若干晚，凭 id 下单
+ */
+@Data
+public class BookingHold {
+    private String id;
+    private Long userId;
+    private Long propertyId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private Integer guestCount;
+    private Long expiresAt;
+}
@@ -0,0 +1,23 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.util.List;
+
+/**
+ * 批量推荐请求：指定用户ID列表，或留空并按角色、启用状态筛选用户
+ */
+@Data
+public class BulkRecommendationRequest {
+    private List<Long> userIds;
+
+    private String role;
+
+    private Boolean enabled;
+
+    @Min(value = 1, message = "推荐数量至少为1")
+    @Max(value = 100, message = "推荐数量不能超过100")
+    private Integer limit = 10;
+}
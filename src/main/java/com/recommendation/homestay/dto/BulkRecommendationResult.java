@@ -0,0 +1,22 @@
+package com.recommendation.homestay.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.recommendation.homestay.entity.Property;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 批量推荐结果（NDJSON 中的一行）
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BulkRecommendationResult {
+    private Long userId;
+    private List<Property> recommendations;
+    private String error;
+}
@@ -0,0 +1,20 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
+import javax.validation.constraints.Size;
+import java.util.List;
+
+/**
+ * 团体预订请求：一次预订多个房源或多个日期段，全部成功或全部不预订
+ */
+@Data
+public class GroupBookingRequest {
+
+    @NotEmpty(message = "至少需要一项预订")
+    @Size(max = 50, message = "单次团体预订最多50项")
+    @Valid
+    private List<OrderRequest> items;
+}
@@ -0,0 +1,30 @@
+package com.recommendation.homestay.dto;
+
+import com.recommendation.homestay.entity.Order;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 团体预订结果：booked 为 true 时所有项均已下单，否则没有任何订单被创建，items 中给出每项失败原因
+ */
+@Data
+public class GroupBookingResult {
+
+    private boolean booked;
+    private BigDecimal totalPrice;
+    private List<Item> items;
+
+    @Data
+    public static class Item {
+        private int index;
+        private Long propertyId;
+        private LocalDate checkInDate;
+        private LocalDate checkOutDate;
+        private boolean success;
+        private String message;
+        private Order order;
+    }
+}
@@ -0,0 +1,32 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 推送给房东的订单与评价通知
+ */
+@Data
+public class LandlordNotification {
+
+    public enum Type {
+        ORDER_CREATED, CANCEL_REQUESTED, ORDER_CANCELLED, REVIEW_CREATED
+    }
+
+    private Type type;
+
+    private Long landlordId;
+
+    private Long propertyId;
+
+    private Long orderId;
+
+    private String orderNumber;
+
+    private String status;
+
+    private Integer rating;
+
+    private LocalDateTime occurredAt;
+}
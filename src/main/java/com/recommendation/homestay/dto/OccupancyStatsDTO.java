@@ -0,0 +1,24 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * 入住率与收入时间序列：范围为单个房源、某个房东名下全部房源或某个城市的全部房源
+ */
+@Data
+public class OccupancyStatsDTO {
+    private String scope;
+    private String key;
+    private String from;
+    private String to;
+    private String granularity;
+    private Integer propertyCount;
+    private Integer roomsPerNight;
+    private Double occupancyRate;
+    private BigDecimal revenue;
+    private Long uniqueVisitors;
+    private List<OccupancyStatsPoint> points;
+}
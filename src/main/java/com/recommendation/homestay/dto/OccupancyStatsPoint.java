@@ -0,0 +1,19 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+/**
+ * 入住率与收入时间序列中的一个点（一天或一个月）
+ */
+@Data
+public class OccupancyStatsPoint {
+    private String period;
+    private Long roomNightsBooked;
+    private Long roomNightsAvailable;
+    private Double occupancyRate;
+    private Long guestNights;
+    private BigDecimal revenue;
+    private Long uniqueVisitors; // 该日或该月的去重独立访客估计，超出保留期时为空
+}
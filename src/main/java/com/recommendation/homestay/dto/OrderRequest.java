@@ -27,4 +27,9 @@ public class OrderRequest {
     private Integer guestCount;
     
     private String remarks;
+
+    /**
+     * 可选：先前创建的预订保留ID，下单时直接使用保留占住的库存
+     */
+    private String holdId;
 }
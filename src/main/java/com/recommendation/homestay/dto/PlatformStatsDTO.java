@@ -0,0 +1,43 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * 平台总览：用户、房源、订单总数与今日成交
+ */
+@Data
+public class PlatformStatsDTO {
+
+    private long totalUsers;
+
+    private Map<String, Long> usersByRole;
+
+    private long frozenUsers;
+
+    private long availableProperties;
+
+    private long frozenProperties;
+
+    private long totalOrders;
+
+    private Map<String, Long> ordersByStatus;
+
+    /**
+     * 今日下单且未取消的订单数
+     */
+    private long todayBookings;
+
+    /**
+     * 今日下单且未取消的订单总金额
+     */
+    private BigDecimal todayGmv;
+
+    /**
+     * 最近一次与数据库校准的时间
+     */
+    private LocalDateTime reconciledAt;
+}
@@ -0,0 +1,22 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Map;
+
+/**
+ * 房源入住报价
+ */
+@Data
+public class PriceQuoteDTO {
+    private Long propertyId;
+    private LocalDate checkInDate;
+    private LocalDate checkOutDate;
+    private Integer nights;
+    private BigDecimal basePrice;
+    private BigDecimal totalPrice;
+    private BigDecimal averageNightlyPrice;
+    private Map<LocalDate, BigDecimal> nightlyPrices;
+}
@@ -0,0 +1,31 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.DecimalMin;
+import javax.validation.constraints.NotNull;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * 新增房源价格规则：[startDate, endDate) 内的夜晚（可限定星期几）按 price 计价
+ */
+@Data
+public class PriceRuleRequest {
+
+    @NotNull(message = "开始日期为必填项")
+    private LocalDate startDate;
+
+    @NotNull(message = "结束日期为必填项")
+    private LocalDate endDate;
+
+    @NotNull(message = "价格为必填项")
+    @DecimalMin(value = "0.01", message = "价格必须大于0")
+    private BigDecimal price;
+
+    /**
+     * 适用的星期（1 = 周一 … 7 = 周日），为空表示每天
+     */
+    private List<Integer> daysOfWeek;
+}
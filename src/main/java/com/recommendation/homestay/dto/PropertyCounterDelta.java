@@ -0,0 +1,20 @@
+package com.recommendation.homestay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 一个房源待写回数据库的计数增量
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropertyCounterDelta {
+
+    private Long propertyId;
+
+    private long views;
+
+    private long bookings;
+}
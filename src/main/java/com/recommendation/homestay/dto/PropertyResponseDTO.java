@@ -26,6 +26,9 @@ public class PropertyResponseDTO {
     private Integer reviewCount;
     private Integer viewCount;
     private Integer bookingCount;
+    private Long uniqueVisitorsToday; // 当天独立访客估计
+    private Long uniqueVisitors7Days; // 最近 7 天（含当天）去重独立访客估计
+    private Boolean isFavorited; // 当前登录用户是否已收藏，未登录时为空
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private String images;
@@ -0,0 +1,24 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 房源评价（不含用户的其他信息）
+ */
+@Data
+public class PropertyReviewDTO {
+
+    private Long id;
+
+    private Long userId;
+
+    private String username;
+
+    private Integer rating;
+
+    private String comment;
+
+    private LocalDateTime createdAt;
+}
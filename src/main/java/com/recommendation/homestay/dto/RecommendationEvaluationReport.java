@@ -0,0 +1,36 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 离线评估报告：每个推荐引擎的质量指标与调用开销并列展示
+ */
+@Data
+public class RecommendationEvaluationReport {
+    private LocalDateTime splitAt;
+    private int k;
+    private int trainingEvents;
+    private int heldOutEvents;
+    private int evaluatedUsers;
+    private int catalogueSize;
+    private long elapsedMillis;
+    private List<EngineResult> engines = new ArrayList<>();
+
+    @Data
+    public static class EngineResult {
+        private String engine;
+        private double precisionAtK;
+        private double recallAtK;
+        private double ndcgAtK;
+        private double catalogueCoverage;
+        private double p50LatencyMillis;
+        private double p99LatencyMillis;
+        private long bytesAllocatedPerCall;
+        private int users;
+        private String error;
+    }
+}
@@ -0,0 +1,31 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 离线评估参数：splitAt 之前的交互与订单用于训练，之后的作为留出集；
+ * 未指定 splitAt 时按 heldOutRatio 取时间上最新的那部分事件作为留出集
+ */
+@Data
+public class RecommendationEvaluationRequest {
+    private LocalDateTime splitAt;
+
+    private Double heldOutRatio = 0.2;
+
+    @Min(value = 1, message = "K 至少为1")
+    @Max(value = 100, message = "K 不能超过100")
+    private Integer k = 10;
+
+    @Min(value = 1, message = "评估用户数至少为1")
+    private Integer maxUsers = 1000;
+
+    /**
+     * 参与评估的引擎名称，为空表示全部
+     */
+    private List<String> engines;
+}
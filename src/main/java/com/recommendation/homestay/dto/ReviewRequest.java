@@ -0,0 +1,20 @@
+package com.recommendation.homestay.dto;
+
+import lombok.Data;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+@Data
+public class ReviewRequest {
+
+    @NotNull(message = "评分为必填项")
+    @Min(value = 1, message = "评分范围为1-5")
+    @Max(value = 5, message = "评分范围为1-5")
+    private Integer rating;
+
+    @Size(max = 1000, message = "评价内容不能超过1000字")
+    private String comment;
+}
@@ -27,6 +27,11 @@ public class Order {
 
     private Long propertyId;
 
+    /**
+     * 房源所属房东（下单时从房源冗余，用于房东订单列表）
+     */
+    private Long landlordId;
+
     @TableField(exist = false)
     private Property property;
 
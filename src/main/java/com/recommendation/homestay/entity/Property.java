@@ -61,6 +61,12 @@ public class Property {
 
     private Integer bookingCount = 0;
 
+    @TableField(exist = false)
+    private BigDecimal tripPrice; // 按日期搜索时所选入住区间的总价
+
+    @TableField(exist = false)
+    private Boolean isFavorited; // 当前登录用户是否已收藏，未登录时为空
+
     // 核心修改1：给createdAt添加序列化注解
     @TableField(fill = FieldFill.INSERT)
     @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss", timezone = "GMT+8")
@@ -0,0 +1,31 @@
+package com.recommendation.homestay.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * 房源每日汇总（property_daily_stats）的一行，增量更新时各数值字段为增量
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PropertyDailyStat {
+
+    private Long propertyId;
+
+    private LocalDate statDate;
+
+    private Long landlordId;
+
+    private String city;
+
+    private Integer roomsBooked;
+
+    private Integer guests;
+
+    private BigDecimal revenue;
+}
@@ -0,0 +1,48 @@
+package com.recommendation.homestay.entity;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 房源价格规则：[startDate, endDate) 内符合星期掩码的夜晚按 price 计价，后创建的规则优先
+ */
+@Data
+@NoArgsConstructor
+@TableName("property_price_rules")
+public class PropertyPriceRule {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long propertyId;
+
+    private LocalDate startDate;
+
+    private LocalDate endDate; // 不含
+
+    private Integer daysOfWeek; // 位掩码：周一=1 … 周日=64，为空表示每天
+
+    private BigDecimal price;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    /**
+     * 该规则是否作用于指定日期
+     */
+    public boolean appliesTo(LocalDate night) {
+        if (night.isBefore(startDate) || !night.isBefore(endDate)) {
+            return false;
+        }
+        return daysOfWeek == null || (daysOfWeek & (1 << (night.getDayOfWeek().getValue() - 1))) != 0;
+    }
+}
@@ -30,6 +30,8 @@ public class UserPropertyInteraction {
 
     private Integer rating; // 评分值，范围 1-5
 
+    private String comment; // 评价内容，仅 REVIEW 类型
+
     @TableField(fill = FieldFill.INSERT)
     private LocalDateTime createdAt;
 
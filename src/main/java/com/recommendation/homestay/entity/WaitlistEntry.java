@@ -0,0 +1,51 @@
+package com.recommendation.homestay.entity;
+
+import com.baomidou.mybatisplus.annotation.FieldFill;
+import com.baomidou.mybatisplus.annotation.IdType;
+import com.baomidou.mybatisplus.annotation.TableField;
+import com.baomidou.mybatisplus.annotation.TableId;
+import com.baomidou.mybatisplus.annotation.TableName;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 满房候补：房源在 [checkInDate, checkOutDate) 重新可订时通知用户
+ */
+@Data
+@NoArgsConstructor
+@TableName("property_waitlist")
+public class WaitlistEntry {
+
+    @TableId(type = IdType.AUTO)
+    private Long id;
+
+    private Long userId;
+
+    private Long propertyId;
+
+    @TableField(exist = false)
+    private Property property;
+
+    private LocalDate checkInDate;
+
+    private LocalDate checkOutDate;
+
+    private Integer guestCount;
+
+    private WaitlistStatus status = WaitlistStatus.WAITING;
+
+    private LocalDateTime notifiedAt;
+
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createdAt;
+
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updatedAt;
+
+    public enum WaitlistStatus {
+        WAITING, NOTIFIED, CANCELLED, EXPIRED
+    }
+}
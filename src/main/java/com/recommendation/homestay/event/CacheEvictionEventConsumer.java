@@ -0,0 +1,48 @@
+package com.recommendation.homestay.event;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 新订单改变了房源的预订次数：使房源详情缓存与热门房源缓存失效，同一批内相同的键只失效一次
+ *
+ * @author Homestay Recommendation System
+ */
+@Component
+public class CacheEvictionEventConsumer implements OrderEventConsumer {
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Override
+    public String getName() {
+        return "cache";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        Set<Long> propertyIds = new LinkedHashSet<>();
+        for (OrderEvent event : events) {
+            if (event.getType() == OrderEvent.Type.CREATED) {
+                propertyIds.add(event.getPropertyId());
+            }
+        }
+        if (propertyIds.isEmpty()) {
+            return;
+        }
+        Cache properties = cacheManager.getCache("properties");
+        if (properties != null) {
+            propertyIds.forEach(properties::evict);
+        }
+        Cache popular = cacheManager.getCache("popularProperties");
+        if (popular != null) {
+            popular.clear();
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.recommendation.homestay.event;
+
+import com.recommendation.homestay.service.PropertyStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 订单进入或离开计入状态时增量更新房源每日汇总
+ *
+ * @author Homestay Recommendation System
+ */
+@Component
+public class DailyStatsEventConsumer implements OrderEventConsumer {
+
+    @Autowired
+    private PropertyStatsService propertyStatsService;
+
+    @Override
+    public String getName() {
+        return "daily-stats";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        propertyStatsService.apply(events);
+    }
+}
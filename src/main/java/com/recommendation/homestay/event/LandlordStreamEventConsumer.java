@@ -0,0 +1,61 @@
+package com.recommendation.homestay.event;
+
+import com.recommendation.homestay.dto.LandlordNotification;
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.service.LandlordEventStream;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 新订单、退订申请和订单取消推送给房东的订单页
+ *
+ * @author Homestay Recommendation System
+ */
+@Component
+public class LandlordStreamEventConsumer implements OrderEventConsumer {
+
+    @Autowired
+    private LandlordEventStream landlordEventStream;
+
+    @Override
+    public String getName() {
+        return "landlord-stream";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        for (OrderEvent event : events) {
+            LandlordNotification.Type type = notificationType(event);
+            if (type == null || event.getLandlordId() == null) {
+                continue;
+            }
+            LandlordNotification notification = new LandlordNotification();
+            notification.setType(type);
+            notification.setLandlordId(event.getLandlordId());
+            notification.setPropertyId(event.getPropertyId());
+            notification.setOrderId(event.getOrderId());
+            notification.setOrderNumber(event.getOrderNumber());
+            notification.setStatus(event.getStatus() == null ? null : event.getStatus().name());
+            notification.setOccurredAt(event.getOccurredAt());
+            landlordEventStream.publish(notification);
+        }
+    }
+
+    /**
+     * 取消类事件（用户取消、退订审核通过、待支付超时）统一按订单进入 CANCELLED 判断
+     */
+    private static LandlordNotification.Type notificationType(OrderEvent event) {
+        if (event.getType() == OrderEvent.Type.CREATED) {
+            return LandlordNotification.Type.ORDER_CREATED;
+        }
+        if (event.getType() == OrderEvent.Type.CANCEL_REQUESTED) {
+            return LandlordNotification.Type.CANCEL_REQUESTED;
+        }
+        if (event.getStatus() == Order.OrderStatus.CANCELLED && event.getPreviousStatus() != Order.OrderStatus.CANCELLED) {
+            return LandlordNotification.Type.ORDER_CANCELLED;
+        }
+        return null;
+    }
+}
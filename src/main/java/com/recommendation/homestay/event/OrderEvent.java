@@ -0,0 +1,61 @@
+package com.recommendation.homestay.event;
+
+import com.recommendation.homestay.entity.Order;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * 订单生命周期事件
+ *
+ * 创建时复制订单字段，发布后不受订单实体后续修改的影响，可在消费者线程中安全读取。
+ *
+ * @author Homestay Recommendation System
+ */
+@Getter
+@ToString
+public final class OrderEvent {
+
+    public enum Type {
+        CREATED, STATUS_CHANGED, CANCELLED, CANCEL_REQUESTED, CANCEL_APPROVED, CANCEL_REJECTED, EXPIRED, COMPLETED
+    }
+
+    private final Type type;
+    private final Long orderId;
+    private final String orderNumber;
+    private final Long userId;
+    private final Long propertyId;
+    private final Long landlordId;
+    private final LocalDate checkInDate;
+    private final LocalDate checkOutDate;
+    private final Integer guestCount;
+    private final BigDecimal totalPrice;
+    private final Order.OrderStatus previousStatus;
+    private final Order.OrderStatus status;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime occurredAt;
+
+    private OrderEvent(Type type, Order order, Order.OrderStatus previousStatus) {
+        this.type = type;
+        this.orderId = order.getId();
+        this.orderNumber = order.getOrderNumber();
+        this.userId = order.getUserId();
+        this.propertyId = order.getPropertyId();
+        this.landlordId = order.getLandlordId();
+        this.checkInDate = order.getCheckInDate();
+        this.checkOutDate = order.getCheckOutDate();
+        this.guestCount = order.getGuestCount();
+        this.totalPrice = order.getTotalPrice();
+        this.previousStatus = previousStatus;
+        this.status = order.getStatus();
+        this.createdAt = order.getCreatedAt();
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public static OrderEvent of(Type type, Order order, Order.OrderStatus previousStatus) {
+        return new OrderEvent(type, order, previousStatus);
+    }
+}
@@ -0,0 +1,104 @@
+package com.recommendation.homestay.event;
+
+import com.recommendation.homestay.support.AfterCommit;
+import com.recommendation.homestay.support.RingBufferEventBus;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单事件总线
+ *
+ * 订单的附带处理（到期调度、趋势计数、缓存失效等）不在请求线程和数据库事务内执行：
+ * 业务代码调用 {@link #publishAfterCommit}，事务提交后事件才进入环形缓冲区，回滚时不会发布；
+ * 各 {@link OrderEventConsumer} 在各自线程上批量消费，互不阻塞。
+ *
+ * 消费者在所有单例创建完成后才注册，消费者自身也可以依赖并发布到本总线。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class OrderEventBus implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderEventBus.class);
+
+    @Autowired
+    private ObjectProvider<OrderEventConsumer> consumers;
+
+    @Value("${order-events.buffer-size:4096}")
+    private int bufferSize;
+
+    @Value("${order-events.max-batch-size:256}")
+    private int maxBatchSize;
+
+    @Value("${order-events.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${order-events.retry-backoff-ms:200}")
+    private long retryBackoffMs;
+
+    @Value("${order-events.publish-timeout-ms:50}")
+    private long publishTimeoutMs;
+
+    private volatile RingBufferEventBus<OrderEvent> bus;
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        Map<String, RingBufferEventBus.BatchHandler<OrderEvent>> handlers = new LinkedHashMap<>();
+        consumers.orderedStream().forEach(consumer -> handlers.put(consumer.getName(), consumer::onEvents));
+        bus = new RingBufferEventBus<>("order-events", bufferSize, handlers,
+                maxBatchSize, maxAttempts, retryBackoffMs, publishTimeoutMs);
+        log.info("Order event bus started with consumers {}", handlers.keySet());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (bus != null) {
+            bus.close();
+        }
+    }
+
+    /**
+     * 事务提交后发布事件；不在事务中时立即发布
+     */
+    public void publishAfterCommit(OrderEvent event) {
+        AfterCommit.run(() -> publish(event));
+    }
+
+    /**
+     * 立即发布事件；缓冲区持续满载时放弃并记录警告
+     */
+    public void publish(OrderEvent event) {
+        RingBufferEventBus<OrderEvent> current = bus;
+        if (current == null || !current.publish(event)) {
+            log.warn("Order event dropped: {}", event);
+        }
+    }
+
+    /**
+     * 总线与各消费者的统计
+     */
+    public Map<String, Object> getStats() {
+        RingBufferEventBus<OrderEvent> current = bus;
+        if (current == null) {
+            return Collections.emptyMap();
+        }
+        List<RingBufferEventBus.ConsumerStats> consumerStats = current.getStats();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("capacity", current.getCapacity());
+        stats.put("published", current.getPublished());
+        stats.put("dropped", current.getDropped());
+        stats.put("consumers", consumerStats);
+        return stats;
+    }
+}
@@ -0,0 +1,21 @@
+package com.recommendation.homestay.event;
+
+import java.util.List;
+
+/**
+ * 订单事件消费者
+ *
+ * 实现为 Spring Bean 即自动注册到 {@link OrderEventBus}。每个消费者在独立线程上按发布顺序批量收到事件；
+ * 抛出异常时整批重试，因此处理逻辑应当幂等。
+ *
+ * @author Homestay Recommendation System
+ */
+public interface OrderEventConsumer {
+
+    /**
+     * 消费者名称，用于线程名与统计
+     */
+    String getName();
+
+    void onEvents(List<OrderEvent> events) throws Exception;
+}
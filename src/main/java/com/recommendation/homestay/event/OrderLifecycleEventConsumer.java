@@ -0,0 +1,32 @@
+package com.recommendation.homestay.event;
+
+import com.recommendation.homestay.service.OrderLifecycleService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 订单状态变化后重新登记到期任务（待支付超时、退房后自动完成）
+ *
+ * @author Homestay Recommendation System
+ */
+@Component
+public class OrderLifecycleEventConsumer implements OrderEventConsumer {
+
+    @Autowired
+    private OrderLifecycleService orderLifecycleService;
+
+    @Override
+    public String getName() {
+        return "lifecycle";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        for (OrderEvent event : events) {
+            orderLifecycleService.track(event.getOrderId(), event.getStatus(),
+                    event.getCreatedAt(), event.getCheckOutDate());
+        }
+    }
+}
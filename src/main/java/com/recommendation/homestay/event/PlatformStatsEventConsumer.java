@@ -0,0 +1,29 @@
+package com.recommendation.homestay.event;
+
+import com.recommendation.homestay.service.PlatformStatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 订单创建与状态变化计入管理后台的平台总览
+ *
+ * @author Homestay Recommendation System
+ */
+@Component
+public class PlatformStatsEventConsumer implements OrderEventConsumer {
+
+    @Autowired
+    private PlatformStatsService platformStatsService;
+
+    @Override
+    public String getName() {
+        return "platform-stats";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        platformStatsService.onOrderEvents(events);
+    }
+}
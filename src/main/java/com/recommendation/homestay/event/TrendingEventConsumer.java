@@ -0,0 +1,54 @@
+package com.recommendation.homestay.event;
+
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.service.TrendingService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 新订单计入实时趋势排行，整批事件只查询一次房源
+ *
+ * @author Homestay Recommendation System
+ */
+@Component
+public class TrendingEventConsumer implements OrderEventConsumer {
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Override
+    public String getName() {
+        return "trending";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        List<Long> propertyIds = new ArrayList<>();
+        for (OrderEvent event : events) {
+            if (event.getType() == OrderEvent.Type.CREATED) {
+                propertyIds.add(event.getPropertyId());
+            }
+        }
+        if (propertyIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Property> properties = propertyMapper.selectBatchIds(propertyIds).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity(), (a, b) -> a));
+        for (Long propertyId : propertyIds) {
+            Property property = properties.get(propertyId);
+            if (property != null) {
+                trendingService.recordBooking(property);
+            }
+        }
+    }
+}
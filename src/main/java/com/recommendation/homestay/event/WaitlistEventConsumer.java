@@ -0,0 +1,46 @@
+package com.recommendation.homestay.event;
+
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.service.AvailabilityCalendar;
+import com.recommendation.homestay.service.WaitlistService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * 订单取消、退订审核通过或待支付超时释放夜晚后，通知这些夜晚上的候补
+ *
+ * @author Homestay Recommendation System
+ */
+@Component
+public class WaitlistEventConsumer implements OrderEventConsumer {
+
+    @Autowired
+    private WaitlistService waitlistService;
+
+    @Override
+    public String getName() {
+        return "waitlist";
+    }
+
+    @Override
+    public void onEvents(List<OrderEvent> events) {
+        List<OrderEvent> released = events.stream()
+                .filter(WaitlistEventConsumer::releasesNights)
+                .collect(Collectors.toList());
+        if (!released.isEmpty()) {
+            waitlistService.onNightsReleased(released);
+        }
+    }
+
+    /**
+     * 离开占用状态的取消类事件；自动完成的订单释放的是已经过去的夜晚
+     */
+    private static boolean releasesNights(OrderEvent event) {
+        return event.getCheckInDate() != null && event.getCheckOutDate() != null
+                && event.getStatus() == Order.OrderStatus.CANCELLED
+                && AvailabilityCalendar.RESERVED_STATUSES.contains(event.getPreviousStatus());
+    }
+}
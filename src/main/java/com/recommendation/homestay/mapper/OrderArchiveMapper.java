@@ -0,0 +1,153 @@
+package com.recommendation.homestay.mapper;
+
+import com.recommendation.homestay.entity.Order;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Order Archive Mapper Interface
+ *
+ * Moves finished orders from the hot orders table into orders_archive and reads them back.
+ * Archived rows keep their original IDs and map onto the Order entity.
+ *
+ * @author Homestay Recommendation System
+ */
+@Mapper
+public interface OrderArchiveMapper {
+
+    /**
+     * Next slice of the orders table in ID order, with only the columns needed to decide eligibility
+     *
+     * @param afterId Last order ID of the previous slice (0 for the first slice)
+     * @param limit   Slice size
+     * @return Orders with id, status, created_at and updated_at populated
+     */
+    @Select("SELECT id, status, created_at, updated_at FROM orders WHERE id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Order> scanHot(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * Copy the given orders into the archive if they are still finished and older than the cutoff.
+     * The locking read blocks concurrent updates to these rows until the transaction ends.
+     *
+     * @return Number of rows copied
+     */
+    @Insert("<script>" +
+            "INSERT INTO orders_archive (id, order_number, user_id, property_id, landlord_id, check_in_date, " +
+            "check_out_date, guest_count, total_price, status, remarks, created_at, updated_at) " +
+            "SELECT id, order_number, user_id, property_id, landlord_id, check_in_date, check_out_date, " +
+            "guest_count, total_price, status, remarks, created_at, updated_at FROM orders " +
+            "WHERE status IN ('COMPLETED', 'CANCELLED') AND updated_at &lt; #{cutoff} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int copyToArchive(@Param("ids") Collection<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Delete the given orders from the hot table under the same conditions as the copy
+     *
+     * @return Number of rows deleted
+     */
+    @Delete("<script>" +
+            "DELETE FROM orders WHERE status IN ('COMPLETED', 'CANCELLED') AND updated_at &lt; #{cutoff} AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int deleteFromHot(@Param("ids") Collection<Long> ids, @Param("cutoff") LocalDateTime cutoff);
+
+    /**
+     * Find an archived order by ID
+     */
+    @Select("SELECT * FROM orders_archive WHERE id = #{id}")
+    Order selectById(Long id);
+
+    /**
+     * Find an archived order by order number
+     */
+    @Select("SELECT * FROM orders_archive WHERE order_number = #{orderNumber}")
+    Order findByOrderNumber(String orderNumber);
+
+    /**
+     * Keyset page of a user's archived orders, newest first
+     *
+     * @param userId          User ID
+     * @param cursorCreatedAt created_at of the last row already returned, or null for the first page
+     * @param cursorId        ID of the last row already returned
+     * @param limit           Page size
+     * @return Orders ordered by created_at DESC, id DESC
+     */
+    @Select("<script>" +
+            "SELECT * FROM orders_archive WHERE user_id = #{userId} " +
+            "<if test='cursorCreatedAt != null'>" +
+            "AND (created_at &lt; #{cursorCreatedAt} OR (created_at = #{cursorCreatedAt} AND id &lt; #{cursorId})) " +
+            "</if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Order> findByUserBefore(@Param("userId") Long userId,
+                                 @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                 @Param("cursorId") Long cursorId,
+                                 @Param("limit") int limit);
+
+    /**
+     * Keyset page of a landlord's archived orders, newest first, with the same filters as the hot listing
+     *
+     * @param landlordId      Landlord ID
+     * @param status          Optional status filter
+     * @param createdFrom     Optional inclusive lower bound of created_at
+     * @param createdTo       Optional exclusive upper bound of created_at
+     * @param cursorCreatedAt created_at of the last row already returned, or null for the first page
+     * @param cursorId        ID of the last row already returned
+     * @param limit           Page size
+     * @return Orders ordered by created_at DESC, id DESC
+     */
+    @Select("<script>" +
+            "SELECT * FROM orders_archive WHERE landlord_id = #{landlordId} " +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "<if test='createdFrom != null'>AND created_at &gt;= #{createdFrom} </if>" +
+            "<if test='createdTo != null'>AND created_at &lt; #{createdTo} </if>" +
+            "<if test='cursorCreatedAt != null'>" +
+            "AND (created_at &lt; #{cursorCreatedAt} OR (created_at = #{cursorCreatedAt} AND id &lt; #{cursorId})) " +
+            "</if>" +
+            "ORDER BY created_at DESC, id DESC LIMIT #{limit}" +
+            "</script>")
+    List<Order> findByLandlordBefore(@Param("landlordId") Long landlordId,
+                                     @Param("status") Order.OrderStatus status,
+                                     @Param("createdFrom") LocalDateTime createdFrom,
+                                     @Param("createdTo") LocalDateTime createdTo,
+                                     @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                     @Param("cursorId") Long cursorId,
+                                     @Param("limit") int limit);
+
+    /**
+     * Archived bookings (user, property, time) that were not cancelled, for offline evaluation
+     */
+    @Select("SELECT user_id, property_id, created_at FROM orders_archive WHERE status <> 'CANCELLED'")
+    List<Order> findBookingHistory();
+
+    /**
+     * Stream archived orders for export in ID order; see {@link OrderMapper#streamForExport}
+     */
+    @Select("<script>" +
+            "SELECT id, order_number, user_id, property_id, landlord_id, check_in_date, check_out_date, " +
+            "guest_count, total_price, status, created_at, updated_at FROM orders_archive" +
+            "<where>" +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "<if test='landlordId != null'>AND landlord_id = #{landlordId} </if>" +
+            "<if test='createdFrom != null'>AND created_at &gt;= #{createdFrom} </if>" +
+            "<if test='createdTo != null'>AND created_at &lt; #{createdTo} </if>" +
+            "</where>" +
+            " ORDER BY id" +
+            "</script>")
+    @Options(fetchSize = Integer.MIN_VALUE, resultSetType = ResultSetType.FORWARD_ONLY)
+    Cursor<Order> streamForExport(@Param("status") Order.OrderStatus status,
+                                  @Param("landlordId") Long landlordId,
+                                  @Param("createdFrom") LocalDateTime createdFrom,
+                                  @Param("createdTo") LocalDateTime createdTo);
+}
@@ -2,8 +2,19 @@ package com.recommendation.homestay.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.recommendation.homestay.entity.Order;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 /**
  * Order Mapper Interface
@@ -21,9 +32,146 @@ public interface OrderMapper extends BaseMapper<Order> {
      * Find order by order number
      * Order number is unique identifier for tracking orders
      * 
-     * @param orderNumber Unique order number (format: ORD-XXXXXXXX)
+     * @param orderNumber Unique order number (format: ORD- followed by 13 Crockford Base32 characters)
      * @return Order entity or null if not found
      */
     @Select("SELECT * FROM orders WHERE order_number = #{orderNumber}")
     Order findByOrderNumber(String orderNumber);
+
+    /**
+     * Insert several orders with one multi-row INSERT; generated IDs are written back to the entities.
+     * created_at and updated_at must be set by the caller (auto-fill only applies to BaseMapper#insert).
+     *
+     * @param orders Orders to insert
+     * @return Number of rows inserted
+     */
+    @Insert("<script>" +
+            "INSERT INTO orders (order_number, user_id, property_id, landlord_id, check_in_date, check_out_date, " +
+            "guest_count, total_price, status, remarks, created_at, updated_at) VALUES " +
+            "<foreach collection='orders' item='o' separator=','>" +
+            "(#{o.orderNumber}, #{o.userId}, #{o.propertyId}, #{o.landlordId}, #{o.checkInDate}, #{o.checkOutDate}, " +
+            "#{o.guestCount}, #{o.totalPrice}, #{o.status}, #{o.remarks}, #{o.createdAt}, #{o.updatedAt})" +
+            "</foreach>" +
+            "</script>")
+    @Options(useGeneratedKeys = true, keyProperty = "id", keyColumn = "id")
+    int insertBatch(@Param("orders") List<Order> orders);
+
+    /**
+     * Lock a single order row for a status change
+     *
+     * @param id Order ID
+     * @return Order entity or null if not found
+     */
+    @Select("SELECT * FROM orders WHERE id = #{id} FOR UPDATE")
+    Order selectByIdForUpdate(Long id);
+
+    /**
+     * Keyset page of PENDING orders created before the given time
+     *
+     * @param createdBefore Exclusive upper bound of created_at
+     * @param afterId       Last order ID of the previous page (0 for the first page)
+     * @param limit         Page size
+     * @return Orders ordered by ID
+     */
+    @Select("SELECT * FROM orders WHERE status = 'PENDING' AND created_at < #{createdBefore} " +
+            "AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<Order> findPendingCreatedBefore(@Param("createdBefore") LocalDateTime createdBefore,
+                                         @Param("afterId") long afterId,
+                                         @Param("limit") int limit);
+
+    /**
+     * Keyset page of orders in any of the given statuses checking out on or before the given date
+     *
+     * @param statuses     Statuses to include
+     * @param lastCheckOut Inclusive upper bound of check_out_date
+     * @param afterId      Last order ID of the previous page (0 for the first page)
+     * @param limit        Page size
+     * @return Orders ordered by ID
+     */
+    @Select("<script>" +
+            "SELECT * FROM orders WHERE status IN " +
+            "<foreach collection='statuses' item='status' open='(' separator=',' close=')'>#{status}</foreach> " +
+            "AND check_out_date &lt;= #{lastCheckOut} AND id &gt; #{afterId} ORDER BY id LIMIT #{limit}" +
+            "</script>")
+    List<Order> findCheckingOutBy(@Param("statuses") Collection<Order.OrderStatus> statuses,
+                                  @Param("lastCheckOut") LocalDate lastCheckOut,
+                                  @Param("afterId") long afterId,
+                                  @Param("limit") int limit);
+
+    /**
+     * Lock the orders among the given IDs that are still in one of the given statuses
+     *
+     * @param ids      Candidate order IDs
+     * @param statuses Expected current statuses
+     * @return Locked orders ordered by ID
+     */
+    @Select("<script>" +
+            "SELECT * FROM orders WHERE status IN " +
+            "<foreach collection='statuses' item='status' open='(' separator=',' close=')'>#{status}</foreach> " +
+            "AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach> " +
+            "ORDER BY id FOR UPDATE" +
+            "</script>")
+    List<Order> lockByStatus(@Param("ids") Collection<Long> ids,
+                             @Param("statuses") Collection<Order.OrderStatus> statuses);
+
+    /**
+     * Move the given orders from any of the expected statuses to a new status in a single statement
+     *
+     * @param ids  Order IDs
+     * @param from Expected current statuses
+     * @param to   New status
+     * @return Number of orders updated
+     */
+    @Update("<script>" +
+            "UPDATE orders SET status = #{to}, updated_at = NOW() WHERE status IN " +
+            "<foreach collection='from' item='status' open='(' separator=',' close=')'>#{status}</foreach> " +
+            "AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach>" +
+            "</script>")
+    int transitionStatus(@Param("ids") Collection<Long> ids,
+                         @Param("from") Collection<Order.OrderStatus> from,
+                         @Param("to") Order.OrderStatus to);
+
+    /**
+     * Stream orders for export in ID order without materialising the result
+     *
+     * A fetch size of Integer.MIN_VALUE makes MySQL Connector/J stream rows one at a time instead of
+     * buffering the whole result set. The cursor must be consumed inside a transaction, and no other
+     * statement can run on the same connection until it is closed.
+     *
+     * @param status      Optional status filter
+     * @param landlordId  Optional landlord filter
+     * @param createdFrom Optional inclusive lower bound of created_at
+     * @param createdTo   Optional exclusive upper bound of created_at
+     * @return Forward-only cursor over the matching orders
+     */
+    @Select("<script>" +
+            "SELECT id, order_number, user_id, property_id, landlord_id, check_in_date, check_out_date, " +
+            "guest_count, total_price, status, created_at, updated_at FROM orders" +
+            "<where>" +
+            "<if test='status != null'>AND status = #{status} </if>" +
+            "<if test='landlordId != null'>AND landlord_id = #{landlordId} </if>" +
+            "<if test='createdFrom != null'>AND created_at &gt;= #{createdFrom} </if>" +
+            "<if test='createdTo != null'>AND created_at &lt; #{createdTo} </if>" +
+            "</where>" +
+            " ORDER BY id" +
+            "</script>")
+    @Options(fetchSize = Integer.MIN_VALUE, resultSetType = ResultSetType.FORWARD_ONLY)
+    Cursor<Order> streamForExport(@Param("status") Order.OrderStatus status,
+                                  @Param("landlordId") Long landlordId,
+                                  @Param("createdFrom") LocalDateTime createdFrom,
+                                  @Param("createdTo") LocalDateTime createdTo);
+
+    /**
+     * Whether the user has a completed stay at the property, in either the hot or the archived orders
+     *
+     * @param userId User ID
+     * @param propertyId Property ID
+     * @return true when a COMPLETED order exists
+     */
+    @Select("SELECT EXISTS(SELECT 1 FROM orders WHERE user_id = #{userId} AND property_id = #{propertyId} " +
+            "AND status = 'COMPLETED') OR EXISTS(SELECT 1 FROM orders_archive WHERE user_id = #{userId} " +
+            "AND property_id = #{propertyId} AND status = 'COMPLETED')")
+    boolean hasCompletedStay(@Param("userId") Long userId, @Param("propertyId") Long propertyId);
 }
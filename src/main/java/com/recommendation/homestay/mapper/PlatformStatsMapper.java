@@ -0,0 +1,69 @@
+package com.recommendation.homestay.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Platform Stats Mapper Interface
+ *
+ * Grouped counts over users, properties and orders used to reconcile the in-memory
+ * platform totals. These queries scan whole tables and only run periodically,
+ * never on the dashboard request path.
+ *
+ * @author Homestay Recommendation System
+ */
+@Mapper
+public interface PlatformStatsMapper {
+
+    /**
+     * Users counted per role, keyed as "ROLE:enabled" (enabled is 1 or 0)
+     */
+    @Select("SELECT CONCAT(role, ':', IF(enabled, 1, 0)) AS stat_key, COUNT(*) AS total " +
+            "FROM users GROUP BY role, IF(enabled, 1, 0)")
+    List<StatCount> countUsers();
+
+    /**
+     * Properties counted by availability, keyed as "1" (available) or "0" (frozen)
+     */
+    @Select("SELECT IF(available, '1', '0') AS stat_key, COUNT(*) AS total " +
+            "FROM properties GROUP BY IF(available, '1', '0')")
+    List<StatCount> countProperties();
+
+    /**
+     * Orders counted per status across the hot and archived tables
+     */
+    @Select("SELECT stat_key, SUM(total) AS total FROM (" +
+            "SELECT status AS stat_key, COUNT(*) AS total FROM orders GROUP BY status " +
+            "UNION ALL " +
+            "SELECT status AS stat_key, COUNT(*) AS total FROM orders_archive GROUP BY status) t " +
+            "GROUP BY stat_key")
+    List<StatCount> countOrders();
+
+    /**
+     * Bookings and GMV of the orders placed since the given time that are not cancelled
+     */
+    @Select("SELECT 'today' AS stat_key, COUNT(*) AS total, IFNULL(SUM(total_price), 0) AS amount " +
+            "FROM orders WHERE created_at >= #{since} AND status <> 'CANCELLED'")
+    StatCount countBookingsSince(@Param("since") LocalDateTime since);
+
+    /**
+     * Grouped count row
+     */
+    class StatCount {
+        private String statKey;
+        private Long total;
+        private BigDecimal amount;
+
+        public String getStatKey() { return statKey; }
+        public void setStatKey(String statKey) { this.statKey = statKey; }
+        public Long getTotal() { return total; }
+        public void setTotal(Long total) { this.total = total; }
+        public BigDecimal getAmount() { return amount; }
+        public void setAmount(BigDecimal amount) { this.amount = amount; }
+    }
+}
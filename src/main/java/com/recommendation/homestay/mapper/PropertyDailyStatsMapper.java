@@ -0,0 +1,101 @@
+package com.recommendation.homestay.mapper;
+
+import com.recommendation.homestay.dto.OccupancyStatsPoint;
+import com.recommendation.homestay.entity.PropertyDailyStat;
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Property Daily Stats Mapper Interface
+ *
+ * Per-property, per-day rollups (property_daily_stats) of booked rooms, guests and
+ * revenue. Rows are maintained incrementally from order events and can be rebuilt
+ * for any date range from the orders table.
+ *
+ * @author Homestay Recommendation System
+ */
+@Mapper
+public interface PropertyDailyStatsMapper {
+
+    /**
+     * Add the given deltas to the daily rows, creating rows that do not exist yet
+     *
+     * @param rows Deltas keyed by property and date
+     * @return Affected rows as reported by MySQL
+     */
+    @Insert("<script>" +
+            "INSERT INTO property_daily_stats (property_id, stat_date, landlord_id, city, rooms_booked, guests, revenue) VALUES " +
+            "<foreach collection='rows' item='row' separator=','>" +
+            "(#{row.propertyId}, #{row.statDate}, #{row.landlordId}, #{row.city}, #{row.roomsBooked}, #{row.guests}, #{row.revenue})" +
+            "</foreach> " +
+            "ON DUPLICATE KEY UPDATE rooms_booked = rooms_booked + VALUES(rooms_booked), " +
+            "guests = guests + VALUES(guests), revenue = revenue + VALUES(revenue), " +
+            "landlord_id = VALUES(landlord_id), city = VALUES(city)" +
+            "</script>")
+    int addDeltas(@Param("rows") List<PropertyDailyStat> rows);
+
+    /**
+     * Delete all rows in [from, to)
+     */
+    @Delete("DELETE FROM property_daily_stats WHERE stat_date >= #{from} AND stat_date < #{to}")
+    int deleteRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Recompute the rows in [from, to) from orders in the counted statuses, including archived orders.
+     * Revenue is split evenly across the nights of each order.
+     *
+     * @return Affected rows
+     */
+    @Insert("INSERT INTO property_daily_stats (property_id, stat_date, landlord_id, city, rooms_booked, guests, revenue) " +
+            "WITH RECURSIVE days (d) AS (" +
+            "    SELECT CAST(#{from} AS DATE) " +
+            "    UNION ALL SELECT d + INTERVAL 1 DAY FROM days WHERE d + INTERVAL 1 DAY < #{to}" +
+            ") " +
+            "SELECT o.property_id, days.d, p.landlord_id, p.city, COUNT(*), SUM(o.guest_count), " +
+            "SUM(ROUND(o.total_price / DATEDIFF(o.check_out_date, o.check_in_date), 2)) " +
+            "FROM days " +
+            "JOIN (" +
+            "    SELECT property_id, check_in_date, check_out_date, guest_count, total_price FROM orders " +
+            "    WHERE status IN ('CONFIRMED', 'COMPLETED', 'CANCEL_REQUESTED', 'CANCEL_REJECTED') " +
+            "    AND check_in_date < #{to} AND check_out_date > #{from} " +
+            "    UNION ALL " +
+            "    SELECT property_id, check_in_date, check_out_date, guest_count, total_price FROM orders_archive " +
+            "    WHERE status = 'COMPLETED' " +
+            "    AND check_in_date < #{to} AND check_out_date > #{from}" +
+            ") o ON o.check_in_date <= days.d AND o.check_out_date > days.d " +
+            "JOIN properties p ON p.id = o.property_id " +
+            "GROUP BY o.property_id, days.d, p.landlord_id, p.city")
+    int rebuildRange(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * Time series over [from, to) for one property, one landlord or one city
+     * (exactly one of the filters is expected to be set)
+     *
+     * @param monthly true to group by month (yyyy-MM), false to group by day (yyyy-MM-dd)
+     * @return One point per period that has data, ordered by period
+     */
+    @Select("<script>" +
+            "SELECT " +
+            "<choose><when test='monthly'>DATE_FORMAT(stat_date, '%Y-%m')</when>" +
+            "<otherwise>DATE_FORMAT(stat_date, '%Y-%m-%d')</otherwise></choose> AS period, " +
+            "SUM(rooms_booked) AS room_nights_booked, SUM(guests) AS guest_nights, SUM(revenue) AS revenue " +
+            "FROM property_daily_stats " +
+            "WHERE stat_date &gt;= #{from} AND stat_date &lt; #{to} " +
+            "<if test='propertyId != null'>AND property_id = #{propertyId} </if>" +
+            "<if test='landlordId != null'>AND landlord_id = #{landlordId} </if>" +
+            "<if test='city != null'>AND city = #{city} </if>" +
+            "GROUP BY period ORDER BY period" +
+            "</script>")
+    List<OccupancyStatsPoint> selectSeries(@Param("propertyId") Long propertyId,
+                                           @Param("landlordId") Long landlordId,
+                                           @Param("city") String city,
+                                           @Param("from") LocalDate from,
+                                           @Param("to") LocalDate to,
+                                           @Param("monthly") boolean monthly);
+}
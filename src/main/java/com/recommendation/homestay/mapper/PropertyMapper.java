@@ -1,8 +1,10 @@
 package com.recommendation.homestay.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.recommendation.homestay.dto.PropertyCounterDelta;
 import com.recommendation.homestay.entity.Property;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Update;
 
@@ -39,12 +41,71 @@ public interface PropertyMapper extends BaseMapper<Property> {
     List<Property> findTop10ByAvailableTrueOrderByRatingDesc();
     
     /**
-     * Increment view count for a property
-     * Called when a user views property details
-     * 
+     * Add buffered view and booking counts for several properties in one statement
+     * Used by the write-behind counter buffer instead of updating the row on every request
+     *
+     * @param deltas Per-property increments
+     * @return Number of rows affected
+     */
+    @Update("<script>" +
+            "UPDATE properties SET " +
+            "view_count = view_count + CASE id " +
+            "<foreach collection='deltas' item='d'>WHEN #{d.propertyId} THEN #{d.views} </foreach>ELSE 0 END, " +
+            "booking_count = booking_count + CASE id " +
+            "<foreach collection='deltas' item='d'>WHEN #{d.propertyId} THEN #{d.bookings} </foreach>ELSE 0 END " +
+            "WHERE id IN " +
+            "<foreach collection='deltas' item='d' open='(' separator=',' close=')'>#{d.propertyId}</foreach>" +
+            "</script>")
+    int addCounters(@Param("deltas") List<PropertyCounterDelta> deltas);
+
+    /**
+     * Fold one new review into the stored average and count in a single atomic statement.
+     * rating is assigned before review_count, so it still sees the old count.
+     *
      * @param id Property ID
-     * @return Number of rows affected (should be 1 if successful)
+     * @param rating Rating of the new review (1-5)
+     * @return Number of rows updated
+     */
+    @Update("UPDATE properties SET rating = ROUND((rating * review_count + #{rating}) / (review_count + 1), 2), " +
+            "review_count = review_count + 1 WHERE id = #{id}")
+    int applyReview(@Param("id") Long id, @Param("rating") int rating);
+
+    /**
+     * Last property ID of the next chunk of at most limit properties after afterId
+     *
+     * @param afterId Exclusive lower bound of the chunk
+     * @param limit Chunk size
+     * @return Inclusive upper bound of the chunk, or null when no properties remain
+     */
+    @Select("SELECT MAX(id) FROM (SELECT id FROM properties WHERE id > #{afterId} ORDER BY id LIMIT #{limit}) t")
+    Long findChunkEnd(@Param("afterId") long afterId, @Param("limit") int limit);
+
+    /**
+     * Lock the properties with IDs in (afterId, upto] before their ratings are recomputed,
+     * so reviews being submitted concurrently either commit first or wait for the recompute
+     *
+     * @param afterId Exclusive lower bound
+     * @param upto Inclusive upper bound
+     * @return Locked property IDs
+     */
+    @Select("SELECT id FROM properties WHERE id > #{afterId} AND id <= #{upto} FOR UPDATE")
+    List<Long> lockRange(@Param("afterId") long afterId, @Param("upto") long upto);
+
+    /**
+     * Recompute rating and review_count from REVIEW interactions for properties with IDs in (afterId, upto],
+     * writing only the rows that have drifted
+     *
+     * @param afterId Exclusive lower bound
+     * @param upto Inclusive upper bound
+     * @return Number of properties corrected
      */
-    @Update("UPDATE properties SET view_count = view_count + 1 WHERE id = #{id}")
-    int incrementViewCount(Long id);
+    @Update("UPDATE properties p LEFT JOIN (" +
+            "SELECT property_id, COUNT(*) AS cnt, ROUND(AVG(rating), 2) AS avg_rating " +
+            "FROM user_property_interactions " +
+            "WHERE type = 'REVIEW' AND property_id > #{afterId} AND property_id <= #{upto} " +
+            "GROUP BY property_id) r ON r.property_id = p.id " +
+            "SET p.rating = IFNULL(r.avg_rating, 0), p.review_count = IFNULL(r.cnt, 0) " +
+            "WHERE p.id > #{afterId} AND p.id <= #{upto} " +
+            "AND (p.review_count <> IFNULL(r.cnt, 0) OR p.rating <> IFNULL(r.avg_rating, 0))")
+    int reconcileRatings(@Param("afterId") long afterId, @Param("upto") long upto);
 }
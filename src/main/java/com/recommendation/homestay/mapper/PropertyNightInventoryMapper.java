@@ -0,0 +1,67 @@
+package com.recommendation.homestay.mapper;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Property Night Inventory Mapper Interface
+ *
+ * Per-night inventory rows (property_night_inventory) used as the database-level
+ * guard against overbooking. Reservations are taken with a single conditional
+ * range UPDATE; the caller compares the affected row count with the number of
+ * nights and rolls back when any night was already full.
+ *
+ * @author Homestay Recommendation System
+ */
+@Mapper
+public interface PropertyNightInventoryMapper {
+
+    /**
+     * Make sure an inventory row exists for every night (existing rows are left untouched)
+     *
+     * @param propertyId Property ID
+     * @param nights     Nights to create
+     * @return Number of rows inserted
+     */
+    @Insert("<script>" +
+            "INSERT IGNORE INTO property_night_inventory (property_id, night, booked_rooms, booked_guests) VALUES " +
+            "<foreach collection='nights' item='night' separator=','>(#{propertyId}, #{night}, 0, 0)</foreach>" +
+            "</script>")
+    int ensureNights(@Param("propertyId") Long propertyId, @Param("nights") List<LocalDate> nights);
+
+    /**
+     * Reserve one room and the given guests on every night in [checkIn, checkOut)
+     * that still has capacity. A capacity of 0 means unlimited.
+     *
+     * @return Number of nights reserved; less than the number of nights means the stay is not bookable
+     */
+    @Update("UPDATE property_night_inventory " +
+            "SET booked_rooms = booked_rooms + 1, booked_guests = booked_guests + #{guests} " +
+            "WHERE property_id = #{propertyId} AND night >= #{checkIn} AND night < #{checkOut} " +
+            "AND (#{maxRooms} = 0 OR booked_rooms < #{maxRooms}) " +
+            "AND (#{maxGuests} = 0 OR booked_guests + #{guests} <= #{maxGuests})")
+    int reserveNights(@Param("propertyId") Long propertyId,
+                      @Param("checkIn") LocalDate checkIn,
+                      @Param("checkOut") LocalDate checkOut,
+                      @Param("guests") int guests,
+                      @Param("maxRooms") int maxRooms,
+                      @Param("maxGuests") int maxGuests);
+
+    /**
+     * Release a previously reserved stay
+     *
+     * @return Number of nights released
+     */
+    @Update("UPDATE property_night_inventory " +
+            "SET booked_rooms = GREATEST(booked_rooms - 1, 0), booked_guests = GREATEST(booked_guests - #{guests}, 0) " +
+            "WHERE property_id = #{propertyId} AND night >= #{checkIn} AND night < #{checkOut}")
+    int releaseNights(@Param("propertyId") Long propertyId,
+                      @Param("checkIn") LocalDate checkIn,
+                      @Param("checkOut") LocalDate checkOut,
+                      @Param("guests") int guests);
+}
@@ -0,0 +1,51 @@
+package com.recommendation.homestay.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.PropertyPriceRule;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Property Price Rule Mapper Interface
+ *
+ * Date-range price overrides used to build the in-memory pricing calendar.
+ *
+ * @author Homestay Recommendation System
+ */
+@Mapper
+public interface PropertyPriceRuleMapper extends BaseMapper<PropertyPriceRule> {
+
+    /**
+     * All rules that still cover a night on or after the given date, ordered so later rules come last
+     *
+     * @param from First night of interest
+     * @return Rules ordered by property ID, then rule ID
+     */
+    @Select("SELECT * FROM property_price_rules WHERE end_date > #{from} ORDER BY property_id, id")
+    List<PropertyPriceRule> findActive(@Param("from") LocalDate from);
+
+    /**
+     * Rules of one property that still cover a night on or after the given date
+     *
+     * @param propertyId Property ID
+     * @param from       First night of interest
+     * @return Rules ordered by rule ID
+     */
+    @Select("SELECT * FROM property_price_rules WHERE property_id = #{propertyId} AND end_date > #{from} ORDER BY id")
+    List<PropertyPriceRule> findActiveByProperty(@Param("propertyId") Long propertyId, @Param("from") LocalDate from);
+
+    /**
+     * ID and base nightly price of the properties that have active rules
+     *
+     * @param from First night of interest
+     * @return Properties with id and price populated
+     */
+    @Select("SELECT p.id, p.price FROM properties p " +
+            "WHERE EXISTS (SELECT 1 FROM property_price_rules r WHERE r.property_id = p.id AND r.end_date > #{from})")
+    List<Property> findPricedProperties(@Param("from") LocalDate from);
+}
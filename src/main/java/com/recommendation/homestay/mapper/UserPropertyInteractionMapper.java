@@ -2,7 +2,10 @@ package com.recommendation.homestay.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.recommendation.homestay.entity.UserPropertyInteraction;
+import com.recommendation.homestay.dto.PropertyReviewDTO;
+import org.apache.ibatis.annotations.Delete;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
 import java.util.List;
@@ -43,6 +46,67 @@ public interface UserPropertyInteractionMapper extends BaseMapper<UserPropertyIn
             "ORDER BY interactionCount DESC")
     List<PropertyInteractionCount> findMostInteractedProperties(Long userId);
     
+    /**
+     * Whether the user has already reviewed the property
+     *
+     * @param userId User ID
+     * @param propertyId Property ID
+     * @return 1 when a REVIEW interaction exists, otherwise 0
+     */
+    @Select("SELECT COUNT(*) FROM user_property_interactions " +
+            "WHERE user_id = #{userId} AND review_property_id = #{propertyId}")
+    int countReview(@Param("userId") Long userId, @Param("propertyId") Long propertyId);
+
+    /**
+     * Keyset page of a property's reviews, newest first, joined with the reviewer's username
+     *
+     * @param propertyId Property ID
+     * @param beforeId Only reviews with a smaller ID; null for the first page
+     * @param limit Maximum rows to return
+     * @return Reviews ordered by ID descending
+     */
+    @Select("<script>" +
+            "SELECT i.id, i.user_id, u.username, i.rating, i.comment, i.created_at " +
+            "FROM user_property_interactions i LEFT JOIN users u ON u.id = i.user_id " +
+            "WHERE i.property_id = #{propertyId} AND i.type = 'REVIEW' " +
+            "<if test='beforeId != null'>AND i.id &lt; #{beforeId} </if>" +
+            "ORDER BY i.id DESC LIMIT #{limit}" +
+            "</script>")
+    List<PropertyReviewDTO> findReviews(@Param("propertyId") Long propertyId,
+                                        @Param("beforeId") Long beforeId,
+                                        @Param("limit") int limit);
+
+    /**
+     * All property IDs the user has favorited (served by the unique favorite index)
+     *
+     * @param userId User ID
+     * @return Favorited property IDs
+     */
+    @Select("SELECT favorite_property_id FROM user_property_interactions " +
+            "WHERE user_id = #{userId} AND favorite_property_id IS NOT NULL")
+    List<Long> findFavoritePropertyIds(Long userId);
+
+    /**
+     * Most recently favorited property IDs of the user
+     *
+     * @param userId User ID
+     * @param limit Maximum rows to return
+     * @return Property IDs, newest favorite first
+     */
+    @Select("SELECT property_id FROM user_property_interactions " +
+            "WHERE user_id = #{userId} AND type = 'FAVORITE' ORDER BY id DESC LIMIT #{limit}")
+    List<Long> findRecentFavorites(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Remove the user's FAVORITE interaction for the property
+     *
+     * @param userId User ID
+     * @param propertyId Property ID
+     * @return Number of rows deleted
+     */
+    @Delete("DELETE FROM user_property_interactions WHERE user_id = #{userId} AND favorite_property_id = #{propertyId}")
+    int deleteFavorite(@Param("userId") Long userId, @Param("propertyId") Long propertyId);
+
     /**
      * DTO for property interaction count result
      * Used for recommendation algorithms to score properties based on user interaction frequency
@@ -0,0 +1,97 @@
+package com.recommendation.homestay.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.recommendation.homestay.entity.WaitlistEntry;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Waitlist Mapper Interface
+ *
+ * Waitlist entries for sold-out nights; waiting entries are indexed in memory by property and stay interval.
+ *
+ * @author Homestay Recommendation System
+ */
+@Mapper
+public interface WaitlistMapper extends BaseMapper<WaitlistEntry> {
+
+    /**
+     * Keyset page of waiting entries whose stay has not started yet
+     *
+     * @param from    Earliest check-in date to include
+     * @param afterId Return entries with a larger ID
+     * @param limit   Page size
+     * @return Entries ordered by ID
+     */
+    @Select("SELECT * FROM property_waitlist WHERE status = 'WAITING' AND check_in_date >= #{from} " +
+            "AND id > #{afterId} ORDER BY id LIMIT #{limit}")
+    List<WaitlistEntry> findWaiting(@Param("from") LocalDate from,
+                                    @Param("afterId") long afterId,
+                                    @Param("limit") int limit);
+
+    /**
+     * Waitlist entries of a user, newest first
+     *
+     * @param userId User ID
+     * @param limit  Maximum number of entries
+     * @return Entries ordered by creation time descending
+     */
+    @Select("SELECT * FROM property_waitlist WHERE user_id = #{userId} ORDER BY created_at DESC, id DESC LIMIT #{limit}")
+    List<WaitlistEntry> findByUser(@Param("userId") Long userId, @Param("limit") int limit);
+
+    /**
+     * Number of waiting entries of a user
+     *
+     * @param userId User ID
+     * @return Count of WAITING entries
+     */
+    @Select("SELECT COUNT(*) FROM property_waitlist WHERE user_id = #{userId} AND status = 'WAITING'")
+    int countWaitingByUser(@Param("userId") Long userId);
+
+    /**
+     * Whether the user is already waiting for the same stay
+     *
+     * @return Count of matching WAITING entries
+     */
+    @Select("SELECT COUNT(*) FROM property_waitlist WHERE user_id = #{userId} AND property_id = #{propertyId} " +
+            "AND check_in_date = #{checkIn} AND check_out_date = #{checkOut} AND status = 'WAITING'")
+    int countDuplicate(@Param("userId") Long userId,
+                       @Param("propertyId") Long propertyId,
+                       @Param("checkIn") LocalDate checkIn,
+                       @Param("checkOut") LocalDate checkOut);
+
+    /**
+     * Move waiting entries to NOTIFIED; entries cancelled or notified meanwhile are left untouched
+     *
+     * @param ids Entry IDs
+     * @return Number of entries updated
+     */
+    @Update("<script>UPDATE property_waitlist SET status = 'NOTIFIED', notified_at = NOW(), updated_at = NOW() " +
+            "WHERE status = 'WAITING' AND id IN " +
+            "<foreach collection='ids' item='id' open='(' separator=',' close=')'>#{id}</foreach></script>")
+    int markNotified(@Param("ids") List<Long> ids);
+
+    /**
+     * Expire waiting entries whose check-in date has passed
+     *
+     * @param today Current date
+     * @return Number of entries updated
+     */
+    @Update("UPDATE property_waitlist SET status = 'EXPIRED', updated_at = NOW() " +
+            "WHERE status = 'WAITING' AND check_in_date < #{today}")
+    int expireStarted(@Param("today") LocalDate today);
+
+    /**
+     * Cancel a waiting entry of the given user
+     *
+     * @return Number of entries updated (0 or 1)
+     */
+    @Update("UPDATE property_waitlist SET status = 'CANCELLED', updated_at = NOW() " +
+            "WHERE id = #{id} AND user_id = #{userId} AND status = 'WAITING'")
+    int cancel(@Param("id") Long id, @Param("userId") Long userId);
+}
@@ -42,6 +42,7 @@ public class SecurityConfig {
                 .antMatchers("/api/auth/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/api/properties/**").permitAll()
                 .antMatchers(HttpMethod.GET, "/api/search/**").permitAll()
+                .antMatchers(HttpMethod.GET, "/api/recommendations/segment").permitAll()
                 .antMatchers(HttpMethod.GET, "/api/uploads/**", "/uploads/**").permitAll()
                 .anyRequest().authenticated()
                 .and()
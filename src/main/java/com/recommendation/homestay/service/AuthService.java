@@ -8,6 +8,7 @@ import com.recommendation.homestay.entity.User;
 import com.recommendation.homestay.mapper.UserMapper;
 import com.recommendation.homestay.security.JwtTokenProvider;
 import com.recommendation.homestay.security.UserPrincipal;
+import com.recommendation.homestay.support.AfterCommit;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -39,6 +40,9 @@ public class AuthService {
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PlatformStatsService platformStatsService;
+
     @Autowired
     private AuthenticationManager authenticationManager;
 
@@ -92,6 +96,7 @@ public class AuthService {
 
         // 通过 MyBatis-Plus 插入数据
         userMapper.insert(user);
+        AfterCommit.run(() -> platformStatsService.userCreated(user.getRole(), true));
         return user;
     }
 
@@ -0,0 +1,543 @@
+package com.recommendation.homestay.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.mapper.OrderMapper;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.support.MaxSegmentTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 内存房态日历
+ *
+ * 为每个房源维护从基准日开始、覆盖 availability.horizon-days 天的两棵线段树，记录每晚已预订的
+ * 房间数与入住人数，支持按区间加减和查询区间峰值。订单创建或状态变化提交后按订单ID幂等地增减（同一订单重复应用不会重复计数），
+ * 房源详情、房态分页、下单前的余量检查和按日期搜索都直接读取内存，无需逐单按天展开。
+ *
+ * 启动后首次对账从 MySQL 重建全部日历，之后定时对账纠正偏差（例如其他节点创建的订单）并随日期
+ * 滚动基准日。对账只替换在读取数据库之后没有再被修改过的房源日历，避免覆盖期间发生的增量更新。
+ * 查询超出日历覆盖范围或首次重建尚未完成时回退到数据库查询。
+ *
+ * 预订保留（{@link BookingHoldService}）同样计入每晚占用，但只存在于内存中，对账时原样保留。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class AvailabilityCalendar {
+
+    private static final Logger log = LoggerFactory.getLogger(AvailabilityCalendar.class);
+
+    /**
+     * 占用房间的订单状态
+     */
+    public static final Set<Order.OrderStatus> RESERVED_STATUSES = Collections.unmodifiableSet(EnumSet.of(
+            Order.OrderStatus.PENDING,
+            Order.OrderStatus.CONFIRMED,
+            Order.OrderStatus.CANCEL_REQUESTED,
+            Order.OrderStatus.CANCEL_REJECTED
+    ));
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Value("${availability.horizon-days:180}")
+    private int horizonDays;
+
+    private final Map<Long, PropertyCalendar> calendars = new ConcurrentHashMap<>();
+    private final AtomicLong mutations = new AtomicLong();
+    private volatile Map<Long, Capacity> capacities = new ConcurrentHashMap<>();
+
+    /**
+     * 没有日历的房源视为在 [baseDay, baseDay + horizonDays) 内没有预订
+     */
+    private volatile long baseDay = LocalDate.now().toEpochDay();
+    private volatile boolean ready;
+
+    /**
+     * 按订单当前状态更新日历：占用状态的订单计入，其余状态移除。应在事务提交后调用。
+     */
+    public void apply(Order order) {
+        if (order == null || order.getId() == null || order.getPropertyId() == null) {
+            return;
+        }
+        Stay stay = Stay.of(order);
+        calendars.compute(order.getPropertyId(), (propertyId, calendar) -> {
+            if (calendar == null) {
+                calendar = new PropertyCalendar(baseDay, horizonDays);
+            }
+            calendar.apply(order.getId(), stay, mutations.incrementAndGet());
+            return calendar;
+        });
+    }
+
+    /**
+     * 登记预订保留：保留期间这些夜晚与订单一样计入占用，直到被移除
+     */
+    public void placeHold(Long propertyId, String holdId, LocalDate checkIn, LocalDate checkOut, int guests) {
+        Stay stay = new Stay(checkIn.toEpochDay(), checkOut.toEpochDay(), Math.max(guests, 0));
+        calendars.compute(propertyId, (id, calendar) -> {
+            if (calendar == null) {
+                calendar = new PropertyCalendar(baseDay, horizonDays);
+            }
+            calendar.applyHold(holdId, stay);
+            return calendar;
+        });
+    }
+
+    /**
+     * 移除预订保留
+     *
+     * @return 保留存在并被移除时返回 true
+     */
+    public boolean removeHold(Long propertyId, String holdId) {
+        boolean[] removed = new boolean[1];
+        calendars.computeIfPresent(propertyId, (id, calendar) -> {
+            removed[0] = calendar.applyHold(holdId, null);
+            return calendar;
+        });
+        return removed[0];
+    }
+
+    /**
+     * 读取房源从 start 开始连续 days 晚的占用情况
+     */
+    public Occupancy getOccupancy(Long propertyId, LocalDate start, int days) {
+        long from = start.toEpochDay();
+        if (ready) {
+            PropertyCalendar calendar = calendars.get(propertyId);
+            Occupancy occupancy = calendar != null
+                    ? calendar.read(from, days)
+                    : Occupancy.emptyIfCovered(baseDay, horizonDays, from, days);
+            if (occupancy != null) {
+                return occupancy;
+            }
+        }
+        return loadFromDatabase(propertyId, from, days);
+    }
+
+    /**
+     * 批量读取多个房源当晚的占用情况
+     */
+    public Map<Long, Occupancy> getTonightOccupancy(List<Long> propertyIds) {
+        LocalDate today = LocalDate.now();
+        Map<Long, Occupancy> result = new HashMap<>();
+        for (Long propertyId : propertyIds) {
+            result.put(propertyId, getOccupancy(propertyId, today, 1));
+        }
+        return result;
+    }
+
+    /**
+     * 检查房源在入住期间的每一晚是否还有空余房间和可容纳人数
+     */
+    public boolean hasCapacity(Property property, LocalDate checkIn, LocalDate checkOut, int guests) {
+        int nights = (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
+        if (nights <= 0) {
+            return true;
+        }
+        int[] peak = peak(property.getId(), checkIn.toEpochDay(), nights);
+        return Capacity.of(property).fits(peak[0], peak[1], guests);
+    }
+
+    /**
+     * 找出 [checkIn, checkOut) 内至少有一晚无法再接待 guests 位客人的房源（含容量本身不足的房源），
+     * 供搜索时排除。只有存在预订的房源需要查询线段树，其余房源只比较容量。
+     */
+    public Set<Long> findUnavailable(LocalDate checkIn, LocalDate checkOut, int guests) {
+        long from = checkIn.toEpochDay();
+        int nights = (int) (checkOut.toEpochDay() - from);
+        Set<Long> unavailable = new HashSet<>();
+        if (nights <= 0) {
+            return unavailable;
+        }
+        if (!ready || from < baseDay || from + nights > baseDay + horizonDays) {
+            // 超出覆盖范围：一次查询区间内的全部占用订单，在临时日历上计算
+            Map<Long, PropertyCalendar> temporary = new HashMap<>();
+            for (Order order : selectReserved(null, from, from + nights)) {
+                temporary.computeIfAbsent(order.getPropertyId(), id -> new PropertyCalendar(from, nights))
+                        .apply(order.getId(), Stay.of(order), 0);
+            }
+            Map<Long, Capacity> source = ready ? capacities : loadCapacities();
+            source.forEach((propertyId, capacity) -> {
+                PropertyCalendar calendar = temporary.get(propertyId);
+                int[] peak = calendar == null ? new int[2] : calendar.peak(from, nights);
+                if (!capacity.fits(peak[0], peak[1], guests)) {
+                    unavailable.add(propertyId);
+                }
+            });
+            return unavailable;
+        }
+        capacities.forEach((propertyId, capacity) -> {
+            int[] peak = peak(propertyId, from, nights);
+            if (!capacity.fits(peak[0], peak[1], guests)) {
+                unavailable.add(propertyId);
+            }
+        });
+        return unavailable;
+    }
+
+    /**
+     * 可住人数上限小于 guests 的房源（不考虑日期）
+     */
+    public Set<Long> findUndersized(int guests) {
+        Map<Long, Capacity> source = ready ? capacities : loadCapacities();
+        return source.entrySet().stream()
+                .filter(entry -> entry.getValue().guests > 0 && guests > entry.getValue().guests)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * 房源新建或修改卧室数、可住人数后同步容量
+     */
+    public void updateCapacity(Property property) {
+        if (property != null && property.getId() != null) {
+            capacities.put(property.getId(), Capacity.of(property));
+        }
+    }
+
+    public void removeProperty(Long propertyId) {
+        capacities.remove(propertyId);
+        calendars.remove(propertyId);
+    }
+
+    /**
+     * 与数据库对账：首次执行即启动时的全量重建，之后定时纠正偏差并滚动基准日。
+     * 读取数据库之后才发生的增量更新（含删除）在新日历上重放，不会被较旧的数据库快照覆盖。
+     */
+    @Scheduled(fixedDelayString = "${availability.reconcile-interval-ms:300000}",
+            initialDelayString = "${availability.initial-delay-ms:0}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        long newBase = LocalDate.now().toEpochDay();
+        long stamp = mutations.get();
+
+        Map<Long, PropertyCalendar> fresh = new HashMap<>();
+        for (Order order : selectReserved(null, newBase, newBase + horizonDays)) {
+            fresh.computeIfAbsent(order.getPropertyId(), id -> new PropertyCalendar(newBase, horizonDays))
+                    .apply(order.getId(), Stay.of(order), 0);
+        }
+
+        int[] drifted = new int[1];
+        Set<Long> propertyIds = new HashSet<>(calendars.keySet());
+        propertyIds.addAll(fresh.keySet());
+        for (Long propertyId : propertyIds) {
+            calendars.compute(propertyId, (id, current) -> {
+                PropertyCalendar replacement = fresh.getOrDefault(id, new PropertyCalendar(newBase, horizonDays));
+                if (current != null) {
+                    current.replayAfter(stamp, replacement);
+                    current.copyHoldsTo(replacement);
+                }
+                if (ready && !activeOrderIds(current).equals(replacement.activeOrderIds())) {
+                    drifted[0]++;
+                }
+                return replacement.isEmpty() ? null : replacement;
+            });
+        }
+        capacities = loadCapacities();
+        baseDay = newBase;
+        boolean firstRun = !ready;
+        ready = true;
+
+        if (firstRun) {
+            log.info("Availability calendar built: {} properties with reservations in {} ms",
+                    fresh.size(), System.currentTimeMillis() - start);
+        } else if (drifted[0] > 0) {
+            log.warn("Availability calendar reconciled: {} properties drifted from the database in {} ms",
+                    drifted[0], System.currentTimeMillis() - start);
+        } else {
+            log.debug("Availability calendar reconciled without drift in {} ms", System.currentTimeMillis() - start);
+        }
+    }
+
+    private Occupancy loadFromDatabase(Long propertyId, long from, int days) {
+        PropertyCalendar calendar = new PropertyCalendar(from, days);
+        for (Order order : selectReserved(propertyId, from, from + days)) {
+            calendar.apply(order.getId(), Stay.of(order), 0);
+        }
+        return calendar.read(from, days);
+    }
+
+    private int[] peak(Long propertyId, long from, int nights) {
+        if (ready) {
+            PropertyCalendar calendar = calendars.get(propertyId);
+            if (calendar == null && from >= baseDay && from + nights <= baseDay + horizonDays) {
+                return new int[2];
+            }
+            int[] peak = calendar == null ? null : calendar.peak(from, nights);
+            if (peak != null) {
+                return peak;
+            }
+        }
+        PropertyCalendar calendar = new PropertyCalendar(from, nights);
+        for (Order order : selectReserved(propertyId, from, from + nights)) {
+            calendar.apply(order.getId(), Stay.of(order), 0);
+        }
+        return calendar.peak(from, nights);
+    }
+
+    private Map<Long, Capacity> loadCapacities() {
+        QueryWrapper<Property> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "bedrooms", "max_guests");
+        Map<Long, Capacity> loaded = new ConcurrentHashMap<>();
+        for (Property property : propertyMapper.selectList(queryWrapper)) {
+            loaded.put(property.getId(), Capacity.of(property));
+        }
+        return loaded;
+    }
+
+    private List<Order> selectReserved(Long propertyId, long fromDay, long toDay) {
+        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id", "property_id", "check_in_date", "check_out_date", "guest_count", "status");
+        if (propertyId != null) {
+            queryWrapper.eq("property_id", propertyId);
+        }
+        queryWrapper.in("status", RESERVED_STATUSES.stream()
+                .map(Enum::name)
+                .collect(Collectors.toList()));
+        queryWrapper.lt("check_in_date", LocalDate.ofEpochDay(toDay));
+        queryWrapper.gt("check_out_date", LocalDate.ofEpochDay(fromDay));
+        return orderMapper.selectList(queryWrapper);
+    }
+
+    private static Set<Long> activeOrderIds(PropertyCalendar calendar) {
+        return calendar == null ? Collections.emptySet() : calendar.activeOrderIds();
+    }
+
+    /**
+     * 连续若干晚的已预订房间数与入住人数
+     */
+    public static final class Occupancy {
+        private final int[] bookedRooms;
+        private final int[] bookedGuests;
+
+        Occupancy(int[] bookedRooms, int[] bookedGuests) {
+            this.bookedRooms = bookedRooms;
+            this.bookedGuests = bookedGuests;
+        }
+
+        static Occupancy emptyIfCovered(long baseDay, int horizonDays, long from, int days) {
+            if (from < baseDay || from + days > baseDay + horizonDays) {
+                return null;
+            }
+            return new Occupancy(new int[days], new int[days]);
+        }
+
+        public int getBookedRooms(int night) {
+            return bookedRooms[night];
+        }
+
+        public int getBookedGuests(int night) {
+            return bookedGuests[night];
+        }
+
+        public int getNights() {
+            return bookedRooms.length;
+        }
+    }
+
+    /**
+     * 单个订单对日历的贡献：[checkIn, checkOut) 每晚 1 间房和 guests 位客人
+     */
+    private static final class Stay {
+        private final long checkIn;
+        private final long checkOut;
+        private final int guests;
+
+        private Stay(long checkIn, long checkOut, int guests) {
+            this.checkIn = checkIn;
+            this.checkOut = checkOut;
+            this.guests = guests;
+        }
+
+        /**
+         * 非占用状态或日期不完整的订单返回 null
+         */
+        static Stay of(Order order) {
+            if (!RESERVED_STATUSES.contains(order.getStatus())
+                    || order.getCheckInDate() == null || order.getCheckOutDate() == null) {
+                return null;
+            }
+            return new Stay(order.getCheckInDate().toEpochDay(), order.getCheckOutDate().toEpochDay(),
+                    Math.max(Optional.ofNullable(order.getGuestCount()).orElse(0), 0));
+        }
+    }
+
+    /**
+     * 订单在日历中的最新状态；stay 为 null 表示已移除（保留到下次对账，用于重放删除）
+     */
+    private static final class Entry {
+        private final Stay stay;
+        private final long mutation;
+
+        private Entry(Stay stay, long mutation) {
+            this.stay = stay;
+            this.mutation = mutation;
+        }
+    }
+
+    private static final class PropertyCalendar {
+        private final long baseDay;
+        private final MaxSegmentTree rooms;
+        private final MaxSegmentTree guests;
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final Map<String, Stay> holds = new HashMap<>();
+
+        PropertyCalendar(long baseDay, int horizonDays) {
+            this.baseDay = baseDay;
+            this.rooms = new MaxSegmentTree(horizonDays);
+            this.guests = new MaxSegmentTree(horizonDays);
+        }
+
+        synchronized void apply(Long orderId, Stay stay, long mutation) {
+            Entry previous = entries.get(orderId);
+            Stay previousStay = previous == null ? null : previous.stay;
+            if (previousStay != null) {
+                add(previousStay, -1);
+            }
+            if (stay != null) {
+                add(stay, 1);
+            }
+            if (stay == null && mutation == 0) {
+                entries.remove(orderId);
+            } else {
+                entries.put(orderId, new Entry(stay, mutation));
+            }
+        }
+
+        /**
+         * 将 stamp 之后发生的变更重放到 target 上
+         */
+        synchronized void replayAfter(long stamp, PropertyCalendar target) {
+            entries.forEach((orderId, entry) -> {
+                if (entry.mutation > stamp) {
+                    target.apply(orderId, entry.stay, entry.mutation);
+                }
+            });
+        }
+
+        /**
+         * 新增、替换（stay 非空）或移除（stay 为空）预订保留，返回之前是否存在该保留
+         */
+        synchronized boolean applyHold(String holdId, Stay stay) {
+            Stay previous = stay == null ? holds.remove(holdId) : holds.put(holdId, stay);
+            if (previous != null) {
+                add(previous, -1);
+            }
+            if (stay != null) {
+                add(stay, 1);
+            }
+            return previous != null;
+        }
+
+        /**
+         * 预订保留不在数据库中，对账重建时原样带到新日历
+         */
+        synchronized void copyHoldsTo(PropertyCalendar target) {
+            holds.forEach(target::applyHold);
+        }
+
+        synchronized Occupancy read(long from, int days) {
+            if (!covers(from, days)) {
+                return null;
+            }
+            int offset = (int) (from - baseDay);
+            int[] bookedRooms = new int[days];
+            int[] bookedGuests = new int[days];
+            for (int i = 0; i < days; i++) {
+                bookedRooms[i] = rooms.get(offset + i);
+                bookedGuests[i] = guests.get(offset + i);
+            }
+            return new Occupancy(bookedRooms, bookedGuests);
+        }
+
+        /**
+         * 区间内单晚最多的已订房间数与入住人数，不在覆盖范围内时返回 null
+         */
+        synchronized int[] peak(long from, int days) {
+            if (!covers(from, days)) {
+                return null;
+            }
+            int offset = (int) (from - baseDay);
+            return new int[]{rooms.max(offset, offset + days), guests.max(offset, offset + days)};
+        }
+
+        synchronized Set<Long> activeOrderIds() {
+            return entries.entrySet().stream()
+                    .filter(entry -> entry.getValue().stay != null)
+                    .map(Map.Entry::getKey)
+                    .collect(Collectors.toSet());
+        }
+
+        synchronized boolean isEmpty() {
+            return entries.isEmpty() && holds.isEmpty();
+        }
+
+        private boolean covers(long from, int days) {
+            long offset = from - baseDay;
+            return offset >= 0 && offset + days <= rooms.size();
+        }
+
+        private void add(Stay stay, int sign) {
+            long from = Math.max(stay.checkIn - baseDay, 0);
+            long to = Math.min(stay.checkOut - baseDay, rooms.size());
+            if (from < to) {
+                rooms.add((int) from, (int) to, sign);
+                guests.add((int) from, (int) to, sign * stay.guests);
+            }
+        }
+    }
+
+    /**
+     * 房源容量：卧室数即可订房间数，maxGuests 为每晚最多入住人数，0 表示不限
+     */
+    private static final class Capacity {
+        private final int rooms;
+        private final int guests;
+
+        private Capacity(int rooms, int guests) {
+            this.rooms = rooms;
+            this.guests = guests;
+        }
+
+        static Capacity of(Property property) {
+            return new Capacity(Math.max(Optional.ofNullable(property.getBedrooms()).orElse(0), 0),
+                    Math.max(Optional.ofNullable(property.getMaxGuests()).orElse(0), 0));
+        }
+
+        /**
+         * 给定区间内单晚峰值占用时，是否还能再接待 guests 位客人
+         */
+        boolean fits(int peakRooms, int peakGuests, int guests) {
+            if (this.guests > 0 && guests > this.guests) {
+                return false;
+            }
+            if (rooms > 0 && peakRooms >= rooms) {
+                return false;
+            }
+            return this.guests <= 0 || peakGuests + guests <= this.guests;
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.recommendation.homestay.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recommendation.homestay.dto.BookingHold;
+import com.recommendation.homestay.dto.BookingHoldRequest;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.support.AfterCommit;
+import com.recommendation.homestay.support.HierarchicalTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 预订保留服务
+ *
+ * 客人进入支付前先创建保留：在预订引擎的分段锁内检查并占用每晚库存（与下单走同一套条件 UPDATE），
+ * 然后在保留有效期内凭保留ID下单，下单时不再争抢库存。节假日高峰时同一晚的竞争因此提前到保留这一步，
+ * 最后一步的下单不会因为别人先付款而失败。
+ *
+ * 保留同时存放在：
+ * 1. Redis：哈希 booking:hold:data 保存保留内容，有序集合 booking:holds 以到期时间为分数，所有节点共享；
+ * 2. 本节点内存：登记到房态日历（可用性检查计入被保留的夜晚），并在分层时间轮上注册到期任务，
+ *    到期时自动释放，无需轮询数据库。
+ * 到期、取消和下单都先通过 Lua 脚本原子地从有序集合中摘除保留，摘除成功的一方才处理库存，
+ * 因此多节点同时到期也只会释放一次。定时同步把其他节点创建的保留登记到本节点，
+ * 并接管宕机节点遗留的过期保留。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class BookingHoldService {
+
+    private static final Logger log = LoggerFactory.getLogger(BookingHoldService.class);
+
+    private static final String HOLDS_KEY = "booking:holds";
+    private static final String HOLD_DATA_KEY = "booking:hold:data";
+
+    /**
+     * 原子摘除：从有序集合删除成功时一并取出并删除保留内容，否则返回空
+     */
+    private static final RedisScript<String> CLAIM_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('ZREM', KEYS[1], ARGV[1]) == 1 then "
+                    + "local value = redis.call('HGET', KEYS[2], ARGV[1]); "
+                    + "redis.call('HDEL', KEYS[2], ARGV[1]); "
+                    + "return value end "
+                    + "return false", String.class);
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired
+    private ReservationEngine reservationEngine;
+
+    @Autowired
+    private AvailabilityCalendar availabilityCalendar;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${hold.ttl-seconds:600}")
+    private long ttlSeconds;
+
+    @Value("${hold.max-per-user:3}")
+    private int maxPerUser;
+
+    @Value("${hold.wheel-tick-ms:1000}")
+    private long wheelTickMs;
+
+    /**
+     * 本节点已登记到日历和时间轮的保留
+     */
+    private final Map<String, Tracked> tracked = new ConcurrentHashMap<>();
+
+    private final ExecutorService expiryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "booking-hold-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private HierarchicalTimingWheel wheel;
+
+    @PostConstruct
+    public void init() {
+        // 64 格 × 3 层，tick 为 1 秒时可覆盖约 73 小时
+        wheel = new HierarchicalTimingWheel("booking-hold-wheel", wheelTickMs, 64, 3, expiryExecutor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+        expiryExecutor.shutdownNow();
+    }
+
+    /**
+     * 为用户创建预订保留，成功后这些夜晚在 hold.ttl-seconds 内只能凭保留ID下单
+     *
+     * @throws RuntimeException 参数无效、房源不可用、保留数超限或所选日期已满
+     */
+    @Transactional
+    public BookingHold createHold(BookingHoldRequest request, Long userId) {
+        Property property = propertyMapper.selectById(request.getPropertyId());
+        if (property == null) {
+            throw new RuntimeException("未找到房源");
+        }
+        if (!property.getAvailable()) {
+            throw new RuntimeException("房源不可用");
+        }
+        if (request.getCheckInDate().isBefore(LocalDate.now())) {
+            throw new RuntimeException("入住日期不能早于当前日期");
+        }
+        if (ChronoUnit.DAYS.between(request.getCheckInDate(), request.getCheckOutDate()) < 1) {
+            throw new RuntimeException("最少预订1晚");
+        }
+        long activeHolds = tracked.values().stream()
+                .filter(entry -> userId.equals(entry.hold.getUserId()))
+                .count();
+        if (activeHolds >= maxPerUser) {
+            throw new RuntimeException("同时保留的房源过多，请先完成或取消已有保留");
+        }
+
+        reservationEngine.reserve(property, request.getCheckInDate(), request.getCheckOutDate(),
+                request.getGuestCount());
+
+        BookingHold hold = new BookingHold();
+        hold.setId(UUID.randomUUID().toString().replace("-", ""));
+        hold.setUserId(userId);
+        hold.setPropertyId(property.getId());
+        hold.setCheckInDate(request.getCheckInDate());
+        hold.setCheckOutDate(request.getCheckOutDate());
+        hold.setGuestCount(request.getGuestCount());
+        hold.setExpiresAt(System.currentTimeMillis() + ttlSeconds * 1000);
+
+        // 写入 Redis 放在事务内，失败时库存占用随事务回滚；提交失败时再把 Redis 中的保留撤掉
+        store(hold);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        claim(hold.getId());
+                    }
+                }
+            });
+        }
+        AfterCommit.run(() -> track(hold));
+        return hold;
+    }
+
+    /**
+     * 查询用户自己的预订保留
+     */
+    public BookingHold getHold(String holdId, Long userId) {
+        BookingHold hold = load(holdId);
+        if (hold == null || hold.getExpiresAt() <= System.currentTimeMillis()) {
+            throw new RuntimeException("预订保留不存在或已过期");
+        }
+        if (!hold.getUserId().equals(userId)) {
+            throw new RuntimeException("无权查看该预订保留");
+        }
+        return hold;
+    }
+
+    /**
+     * 取消预订保留并立即释放库存
+     */
+    public void cancelHold(String holdId, Long userId) {
+        BookingHold hold = getHold(holdId, userId);
+        if (claim(hold.getId()) != null) {
+            releaseInventory(hold);
+        }
+        untrack(hold.getId());
+    }
+
+    /**
+     * 下单时消费预订保留：校验归属与入住信息一致后摘除保留，库存直接转给订单。
+     * 必须在下单事务内调用；事务回滚时保留按原到期时间放回。
+     *
+     * @throws RuntimeException 保留不存在、已过期、不属于该用户或与订单信息不一致
+     */
+    public BookingHold consumeHold(String holdId, Long userId, Long propertyId,
+                                   LocalDate checkIn, LocalDate checkOut, int guests) {
+        BookingHold hold = load(holdId);
+        if (hold == null) {
+            throw new RuntimeException("预订保留不存在或已过期");
+        }
+        if (!hold.getUserId().equals(userId)) {
+            throw new RuntimeException("无权使用该预订保留");
+        }
+        if (!hold.getPropertyId().equals(propertyId)
+                || !hold.getCheckInDate().equals(checkIn)
+                || !hold.getCheckOutDate().equals(checkOut)
+                || hold.getGuestCount() != guests) {
+            throw new RuntimeException("订单信息与预订保留不一致");
+        }
+        BookingHold claimed = claim(holdId);
+        if (claimed == null) {
+            throw new RuntimeException("预订保留不存在或已过期");
+        }
+        if (claimed.getExpiresAt() <= System.currentTimeMillis()) {
+            // 已过期但到期任务尚未处理：由这里释放
+            releaseInventory(claimed);
+            untrack(holdId);
+            throw new RuntimeException("预订保留不存在或已过期");
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        untrack(holdId);
+                    } else {
+                        restore(claimed);
+                    }
+                }
+            });
+        } else {
+            untrack(holdId);
+        }
+        return claimed;
+    }
+
+    /**
+     * 与 Redis 同步：接管已过期但未被处理的保留（例如创建它的节点已宕机），
+     * 登记其他节点创建的保留，移除在别处已被消费或取消的保留。启动时立即执行一次。
+     */
+    @Scheduled(fixedDelayString = "${hold.sync-interval-ms:15000}", initialDelayString = "${hold.initial-delay-ms:0}")
+    public void sync() {
+        try {
+            long now = System.currentTimeMillis();
+            Set<String> overdue = stringRedisTemplate.opsForZSet().rangeByScore(HOLDS_KEY, 0, now);
+            if (overdue != null) {
+                overdue.forEach(this::expire);
+            }
+
+            Set<String> live = stringRedisTemplate.opsForZSet().rangeByScore(HOLDS_KEY, now + 1, Double.MAX_VALUE);
+            Set<String> liveIds = live == null ? Collections.emptySet() : live;
+            List<String> missing = new ArrayList<>();
+            for (String id : liveIds) {
+                if (!tracked.containsKey(id)) {
+                    missing.add(id);
+                }
+            }
+            if (!missing.isEmpty()) {
+                List<Object> values = stringRedisTemplate.opsForHash().multiGet(HOLD_DATA_KEY, new ArrayList<>(missing));
+                for (Object value : values) {
+                    BookingHold hold = value == null ? null : parse(value.toString());
+                    if (hold != null) {
+                        track(hold);
+                    }
+                }
+            }
+            for (String id : new HashSet<>(tracked.keySet())) {
+                if (!liveIds.contains(id)) {
+                    untrack(id);
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Failed to sync booking holds from Redis", e);
+        }
+    }
+
+    /**
+     * 当前节点登记的未到期保留数
+     */
+    public int getActiveHoldCount() {
+        return tracked.size();
+    }
+
+    /**
+     * 时间轮到期回调：摘除成功才释放库存，已被其他节点处理时只清理本地登记
+     */
+    private void expire(String holdId) {
+        try {
+            BookingHold hold = claim(holdId);
+            if (hold != null) {
+                releaseInventory(hold);
+                log.debug("Booking hold {} expired, released property {} {} ~ {}", holdId,
+                        hold.getPropertyId(), hold.getCheckInDate(), hold.getCheckOutDate());
+            }
+        } catch (Exception e) {
+            // Redis 或数据库暂不可用：保留仍在有序集合中，下次同步时重试
+            log.warn("Failed to expire booking hold {}", holdId, e);
+            return;
+        }
+        untrack(holdId);
+    }
+
+    private void track(BookingHold hold) {
+        tracked.compute(hold.getId(), (id, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            availabilityCalendar.placeHold(hold.getPropertyId(), id, hold.getCheckInDate(),
+                    hold.getCheckOutDate(), hold.getGuestCount());
+            return new Tracked(hold, wheel.schedule(hold.getExpiresAt(), () -> expire(id)));
+        });
+    }
+
+    private void untrack(String holdId) {
+        Tracked entry = tracked.remove(holdId);
+        if (entry != null) {
+            entry.timeout.cancel();
+            availabilityCalendar.removeHold(entry.hold.getPropertyId(), holdId);
+        }
+    }
+
+    private void releaseInventory(BookingHold hold) {
+        reservationEngine.release(hold.getPropertyId(), hold.getCheckInDate(), hold.getCheckOutDate(),
+                hold.getGuestCount());
+    }
+
+    private void store(BookingHold hold) {
+        stringRedisTemplate.opsForHash().put(HOLD_DATA_KEY, hold.getId(), serialize(hold));
+        stringRedisTemplate.opsForZSet().add(HOLDS_KEY, hold.getId(), hold.getExpiresAt());
+    }
+
+    /**
+     * 下单事务回滚后放回保留；若已过期，下次同步会把它当作过期保留释放
+     */
+    private void restore(BookingHold hold) {
+        try {
+            store(hold);
+        } catch (Exception e) {
+            log.error("Failed to restore booking hold {}, releasing its inventory", hold.getId(), e);
+            releaseInventory(hold);
+            untrack(hold.getId());
+        }
+    }
+
+    private BookingHold claim(String holdId) {
+        String value = stringRedisTemplate.execute(CLAIM_SCRIPT, List.of(HOLDS_KEY, HOLD_DATA_KEY), holdId);
+        return value == null ? null : parse(value);
+    }
+
+    private BookingHold load(String holdId) {
+        Object value = stringRedisTemplate.opsForHash().get(HOLD_DATA_KEY, holdId);
+        return value == null ? null : parse(value.toString());
+    }
+
+    private String serialize(BookingHold hold) {
+        try {
+            return objectMapper.writeValueAsString(hold);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("预订保留序列化失败", e);
+        }
+    }
+
+    private BookingHold parse(String value) {
+        try {
+            return objectMapper.readValue(value, BookingHold.class);
+        } catch (JsonProcessingException e) {
+            log.warn("Discarding unreadable booking hold: {}", value, e);
+            return null;
+        }
+    }
+
+    private static final class Tracked {
+        private final BookingHold hold;
+        private final HierarchicalTimingWheel.Timeout timeout;
+
+        private Tracked(BookingHold hold, HierarchicalTimingWheel.Timeout timeout) {
+            this.hold = Objects.requireNonNull(hold);
+            this.timeout = timeout;
+        }
+    }
+}
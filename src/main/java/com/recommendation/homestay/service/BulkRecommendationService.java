@@ -0,0 +1,202 @@
+package com.recommendation.homestay.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recommendation.homestay.dto.BulkRecommendationRequest;
+import com.recommendation.homestay.dto.BulkRecommendationResult;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.User;
+import com.recommendation.homestay.mapper.UserMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 批量推荐服务
+ *
+ * 为一批用户一次性计算推荐：交互数据与房源特征只加载一次（{@link RecommendationSnapshot}），
+ * 按用户分块提交到与 CPU 核数相同的线程池并行计算，完成一块就以 NDJSON 写出一块。
+ * 同时在途的分块数量有上限，客户端读得慢时计算也会随之放慢，内存占用保持有界。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class BulkRecommendationService {
+
+    private static final Logger log = LoggerFactory.getLogger(BulkRecommendationService.class);
+    private static final int CHUNK_SIZE = 256;
+    private static final byte[] NEW_LINE = {'\n'};
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private UserMapper userMapper;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private final int parallelism = Runtime.getRuntime().availableProcessors();
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(parallelism, new ThreadFactory() {
+        private final AtomicInteger sequence = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "bulk-recommendation-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * 解析请求得到目标用户：显式给出的ID按原顺序去重并区分出不存在的用户，
+     * 否则按角色与启用状态筛选全部匹配用户。
+     *
+     * @throws IllegalArgumentException 当角色参数无效时抛出
+     */
+    public BulkJob prepare(BulkRecommendationRequest request) {
+        int limit = request.getLimit() == null ? 10 : request.getLimit();
+        if (request.getUserIds() != null && !request.getUserIds().isEmpty()) {
+            Set<Long> requested = new LinkedHashSet<>(request.getUserIds());
+            Set<Long> existing = userMapper.selectBatchIds(requested).stream()
+                    .map(User::getId)
+                    .collect(Collectors.toSet());
+            List<Long> found = new ArrayList<>();
+            List<Long> missing = new ArrayList<>();
+            for (Long id : requested) {
+                (existing.contains(id) ? found : missing).add(id);
+            }
+            return new BulkJob(found, missing, limit);
+        }
+
+        QueryWrapper<User> queryWrapper = new QueryWrapper<>();
+        queryWrapper.select("id");
+        if (StringUtils.hasText(request.getRole())) {
+            try {
+                queryWrapper.eq("role", User.Role.valueOf(request.getRole().toUpperCase()).name());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("角色参数无效");
+            }
+        }
+        if (request.getEnabled() != null) {
+            queryWrapper.eq("enabled", request.getEnabled());
+        }
+        queryWrapper.orderByAsc("id");
+        List<Long> userIds = userMapper.selectObjs(queryWrapper).stream()
+                .map(id -> ((Number) id).longValue())
+                .collect(Collectors.toList());
+        return new BulkJob(userIds, Collections.emptyList(), limit);
+    }
+
+    /**
+     * 计算并以 NDJSON 逐行写出推荐结果，每行对应一个用户；输出顺序为分块完成顺序。
+     */
+    public void write(BulkJob job, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        for (Long missingId : job.getMissingUserIds()) {
+            writeLine(out, new BulkRecommendationResult(missingId, null, "未找到用户"));
+        }
+
+        RecommendationSnapshot snapshot = recommendationService.loadSnapshot();
+        List<Long> userIds = job.getUserIds();
+        CompletionService<List<BulkRecommendationResult>> completionService = new ExecutorCompletionService<>(executor);
+        int maxInFlight = parallelism * 2;
+        int next = 0;
+        int inFlight = 0;
+        try {
+            while (next < userIds.size() || inFlight > 0) {
+                while (inFlight < maxInFlight && next < userIds.size()) {
+                    List<Long> chunk = userIds.subList(next, Math.min(next + CHUNK_SIZE, userIds.size()));
+                    completionService.submit(() -> computeChunk(snapshot, chunk, job.getLimit()));
+                    next += chunk.size();
+                    inFlight++;
+                }
+                List<BulkRecommendationResult> results = completionService.take().get();
+                inFlight--;
+                for (BulkRecommendationResult result : results) {
+                    writeLine(out, result);
+                }
+                out.flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("批量推荐被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("批量推荐计算失败", e.getCause());
+        }
+        log.info("Bulk recommendations for {} users written in {} ms (snapshot: {} users, {} properties)",
+                userIds.size(), System.currentTimeMillis() - start,
+                snapshot.getUserCount(), snapshot.getPropertyCount());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private List<BulkRecommendationResult> computeChunk(RecommendationSnapshot snapshot, List<Long> userIds, int limit) {
+        List<BulkRecommendationResult> results = new ArrayList<>(userIds.size());
+        for (Long userId : userIds) {
+            try {
+                List<Property> recommendations = recommendationService.getRecommendations(snapshot, userId, limit);
+                results.add(new BulkRecommendationResult(userId, recommendations, null));
+            } catch (Exception e) {
+                log.warn("Bulk recommendation failed for user {}", userId, e);
+                results.add(new BulkRecommendationResult(userId, null, e.getMessage()));
+            }
+        }
+        return results;
+    }
+
+    private void writeLine(OutputStream out, BulkRecommendationResult result) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(result));
+        out.write(NEW_LINE);
+    }
+
+    /**
+     * 已解析的批量推荐任务
+     */
+    public static final class BulkJob {
+        private final List<Long> userIds;
+        private final List<Long> missingUserIds;
+        private final int limit;
+
+        BulkJob(List<Long> userIds, List<Long> missingUserIds, int limit) {
+            this.userIds = userIds;
+            this.missingUserIds = missingUserIds;
+            this.limit = limit;
+        }
+
+        public List<Long> getUserIds() {
+            return userIds;
+        }
+
+        public List<Long> getMissingUserIds() {
+            return missingUserIds;
+        }
+
+        public int getLimit() {
+            return limit;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.recommendation.homestay.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.mapper.OrderArchiveMapper;
+import com.recommendation.homestay.mapper.OrderMapper;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.support.TabularExportWriter;
+import org.apache.ibatis.cursor.Cursor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 订单与房源入住情况的全量流式导出
+ *
+ * 订单（含已归档订单）通过 MyBatis 流式游标逐行读取（只读事务内，MySQL 驱动逐行下发），房源按主键分页读取
+ * （每页还要查询房态日历，而流式结果集未读完前同一连接不能执行其他语句）。两者都边读边写，
+ * 堆内只保留一行或一页，与导出总行数无关；没有 COUNT(*) 和 OFFSET 扫描。
+ *
+ * 客户端读取慢时写操作阻塞，数据库读取随之暂停：Connector/J 在流式读取期间会把 net_write_timeout
+ * 调整为 netTimeoutForStreamingResults（默认 600 秒），客户端停顿超过该时间时导出中止。
+ * 客户端断开时写操作抛出 IOException，游标随事务结束关闭，连接立即归还连接池。
+ *
+ * 每个导出独占一个数据库连接和一个异步请求线程，同时进行的导出数受 export.max-concurrent 限制。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class ExportService {
+
+    private static final Logger log = LoggerFactory.getLogger(ExportService.class);
+
+    public static final String[] ORDER_COLUMNS = {
+            "id", "orderNumber", "userId", "propertyId", "landlordId", "checkInDate", "checkOutDate",
+            "guestCount", "totalPrice", "status", "createdAt", "updatedAt"
+    };
+
+    public static final String[] OCCUPANCY_COLUMNS = {
+            "id", "title", "city", "district", "address", "price", "bedrooms", "maxGuests", "propertyType",
+            "bookingCount", "occupiedRooms", "remainingRooms", "activeGuests", "available", "landlordId"
+    };
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired
+    private AvailabilityCalendar availabilityCalendar;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${export.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${export.page-size:1000}")
+    private int pageSize;
+
+    @Value("${export.flush-rows:1000}")
+    private int flushRows;
+
+    private Semaphore permits;
+    private TransactionTemplate readOnlyTransaction;
+
+    @PostConstruct
+    public void init() {
+        permits = new Semaphore(Math.max(maxConcurrent, 1));
+        readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        readOnlyTransaction.setIsolationLevel(TransactionDefinition.ISOLATION_READ_COMMITTED);
+    }
+
+    /**
+     * 占用一个导出名额，在写出完成（或失败）以及异步请求结束时释放
+     *
+     * @throws IllegalStateException 同时进行的导出已达上限
+     */
+    public Permit acquire() {
+        if (!permits.tryAcquire()) {
+            throw new IllegalStateException("当前导出任务较多，请稍后重试");
+        }
+        return new Permit();
+    }
+
+    /**
+     * 按条件导出订单：先导出 orders，再导出 orders_archive，各自按订单ID升序
+     */
+    public void exportOrders(Permit permit, Order.OrderStatus status, Long landlordId,
+                             LocalDate from, LocalDate to, TabularExportWriter.Format format,
+                             boolean gzip, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        try (Permit ignored = permit) {
+            OutputStream target = wrap(out, gzip);
+            TabularExportWriter writer = new TabularExportWriter(target, format, ORDER_COLUMNS);
+            try {
+                LocalDateTime createdFrom = from == null ? null : from.atStartOfDay();
+                LocalDateTime createdTo = to == null ? null : to.plusDays(1).atStartOfDay();
+                readOnlyTransaction.executeWithoutResult(tx -> {
+                    // 先热表后归档表，各自按订单ID升序；同一时刻只有一个流式结果集占用连接
+                    try (Cursor<Order> cursor = orderMapper.streamForExport(status, landlordId, createdFrom, createdTo)) {
+                        writeOrders(writer, cursor);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    if (status != null && status != Order.OrderStatus.COMPLETED && status != Order.OrderStatus.CANCELLED) {
+                        return;
+                    }
+                    try (Cursor<Order> cursor = orderArchiveMapper.streamForExport(status, landlordId, createdFrom, createdTo)) {
+                        writeOrders(writer, cursor);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                log.info("Order export aborted after {} rows: {}", writer.getRows(), e.getCause().getMessage());
+                throw e.getCause();
+            }
+            finish(writer, target, gzip);
+            log.info("Exported {} orders as {} in {} ms", writer.getRows(), format,
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * 导出房源及当晚入住情况（按房源ID升序）
+     */
+    public void exportOccupancy(Permit permit, Long landlordId, TabularExportWriter.Format format,
+                                boolean gzip, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        try (Permit ignored = permit) {
+            OutputStream target = wrap(out, gzip);
+            TabularExportWriter writer = new TabularExportWriter(target, format, OCCUPANCY_COLUMNS);
+            long afterId = 0;
+            while (true) {
+                QueryWrapper<Property> queryWrapper = new QueryWrapper<>();
+                queryWrapper.select("id", "title", "city", "district", "address", "price", "bedrooms",
+                                "max_guests", "property_type", "booking_count", "available", "landlord_id")
+                        .gt("id", afterId);
+                if (landlordId != null) {
+                    queryWrapper.eq("landlord_id", landlordId);
+                }
+                queryWrapper.orderByAsc("id").last("LIMIT " + pageSize);
+                List<Property> page = propertyMapper.selectList(queryWrapper);
+                if (page.isEmpty()) {
+                    break;
+                }
+                Map<Long, AvailabilityCalendar.Occupancy> occupancy = availabilityCalendar.getTonightOccupancy(
+                        page.stream().map(Property::getId).collect(Collectors.toList()));
+                for (Property property : page) {
+                    AvailabilityCalendar.Occupancy tonight = occupancy.get(property.getId());
+                    int bedrooms = Optional.ofNullable(property.getBedrooms()).orElse(0);
+                    int occupiedRooms = tonight == null ? 0 : tonight.getBookedRooms(0);
+                    writer.writeRow(property.getId(), property.getTitle(), property.getCity(),
+                            property.getDistrict(), property.getAddress(), property.getPrice(),
+                            property.getBedrooms(), property.getMaxGuests(), property.getPropertyType(),
+                            property.getBookingCount(), occupiedRooms, Math.max(bedrooms - occupiedRooms, 0),
+                            tonight == null ? 0 : tonight.getBookedGuests(0), property.getAvailable(),
+                            property.getLandlordId());
+                }
+                writer.flush();
+                if (page.size() < pageSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            finish(writer, target, gzip);
+            log.info("Exported {} properties as {} in {} ms", writer.getRows(), format,
+                    System.currentTimeMillis() - start);
+        }
+    }
+
+    private void writeOrders(TabularExportWriter writer, Cursor<Order> cursor) throws IOException {
+        for (Order order : cursor) {
+            writer.writeRow(order.getId(), order.getOrderNumber(), order.getUserId(),
+                    order.getPropertyId(), order.getLandlordId(), order.getCheckInDate(),
+                    order.getCheckOutDate(), order.getGuestCount(), order.getTotalPrice(),
+                    order.getStatus(), order.getCreatedAt(), order.getUpdatedAt());
+            if (writer.getRows() % flushRows == 0) {
+                writer.flush();
+            }
+        }
+    }
+
+    private static OutputStream wrap(OutputStream out, boolean gzip) throws IOException {
+        // syncFlush：每次 flush 都输出已压缩的完整数据块，客户端可以边下载边解压
+        return gzip ? new GZIPOutputStream(out, 8192, true) : out;
+    }
+
+    private static void finish(TabularExportWriter writer, OutputStream target, boolean gzip) throws IOException {
+        writer.flush();
+        if (gzip) {
+            ((GZIPOutputStream) target).finish();
+        }
+        target.flush();
+    }
+
+    /**
+     * 导出名额，只释放一次
+     */
+    public final class Permit implements AutoCloseable {
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,314 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.dto.PropertyResponseDTO;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.mapper.UserPropertyInteractionMapper;
+import com.recommendation.homestay.support.AfterCommit;
+import com.recommendation.homestay.support.SortedLongSet;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 房源收藏
+ *
+ * 收藏记为 FAVORITE 类型的用户交互，是内容推荐中最强的正向信号。每个用户的收藏房源ID集合以
+ * {@link SortedLongSet} 缓存在本节点（最多 favorites.cache-size 个用户，最近最少使用淘汰，
+ * 条目 favorites.local-ttl-ms 后重新读取），并以集合 fav:{用户ID} 缓存在 Redis 供各节点共享；
+ * 两级都未命中时从数据库加载一次。列表接口每页只取一次当前用户的集合，逐条二分查找设置 isFavorited，
+ * 不按卡片逐条查询。
+ *
+ * 收藏与取消在事务提交后同步更新本节点缓存，并删除 Redis 中的集合、递增该用户的版本号 fav:ver:{用户ID}。
+ * 从数据库加载的集合只在版本号与加载前读到的一致且集合仍不存在时才写入 Redis（脚本内原子判断），
+ * 加载期间提交的收藏不会被旧集合覆盖；本节点缓存同样只在加载期间没有收藏变化时写入。
+ * 其他节点的本地缓存最多滞后 favorites.local-ttl-ms。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class FavoriteService {
+
+    private static final Logger log = LoggerFactory.getLogger(FavoriteService.class);
+    private static final String KEY_PREFIX = "fav:";
+    private static final String VERSION_PREFIX = "fav:ver:";
+    /**
+     * Redis 不能保存空集合：每个集合都带一个占位成员，用来区分“没有收藏”和“未缓存”
+     */
+    private static final String PLACEHOLDER = "0";
+
+    /**
+     * KEYS[1] 集合，KEYS[2] 版本号；ARGV[1] 加载前读到的版本号（不存在时为空串），ARGV[2] 过期秒数，其余为成员
+     */
+    private static final RedisScript<Long> FILL_SCRIPT = new DefaultRedisScript<>(
+            "local version = redis.call('GET', KEYS[2]) or '' "
+                    + "if version ~= ARGV[1] or redis.call('EXISTS', KEYS[1]) == 1 then return 0 end "
+                    + "redis.call('SADD', KEYS[1], unpack(ARGV, 3)) "
+                    + "redis.call('EXPIRE', KEYS[1], ARGV[2]) "
+                    + "return 1", Long.class);
+    /**
+     * KEYS[1] 集合，KEYS[2] 版本号；ARGV[1] 版本号过期秒数
+     */
+    private static final RedisScript<Long> INVALIDATE_SCRIPT = new DefaultRedisScript<>(
+            "redis.call('INCR', KEYS[2]) "
+                    + "redis.call('EXPIRE', KEYS[2], ARGV[1]) "
+                    + "return redis.call('DEL', KEYS[1])", Long.class);
+
+    @Autowired
+    private UserPropertyInteractionMapper interactionMapper;
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${favorites.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${favorites.local-ttl-ms:60000}")
+    private long localTtlMs;
+
+    @Value("${favorites.redis-ttl-minutes:60}")
+    private long redisTtlMinutes;
+
+    @Value("${favorites.max-per-user:1000}")
+    private int maxPerUser;
+
+    /**
+     * 本节点的收藏变化次数，加载期间有变化时不写入本地缓存
+     */
+    private final AtomicLong localWrites = new AtomicLong();
+
+    private final Map<Long, Entry> cache = new LinkedHashMap<Long, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+            return size() > cacheSize;
+        }
+    };
+
+    /**
+     * 收藏房源；已收藏时直接返回
+     */
+    @Transactional
+    @CacheEvict(value = "recommendations", key = "#userId")
+    public void addFavorite(Long userId, Long propertyId) {
+        if (propertyMapper.selectById(propertyId) == null) {
+            throw new RuntimeException("未找到房源");
+        }
+        SortedLongSet current = getFavorites(userId);
+        if (current.contains(propertyId)) {
+            return;
+        }
+        if (current.size() >= maxPerUser) {
+            throw new RuntimeException("收藏数量已达上限");
+        }
+        UserPropertyInteraction favorite = new UserPropertyInteraction();
+        favorite.setUserId(userId);
+        favorite.setPropertyId(propertyId);
+        favorite.setType(UserPropertyInteraction.InteractionType.FAVORITE);
+        try {
+            interactionMapper.insert(favorite);
+        } catch (DuplicateKeyException e) {
+            // 并发重复收藏，唯一索引保证只有一条
+            log.debug("Property {} already favorited by user {}", propertyId, userId);
+        }
+        AfterCommit.run(() -> applyChange(userId, propertyId, true));
+    }
+
+    /**
+     * 取消收藏；未收藏时直接返回
+     */
+    @Transactional
+    @CacheEvict(value = "recommendations", key = "#userId")
+    public void removeFavorite(Long userId, Long propertyId) {
+        interactionMapper.deleteFavorite(userId, propertyId);
+        AfterCommit.run(() -> applyChange(userId, propertyId, false));
+    }
+
+    /**
+     * 用户最近收藏的房源（最多 favorites.max-per-user 个），按收藏时间倒序
+     */
+    public List<Property> getFavoriteProperties(Long userId) {
+        List<Long> ids = interactionMapper.findRecentFavorites(userId, maxPerUser);
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Property> properties = propertyMapper.selectBatchIds(ids).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+        List<Property> result = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Property property = properties.get(id);
+            if (property != null) {
+                property.setIsFavorited(true);
+                result.add(property);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 为一页房源设置 isFavorited：只读取一次当前用户的收藏集合，逐条二分查找；未登录时原样返回
+     *
+     * 推荐快照、热门趋势与分群排行返回的是多个请求共享的对象，这里在副本上设置标记，不修改原对象。
+     */
+    public List<Property> markFavorites(Long userId, List<Property> properties) {
+        if (userId == null || properties == null || properties.isEmpty()) {
+            return properties;
+        }
+        SortedLongSet favorites = getFavorites(userId);
+        List<Property> marked = new ArrayList<>(properties.size());
+        for (Property property : properties) {
+            Property copy = new Property();
+            BeanUtils.copyProperties(property, copy);
+            copy.setIsFavorited(property.getId() != null && favorites.contains(property.getId()));
+            marked.add(copy);
+        }
+        return marked;
+    }
+
+    /**
+     * 为房源详情设置 isFavorited；未登录时不设置
+     */
+    public void markFavorite(Long userId, PropertyResponseDTO dto) {
+        if (userId != null && dto.getId() != null) {
+            dto.setIsFavorited(getFavorites(userId).contains(dto.getId()));
+        }
+    }
+
+    /**
+     * 用户的收藏集合：本地缓存、Redis、数据库依次读取
+     */
+    public SortedLongSet getFavorites(Long userId) {
+        long now = System.currentTimeMillis();
+        synchronized (cache) {
+            Entry entry = cache.get(userId);
+            if (entry != null && now - entry.loadedAt < localTtlMs) {
+                return entry.favorites;
+            }
+        }
+        long generation = localWrites.get();
+        SortedLongSet favorites = loadFromRedis(userId);
+        if (favorites == null) {
+            String version = readVersion(userId);
+            favorites = SortedLongSet.of(interactionMapper.findFavoritePropertyIds(userId));
+            if (version != null) {
+                saveToRedis(userId, version, favorites);
+            }
+        }
+        synchronized (cache) {
+            if (localWrites.get() == generation) {
+                cache.put(userId, new Entry(favorites, now));
+            }
+        }
+        return favorites;
+    }
+
+    private void applyChange(Long userId, Long propertyId, boolean favorited) {
+        synchronized (cache) {
+            localWrites.incrementAndGet();
+            Entry entry = cache.get(userId);
+            if (entry != null) {
+                SortedLongSet updated = favorited ? entry.favorites.with(propertyId) : entry.favorites.without(propertyId);
+                cache.put(userId, new Entry(updated, entry.loadedAt));
+            }
+        }
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute(INVALIDATE_SCRIPT, List.of(KEY_PREFIX + userId, VERSION_PREFIX + userId),
+                    Long.toString(redisTtlSeconds()));
+        } catch (Exception e) {
+            log.warn("Failed to invalidate cached favorites of user {} in Redis", userId, e);
+        }
+    }
+
+    /**
+     * 加载前读取版本号：不存在时为空串，Redis 不可用时为 null（此时不写入 Redis）
+     */
+    private String readVersion(Long userId) {
+        if (stringRedisTemplate == null) {
+            return null;
+        }
+        try {
+            String version = stringRedisTemplate.opsForValue().get(VERSION_PREFIX + userId);
+            return version == null ? "" : version;
+        } catch (Exception e) {
+            log.warn("Failed to read favorites version of user {} from Redis", userId, e);
+            return null;
+        }
+    }
+
+    private SortedLongSet loadFromRedis(Long userId) {
+        if (stringRedisTemplate == null) {
+            return null;
+        }
+        try {
+            Set<String> members = stringRedisTemplate.opsForSet().members(KEY_PREFIX + userId);
+            if (members == null || members.isEmpty()) {
+                return null;
+            }
+            List<Long> ids = new ArrayList<>(members.size());
+            for (String member : members) {
+                if (!PLACEHOLDER.equals(member)) {
+                    ids.add(Long.parseLong(member));
+                }
+            }
+            return SortedLongSet.of(ids);
+        } catch (Exception e) {
+            log.warn("Failed to read cached favorites of user {} from Redis", userId, e);
+            return null;
+        }
+    }
+
+    private void saveToRedis(Long userId, String version, SortedLongSet favorites) {
+        long[] ids = favorites.toArray();
+        Object[] args = new Object[ids.length + 3];
+        args[0] = version;
+        args[1] = Long.toString(redisTtlSeconds());
+        args[2] = PLACEHOLDER;
+        for (int i = 0; i < ids.length; i++) {
+            args[i + 3] = Long.toString(ids[i]);
+        }
+        try {
+            stringRedisTemplate.execute(FILL_SCRIPT, List.of(KEY_PREFIX + userId, VERSION_PREFIX + userId), args);
+        } catch (Exception e) {
+            log.warn("Failed to cache favorites of user {} in Redis", userId, e);
+        }
+    }
+
+    private long redisTtlSeconds() {
+        return TimeUnit.MINUTES.toSeconds(redisTtlMinutes);
+    }
+
+    private static final class Entry {
+        private final SortedLongSet favorites;
+        private final long loadedAt;
+
+        private Entry(SortedLongSet favorites, long loadedAt) {
+            this.favorites = favorites;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
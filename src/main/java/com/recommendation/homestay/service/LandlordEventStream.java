@@ -0,0 +1,307 @@
+package com.recommendation.homestay.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.recommendation.homestay.dto.LandlordNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 房东订单通知的 Server-Sent Events 推送
+ *
+ * 房东打开订单页时建立一条 SSE 连接，新订单、退订申请、订单取消和新评价发生后推送到该房东的所有连接，
+ * 页面收到后再刷新列表，不再需要轮询。通知发布到 Redis 频道 landlord:events，每个节点订阅该频道
+ * 并只推送给连在本节点上的连接；没有 Redis 或发布失败时只推送本节点。
+ *
+ * 广播不阻塞发布线程：每条连接一个容量为 sse.buffer-size 的队列，发布时只入队，由 sse.sender-threads
+ * 个发送线程逐条写出，同一连接的写出串行进行。队列满说明客户端读得太慢，直接断开该连接，
+ * 由客户端重连后重新拉取列表。每隔 sse.heartbeat-ms 发送一行注释，保持代理与负载均衡器上的连接；
+ * 心跳由专用线程触发，不经过 Spring 共享的单线程调度器，避免被长时间运行的定时校准任务阻塞。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class LandlordEventStream {
+
+    private static final Logger log = LoggerFactory.getLogger(LandlordEventStream.class);
+    private static final String CHANNEL = "landlord:events";
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired(required = false)
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${sse.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${sse.buffer-size:64}")
+    private int bufferSize;
+
+    @Value("${sse.max-connections-per-landlord:5}")
+    private int maxConnectionsPerLandlord;
+
+    @Value("${sse.sender-threads:4}")
+    private int senderThreads;
+
+    @Value("${sse.heartbeat-ms:15000}")
+    private long heartbeatMs;
+
+    private final Map<Long, Set<Connection>> connections = new ConcurrentHashMap<>();
+    private ExecutorService sender;
+    private ScheduledExecutorService heartbeats;
+    private RedisMessageListenerContainer listenerContainer;
+
+    @PostConstruct
+    public void init() {
+        AtomicInteger threadCount = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "landlord-sse-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "landlord-sse-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        heartbeats.scheduleWithFixedDelay(this::heartbeat, heartbeatMs, heartbeatMs, TimeUnit.MILLISECONDS);
+        if (stringRedisTemplate == null || redisConnectionFactory == null) {
+            return;
+        }
+        try {
+            RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+            container.setConnectionFactory(redisConnectionFactory);
+            container.addMessageListener((message, pattern) ->
+                    onMessage(new String(message.getBody(), StandardCharsets.UTF_8)), new ChannelTopic(CHANNEL));
+            container.afterPropertiesSet();
+            container.start();
+            listenerContainer = container;
+        } catch (Exception e) {
+            log.warn("Failed to subscribe to {}, landlord notifications stay on this node", CHANNEL, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (listenerContainer != null) {
+            try {
+                listenerContainer.destroy();
+            } catch (Exception e) {
+                log.warn("Failed to stop the landlord notification subscription", e);
+            }
+        }
+        heartbeats.shutdownNow();
+        connections.values().forEach(set -> set.forEach(this::close));
+        sender.shutdownNow();
+    }
+
+    /**
+     * 为房东建立一条推送连接
+     */
+    public SseEmitter subscribe(Long landlordId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Connection connection = new Connection(landlordId, emitter, bufferSize);
+        connections.compute(landlordId, (id, current) -> {
+            Set<Connection> set = current != null ? current : ConcurrentHashMap.newKeySet();
+            if (set.size() >= maxConnectionsPerLandlord) {
+                throw new RuntimeException("推送连接数过多，请关闭其他页面后重试");
+            }
+            set.add(connection);
+            return set;
+        });
+        emitter.onCompletion(() -> remove(connection));
+        emitter.onTimeout(() -> remove(connection));
+        emitter.onError(e -> remove(connection));
+        enqueue(connection, Message.event("CONNECTED", "{}"));
+        return emitter;
+    }
+
+    /**
+     * 发布一条通知（调用方应在事务提交后调用）
+     */
+    public void publish(LandlordNotification notification) {
+        if (notification.getLandlordId() == null) {
+            return;
+        }
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(notification);
+        } catch (JsonProcessingException e) {
+            log.warn("Failed to serialize landlord notification {}", notification, e);
+            return;
+        }
+        if (listenerContainer != null) {
+            try {
+                // 本节点也通过订阅收到，不再单独推送
+                stringRedisTemplate.convertAndSend(CHANNEL, payload);
+                return;
+            } catch (Exception e) {
+                log.warn("Failed to publish landlord notification to Redis, delivering on this node only", e);
+            }
+        }
+        deliver(notification.getLandlordId(), notification.getType().name(), payload);
+    }
+
+    /**
+     * 当前连接总数
+     */
+    public int getConnectionCount() {
+        return connections.values().stream().mapToInt(Set::size).sum();
+    }
+
+    private void heartbeat() {
+        try {
+            connections.values().forEach(set -> set.forEach(connection -> enqueue(connection, Message.HEARTBEAT)));
+        } catch (Exception e) {
+            // 异常会取消后续的周期执行
+            log.warn("Failed to queue landlord notification heartbeats", e);
+        }
+    }
+
+    private void onMessage(String payload) {
+        try {
+            LandlordNotification notification = objectMapper.readValue(payload, LandlordNotification.class);
+            if (notification.getLandlordId() != null && notification.getType() != null) {
+                deliver(notification.getLandlordId(), notification.getType().name(), payload);
+            }
+        } catch (Exception e) {
+            log.warn("Ignoring malformed landlord notification {}", payload, e);
+        }
+    }
+
+    private void deliver(Long landlordId, String name, String payload) {
+        Set<Connection> set = connections.get(landlordId);
+        if (set == null) {
+            return;
+        }
+        Message message = Message.event(name, payload);
+        set.forEach(connection -> enqueue(connection, message));
+    }
+
+    private void enqueue(Connection connection, Message message) {
+        if (connection.closed.get()) {
+            return;
+        }
+        if (!connection.queue.offer(message)) {
+            log.info("Dropping slow landlord notification client of landlord {}", connection.landlordId);
+            // 发送线程可能正阻塞在这条连接的写出上，关闭交给它在写出结束后完成
+            connection.closed.set(true);
+            remove(connection);
+        }
+        schedule(connection);
+    }
+
+    private void schedule(Connection connection) {
+        if (connection.scheduled.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(connection));
+            } catch (Exception e) {
+                connection.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Connection connection) {
+        try {
+            Message message;
+            while (!connection.closed.get() && (message = connection.queue.poll()) != null) {
+                if (message.name == null) {
+                    connection.emitter.send(SseEmitter.event().comment("heartbeat"));
+                } else {
+                    connection.emitter.send(SseEmitter.event().name(message.name)
+                            .data(message.data, MediaType.APPLICATION_JSON));
+                }
+            }
+        } catch (Exception e) {
+            // 客户端已断开
+            connection.closed.set(true);
+            remove(connection);
+        } finally {
+            if (connection.closed.get()) {
+                connection.queue.clear();
+                close(connection);
+            }
+            connection.scheduled.set(false);
+        }
+        if (!connection.closed.get() && !connection.queue.isEmpty()) {
+            schedule(connection);
+        }
+    }
+
+    private void close(Connection connection) {
+        connection.closed.set(true);
+        try {
+            connection.emitter.complete();
+        } catch (Exception ignored) {
+            // 连接已经结束
+        }
+    }
+
+    private void remove(Connection connection) {
+        connections.computeIfPresent(connection.landlordId, (id, set) -> {
+            set.remove(connection);
+            return set.isEmpty() ? null : set;
+        });
+    }
+
+    private static final class Connection {
+        private final Long landlordId;
+        private final SseEmitter emitter;
+        private final Queue<Message> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Connection(Long landlordId, SseEmitter emitter, int capacity) {
+            this.landlordId = landlordId;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+    }
+
+    /**
+     * 待发送的事件；name 为 null 时是心跳注释
+     */
+    private static final class Message {
+        private static final Message HEARTBEAT = new Message(null, null);
+
+        private final String name;
+        private final String data;
+
+        private Message(String name, String data) {
+            this.name = name;
+            this.data = data;
+        }
+
+        private static Message event(String name, String data) {
+            return new Message(name, data);
+        }
+    }
+}
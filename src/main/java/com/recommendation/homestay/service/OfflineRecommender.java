@@ -0,0 +1,23 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.entity.Property;
+
+import java.util.List;
+
+/**
+ * 可参与离线评估的推荐引擎
+ *
+ * 只能使用传入快照中的数据计算推荐，保证评估时看不到留出期的交互。
+ * 声明为 Spring Bean 的实现会自动加入 {@link RecommendationEvaluationService} 的对比。
+ *
+ * @author Homestay Recommendation System
+ */
+public interface OfflineRecommender {
+
+    /**
+     * 引擎名称，出现在评估报告中
+     */
+    String getName();
+
+    List<Property> recommend(RecommendationSnapshot snapshot, Long userId, int limit);
+}
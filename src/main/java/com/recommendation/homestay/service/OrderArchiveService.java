@@ -0,0 +1,151 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.mapper.OrderArchiveMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 订单冷热分离：把已完成、已取消且最后更新早于 order.archive.min-age-days 天的订单迁入 orders_archive
+ *
+ * 按主键顺序分片扫描 orders，每片只读 batch-size 行的 ID、状态和时间；片内符合条件的订单在一个短事务内
+ * 复制到归档表再从 orders 删除，两条语句带相同条件，期间状态被改动的订单不会被迁移。片与片之间暂停
+ * pause-ms 毫秒，单次运行最多处理 max-batches-per-run 片，避免长时间持锁或占满 IO。
+ *
+ * 订单ID自增且与下单时间同序，而最后更新时间不早于下单时间，扫描到下单时间晚于截止时间的订单即可停止。
+ * 多节点同时运行时，后执行的事务在行锁释放后读不到已删除的行，不会重复归档。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class OrderArchiveService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderArchiveService.class);
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Value("${order.archive.enabled:true}")
+    private boolean enabled;
+
+    @Value("${order.archive.min-age-days:180}")
+    private long minAgeDays;
+
+    @Value("${order.archive.batch-size:500}")
+    private int batchSize;
+
+    @Value("${order.archive.pause-ms:200}")
+    private long pauseMs;
+
+    @Value("${order.archive.max-batches-per-run:2000}")
+    private int maxBatchesPerRun;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Scheduled(fixedDelayString = "${order.archive.interval-ms:3600000}",
+            initialDelayString = "${order.archive.initial-delay-ms:600000}")
+    public void scheduledArchive() {
+        if (enabled) {
+            archive();
+        }
+    }
+
+    /**
+     * 执行一轮归档
+     *
+     * @return 本轮迁移的订单数；已有一轮在执行时返回 -1
+     */
+    public int archive() {
+        if (!running.compareAndSet(false, true)) {
+            return -1;
+        }
+        long start = System.currentTimeMillis();
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(minAgeDays);
+        int archived = 0;
+        int batches = 0;
+        long afterId = 0;
+        try {
+            while (batches < maxBatchesPerRun) {
+                List<Order> slice = orderArchiveMapper.scanHot(afterId, batchSize);
+                if (slice.isEmpty()) {
+                    break;
+                }
+                List<Long> eligible = new ArrayList<>();
+                boolean reachedCutoff = false;
+                for (Order order : slice) {
+                    if (order.getCreatedAt() != null && !order.getCreatedAt().isBefore(cutoff)) {
+                        reachedCutoff = true;
+                        break;
+                    }
+                    if (isFinished(order.getStatus()) && order.getUpdatedAt() != null
+                            && order.getUpdatedAt().isBefore(cutoff)) {
+                        eligible.add(order.getId());
+                    }
+                }
+                archived += moveBatch(eligible, cutoff);
+                batches++;
+                if (reachedCutoff || slice.size() < batchSize) {
+                    break;
+                }
+                afterId = slice.get(slice.size() - 1).getId();
+                if (!pause()) {
+                    break;
+                }
+            }
+            log.info("Archived {} orders older than {} in {} slices, {} ms", archived, cutoff, batches,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Order archival stopped after order {} ({} archived)", afterId, archived, e);
+        } finally {
+            running.set(false);
+        }
+        return archived;
+    }
+
+    private int moveBatch(List<Long> ids, LocalDateTime cutoff) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        Integer moved = transactionTemplate.execute(status -> {
+            int copied = orderArchiveMapper.copyToArchive(ids, cutoff);
+            int deleted = orderArchiveMapper.deleteFromHot(ids, cutoff);
+            if (copied != deleted) {
+                // 两条语句条件相同且行已加锁，不应出现；回滚以免丢单或重复
+                throw new IllegalStateException("归档复制 " + copied + " 行但删除 " + deleted + " 行");
+            }
+            return deleted;
+        });
+        return moved == null ? 0 : moved;
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static boolean isFinished(Order.OrderStatus status) {
+        return status == Order.OrderStatus.COMPLETED || status == Order.OrderStatus.CANCELLED;
+    }
+}
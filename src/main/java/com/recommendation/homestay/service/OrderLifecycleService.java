@@ -0,0 +1,312 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.event.OrderEvent;
+import com.recommendation.homestay.event.OrderEventBus;
+import com.recommendation.homestay.mapper.OrderMapper;
+import com.recommendation.homestay.support.AfterCommit;
+import com.recommendation.homestay.support.HierarchicalTimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * 订单生命周期调度
+ *
+ * 两类到期：
+ * 1. 待支付（PENDING）订单创建 order.pending-timeout-minutes 分钟后仍未支付，自动取消并释放库存；
+ * 2. 已确认（CONFIRMED）订单在退房日的 order.checkout-time 之后自动完成；退订被拒（CANCEL_REJECTED）
+ *    和退订申请到退房时仍未处理（CANCEL_REQUESTED）的订单同样完成，不再占用库存，并可被归档和评价。
+ *
+ * 未来 order.lifecycle.horizon-hours 小时内到期的订单登记在分层时间轮上，到期时只把订单ID放入队列，
+ * 由同一执行线程把同一时刻到期的订单合并成一批：加锁读取仍处于原状态的订单、一条 UPDATE 改状态、
+ * 释放库存，提交后更新房态日历。原状态已变化（例如刚好完成支付）的订单被条件过滤掉。
+ *
+ * 定时补扫（启动时立即执行一次）按主键分页遍历到期订单，每页一个短事务，处理停机期间错过的到期，
+ * 并把新进入时间窗口的订单登记到时间轮。多节点同时处理同一订单时由行锁和状态条件保证只转换一次。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class OrderLifecycleService {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderLifecycleService.class);
+
+    /**
+     * 自动状态转换
+     */
+    enum Transition {
+        EXPIRE(EnumSet.of(Order.OrderStatus.PENDING), Order.OrderStatus.CANCELLED, OrderEvent.Type.EXPIRED),
+        COMPLETE(EnumSet.of(Order.OrderStatus.CONFIRMED, Order.OrderStatus.CANCEL_REJECTED,
+                Order.OrderStatus.CANCEL_REQUESTED), Order.OrderStatus.COMPLETED, OrderEvent.Type.COMPLETED);
+
+        private final Set<Order.OrderStatus> from;
+        private final Order.OrderStatus to;
+        private final OrderEvent.Type eventType;
+
+        Transition(Set<Order.OrderStatus> from, Order.OrderStatus to, OrderEvent.Type eventType) {
+            this.from = Collections.unmodifiableSet(from);
+            this.to = to;
+            this.eventType = eventType;
+        }
+    }
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private ReservationEngine reservationEngine;
+
+    @Autowired
+    private AvailabilityCalendar availabilityCalendar;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private OrderEventBus orderEventBus;
+
+    @Value("${order.pending-timeout-minutes:30}")
+    private long pendingTimeoutMinutes;
+
+    @Value("${order.checkout-time:12:00}")
+    private String checkoutTimeText;
+
+    @Value("${order.lifecycle.horizon-hours:24}")
+    private long horizonHours;
+
+    @Value("${order.lifecycle.batch-size:200}")
+    private int batchSize;
+
+    @Value("${order.lifecycle.wheel-tick-ms:1000}")
+    private long wheelTickMs;
+
+    private final Map<Long, HierarchicalTimingWheel.Timeout> timers = new ConcurrentHashMap<>();
+    private final Map<Transition, Queue<Long>> due = new EnumMap<>(Transition.class);
+    private final AtomicBoolean flushQueued = new AtomicBoolean();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "order-lifecycle");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private LocalTime checkoutTime;
+    private HierarchicalTimingWheel wheel;
+
+    @PostConstruct
+    public void init() {
+        checkoutTime = LocalTime.parse(checkoutTimeText);
+        for (Transition transition : Transition.values()) {
+            due.put(transition, new ConcurrentLinkedQueue<>());
+        }
+        // 64 格 × 3 层，tick 为 1 秒时可覆盖约 73 小时，大于默认的登记窗口
+        wheel = new HierarchicalTimingWheel("order-lifecycle-wheel", wheelTickMs, 64, 3, executor);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+        executor.shutdownNow();
+    }
+
+    /**
+     * 按订单当前状态重新登记到期任务
+     */
+    public void track(Order order) {
+        track(order.getId(), order.getStatus(), order.getCreatedAt(), order.getCheckOutDate());
+    }
+
+    /**
+     * 订单创建或状态变化后（由订单事件触发）调用：取消旧的到期任务，按新状态重新登记
+     */
+    public void track(Long orderId, Order.OrderStatus status, LocalDateTime createdAt, LocalDate checkOutDate) {
+        HierarchicalTimingWheel.Timeout previous = timers.remove(orderId);
+        if (previous != null) {
+            previous.cancel();
+        }
+        Transition transition = transitionFor(status);
+        if (transition == null) {
+            return;
+        }
+        LocalDateTime deadline = deadlineOf(transition, createdAt, checkOutDate);
+        if (deadline.isAfter(LocalDateTime.now().plusHours(horizonHours))) {
+            // 超出登记窗口，由之后的补扫登记
+            return;
+        }
+        timers.put(orderId, wheel.schedule(toMillis(deadline), () -> enqueue(transition, orderId)));
+    }
+
+    /**
+     * 补扫：处理已过期但尚未转换的订单，并登记登记窗口内即将到期的订单
+     */
+    @Scheduled(fixedDelayString = "${order.lifecycle.sweep-interval-ms:600000}",
+            initialDelayString = "${order.lifecycle.initial-delay-ms:0}")
+    public void sweep() {
+        long start = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime horizon = now.plusHours(horizonHours);
+        LocalDateTime createdBefore = horizon.minusMinutes(pendingTimeoutMinutes);
+        LocalDate lastCheckOut = horizon.toLocalTime().isBefore(checkoutTime)
+                ? horizon.toLocalDate().minusDays(1)
+                : horizon.toLocalDate();
+
+        int[] expired = sweep(Transition.EXPIRE, now,
+                afterId -> orderMapper.findPendingCreatedBefore(createdBefore, afterId, batchSize));
+        int[] completed = sweep(Transition.COMPLETE, now,
+                afterId -> orderMapper.findCheckingOutBy(Transition.COMPLETE.from, lastCheckOut, afterId, batchSize));
+        log.info("Order lifecycle sweep: {} expired, {} completed, {} + {} scheduled, {} timers in {} ms",
+                expired[0], completed[0], expired[1], completed[1], wheel.size(),
+                System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 按主键分页遍历一类到期订单：已到期的整页批量转换，未到期的登记到时间轮
+     *
+     * @return [转换数量, 登记数量]
+     */
+    private int[] sweep(Transition transition, LocalDateTime now, PageLoader loader) {
+        int transitioned = 0;
+        int scheduled = 0;
+        long afterId = 0;
+        while (true) {
+            List<Order> page;
+            try {
+                page = loader.load(afterId);
+            } catch (Exception e) {
+                log.warn("Order lifecycle sweep for {} stopped after order {}", transition, afterId, e);
+                break;
+            }
+            List<Long> overdue = new ArrayList<>();
+            for (Order order : page) {
+                if (deadlineOf(transition, order).isAfter(now)) {
+                    if (!timers.containsKey(order.getId())) {
+                        track(order);
+                        scheduled++;
+                    }
+                } else {
+                    overdue.add(order.getId());
+                }
+            }
+            transitioned += transition(transition, overdue);
+            if (page.size() < batchSize) {
+                break;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        return new int[]{transitioned, scheduled};
+    }
+
+    private void enqueue(Transition transition, Long orderId) {
+        timers.remove(orderId);
+        due.get(transition).add(orderId);
+        if (flushQueued.compareAndSet(false, true)) {
+            // 排在同一 tick 其余到期任务之后执行，一次取走整批
+            executor.execute(this::flush);
+        }
+    }
+
+    private void flush() {
+        flushQueued.set(false);
+        for (Transition transition : Transition.values()) {
+            Queue<Long> queue = due.get(transition);
+            List<Long> batch = new ArrayList<>();
+            for (Long orderId = queue.poll(); orderId != null; orderId = queue.poll()) {
+                batch.add(orderId);
+                if (batch.size() == batchSize) {
+                    transition(transition, batch);
+                    batch = new ArrayList<>();
+                }
+            }
+            transition(transition, batch);
+        }
+    }
+
+    /**
+     * 在一个短事务内批量转换仍处于原状态的订单；失败时留给下一次补扫
+     *
+     * @return 实际转换的订单数
+     */
+    private int transition(Transition transition, List<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return 0;
+        }
+        try {
+            Integer count = transactionTemplate.execute(status -> {
+                List<Order> orders = orderMapper.lockByStatus(orderIds, transition.from);
+                if (orders.isEmpty()) {
+                    return 0;
+                }
+                List<Long> lockedIds = orders.stream().map(Order::getId).collect(Collectors.toList());
+                orderMapper.transitionStatus(lockedIds, transition.from, transition.to);
+                // 两种目标状态都不再占用库存
+                reservationEngine.releaseAll(orders);
+                for (Order order : orders) {
+                    Order.OrderStatus previous = order.getStatus();
+                    order.setStatus(transition.to);
+                    AfterCommit.run(() -> availabilityCalendar.apply(order));
+                    orderEventBus.publishAfterCommit(OrderEvent.of(transition.eventType, order, previous));
+                }
+                return orders.size();
+            });
+            return count == null ? 0 : count;
+        } catch (Exception e) {
+            log.warn("Failed to {} {} orders, leaving them to the next sweep", transition, orderIds.size(), e);
+            return 0;
+        }
+    }
+
+    private Transition transitionFor(Order.OrderStatus status) {
+        for (Transition transition : Transition.values()) {
+            if (transition.from.contains(status)) {
+                return transition;
+            }
+        }
+        return null;
+    }
+
+    private LocalDateTime deadlineOf(Transition transition, Order order) {
+        return deadlineOf(transition, order.getCreatedAt(), order.getCheckOutDate());
+    }
+
+    private LocalDateTime deadlineOf(Transition transition, LocalDateTime createdAt, LocalDate checkOutDate) {
+        if (transition == Transition.EXPIRE) {
+            return (createdAt == null ? LocalDateTime.now() : createdAt).plusMinutes(pendingTimeoutMinutes);
+        }
+        return checkOutDate.atTime(checkoutTime);
+    }
+
+    private static long toMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    @FunctionalInterface
+    private interface PageLoader {
+        List<Order> load(long afterId);
+    }
+}
@@ -1,21 +1,31 @@
 package com.recommendation.homestay.service;
 
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.recommendation.homestay.dto.CursorPageResponse;
+import com.recommendation.homestay.dto.GroupBookingRequest;
+import com.recommendation.homestay.dto.GroupBookingResult;
 import com.recommendation.homestay.dto.OrderRequest;
 import com.recommendation.homestay.entity.Order;
 import com.recommendation.homestay.entity.Property;
 import com.recommendation.homestay.entity.User;
+import com.recommendation.homestay.event.OrderEvent;
+import com.recommendation.homestay.event.OrderEventBus;
+import com.recommendation.homestay.mapper.OrderArchiveMapper;
 import com.recommendation.homestay.mapper.OrderMapper;
 import com.recommendation.homestay.mapper.PropertyMapper;
 import com.recommendation.homestay.mapper.UserMapper;
+import com.recommendation.homestay.support.AfterCommit;
+import com.recommendation.homestay.support.SnowflakeIdGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.util.StringUtils;
 
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.function.Function;
@@ -24,15 +34,48 @@ import java.util.stream.Collectors;
 @Service
 public class OrderService {
 
+    /**
+     * 归档表中订单的状态
+     */
+    private static final Set<Order.OrderStatus> ARCHIVED_STATUSES =
+            EnumSet.of(Order.OrderStatus.COMPLETED, Order.OrderStatus.CANCELLED);
+
+    private static final Comparator<Order> NEWEST_FIRST =
+            Comparator.comparing(Order::getCreatedAt).thenComparing(Order::getId).reversed();
+
     @Autowired
     private OrderMapper orderMapper;
 
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
     @Autowired
     private UserMapper userMapper;
 
     @Autowired
     private PropertyMapper propertyMapper;
 
+    @Autowired
+    private AvailabilityCalendar availabilityCalendar;
+
+    @Autowired
+    private ReservationEngine reservationEngine;
+
+    @Autowired
+    private PricingCalendar pricingCalendar;
+
+    @Autowired
+    private PropertyCounterBuffer propertyCounterBuffer;
+
+    @Autowired
+    private BookingHoldService bookingHoldService;
+
+    @Autowired
+    private OrderEventBus orderEventBus;
+
+    @Autowired
+    private SnowflakeIdGenerator orderNumberGenerator;
+
     @Transactional
     public Order createOrder(OrderRequest request, Long userId) {
         User user = userMapper.selectById(userId);
@@ -62,12 +105,22 @@ public class OrderService {
             throw new RuntimeException("最少预订1晚");
         }
 
-        BigDecimal totalPrice = property.getPrice().multiply(BigDecimal.valueOf(days));
+        int guestCount = Optional.ofNullable(request.getGuestCount()).orElse(0);
+        if (StringUtils.hasText(request.getHoldId())) {
+            // 保留已占住库存，下单时直接转给订单
+            bookingHoldService.consumeHold(request.getHoldId(), userId, property.getId(),
+                    request.getCheckInDate(), request.getCheckOutDate(), guestCount);
+        } else {
+            reservationEngine.reserve(property, request.getCheckInDate(), request.getCheckOutDate(), guestCount);
+        }
+
+        BigDecimal totalPrice = pricingCalendar.quote(property, request.getCheckInDate(), request.getCheckOutDate());
 
         Order order = new Order();
-        order.setOrderNumber("ORD-" + UUID.randomUUID().toString().substring(0, 8).toUpperCase());
+        order.setOrderNumber("ORD-" + orderNumberGenerator.nextBase32());
         order.setUserId(userId);
         order.setPropertyId(property.getId());
+        order.setLandlordId(property.getLandlordId());
         order.setCheckInDate(request.getCheckInDate());
         order.setCheckOutDate(request.getCheckOutDate());
         order.setGuestCount(request.getGuestCount());
@@ -77,16 +130,138 @@ public class OrderService {
 
         orderMapper.insert(order);
 
-        // 更新房源预订次数
-        property.setBookingCount(property.getBookingCount() + 1);
-        propertyMapper.updateById(property);
+        // 房源预订次数在提交后计入内存计数，定时批量写回
+        AfterCommit.run(() -> propertyCounterBuffer.recordBooking(property.getId()));
+        AfterCommit.run(() -> availabilityCalendar.apply(order));
+        orderEventBus.publishAfterCommit(OrderEvent.of(OrderEvent.Type.CREATED, order, null));
 
         return order;
     }
 
+    /**
+     * 团体预订：多项预订一起校验、一起占用库存，用一条多行 INSERT 写入全部订单，
+     * 房源预订次数按房源汇总后在提交时计入写回缓冲。任意一项失败时不创建任何订单（事务回滚），
+     * 返回结果中逐项说明成功或失败原因。
+     */
+    @Transactional
+    public GroupBookingResult createGroupBooking(GroupBookingRequest request, Long userId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            throw new RuntimeException("未找到用户");
+        }
+        List<OrderRequest> items = request.getItems();
+        Set<Long> propertyIds = items.stream().map(OrderRequest::getPropertyId).collect(Collectors.toSet());
+        Map<Long, Property> properties = propertyMapper.selectBatchIds(propertyIds).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+
+        List<GroupBookingResult.Item> results = new ArrayList<>(items.size());
+        List<ReservationEngine.Reservation> reservations = new ArrayList<>(items.size());
+        boolean valid = true;
+        for (int i = 0; i < items.size(); i++) {
+            OrderRequest item = items.get(i);
+            GroupBookingResult.Item result = new GroupBookingResult.Item();
+            result.setIndex(i);
+            result.setPropertyId(item.getPropertyId());
+            result.setCheckInDate(item.getCheckInDate());
+            result.setCheckOutDate(item.getCheckOutDate());
+            Property property = properties.get(item.getPropertyId());
+            String error = validateGroupItem(item, property);
+            result.setSuccess(error == null);
+            result.setMessage(error);
+            valid &= error == null;
+            results.add(result);
+            if (error == null) {
+                reservations.add(new ReservationEngine.Reservation(property, item.getCheckInDate(),
+                        item.getCheckOutDate(), item.getGuestCount()));
+            }
+        }
+        if (!valid) {
+            return groupFailure(results);
+        }
+
+        int failed = reservationEngine.reserveAll(reservations);
+        if (failed >= 0) {
+            // 已占用的部分库存随事务回滚撤销
+            TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+            results.get(failed).setSuccess(false);
+            results.get(failed).setMessage("所选日期房源已满");
+            return groupFailure(results);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Order> orders = new ArrayList<>(items.size());
+        Map<Long, Integer> bookingCounts = new HashMap<>();
+        BigDecimal groupTotal = BigDecimal.ZERO;
+        for (OrderRequest item : items) {
+            Property property = properties.get(item.getPropertyId());
+            Order order = new Order();
+            order.setOrderNumber("ORD-" + orderNumberGenerator.nextBase32());
+            order.setUserId(userId);
+            order.setPropertyId(property.getId());
+            order.setLandlordId(property.getLandlordId());
+            order.setCheckInDate(item.getCheckInDate());
+            order.setCheckOutDate(item.getCheckOutDate());
+            order.setGuestCount(item.getGuestCount());
+            order.setTotalPrice(pricingCalendar.quote(property, item.getCheckInDate(), item.getCheckOutDate()));
+            order.setStatus(Order.OrderStatus.PENDING);
+            order.setRemarks(item.getRemarks());
+            order.setCreatedAt(now);
+            order.setUpdatedAt(now);
+            orders.add(order);
+            bookingCounts.merge(property.getId(), 1, Integer::sum);
+            groupTotal = groupTotal.add(order.getTotalPrice());
+        }
+        orderMapper.insertBatch(orders);
+        AfterCommit.run(() -> propertyCounterBuffer.recordBookings(bookingCounts));
+
+        for (int i = 0; i < orders.size(); i++) {
+            Order order = orders.get(i);
+            results.get(i).setOrder(order);
+            AfterCommit.run(() -> availabilityCalendar.apply(order));
+            orderEventBus.publishAfterCommit(OrderEvent.of(OrderEvent.Type.CREATED, order, null));
+        }
+        GroupBookingResult result = new GroupBookingResult();
+        result.setBooked(true);
+        result.setTotalPrice(groupTotal);
+        result.setItems(results);
+        return result;
+    }
+
+    private String validateGroupItem(OrderRequest item, Property property) {
+        if (StringUtils.hasText(item.getHoldId())) {
+            return "团体预订不支持使用预订保留";
+        }
+        if (property == null) {
+            return "未找到房源";
+        }
+        if (!Boolean.TRUE.equals(property.getAvailable())) {
+            return "房源不可用";
+        }
+        if (!item.getCheckOutDate().isAfter(item.getCheckInDate())) {
+            return "退房日期必须晚于入住日期";
+        }
+        if (item.getCheckInDate().isBefore(LocalDate.now())) {
+            return "入住日期不能早于当前日期";
+        }
+        return null;
+    }
+
+    private static GroupBookingResult groupFailure(List<GroupBookingResult.Item> results) {
+        for (GroupBookingResult.Item item : results) {
+            if (item.isSuccess()) {
+                item.setSuccess(false);
+                item.setMessage("因其他项无法预订，本项未下单");
+            }
+        }
+        GroupBookingResult result = new GroupBookingResult();
+        result.setBooked(false);
+        result.setItems(results);
+        return result;
+    }
+
     @Transactional
     public Order updateOrderStatus(Long orderId, Order.OrderStatus status, Long userId) {
-        Order order = orderMapper.selectById(orderId);
+        Order order = orderMapper.selectByIdForUpdate(orderId);
         if (order == null) {
             throw new RuntimeException("未找到订单");
         }
@@ -95,13 +270,20 @@ public class OrderService {
             throw new RuntimeException("无权更新该订单");
         }
 
+        Order.OrderStatus previousStatus = order.getStatus();
         order.setStatus(status);
         orderMapper.updateById(order);
+        syncReservation(order, previousStatus);
+        AfterCommit.run(() -> availabilityCalendar.apply(order));
+        orderEventBus.publishAfterCommit(OrderEvent.of(OrderEvent.Type.STATUS_CHANGED, order, previousStatus));
         return order;
     }
 
     public Order getOrderById(Long orderId) {
         Order order = orderMapper.selectById(orderId);
+        if (order == null) {
+            order = orderArchiveMapper.selectById(orderId);
+        }
         if (order == null) {
             throw new RuntimeException("未找到订单");
         }
@@ -110,24 +292,41 @@ public class OrderService {
 
     public Order getOrderByNumber(String orderNumber) {
         Order order = orderMapper.findByOrderNumber(orderNumber);
+        if (order == null) {
+            order = orderArchiveMapper.findByOrderNumber(orderNumber);
+        }
         if (order == null) {
             throw new RuntimeException("未找到订单");
         }
         return order;
     }
 
-    public IPage<Order> getUserOrders(Long userId, int page, int size) {
-        Page<Order> pageParam = new Page<>(page + 1, size);
+    /**
+     * 用户订单列表：键集分页（created_at、id 倒序），同时读取 orders 与 orders_archive 并归并，
+     * 调用方无需关心订单是否已归档
+     *
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     * @throws IllegalArgumentException 游标无效时抛出
+     */
+    public CursorPageResponse<Order> getUserOrders(Long userId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), 100);
+        OrderCursor position = StringUtils.hasText(cursor) ? OrderCursor.decode(cursor) : null;
         QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("user_id", userId).orderByDesc("created_at");
-        IPage<Order> orders = orderMapper.selectPage(pageParam, queryWrapper);
-        attachProperties(orders);
-        return orders;
+        queryWrapper.eq("user_id", userId);
+        applyCursor(queryWrapper, position);
+        queryWrapper.orderByDesc("created_at", "id").last("LIMIT " + (pageSize + 1));
+        List<Order> hot = orderMapper.selectList(queryWrapper);
+        List<Order> cold = orderArchiveMapper.findByUserBefore(userId,
+                position == null ? null : position.createdAt, position == null ? null : position.id, pageSize + 1);
+
+        CursorPageResponse<Order> page = mergePage(hot, cold, pageSize);
+        attachProperties(page.getContent());
+        return page;
     }
 
     @Transactional
     public Order cancelOrder(Long orderId, Long userId) {
-        Order order = orderMapper.selectById(orderId);
+        Order order = orderMapper.selectByIdForUpdate(orderId);
         if (order == null) {
             throw new RuntimeException("未找到订单");
         }
@@ -144,6 +343,7 @@ public class OrderService {
             throw new RuntimeException("取消申请已提交，等待审核");
         }
 
+        Order.OrderStatus previousStatus = order.getStatus();
         boolean hasStarted = order.getCheckInDate().isBefore(LocalDate.now()) || order.getCheckInDate().isEqual(LocalDate.now());
         if (hasStarted) {
             order.setStatus(Order.OrderStatus.CANCEL_REQUESTED);
@@ -151,29 +351,89 @@ public class OrderService {
             order.setStatus(Order.OrderStatus.CANCELLED);
         }
         orderMapper.updateById(order);
+        syncReservation(order, previousStatus);
+        AfterCommit.run(() -> availabilityCalendar.apply(order));
+        orderEventBus.publishAfterCommit(OrderEvent.of(hasStarted
+                ? OrderEvent.Type.CANCEL_REQUESTED : OrderEvent.Type.CANCELLED, order, previousStatus));
         return order;
     }
 
-    public IPage<Order> getOrdersForLandlord(Long landlordId, int page, int size) {
-        List<Property> properties = propertyMapper.selectList(new QueryWrapper<Property>().eq("landlord_id", landlordId));
-        if (properties == null || properties.isEmpty()) {
-            Page<Order> empty = new Page<>(page + 1, size);
-            empty.setTotal(0);
-            empty.setRecords(Collections.emptyList());
-            return empty;
-        }
-        Set<Long> propertyIds = properties.stream().map(Property::getId).collect(Collectors.toSet());
-        Page<Order> pageParam = new Page<>(page + 1, size);
+    /**
+     * 房东订单列表：按 landlord_id 键集分页（created_at、id 倒序），开销与房东名下房源数量无关；
+     * 与用户订单列表一样归并归档表
+     *
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     * @param status 订单状态，可为空
+     * @param from   下单日期起（含），可为空
+     * @param to     下单日期止（含），可为空
+     * @throws IllegalArgumentException 游标无效时抛出
+     */
+    public CursorPageResponse<Order> getOrdersForLandlord(Long landlordId, String cursor, int size,
+                                                         Order.OrderStatus status, LocalDate from, LocalDate to) {
+        int pageSize = Math.min(Math.max(size, 1), 100);
         QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.in("property_id", propertyIds).orderByDesc("created_at");
-        IPage<Order> orders = orderMapper.selectPage(pageParam, queryWrapper);
-        attachPropertiesAndUsers(orders);
-        return orders;
+        queryWrapper.eq("landlord_id", landlordId);
+        if (status != null) {
+            queryWrapper.eq("status", status.name());
+        }
+        if (from != null) {
+            queryWrapper.ge("created_at", from.atStartOfDay());
+        }
+        if (to != null) {
+            queryWrapper.lt("created_at", to.plusDays(1).atStartOfDay());
+        }
+        OrderCursor position = StringUtils.hasText(cursor) ? OrderCursor.decode(cursor) : null;
+        applyCursor(queryWrapper, position);
+        // 多取一条判断是否还有下一页，不再执行 COUNT
+        queryWrapper.orderByDesc("created_at", "id").last("LIMIT " + (pageSize + 1));
+        List<Order> hot = orderMapper.selectList(queryWrapper);
+        // 归档表只有已完成和已取消的订单，按其他状态筛选时不必查询
+        List<Order> cold = status != null && !ARCHIVED_STATUSES.contains(status)
+                ? Collections.emptyList()
+                : orderArchiveMapper.findByLandlordBefore(landlordId, status,
+                        from == null ? null : from.atStartOfDay(),
+                        to == null ? null : to.plusDays(1).atStartOfDay(),
+                        position == null ? null : position.createdAt, position == null ? null : position.id,
+                        pageSize + 1);
+
+        CursorPageResponse<Order> page = mergePage(hot, cold, pageSize);
+        attachPropertiesAndUsers(page.getContent());
+        return page;
+    }
+
+    private static void applyCursor(QueryWrapper<Order> queryWrapper, OrderCursor position) {
+        if (position != null) {
+            queryWrapper.and(w -> w.lt("created_at", position.createdAt)
+                    .or(o -> o.eq("created_at", position.createdAt).lt("id", position.id)));
+        }
+    }
+
+    /**
+     * 归并热表与归档表各自按 (created_at, id) 倒序取出的 pageSize + 1 条，取前 pageSize 条作为本页。
+     * 两张表的订单ID不重复，归并结果与在一张表上分页一致。
+     */
+    private static CursorPageResponse<Order> mergePage(List<Order> hot, List<Order> cold, int pageSize) {
+        List<Order> merged = new ArrayList<>(Math.min(hot.size() + cold.size(), pageSize + 1));
+        int i = 0;
+        int j = 0;
+        while (merged.size() <= pageSize && (i < hot.size() || j < cold.size())) {
+            if (j >= cold.size() || (i < hot.size() && NEWEST_FIRST.compare(hot.get(i), cold.get(j)) <= 0)) {
+                merged.add(hot.get(i++));
+            } else {
+                merged.add(cold.get(j++));
+            }
+        }
+        boolean hasMore = merged.size() > pageSize;
+        if (hasMore) {
+            merged.remove(pageSize);
+        }
+        String nextCursor = hasMore ? OrderCursor.encode(merged.get(merged.size() - 1)) : null;
+        return new CursorPageResponse<>(merged, pageSize, nextCursor, hasMore);
     }
 
     @Transactional
     public Order reviewCancellation(Long orderId, Long landlordId, boolean approve) {
-        Order order = orderMapper.selectById(orderId);
+        Order order = orderMapper.selectByIdForUpdate(orderId);
         if (order == null) {
             throw new RuntimeException("未找到订单");
         }
@@ -189,12 +449,34 @@ public class OrderService {
         }
         order.setStatus(approve ? Order.OrderStatus.CANCELLED : Order.OrderStatus.CANCEL_REJECTED);
         orderMapper.updateById(order);
+        syncReservation(order, Order.OrderStatus.CANCEL_REQUESTED);
+        AfterCommit.run(() -> availabilityCalendar.apply(order));
+        orderEventBus.publishAfterCommit(OrderEvent.of(approve
+                ? OrderEvent.Type.CANCEL_APPROVED : OrderEvent.Type.CANCEL_REJECTED, order, Order.OrderStatus.CANCEL_REQUESTED));
         return order;
     }
 
-    private void attachProperties(IPage<Order> orders) {
+    /**
+     * 订单状态变化后同步每晚库存：离开占用状态时释放，重新进入占用状态时重新占用
+     */
+    private void syncReservation(Order order, Order.OrderStatus previousStatus) {
+        boolean wasReserved = AvailabilityCalendar.RESERVED_STATUSES.contains(previousStatus);
+        boolean reserved = AvailabilityCalendar.RESERVED_STATUSES.contains(order.getStatus());
+        if (wasReserved && !reserved) {
+            reservationEngine.release(order);
+        } else if (!wasReserved && reserved) {
+            Property property = propertyMapper.selectById(order.getPropertyId());
+            if (property == null) {
+                throw new RuntimeException("未找到该订单对应的房源");
+            }
+            reservationEngine.reserve(property, order.getCheckInDate(), order.getCheckOutDate(),
+                    Optional.ofNullable(order.getGuestCount()).orElse(0));
+        }
+    }
+
+    private void attachProperties(List<Order> orders) {
         Set<Long> propertyIds = new HashSet<>();
-        orders.getRecords().forEach(order -> {
+        orders.forEach(order -> {
             if (order.getPropertyId() != null) {
                 propertyIds.add(order.getPropertyId());
             }
@@ -204,14 +486,14 @@ public class OrderService {
                     .stream()
                     .filter(Objects::nonNull)
                     .collect(Collectors.toMap(Property::getId, Function.identity(), (existing, replacement) -> existing));
-            orders.getRecords().forEach(order -> order.setProperty(propertyMap.get(order.getPropertyId())));
+            orders.forEach(order -> order.setProperty(propertyMap.get(order.getPropertyId())));
         }
     }
 
-    private void attachPropertiesAndUsers(IPage<Order> orders) {
+    private void attachPropertiesAndUsers(List<Order> orders) {
         Set<Long> propertyIds = new HashSet<>();
         Set<Long> userIds = new HashSet<>();
-        orders.getRecords().forEach(order -> {
+        orders.forEach(order -> {
             if (order.getPropertyId() != null) {
                 propertyIds.add(order.getPropertyId());
             }
@@ -235,9 +517,38 @@ public class OrderService {
         }
         Map<Long, Property> finalPropertyMap = propertyMap;
         Map<Long, User> finalUserMap = userMap;
-        orders.getRecords().forEach(order -> {
+        orders.forEach(order -> {
             order.setProperty(finalPropertyMap.get(order.getPropertyId()));
             order.setUser(finalUserMap.get(order.getUserId()));
         });
     }
+
+    /**
+     * 订单列表的分页游标：最后一条订单的 created_at 与 id，Base64URL 编码后对外不透明
+     */
+    private static final class OrderCursor {
+        private final LocalDateTime createdAt;
+        private final long id;
+
+        private OrderCursor(LocalDateTime createdAt, long id) {
+            this.createdAt = createdAt;
+            this.id = id;
+        }
+
+        static String encode(Order order) {
+            String raw = order.getCreatedAt() + "|" + order.getId();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static OrderCursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new OrderCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("分页游标无效");
+            }
+        }
+    }
 }
@@ -0,0 +1,230 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.dto.PlatformStatsDTO;
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.entity.User;
+import com.recommendation.homestay.event.OrderEvent;
+import com.recommendation.homestay.mapper.PlatformStatsMapper;
+import com.recommendation.homestay.mapper.PlatformStatsMapper.StatCount;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 管理后台平台总览：按角色的用户数、可用与冻结的房源数、各状态订单数、今日订单数与成交额
+ *
+ * 总数常驻内存，由各写入路径在事务提交后增量更新（注册、冻结账户、房源增删与冻结，订单状态变化经订单事件），
+ * 读取时只复制十几个计数，不再对 users、properties、orders 做 COUNT/SUM。
+ *
+ * 启动时和每隔 stats.platform.reconcile-interval-ms 用分组计数从数据库校准。校准期间的增量另记一份，
+ * 读完数据库后叠加到新值上，不会因覆盖而丢失；只有恰好在读取前提交、读取后才到达的少量增量会被重复计入，
+ * 下一次校准即纠正。今日成交只统计今日下单且未取消的订单，跨天后清零。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class PlatformStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(PlatformStatsService.class);
+
+    private static final String USER = "user:";
+    private static final String FROZEN_USERS = "user-frozen";
+    private static final String AVAILABLE_PROPERTIES = "property-available";
+    private static final String FROZEN_PROPERTIES = "property-frozen";
+    private static final String ORDER = "order:";
+    private static final String TODAY_BOOKINGS = "today-bookings";
+    private static final String TODAY_GMV_CENTS = "today-gmv-cents";
+
+    @Autowired
+    private PlatformStatsMapper platformStatsMapper;
+
+    private Map<String, Long> values = new HashMap<>();
+    /**
+     * 校准进行中时记录的增量；不在校准时为 null
+     */
+    private Map<String, Long> journal;
+    private LocalDate day = LocalDate.now();
+    private LocalDateTime reconciledAt;
+
+    public synchronized void userCreated(User.Role role, boolean enabled) {
+        add(USER + role.name(), 1);
+        if (!enabled) {
+            add(FROZEN_USERS, 1);
+        }
+    }
+
+    public synchronized void userEnabledChanged(boolean enabled) {
+        add(FROZEN_USERS, enabled ? -1 : 1);
+    }
+
+    public synchronized void propertyCreated(boolean available) {
+        add(available ? AVAILABLE_PROPERTIES : FROZEN_PROPERTIES, 1);
+    }
+
+    public synchronized void propertyAvailabilityChanged(boolean available) {
+        add(AVAILABLE_PROPERTIES, available ? 1 : -1);
+        add(FROZEN_PROPERTIES, available ? -1 : 1);
+    }
+
+    public synchronized void propertyDeleted(boolean available) {
+        add(available ? AVAILABLE_PROPERTIES : FROZEN_PROPERTIES, -1);
+    }
+
+    /**
+     * 订单事件：新订单计入对应状态与今日成交，状态变化在两个状态间转移，今日订单被取消时扣除成交
+     */
+    public synchronized void onOrderEvents(List<OrderEvent> events) {
+        rollOver();
+        for (OrderEvent event : events) {
+            Order.OrderStatus status = event.getStatus();
+            if (status == null) {
+                continue;
+            }
+            boolean placedToday = event.getCreatedAt() != null && event.getCreatedAt().toLocalDate().equals(day);
+            if (event.getType() == OrderEvent.Type.CREATED) {
+                add(ORDER + status.name(), 1);
+                if (placedToday && status != Order.OrderStatus.CANCELLED) {
+                    add(TODAY_BOOKINGS, 1);
+                    add(TODAY_GMV_CENTS, cents(event.getTotalPrice()));
+                }
+                continue;
+            }
+            Order.OrderStatus previous = event.getPreviousStatus();
+            if (previous == null || previous == status) {
+                continue;
+            }
+            add(ORDER + previous.name(), -1);
+            add(ORDER + status.name(), 1);
+            if (placedToday && status == Order.OrderStatus.CANCELLED) {
+                add(TODAY_BOOKINGS, -1);
+                add(TODAY_GMV_CENTS, -cents(event.getTotalPrice()));
+            }
+        }
+    }
+
+    /**
+     * 当前总览，只读取内存中的计数
+     */
+    public synchronized PlatformStatsDTO getStats() {
+        rollOver();
+        PlatformStatsDTO dto = new PlatformStatsDTO();
+        Map<String, Long> usersByRole = new LinkedHashMap<>();
+        long totalUsers = 0;
+        for (User.Role role : User.Role.values()) {
+            long count = get(USER + role.name());
+            usersByRole.put(role.name(), count);
+            totalUsers += count;
+        }
+        Map<String, Long> ordersByStatus = new LinkedHashMap<>();
+        long totalOrders = 0;
+        for (Order.OrderStatus status : Order.OrderStatus.values()) {
+            long count = get(ORDER + status.name());
+            ordersByStatus.put(status.name(), count);
+            totalOrders += count;
+        }
+        dto.setTotalUsers(totalUsers);
+        dto.setUsersByRole(usersByRole);
+        dto.setFrozenUsers(get(FROZEN_USERS));
+        dto.setAvailableProperties(get(AVAILABLE_PROPERTIES));
+        dto.setFrozenProperties(get(FROZEN_PROPERTIES));
+        dto.setTotalOrders(totalOrders);
+        dto.setOrdersByStatus(ordersByStatus);
+        dto.setTodayBookings(get(TODAY_BOOKINGS));
+        dto.setTodayGmv(BigDecimal.valueOf(get(TODAY_GMV_CENTS), 2));
+        dto.setReconciledAt(reconciledAt);
+        return dto;
+    }
+
+    /**
+     * 用数据库中的分组计数校准内存总数
+     */
+    @Scheduled(fixedDelayString = "${stats.platform.reconcile-interval-ms:600000}",
+            initialDelayString = "${stats.platform.initial-delay-ms:0}")
+    public void reconcile() {
+        long start = System.currentTimeMillis();
+        LocalDate startDay;
+        synchronized (this) {
+            rollOver();
+            startDay = day;
+            journal = new HashMap<>();
+        }
+        Map<String, Long> fresh = new HashMap<>();
+        try {
+            for (StatCount row : platformStatsMapper.countUsers()) {
+                String[] parts = row.getStatKey().split(":");
+                fresh.merge(USER + parts[0], row.getTotal(), Long::sum);
+                if ("0".equals(parts[1])) {
+                    fresh.merge(FROZEN_USERS, row.getTotal(), Long::sum);
+                }
+            }
+            for (StatCount row : platformStatsMapper.countProperties()) {
+                fresh.put("1".equals(row.getStatKey()) ? AVAILABLE_PROPERTIES : FROZEN_PROPERTIES, row.getTotal());
+            }
+            for (StatCount row : platformStatsMapper.countOrders()) {
+                fresh.put(ORDER + row.getStatKey(), row.getTotal());
+            }
+            StatCount today = platformStatsMapper.countBookingsSince(startDay.atStartOfDay());
+            fresh.put(TODAY_BOOKINGS, today.getTotal());
+            fresh.put(TODAY_GMV_CENTS, cents(today.getAmount()));
+        } catch (Exception e) {
+            synchronized (this) {
+                journal = null;
+            }
+            log.warn("Platform stats reconciliation failed, keeping the incremental totals", e);
+            return;
+        }
+
+        synchronized (this) {
+            journal.forEach((key, delta) -> fresh.merge(key, delta, Long::sum));
+            if (!day.equals(startDay)) {
+                // 校准期间跨天，数据库读到的是前一天的成交
+                fresh.put(TODAY_BOOKINGS, get(TODAY_BOOKINGS));
+                fresh.put(TODAY_GMV_CENTS, get(TODAY_GMV_CENTS));
+            }
+            Map<String, Long> drift = new HashMap<>(fresh);
+            values.forEach((key, value) -> drift.merge(key, -value, Long::sum));
+            drift.values().removeIf(delta -> delta == 0);
+            values = fresh;
+            journal = null;
+            reconciledAt = LocalDateTime.now();
+            if (!drift.isEmpty()) {
+                log.info("Platform stats reconciled in {} ms, corrected {}", System.currentTimeMillis() - start, drift);
+            }
+        }
+    }
+
+    private void add(String key, long delta) {
+        values.merge(key, delta, Long::sum);
+        if (journal != null) {
+            journal.merge(key, delta, Long::sum);
+        }
+    }
+
+    private long get(String key) {
+        return values.getOrDefault(key, 0L);
+    }
+
+    private void rollOver() {
+        LocalDate now = LocalDate.now();
+        if (!now.equals(day)) {
+            day = now;
+            values.put(TODAY_BOOKINGS, 0L);
+            values.put(TODAY_GMV_CENTS, 0L);
+        }
+    }
+
+    private static long cents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValue();
+    }
+}
@@ -0,0 +1,284 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.PropertyPriceRule;
+import com.recommendation.homestay.mapper.PropertyPriceRuleMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * 内存价格日历
+ *
+ * 只为设置了价格规则的房源建表：从基准日起 pricing.horizon-days 晚，记录两个前缀和数组——
+ * 被规则覆盖的夜晚价格之和（分）与被覆盖的夜晚数。任意入住区间的总价为
+ * 基础价 ×（晚数 − 被覆盖晚数）+ 覆盖价格之和，两次数组相减即可得到，与晚数无关；
+ * 表中不含基础价，房源改价后无需重建。没有规则的房源总价就是基础价 × 晚数。
+ *
+ * 启动时和定时刷新时从数据库重建全部表（随日期滚动基准日），规则增删后立即重建该房源的表。
+ * 刷新只替换在读取数据库之后没有再被修改过的表。超出覆盖范围的区间逐晚匹配规则计算。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class PricingCalendar {
+
+    private static final Logger log = LoggerFactory.getLogger(PricingCalendar.class);
+
+    @Autowired
+    private PropertyPriceRuleMapper priceRuleMapper;
+
+    @Value("${pricing.horizon-days:365}")
+    private int horizonDays;
+
+    private final Map<Long, PriceTable> tables = new ConcurrentHashMap<>();
+    private final AtomicLong mutations = new AtomicLong();
+
+    /**
+     * 从数据库重建全部价格表
+     */
+    @Scheduled(fixedDelayString = "${pricing.refresh-interval-ms:300000}",
+            initialDelayString = "${pricing.initial-delay-ms:0}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        long version = mutations.get();
+        LocalDate today = LocalDate.now();
+        try {
+            Map<Long, BigDecimal> basePrices = priceRuleMapper.findPricedProperties(today).stream()
+                    .filter(p -> p.getPrice() != null)
+                    .collect(Collectors.toMap(Property::getId, Property::getPrice));
+            Map<Long, List<PropertyPriceRule>> rules = priceRuleMapper.findActive(today).stream()
+                    .collect(Collectors.groupingBy(PropertyPriceRule::getPropertyId, LinkedHashMap::new, Collectors.toList()));
+            Map<Long, PriceTable> rebuilt = new HashMap<>();
+            rules.forEach((propertyId, propertyRules) -> {
+                BigDecimal basePrice = basePrices.get(propertyId);
+                if (basePrice != null) {
+                    rebuilt.put(propertyId, new PriceTable(today.toEpochDay(), horizonDays, basePrice, propertyRules, version));
+                }
+            });
+            Set<Long> propertyIds = new HashSet<>(tables.keySet());
+            propertyIds.addAll(rebuilt.keySet());
+            for (Long propertyId : propertyIds) {
+                tables.compute(propertyId, (id, current) ->
+                        current != null && current.version > version ? current : rebuilt.get(id));
+            }
+            log.info("Pricing calendar refreshed: {} priced properties in {} ms", rebuilt.size(),
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Failed to refresh pricing calendar", e);
+        }
+    }
+
+    /**
+     * 房源价格规则变化后（提交后）重建该房源的表
+     */
+    public void reload(Property property) {
+        List<PropertyPriceRule> rules = priceRuleMapper.findActiveByProperty(property.getId(), LocalDate.now());
+        long version = mutations.incrementAndGet();
+        tables.put(property.getId(), new PriceTable(LocalDate.now().toEpochDay(), horizonDays,
+                property.getPrice(), rules, version));
+    }
+
+    /**
+     * 房源基础价格变化后（提交后）更新表中记录的基础价，供按总价搜索使用
+     */
+    public void updateBasePrice(Property property) {
+        if (property.getPrice() == null) {
+            return;
+        }
+        tables.computeIfPresent(property.getId(), (id, table) ->
+                table.withBasePrice(property.getPrice(), mutations.incrementAndGet()));
+    }
+
+    /**
+     * 房源 [checkIn, checkOut) 的总价，价格表覆盖范围内为 O(1)
+     */
+    public BigDecimal quote(Property property, LocalDate checkIn, LocalDate checkOut) {
+        int nights = (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
+        if (nights <= 0) {
+            return BigDecimal.ZERO;
+        }
+        PriceTable table = tables.get(property.getId());
+        if (table == null || table.rules.isEmpty()) {
+            return property.getPrice().multiply(BigDecimal.valueOf(nights));
+        }
+        return table.total(property.getPrice(), checkIn.toEpochDay(), nights);
+    }
+
+    /**
+     * 房源 [checkIn, checkOut) 每晚的价格
+     */
+    public Map<LocalDate, BigDecimal> nightlyPrices(Property property, LocalDate checkIn, LocalDate checkOut) {
+        PriceTable table = tables.get(property.getId());
+        Map<LocalDate, BigDecimal> prices = new LinkedHashMap<>();
+        for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+            BigDecimal override = table == null ? null : table.priceAt(night.toEpochDay());
+            prices.put(night, override != null ? override : property.getPrice());
+        }
+        return prices;
+    }
+
+    /**
+     * 按总价筛选设置了价格规则的房源；没有规则的房源由调用方按基础价 × 晚数筛选
+     *
+     * @param minTotal 总价下限（含），可为空
+     * @param maxTotal 总价上限（含），可为空
+     */
+    public TotalPriceMatch matchTotal(LocalDate checkIn, LocalDate checkOut, BigDecimal minTotal, BigDecimal maxTotal) {
+        int nights = (int) (checkOut.toEpochDay() - checkIn.toEpochDay());
+        Set<Long> matching = new HashSet<>();
+        Set<Long> outside = new HashSet<>();
+        tables.forEach((propertyId, table) -> {
+            if (table.rules.isEmpty()) {
+                return;
+            }
+            BigDecimal total = table.total(table.basePrice, checkIn.toEpochDay(), nights);
+            boolean fits = (minTotal == null || total.compareTo(minTotal) >= 0)
+                    && (maxTotal == null || total.compareTo(maxTotal) <= 0);
+            (fits ? matching : outside).add(propertyId);
+        });
+        return new TotalPriceMatch(matching, outside);
+    }
+
+    /**
+     * 有价格规则的房源按总价筛选的结果
+     */
+    public static final class TotalPriceMatch {
+        private final Set<Long> matching;
+        private final Set<Long> outside;
+
+        TotalPriceMatch(Set<Long> matching, Set<Long> outside) {
+            this.matching = Collections.unmodifiableSet(matching);
+            this.outside = Collections.unmodifiableSet(outside);
+        }
+
+        /**
+         * 总价在范围内的房源（即使基础价 × 晚数不在范围内也应返回）
+         */
+        public Set<Long> getMatching() {
+            return matching;
+        }
+
+        /**
+         * 总价不在范围内的房源（即使基础价 × 晚数在范围内也应排除）
+         */
+        public Set<Long> getOutside() {
+            return outside;
+        }
+    }
+
+    /**
+     * 单个房源的价格表
+     */
+    private static final class PriceTable {
+        private final long baseDay;
+        private final BigDecimal basePrice;
+        private final List<PropertyPriceRule> rules;
+        private final long version;
+        /**
+         * overrideCents[i]：前 i 晚中被规则覆盖的夜晚价格之和（分）
+         */
+        private final long[] overrideCents;
+        /**
+         * overridden[i]：前 i 晚中被规则覆盖的夜晚数
+         */
+        private final int[] overridden;
+
+        PriceTable(long baseDay, int horizonDays, BigDecimal basePrice, List<PropertyPriceRule> rules, long version) {
+            this.baseDay = baseDay;
+            this.basePrice = basePrice;
+            this.rules = rules;
+            this.version = version;
+            long[] cents = new long[horizonDays];
+            boolean[] covered = new boolean[horizonDays];
+            // 规则按ID升序，后面的覆盖前面的
+            for (PropertyPriceRule rule : rules) {
+                long from = Math.max(rule.getStartDate().toEpochDay(), baseDay);
+                long to = Math.min(rule.getEndDate().toEpochDay(), baseDay + horizonDays);
+                long price = rule.getPrice().movePointRight(2).longValue();
+                for (long day = from; day < to; day++) {
+                    if (matchesDayOfWeek(rule.getDaysOfWeek(), day)) {
+                        cents[(int) (day - baseDay)] = price;
+                        covered[(int) (day - baseDay)] = true;
+                    }
+                }
+            }
+            overrideCents = new long[horizonDays + 1];
+            overridden = new int[horizonDays + 1];
+            for (int i = 0; i < horizonDays; i++) {
+                overrideCents[i + 1] = overrideCents[i] + cents[i];
+                overridden[i + 1] = overridden[i] + (covered[i] ? 1 : 0);
+            }
+        }
+
+        private PriceTable(PriceTable source, BigDecimal basePrice, long version) {
+            this.baseDay = source.baseDay;
+            this.basePrice = basePrice;
+            this.rules = source.rules;
+            this.version = version;
+            this.overrideCents = source.overrideCents;
+            this.overridden = source.overridden;
+        }
+
+        PriceTable withBasePrice(BigDecimal basePrice, long version) {
+            return new PriceTable(this, basePrice, version);
+        }
+
+        BigDecimal total(BigDecimal base, long from, int nights) {
+            int start = (int) (from - baseDay);
+            int end = start + nights;
+            if (from >= baseDay && end < overridden.length) {
+                int plain = nights - (overridden[end] - overridden[start]);
+                return base.multiply(BigDecimal.valueOf(plain))
+                        .add(BigDecimal.valueOf(overrideCents[end] - overrideCents[start], 2));
+            }
+            // 超出覆盖范围：逐晚匹配规则
+            BigDecimal total = BigDecimal.ZERO;
+            for (long day = from; day < from + nights; day++) {
+                BigDecimal override = priceAt(day);
+                total = total.add(override != null ? override : base);
+            }
+            return total;
+        }
+
+        /**
+         * 某晚的规则价格，没有规则覆盖时返回 null
+         */
+        BigDecimal priceAt(long day) {
+            int index = (int) (day - baseDay);
+            if (day >= baseDay && index + 1 < overridden.length) {
+                return overridden[index + 1] == overridden[index]
+                        ? null
+                        : BigDecimal.valueOf(overrideCents[index + 1] - overrideCents[index], 2);
+            }
+            LocalDate night = LocalDate.ofEpochDay(day);
+            for (int i = rules.size() - 1; i >= 0; i--) {
+                if (rules.get(i).appliesTo(night)) {
+                    return rules.get(i).getPrice();
+                }
+            }
+            return null;
+        }
+
+        private static boolean matchesDayOfWeek(Integer mask, long epochDay) {
+            // 1970-01-01 是周四，周一为第 0 位
+            return mask == null || (mask & (1 << Math.floorMod(epochDay + 3, 7))) != 0;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.dto.PropertyCounterDelta;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * 房源浏览量、预订次数的写回缓冲
+ *
+ * 热门房源的每次浏览或下单都去更新同一行会在该行上排队等锁。这里每个房源每种计数一个 LongAdder，
+ * 请求线程只做内存自增；每隔 counters.flush-interval-ms 以及停机时，把各房源尚未写回的增量
+ * 合并成多行 UPDATE ... CASE（每条最多 counters.batch-size 个房源）一次写入。
+ *
+ * LongAdder 只增不减，写回成功后把已写回的总量记在 flushed 中，待写回量 = 累计值 − flushed，
+ * 不会丢失写回期间发生的自增；写回失败时增量留到下一次。读取时把待写回量加到数据库值上，
+ * 并对每个房源单调取最大值，避免写回与读取交错时显示为回退。写回成功后清除这些房源的详情缓存，
+ * 否则缓存中的旧值加上已归零的待写回量会一直小于已显示的最大值，计数在缓存过期前停止变化。
+ * 计数按房源常驻内存，数量以房源总数为上限。
+ *
+ * 评价数与评分在同一条 UPDATE 中增量计算（见 {@link ReviewService}），需要即时准确，不经过本缓冲。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class PropertyCounterBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(PropertyCounterBuffer.class);
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Value("${counters.batch-size:500}")
+    private int batchSize;
+
+    private final Map<Long, Counters> counters = new ConcurrentHashMap<>();
+
+    public void recordView(Long propertyId) {
+        counters(propertyId).views.add();
+    }
+
+    public void recordBooking(Long propertyId) {
+        counters(propertyId).bookings.add();
+    }
+
+    public void recordBookings(Map<Long, Integer> bookings) {
+        bookings.forEach((propertyId, count) -> counters(propertyId).bookings.add(count));
+    }
+
+    /**
+     * 合并待写回增量后的浏览量（单调不减）
+     */
+    public int viewCount(Property property) {
+        return display(property, property.getViewCount(), counter -> counter.views);
+    }
+
+    /**
+     * 合并待写回增量后的预订次数（单调不减）
+     */
+    public int bookingCount(Property property) {
+        return display(property, property.getBookingCount(), counter -> counter.bookings);
+    }
+
+    /**
+     * 把待写回增量写入数据库
+     *
+     * @return 写回的房源数
+     */
+    @Scheduled(fixedDelayString = "${counters.flush-interval-ms:5000}")
+    public synchronized int flush() {
+        List<PropertyCounterDelta> deltas = new ArrayList<>();
+        List<Counters> pending = new ArrayList<>();
+        int written = 0;
+        for (Map.Entry<Long, Counters> entry : counters.entrySet()) {
+            Counters counter = entry.getValue();
+            long views = counter.views.pending();
+            long bookings = counter.bookings.pending();
+            if (views == 0 && bookings == 0) {
+                continue;
+            }
+            deltas.add(new PropertyCounterDelta(entry.getKey(), views, bookings));
+            pending.add(counter);
+            if (deltas.size() == batchSize) {
+                written += write(deltas, pending);
+                deltas = new ArrayList<>();
+                pending = new ArrayList<>();
+            }
+        }
+        return written + write(deltas, pending);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        int written = flush();
+        log.info("Flushed counters of {} properties on shutdown", written);
+    }
+
+    private int write(List<PropertyCounterDelta> deltas, List<Counters> pending) {
+        if (deltas.isEmpty()) {
+            return 0;
+        }
+        try {
+            propertyMapper.addCounters(deltas);
+        } catch (Exception e) {
+            log.warn("Failed to flush counters of {} properties, retrying on the next flush", deltas.size(), e);
+            return 0;
+        }
+        for (int i = 0; i < deltas.size(); i++) {
+            PropertyCounterDelta delta = deltas.get(i);
+            Counters counter = pending.get(i);
+            counter.views.markFlushed(delta.getViews());
+            counter.bookings.markFlushed(delta.getBookings());
+        }
+        evictCached(deltas);
+        return deltas.size();
+    }
+
+    private void evictCached(List<PropertyCounterDelta> deltas) {
+        Cache cache = cacheManager.getCache("properties");
+        if (cache == null) {
+            return;
+        }
+        try {
+            for (PropertyCounterDelta delta : deltas) {
+                cache.evict(delta.getPropertyId());
+            }
+        } catch (Exception e) {
+            log.warn("Failed to evict cached properties after flushing counters", e);
+        }
+    }
+
+    private Counters counters(Long propertyId) {
+        Counters counter = counters.get(propertyId);
+        return counter != null ? counter : counters.computeIfAbsent(propertyId, id -> new Counters());
+    }
+
+    private int display(Property property, Integer stored, Function<Counters, Counter> field) {
+        long base = Optional.ofNullable(stored).orElse(0);
+        Counters counter = property.getId() == null ? null : counters.get(property.getId());
+        if (counter == null) {
+            return (int) base;
+        }
+        return (int) field.apply(counter).display(base);
+    }
+
+    private static final class Counters {
+        private final Counter views = new Counter();
+        private final Counter bookings = new Counter();
+    }
+
+    private static final class Counter {
+        private final LongAdder total = new LongAdder();
+        /**
+         * 已写回数据库的累计量，只由持有 flush 锁的线程修改
+         */
+        private volatile long flushed;
+        private final AtomicLong shown = new AtomicLong();
+
+        void add() {
+            total.increment();
+        }
+
+        void add(long delta) {
+            total.add(delta);
+        }
+
+        long pending() {
+            return total.sum() - flushed;
+        }
+
+        void markFlushed(long delta) {
+            flushed += delta;
+        }
+
+        long display(long stored) {
+            return shown.accumulateAndGet(stored + pending(), Math::max);
+        }
+    }
+}
@@ -9,18 +9,22 @@ import com.recommendation.homestay.config.UploadUtils;
 import com.recommendation.homestay.dto.DailyAvailabilityDTO;
 import com.recommendation.homestay.dto.PropertyOccupancyDTO;
 import com.recommendation.homestay.dto.PageResponse;
+import com.recommendation.homestay.dto.PriceQuoteDTO;
+import com.recommendation.homestay.dto.PriceRuleRequest;
 import com.recommendation.homestay.dto.PropertyRequest;
 import com.recommendation.homestay.dto.PropertyResponseDTO;
-import com.recommendation.homestay.entity.Order;
 import com.recommendation.homestay.entity.Property;
 import com.recommendation.homestay.entity.PropertyDocument;
+import com.recommendation.homestay.entity.PropertyPriceRule;
 import com.recommendation.homestay.entity.User;
-import com.recommendation.homestay.mapper.OrderMapper;
 import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.mapper.PropertyPriceRuleMapper;
 import com.recommendation.homestay.mapper.UserMapper;
 import com.recommendation.homestay.repository.PropertyDocumentRepository;
+import com.recommendation.homestay.support.AfterCommit;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +40,7 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
@@ -45,8 +50,7 @@ import java.util.Base64;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
-import java.util.EnumSet;
-import java.util.LinkedHashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Locale;
@@ -61,12 +65,6 @@ public class PropertyService {
     private static final Logger log = LoggerFactory.getLogger(PropertyService.class);
     private static final int DEFAULT_AVAILABILITY_DAYS = 14;
     private static final int MAX_AVAILABILITY_DAYS = 60;
-    private static final Set<Order.OrderStatus> RESERVED_STATUSES = EnumSet.of(
-            Order.OrderStatus.PENDING,
-            Order.OrderStatus.CONFIRMED,
-            Order.OrderStatus.CANCEL_REQUESTED,
-            Order.OrderStatus.CANCEL_REJECTED
-    );
 
     @Autowired
     private PropertyMapper propertyMapper;
@@ -75,10 +73,22 @@ public class PropertyService {
     private UserMapper userMapper;
 
     @Autowired
-    private OrderMapper orderMapper;
+    private ObjectMapper objectMapper;
 
     @Autowired
-    private ObjectMapper objectMapper;
+    private AvailabilityCalendar availabilityCalendar;
+
+    @Autowired
+    private PricingCalendar pricingCalendar;
+
+    @Autowired
+    private PropertyCounterBuffer propertyCounterBuffer;
+
+    @Autowired
+    private UniqueVisitorService uniqueVisitorService;
+
+    @Autowired
+    private PropertyPriceRuleMapper priceRuleMapper;
 
     @Autowired(required = false)
     private ElasticsearchOperations elasticsearchOperations;
@@ -86,6 +96,9 @@ public class PropertyService {
     @Autowired(required = false)
     private PropertyDocumentRepository propertyDocumentRepository;
 
+    @Autowired
+    private PlatformStatsService platformStatsService;
+
     @Transactional
     @CacheEvict(value = {"popularProperties", "topRatedProperties"}, allEntries = true)
     public Property createProperty(PropertyRequest request, Long landlordId) {
@@ -112,6 +125,8 @@ public class PropertyService {
 
         propertyMapper.insert(property);
         indexToElasticsearch(property);
+        AfterCommit.run(() -> availabilityCalendar.updateCapacity(property));
+        AfterCommit.run(() -> platformStatsService.propertyCreated(true));
         return property;
     }
 
@@ -145,6 +160,8 @@ public class PropertyService {
 
         propertyMapper.updateById(property);
         indexToElasticsearch(property);
+        AfterCommit.run(() -> availabilityCalendar.updateCapacity(property));
+        AfterCommit.run(() -> pricingCalendar.updateBasePrice(property));
         return property;
     }
 
@@ -158,9 +175,13 @@ public class PropertyService {
         if (property == null) {
             throw new IllegalArgumentException("未找到房源");
         }
+        boolean changed = !Objects.equals(property.getAvailable(), available);
         property.setAvailable(available);
         propertyMapper.updateById(property);
         indexToElasticsearch(property);
+        if (changed) {
+            AfterCommit.run(() -> platformStatsService.propertyAvailabilityChanged(available));
+        }
         return property;
     }
 
@@ -210,6 +231,103 @@ public class PropertyService {
 
         propertyMapper.deleteById(propertyId);
         removeFromElasticsearch(propertyId);
+        AfterCommit.run(() -> availabilityCalendar.removeProperty(propertyId));
+        boolean wasAvailable = Boolean.TRUE.equals(property.getAvailable());
+        AfterCommit.run(() -> platformStatsService.propertyDeleted(wasAvailable));
+    }
+
+    /**
+     * 房源入住报价：总价与每晚价格
+     *
+     * @throws IllegalArgumentException 日期无效或超过 365 晚
+     */
+    public PriceQuoteDTO quote(Long propertyId, LocalDate checkIn, LocalDate checkOut) {
+        if (!checkOut.isAfter(checkIn)) {
+            throw new IllegalArgumentException("退房日期必须晚于入住日期");
+        }
+        long nights = checkOut.toEpochDay() - checkIn.toEpochDay();
+        if (nights > 365) {
+            throw new IllegalArgumentException("单次报价最多365晚");
+        }
+        Property property = getPropertyById(propertyId);
+        BigDecimal total = pricingCalendar.quote(property, checkIn, checkOut);
+
+        PriceQuoteDTO quote = new PriceQuoteDTO();
+        quote.setPropertyId(propertyId);
+        quote.setCheckInDate(checkIn);
+        quote.setCheckOutDate(checkOut);
+        quote.setNights((int) nights);
+        quote.setBasePrice(property.getPrice());
+        quote.setTotalPrice(total);
+        quote.setAverageNightlyPrice(total.divide(BigDecimal.valueOf(nights), 2, RoundingMode.HALF_UP));
+        quote.setNightlyPrices(pricingCalendar.nightlyPrices(property, checkIn, checkOut));
+        return quote;
+    }
+
+    /**
+     * 房东查看房源尚未过期的价格规则（按创建顺序，后面的优先）
+     */
+    public List<PropertyPriceRule> getPriceRules(Long propertyId, Long landlordId) {
+        requireOwnedProperty(propertyId, landlordId);
+        return priceRuleMapper.findActiveByProperty(propertyId, LocalDate.now());
+    }
+
+    /**
+     * 新增价格规则，提交后重建该房源的价格表
+     */
+    @Transactional
+    public PropertyPriceRule addPriceRule(Long propertyId, PriceRuleRequest request, Long landlordId) {
+        Property property = requireOwnedProperty(propertyId, landlordId);
+        if (!request.getEndDate().isAfter(request.getStartDate())) {
+            throw new IllegalArgumentException("结束日期必须晚于开始日期");
+        }
+        if (request.getEndDate().isAfter(request.getStartDate().plusYears(2))) {
+            throw new IllegalArgumentException("单条价格规则最长2年");
+        }
+        Integer mask = null;
+        if (request.getDaysOfWeek() != null && !request.getDaysOfWeek().isEmpty()) {
+            mask = 0;
+            for (Integer day : request.getDaysOfWeek()) {
+                if (day == null || day < 1 || day > 7) {
+                    throw new IllegalArgumentException("星期取值为1（周一）到7（周日）");
+                }
+                mask |= 1 << (day - 1);
+            }
+        }
+        PropertyPriceRule rule = new PropertyPriceRule();
+        rule.setPropertyId(propertyId);
+        rule.setStartDate(request.getStartDate());
+        rule.setEndDate(request.getEndDate());
+        rule.setDaysOfWeek(mask);
+        rule.setPrice(request.getPrice().setScale(2, RoundingMode.HALF_UP));
+        priceRuleMapper.insert(rule);
+        AfterCommit.run(() -> pricingCalendar.reload(property));
+        return rule;
+    }
+
+    /**
+     * 删除价格规则，提交后重建该房源的价格表
+     */
+    @Transactional
+    public void deletePriceRule(Long propertyId, Long ruleId, Long landlordId) {
+        Property property = requireOwnedProperty(propertyId, landlordId);
+        PropertyPriceRule rule = priceRuleMapper.selectById(ruleId);
+        if (rule == null || !rule.getPropertyId().equals(propertyId)) {
+            throw new RuntimeException("未找到价格规则");
+        }
+        priceRuleMapper.deleteById(ruleId);
+        AfterCommit.run(() -> pricingCalendar.reload(property));
+    }
+
+    private Property requireOwnedProperty(Long propertyId, Long landlordId) {
+        Property property = propertyMapper.selectById(propertyId);
+        if (property == null) {
+            throw new RuntimeException("未找到房源");
+        }
+        if (!property.getLandlordId().equals(landlordId)) {
+            throw new RuntimeException("无权修改该房源");
+        }
+        return property;
     }
 
     @Cacheable(value = "properties", key = "#propertyId")
@@ -272,12 +390,12 @@ public class PropertyService {
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
 
-        Map<Long, OccupancyCounter> occupancyMap = loadActiveOccupancy(propertyIds);
+        Map<Long, AvailabilityCalendar.Occupancy> occupancyMap = availabilityCalendar.getTonightOccupancy(propertyIds);
 
         List<PropertyOccupancyDTO> dtoList = records.stream().map(p -> {
-            OccupancyCounter counter = occupancyMap.getOrDefault(p.getId(), new OccupancyCounter());
+            AvailabilityCalendar.Occupancy occupancy = occupancyMap.get(p.getId());
             int bedrooms = Optional.ofNullable(p.getBedrooms()).orElse(0);
-            int occupiedRooms = counter.getOccupiedRooms();
+            int occupiedRooms = occupancy == null ? 0 : occupancy.getBookedRooms(0);
             int remainingRooms = Math.max(bedrooms - occupiedRooms, 0);
 
             PropertyOccupancyDTO dto = new PropertyOccupancyDTO();
@@ -290,10 +408,10 @@ public class PropertyService {
             dto.setBedrooms(p.getBedrooms());
             dto.setMaxGuests(p.getMaxGuests());
             dto.setPropertyType(p.getPropertyType());
-            dto.setBookingCount(p.getBookingCount());
+            dto.setBookingCount(propertyCounterBuffer.bookingCount(p));
             dto.setOccupiedRooms(occupiedRooms);
             dto.setRemainingRooms(remainingRooms);
-            dto.setActiveGuests(counter.getActiveGuests());
+            dto.setActiveGuests(occupancy == null ? 0 : occupancy.getBookedGuests(0));
             dto.setAvailable(p.getAvailable());
             dto.setLandlordId(p.getLandlordId());
             return dto;
@@ -303,83 +421,63 @@ public class PropertyService {
         return response;
     }
 
-    private Map<Long, OccupancyCounter> loadActiveOccupancy(List<Long> propertyIds) {
-        if (propertyIds == null || propertyIds.isEmpty()) {
-            return Collections.emptyMap();
-        }
-        LocalDate today = LocalDate.now();
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.in("property_id", propertyIds);
-        queryWrapper.in("status", RESERVED_STATUSES.stream()
-                .map(Enum::name)
-                .collect(Collectors.toList()));
-        queryWrapper.le("check_in_date", today);
-        queryWrapper.gt("check_out_date", today);
-
-        List<Order> activeOrders = orderMapper.selectList(queryWrapper);
-        Map<Long, OccupancyCounter> stats = new HashMap<>();
-        for (Order order : activeOrders) {
-            OccupancyCounter counter = stats.computeIfAbsent(order.getPropertyId(), key -> new OccupancyCounter());
-            counter.incrementOccupiedRooms();
-            counter.addGuests(Optional.ofNullable(order.getGuestCount()).orElse(0));
-        }
-        return stats;
+    public IPage<Property> searchProperties(String city, BigDecimal minPrice,
+                                          BigDecimal maxPrice, Integer bedrooms,
+                                          int page, int size) {
+        return searchProperties(city, minPrice, maxPrice, bedrooms, null, null, null, null, null, page, size);
     }
 
-    private static class DailyCounter {
-        private int bookedRooms;
-        private int bookedGuests;
-
-        void incrementRooms() {
-            this.bookedRooms++;
-        }
-
-        void addGuests(int guests) {
-            if (guests > 0) {
-                this.bookedGuests += guests;
+    /**
+     * 搜索房源；给出入住和退房日期时只返回区间内每晚都还有空房、且能容纳 guests 位客人的房源，
+     * 并可按整段行程总价（minTotalPrice ~ maxTotalPrice）筛选，结果带上 tripPrice。
+     * 不可订的房源由内存房态日历计算，作为ID排除条件同时用于 Elasticsearch 和数据库查询。
+     * 总价筛选：没有价格规则的房源换算为每晚价格区间走索引；有规则的房源由价格日历直接判定，
+     * 符合的按ID纳入、不符合的按ID排除。
+     */
+    public IPage<Property> searchProperties(String city, BigDecimal minPrice,
+                                          BigDecimal maxPrice, Integer bedrooms,
+                                          LocalDate checkIn, LocalDate checkOut, Integer guests,
+                                          BigDecimal minTotalPrice, BigDecimal maxTotalPrice,
+                                          int page, int size) {
+        Set<Long> excludedIds = Collections.emptySet();
+        TripPriceFilter tripFilter = null;
+        if (checkIn != null || checkOut != null) {
+            if (checkIn == null || checkOut == null) {
+                throw new IllegalArgumentException("入住日期和退房日期需同时提供");
             }
-        }
-
-        int getBookedRooms() {
-            return bookedRooms;
-        }
-
-        int getBookedGuests() {
-            return bookedGuests;
-        }
-    }
-
-    private static class OccupancyCounter {
-        private int occupiedRooms;
-        private int activeGuests;
-
-        void incrementOccupiedRooms() {
-            this.occupiedRooms++;
-        }
-
-        void addGuests(int guests) {
-            if (guests > 0) {
-                this.activeGuests += guests;
+            if (!checkOut.isAfter(checkIn)) {
+                throw new IllegalArgumentException("退房日期必须晚于入住日期");
             }
+            excludedIds = availabilityCalendar.findUnavailable(checkIn, checkOut,
+                    Math.max(Optional.ofNullable(guests).orElse(1), 1));
+            if (minTotalPrice != null || maxTotalPrice != null) {
+                tripFilter = new TripPriceFilter(checkIn, checkOut, minTotalPrice, maxTotalPrice,
+                        pricingCalendar.matchTotal(checkIn, checkOut, minTotalPrice, maxTotalPrice));
+                if (!tripFilter.match.getOutside().isEmpty()) {
+                    excludedIds = new HashSet<>(excludedIds);
+                    excludedIds.addAll(tripFilter.match.getOutside());
+                }
+            }
+        } else if (minTotalPrice != null || maxTotalPrice != null) {
+            throw new IllegalArgumentException("按总价筛选需提供入住日期和退房日期");
+        } else if (guests != null) {
+            excludedIds = availabilityCalendar.findUndersized(guests);
         }
 
-        int getOccupiedRooms() {
-            return occupiedRooms;
+        IPage<Property> result = searchFromElasticsearch(city, minPrice, maxPrice, bedrooms, excludedIds, tripFilter, page, size);
+        if (result == null || result.getTotal() == 0) {
+            result = searchFromDatabase(city, minPrice, maxPrice, bedrooms, excludedIds, tripFilter, page, size);
         }
-
-        int getActiveGuests() {
-            return activeGuests;
+        if (checkIn != null) {
+            for (Property property : result.getRecords()) {
+                property.setTripPrice(pricingCalendar.quote(property, checkIn, checkOut));
+            }
         }
+        return result;
     }
 
-    public IPage<Property> searchProperties(String city, BigDecimal minPrice,
-                                          BigDecimal maxPrice, Integer bedrooms,
-                                          int page, int size) {
-        IPage<Property> esPage = searchFromElasticsearch(city, minPrice, maxPrice, bedrooms, page, size);
-        if (esPage != null && esPage.getTotal() > 0) {
-            return esPage;
-        }
-
+    private IPage<Property> searchFromDatabase(String city, BigDecimal minPrice, BigDecimal maxPrice, Integer bedrooms,
+                                               Set<Long> excludedIds, TripPriceFilter tripFilter, int page, int size) {
         Page<Property> pageParam = new Page<>(page + 1, size);
         QueryWrapper<Property> queryWrapper = new QueryWrapper<>();
         queryWrapper.eq("available", true);
@@ -396,11 +494,25 @@ public class PropertyService {
         if (bedrooms != null) {
             queryWrapper.ge("bedrooms", bedrooms);
         }
+        if (!excludedIds.isEmpty()) {
+            queryWrapper.notIn("id", excludedIds);
+        }
+        if (tripFilter != null) {
+            Set<Long> matching = tripFilter.match.getMatching();
+            queryWrapper.and(w -> {
+                w.nested(n -> n.ge(tripFilter.minNightly != null, "price", tripFilter.minNightly)
+                        .le(tripFilter.maxNightly != null, "price", tripFilter.maxNightly));
+                if (!matching.isEmpty()) {
+                    w.or().in("id", matching);
+                }
+            });
+        }
         return propertyMapper.selectPage(pageParam, queryWrapper);
     }
 
     private IPage<Property> searchFromElasticsearch(String city, BigDecimal minPrice,
                                                     BigDecimal maxPrice, Integer bedrooms,
+                                                    Set<Long> excludedIds, TripPriceFilter tripFilter,
                                                     int page, int size) {
         if (elasticsearchOperations == null || propertyDocumentRepository == null) {
             return null;
@@ -421,10 +533,33 @@ public class PropertyService {
             if (bedrooms != null) {
                 boolQuery.filter(QueryBuilders.rangeQuery("bedrooms").gte(bedrooms));
             }
+            if (tripFilter != null) {
+                RangeQueryBuilder nightly = QueryBuilders.rangeQuery("price");
+                if (tripFilter.minNightly != null) {
+                    nightly.gte(tripFilter.minNightly);
+                }
+                if (tripFilter.maxNightly != null) {
+                    nightly.lte(tripFilter.maxNightly);
+                }
+                BoolQueryBuilder tripQuery = QueryBuilders.boolQuery().should(nightly).minimumShouldMatch(1);
+                if (!tripFilter.match.getMatching().isEmpty()) {
+                    tripQuery.should(QueryBuilders.idsQuery().addIds(tripFilter.match.getMatching().stream()
+                            .map(String::valueOf)
+                            .toArray(String[]::new)));
+                }
+                boolQuery.filter(tripQuery);
+            }
 
             NativeSearchQueryBuilder queryBuilder = new NativeSearchQueryBuilder()
                     .withQuery(boolQuery)
                     .withPageable(PageRequest.of(page, size));
+            if (!excludedIds.isEmpty()) {
+                // 日期不可订的房源作为 post_filter 排除
+                queryBuilder.withFilter(QueryBuilders.boolQuery()
+                        .mustNot(QueryBuilders.idsQuery().addIds(excludedIds.stream()
+                                .map(String::valueOf)
+                                .toArray(String[]::new))));
+            }
 
             SearchHits<PropertyDocument> hits = elasticsearchOperations.search(
                     queryBuilder.build(), PropertyDocument.class);
@@ -482,12 +617,13 @@ public class PropertyService {
         return propertyMapper.findTop10ByAvailableTrueOrderByRatingDesc();
     }
 
-    @Transactional
-    public void incrementViewCount(Long propertyId) {
-        int result = propertyMapper.incrementViewCount(propertyId);
-        if (result == 0) {
-            throw new RuntimeException("未找到房源");
-        }
+    /**
+     * 记录一次浏览：浏览量只在内存中计数，由 {@link PropertyCounterBuffer} 定时批量写回；
+     * 访客计入当天的独立访客估计
+     */
+    public void incrementViewCount(Long propertyId, String visitor) {
+        propertyCounterBuffer.recordView(propertyId);
+        uniqueVisitorService.record(propertyId, visitor);
     }
 
     private void indexToElasticsearch(Property property) {
@@ -534,50 +670,24 @@ public class PropertyService {
         }
         LocalDate start = Optional.ofNullable(startDate).orElse(LocalDate.now());
         int window = Math.max(1, Math.min(days, MAX_AVAILABILITY_DAYS));
-        LocalDate endDate = start.plusDays(window);
-
-        QueryWrapper<Order> queryWrapper = new QueryWrapper<>();
-        queryWrapper.eq("property_id", property.getId());
-        queryWrapper.in("status", RESERVED_STATUSES.stream()
-                .map(Enum::name)
-                .collect(Collectors.toList()));
-        queryWrapper.lt("check_in_date", endDate);
-        queryWrapper.gt("check_out_date", start);
-
-        List<Order> overlappedOrders = orderMapper.selectList(queryWrapper);
-        Map<LocalDate, DailyCounter> counters = new LinkedHashMap<>();
-        for (int i = 0; i < window; i++) {
-            counters.put(start.plusDays(i), new DailyCounter());
-        }
 
-        for (Order order : overlappedOrders) {
-            if (order.getCheckInDate() == null || order.getCheckOutDate() == null) {
-                continue;
-            }
-            LocalDate effectiveStart = order.getCheckInDate().isBefore(start) ? start : order.getCheckInDate();
-            LocalDate effectiveEnd = order.getCheckOutDate().isAfter(endDate) ? endDate : order.getCheckOutDate();
-            for (LocalDate date = effectiveStart; date.isBefore(effectiveEnd); date = date.plusDays(1)) {
-                DailyCounter counter = counters.get(date);
-                if (counter != null) {
-                    counter.incrementRooms();
-                    counter.addGuests(Optional.ofNullable(order.getGuestCount()).orElse(0));
-                }
-            }
-        }
+        AvailabilityCalendar.Occupancy occupancy = availabilityCalendar.getOccupancy(property.getId(), start, window);
 
         int totalRooms = Math.max(Optional.ofNullable(property.getBedrooms()).orElse(0), 0);
         int totalGuests = Math.max(Optional.ofNullable(property.getMaxGuests()).orElse(0), 0);
 
-        List<DailyAvailabilityDTO> availability = new ArrayList<>();
-        counters.forEach((date, counter) -> {
+        List<DailyAvailabilityDTO> availability = new ArrayList<>(window);
+        for (int i = 0; i < window; i++) {
+            int bookedRooms = occupancy.getBookedRooms(i);
+            int bookedGuests = occupancy.getBookedGuests(i);
             DailyAvailabilityDTO dto = new DailyAvailabilityDTO();
-            dto.setDate(date);
-            dto.setBookedRooms(counter.getBookedRooms());
-            dto.setBookedGuests(counter.getBookedGuests());
-            dto.setRemainingRooms(Math.max(totalRooms - counter.getBookedRooms(), 0));
-            dto.setRemainingGuests(Math.max(totalGuests - counter.getBookedGuests(), 0));
+            dto.setDate(start.plusDays(i));
+            dto.setBookedRooms(bookedRooms);
+            dto.setBookedGuests(bookedGuests);
+            dto.setRemainingRooms(Math.max(totalRooms - bookedRooms, 0));
+            dto.setRemainingGuests(Math.max(totalGuests - bookedGuests, 0));
             availability.add(dto);
-        });
+        }
         return availability;
     }
 
@@ -599,8 +709,14 @@ public class PropertyService {
         dto.setLandlordId(property.getLandlordId());
         dto.setRating(property.getRating());
         dto.setReviewCount(property.getReviewCount());
-        dto.setViewCount(property.getViewCount());
-        dto.setBookingCount(property.getBookingCount());
+        dto.setViewCount(propertyCounterBuffer.viewCount(property));
+        dto.setBookingCount(propertyCounterBuffer.bookingCount(property));
+        LocalDate today = LocalDate.now();
+        List<Long> visitors = uniqueVisitorService.countPeriods(List.of(property.getId()), List.of(
+                new LocalDate[]{today, today.plusDays(1)},
+                new LocalDate[]{today.minusDays(6), today.plusDays(1)}));
+        dto.setUniqueVisitorsToday(visitors.get(0));
+        dto.setUniqueVisitors7Days(visitors.get(1));
         dto.setCreatedAt(property.getCreatedAt());
         dto.setUpdatedAt(property.getUpdatedAt());
         dto.setImages(property.getImages());
@@ -610,11 +726,7 @@ public class PropertyService {
         if (!availability.isEmpty()) {
             dto.setRemainingRooms(Optional.ofNullable(availability.get(0).getRemainingRooms()).orElse(0));
         } else {
-            Map<Long, OccupancyCounter> occupancyMap = loadActiveOccupancy(Collections.singletonList(property.getId()));
-            OccupancyCounter counter = occupancyMap.getOrDefault(property.getId(), new OccupancyCounter());
-            int bedrooms = Optional.ofNullable(property.getBedrooms()).orElse(0);
-            int fallbackRemainingRooms = Math.max(bedrooms - counter.getOccupiedRooms(), 0);
-            dto.setRemainingRooms(fallbackRemainingRooms);
+            dto.setRemainingRooms(Optional.ofNullable(property.getBedrooms()).orElse(0));
         }
 
         List<String> base64List = new ArrayList<>();
@@ -645,4 +757,22 @@ public class PropertyService {
         dto.setImagesBase64(base64List);
         return dto;
     }
+
+    /**
+     * 按行程总价筛选的条件：没有价格规则的房源换算为每晚价格区间，有规则的房源由价格日历判定
+     */
+    private static final class TripPriceFilter {
+        private final BigDecimal minNightly;
+        private final BigDecimal maxNightly;
+        private final PricingCalendar.TotalPriceMatch match;
+
+        TripPriceFilter(LocalDate checkIn, LocalDate checkOut, BigDecimal minTotal, BigDecimal maxTotal,
+                        PricingCalendar.TotalPriceMatch match) {
+            BigDecimal nights = BigDecimal.valueOf(checkOut.toEpochDay() - checkIn.toEpochDay());
+            // 价格精确到分：price × nights >= min 等价于 price >= ceil(min / nights)，上限同理向下取整
+            this.minNightly = minTotal == null ? null : minTotal.divide(nights, 2, RoundingMode.CEILING);
+            this.maxNightly = maxTotal == null ? null : maxTotal.divide(nights, 2, RoundingMode.FLOOR);
+            this.match = match;
+        }
+    }
 }
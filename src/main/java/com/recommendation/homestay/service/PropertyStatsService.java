@@ -0,0 +1,326 @@
+package com.recommendation.homestay.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.recommendation.homestay.dto.OccupancyStatsDTO;
+import com.recommendation.homestay.dto.OccupancyStatsPoint;
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.PropertyDailyStat;
+import com.recommendation.homestay.event.OrderEvent;
+import com.recommendation.homestay.mapper.PropertyDailyStatsMapper;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 房源每日汇总服务
+ *
+ * property_daily_stats 按 房源 × 日期 记录当晚被预订的房间数、入住人数和分摊到当晚的收入（订单总价按晚均分）。
+ * 订单进入或离开计入状态（已确认、已完成、退订审核中、退订被拒）时由订单事件增量更新，
+ * 整批事件合并为一条多行 UPSERT。按月重建（管理端手动触发，以及每天凌晨重建近期月份）
+ * 用同一口径从 orders 表重新计算，修正事件丢失等造成的偏差。
+ *
+ * 入住率 = 已预订间夜 / 可售间夜，可售间夜按范围内房源当前的卧室数（至少 1 间）乘以天数计算。
+ * 查询时间序列时附带 {@link UniqueVisitorService} 的去重独立访客估计。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class PropertyStatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(PropertyStatsService.class);
+
+    /**
+     * 计入入住与收入统计的订单状态
+     */
+    public static final Set<Order.OrderStatus> COUNTED_STATUSES = Collections.unmodifiableSet(EnumSet.of(
+            Order.OrderStatus.CONFIRMED,
+            Order.OrderStatus.COMPLETED,
+            Order.OrderStatus.CANCEL_REQUESTED,
+            Order.OrderStatus.CANCEL_REJECTED));
+
+    private static final int UPSERT_CHUNK = 500;
+    private static final int MAX_MONTHS = 60;
+    private static final int MAX_DAILY_MONTHS = 12;
+
+    @Autowired
+    private PropertyDailyStatsMapper statsMapper;
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UniqueVisitorService uniqueVisitorService;
+
+    @Value("${stats.daily.reconcile-months:6}")
+    private int reconcileMonths;
+
+    /**
+     * 按订单事件增量更新每日汇总：状态进入计入范围记 +1，离开记 -1，其余事件忽略
+     */
+    public void apply(List<OrderEvent> events) {
+        Map<String, PropertyDailyStat> deltas = new HashMap<>();
+        Map<Long, List<OrderEvent>> byProperty = new LinkedHashMap<>();
+        for (OrderEvent event : events) {
+            if (sign(event) != 0) {
+                byProperty.computeIfAbsent(event.getPropertyId(), id -> new ArrayList<>()).add(event);
+            }
+        }
+        if (byProperty.isEmpty()) {
+            return;
+        }
+        Map<Long, Property> properties = propertyMapper.selectBatchIds(byProperty.keySet()).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity(), (a, b) -> a));
+
+        byProperty.forEach((propertyId, propertyEvents) -> {
+            Property property = properties.get(propertyId);
+            for (OrderEvent event : propertyEvents) {
+                int sign = sign(event);
+                long nights = ChronoUnit.DAYS.between(event.getCheckInDate(), event.getCheckOutDate());
+                if (nights < 1) {
+                    continue;
+                }
+                BigDecimal nightly = Optional.ofNullable(event.getTotalPrice()).orElse(BigDecimal.ZERO)
+                        .divide(BigDecimal.valueOf(nights), 2, RoundingMode.HALF_UP)
+                        .multiply(BigDecimal.valueOf(sign));
+                int guests = Optional.ofNullable(event.getGuestCount()).orElse(0) * sign;
+                for (LocalDate night = event.getCheckInDate(); night.isBefore(event.getCheckOutDate()); night = night.plusDays(1)) {
+                    LocalDate date = night;
+                    PropertyDailyStat delta = deltas.computeIfAbsent(propertyId + "|" + date, key -> new PropertyDailyStat(
+                            propertyId, date,
+                            property == null ? event.getLandlordId() : property.getLandlordId(),
+                            property == null ? null : property.getCity(),
+                            0, 0, BigDecimal.ZERO));
+                    delta.setRoomsBooked(delta.getRoomsBooked() + sign);
+                    delta.setGuests(delta.getGuests() + guests);
+                    delta.setRevenue(delta.getRevenue().add(nightly));
+                }
+            }
+        });
+
+        // 按主键顺序写入，多节点同时更新相同行时加锁顺序一致
+        List<PropertyDailyStat> rows = deltas.values().stream()
+                .filter(row -> row.getRoomsBooked() != 0 || row.getGuests() != 0 || row.getRevenue().signum() != 0)
+                .sorted(Comparator.comparing(PropertyDailyStat::getPropertyId).thenComparing(PropertyDailyStat::getStatDate))
+                .collect(Collectors.toList());
+        // 增量不是幂等的：整批在一个事务内写入，任一分片失败时全部回滚，由事件总线重试整批时不会重复计入
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < rows.size(); i += UPSERT_CHUNK) {
+                statsMapper.addDeltas(rows.subList(i, Math.min(i + UPSERT_CHUNK, rows.size())));
+            }
+        });
+    }
+
+    /**
+     * 按月从订单重新计算 [from, to] 的每日汇总，每个月一个事务
+     *
+     * @return 写入的行数
+     * @throws IllegalArgumentException 月份格式无效或范围过大
+     */
+    public int rebuild(String from, String to) {
+        YearMonth start = parseMonth(from);
+        YearMonth end = parseMonth(to);
+        checkRange(start, end, MAX_MONTHS);
+        return rebuild(start, end);
+    }
+
+    /**
+     * 每天凌晨重建上个月至未来 stats.daily.reconcile-months 个月的汇总
+     */
+    @Scheduled(cron = "${stats.daily.reconcile-cron:0 30 3 * * *}")
+    public void reconcileRecent() {
+        YearMonth now = YearMonth.now();
+        try {
+            rebuild(now.minusMonths(1), now.plusMonths(Math.max(reconcileMonths, 0)));
+        } catch (Exception e) {
+            log.warn("Failed to reconcile daily property stats", e);
+        }
+    }
+
+    /**
+     * 查询入住率与收入时间序列
+     *
+     * @param scope       property、landlord 或 city
+     * @param key         房源ID、房东ID或城市名
+     * @param from        起始月份（yyyy-MM，含）
+     * @param to          结束月份（yyyy-MM，含）
+     * @param granularity month 或 day
+     * @throws IllegalArgumentException 参数无效
+     */
+    public OccupancyStatsDTO getSeries(String scope, String key, String from, String to, String granularity) {
+        YearMonth start = parseMonth(from);
+        YearMonth end = parseMonth(to);
+        boolean monthly = !"day".equalsIgnoreCase(granularity);
+        checkRange(start, end, monthly ? MAX_MONTHS : MAX_DAILY_MONTHS);
+        if (!StringUtils.hasText(key)) {
+            throw new IllegalArgumentException("统计范围参数不能为空");
+        }
+
+        Long propertyId = null;
+        Long landlordId = null;
+        String city = null;
+        QueryWrapper<Property> propertyQuery = new QueryWrapper<>();
+        propertyQuery.select("id", "bedrooms");
+        String normalizedScope = scope == null ? "" : scope.trim().toLowerCase();
+        switch (normalizedScope) {
+            case "property":
+                propertyId = parseId(key);
+                propertyQuery.eq("id", propertyId);
+                break;
+            case "landlord":
+                landlordId = parseId(key);
+                propertyQuery.eq("landlord_id", landlordId);
+                break;
+            case "city":
+                city = key.trim();
+                propertyQuery.eq("city", city);
+                break;
+            default:
+                throw new IllegalArgumentException("统计范围无效，可选值为 property、landlord、city");
+        }
+        List<Property> properties = propertyMapper.selectList(propertyQuery);
+        int roomsPerNight = properties.stream()
+                .mapToInt(p -> Math.max(Optional.ofNullable(p.getBedrooms()).orElse(0), 1))
+                .sum();
+
+        LocalDate fromDate = start.atDay(1);
+        LocalDate toDate = end.plusMonths(1).atDay(1);
+        Map<String, OccupancyStatsPoint> found = statsMapper.selectSeries(propertyId, landlordId, city, fromDate, toDate, monthly)
+                .stream()
+                .collect(Collectors.toMap(OccupancyStatsPoint::getPeriod, Function.identity(), (a, b) -> a));
+
+        // 补齐没有数据的日期或月份，前端可以直接画连续曲线
+        Map<String, Long> periodDays = new TreeMap<>();
+        if (monthly) {
+            for (YearMonth month = start; !month.isAfter(end); month = month.plusMonths(1)) {
+                periodDays.put(month.toString(), (long) month.lengthOfMonth());
+            }
+        } else {
+            for (LocalDate day = fromDate; day.isBefore(toDate); day = day.plusDays(1)) {
+                periodDays.put(day.toString(), 1L);
+            }
+        }
+        List<Long> propertyIds = properties.stream().map(Property::getId).collect(Collectors.toList());
+        List<LocalDate[]> periods = new ArrayList<>(periodDays.size());
+        for (String period : periodDays.keySet()) {
+            LocalDate periodStart = monthly ? YearMonth.parse(period).atDay(1) : LocalDate.parse(period);
+            periods.add(new LocalDate[]{periodStart, monthly ? periodStart.plusMonths(1) : periodStart.plusDays(1)});
+        }
+        List<Long> visitors = uniqueVisitorService.countPeriods(propertyIds, periods);
+
+        List<OccupancyStatsPoint> points = new ArrayList<>(periodDays.size());
+        long totalBooked = 0;
+        long totalAvailable = 0;
+        BigDecimal totalRevenue = BigDecimal.ZERO;
+        for (Map.Entry<String, Long> entry : periodDays.entrySet()) {
+            OccupancyStatsPoint point = Optional.ofNullable(found.get(entry.getKey())).orElseGet(OccupancyStatsPoint::new);
+            point.setPeriod(entry.getKey());
+            point.setRoomNightsBooked(Optional.ofNullable(point.getRoomNightsBooked()).orElse(0L));
+            point.setGuestNights(Optional.ofNullable(point.getGuestNights()).orElse(0L));
+            point.setRevenue(Optional.ofNullable(point.getRevenue()).orElse(BigDecimal.ZERO));
+            point.setRoomNightsAvailable(roomsPerNight * entry.getValue());
+            point.setOccupancyRate(rate(point.getRoomNightsBooked(), point.getRoomNightsAvailable()));
+            point.setUniqueVisitors(visitors.get(points.size()));
+            points.add(point);
+            totalBooked += point.getRoomNightsBooked();
+            totalAvailable += point.getRoomNightsAvailable();
+            totalRevenue = totalRevenue.add(point.getRevenue());
+        }
+
+        OccupancyStatsDTO dto = new OccupancyStatsDTO();
+        dto.setScope(normalizedScope);
+        dto.setKey(key.trim());
+        dto.setFrom(start.toString());
+        dto.setTo(end.toString());
+        dto.setGranularity(monthly ? "month" : "day");
+        dto.setPropertyCount(properties.size());
+        dto.setRoomsPerNight(roomsPerNight);
+        dto.setOccupancyRate(rate(totalBooked, totalAvailable));
+        dto.setRevenue(totalRevenue);
+        dto.setUniqueVisitors(uniqueVisitorService.countUnion(propertyIds, fromDate, toDate));
+        dto.setPoints(points);
+        return dto;
+    }
+
+    private int rebuild(YearMonth start, YearMonth end) {
+        long begin = System.currentTimeMillis();
+        int rows = 0;
+        for (YearMonth month = start; !month.isAfter(end); month = month.plusMonths(1)) {
+            LocalDate from = month.atDay(1);
+            LocalDate to = month.plusMonths(1).atDay(1);
+            Integer written = transactionTemplate.execute(status -> {
+                statsMapper.deleteRange(from, to);
+                return statsMapper.rebuildRange(from, to);
+            });
+            rows += Objects.requireNonNullElse(written, 0);
+        }
+        log.info("Daily property stats rebuilt for {} ~ {}: {} rows in {} ms",
+                start, end, rows, System.currentTimeMillis() - begin);
+        return rows;
+    }
+
+    private static int sign(OrderEvent event) {
+        boolean was = event.getPreviousStatus() != null && COUNTED_STATUSES.contains(event.getPreviousStatus());
+        boolean is = event.getStatus() != null && COUNTED_STATUSES.contains(event.getStatus());
+        return was == is ? 0 : (is ? 1 : -1);
+    }
+
+    private static Double rate(long booked, long available) {
+        return available == 0 ? 0.0 : Math.round(booked * 10000.0 / available) / 10000.0;
+    }
+
+    private static YearMonth parseMonth(String value) {
+        try {
+            return YearMonth.parse(value == null ? "" : value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("月份格式应为 yyyy-MM");
+        }
+    }
+
+    private static void checkRange(YearMonth start, YearMonth end, int maxMonths) {
+        if (end.isBefore(start)) {
+            throw new IllegalArgumentException("结束月份不能早于起始月份");
+        }
+        if (ChronoUnit.MONTHS.between(start, end) >= maxMonths) {
+            throw new IllegalArgumentException("统计范围最多 " + maxMonths + " 个月");
+        }
+    }
+
+    private static Long parseId(String key) {
+        try {
+            return Long.valueOf(key.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("统计范围ID无效");
+        }
+    }
+}
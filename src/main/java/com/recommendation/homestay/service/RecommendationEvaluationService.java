@@ -0,0 +1,385 @@
+package com.recommendation.homestay.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.recommendation.homestay.dto.RecommendationEvaluationReport;
+import com.recommendation.homestay.dto.RecommendationEvaluationRequest;
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
+import com.recommendation.homestay.mapper.OrderArchiveMapper;
+import com.recommendation.homestay.mapper.OrderMapper;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.mapper.UserPropertyInteractionMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * 推荐离线评估服务
+ *
+ * 按时间切分历史交互与订单：切分点之前的数据构建训练快照，之后的正向交互与订单作为
+ * 每个用户的“真实偏好”。各推荐引擎在同一份训练快照上并行回放留出期用户，
+ * 报告 precision@K、recall@K、NDCG@K、目录覆盖率，以及单次调用的 p50/p99 延迟和内存分配量，
+ * 使算法质量与计算开销可以放在一起比较。
+ *
+ * 训练数据中用户已交互过的房源不计入留出期的命中目标（引擎本就会排除它们）。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class RecommendationEvaluationService {
+
+    private static final Logger log = LoggerFactory.getLogger(RecommendationEvaluationService.class);
+
+    @Autowired
+    private RecommendationService recommendationService;
+
+    @Autowired
+    private UserPropertyInteractionMapper interactionMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private OrderArchiveMapper orderArchiveMapper;
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired(required = false)
+    private List<OfflineRecommender> additionalRecommenders = Collections.emptyList();
+
+    /**
+     * 运行一次离线评估
+     *
+     * @throws IllegalArgumentException 参数无效或数据不足以切分时抛出
+     */
+    public RecommendationEvaluationReport evaluate(RecommendationEvaluationRequest request) {
+        long start = System.currentTimeMillis();
+        int k = request.getK() == null ? 10 : request.getK();
+        int maxUsers = request.getMaxUsers() == null ? 1000 : request.getMaxUsers();
+        Map<String, OfflineRecommender> recommenders = selectRecommenders(request.getEngines());
+
+        List<UserPropertyInteraction> events = loadEvents();
+        if (events.isEmpty()) {
+            throw new IllegalArgumentException("没有可用于评估的交互或订单数据");
+        }
+        LocalDateTime splitAt = request.getSplitAt() != null
+                ? request.getSplitAt()
+                : defaultSplit(events, request.getHeldOutRatio());
+
+        List<UserPropertyInteraction> training = new ArrayList<>();
+        List<UserPropertyInteraction> heldOut = new ArrayList<>();
+        for (UserPropertyInteraction event : events) {
+            (event.getCreatedAt().isBefore(splitAt) ? training : heldOut).add(event);
+        }
+
+        List<Property> properties = propertyMapper.selectList(null);
+        RecommendationSnapshot snapshot = buildTrainingSnapshot(training, properties);
+        Map<Long, Set<Long>> relevant = buildRelevant(heldOut, snapshot, maxUsers);
+        if (relevant.isEmpty()) {
+            throw new IllegalArgumentException("留出期内没有可评估的用户，请调整切分时间");
+        }
+
+        RecommendationEvaluationReport report = new RecommendationEvaluationReport();
+        report.setSplitAt(splitAt);
+        report.setK(k);
+        report.setTrainingEvents(training.size());
+        report.setHeldOutEvents(heldOut.size());
+        report.setEvaluatedUsers(relevant.size());
+        report.setCatalogueSize(snapshot.getAvailableProperties().size());
+
+        // 每个引擎一个线程：引擎之间并行，同一引擎内按用户顺序调用，延迟与分配量互不干扰
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(recommenders.size(), Runtime.getRuntime().availableProcessors()));
+        try {
+            List<Future<RecommendationEvaluationReport.EngineResult>> futures = new ArrayList<>();
+            for (OfflineRecommender recommender : recommenders.values()) {
+                futures.add(executor.submit(() -> evaluateEngine(recommender, snapshot, relevant, k)));
+            }
+            for (Future<RecommendationEvaluationReport.EngineResult> future : futures) {
+                report.getEngines().add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("离线评估被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("离线评估失败", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        report.setElapsedMillis(System.currentTimeMillis() - start);
+        log.info("Offline evaluation finished: split={}, train={}, heldOut={}, users={}, engines={} in {} ms",
+                splitAt, training.size(), heldOut.size(), relevant.size(), recommenders.keySet(),
+                report.getElapsedMillis());
+        return report;
+    }
+
+    private Map<String, OfflineRecommender> allRecommenders() {
+        Map<String, OfflineRecommender> recommenders = new LinkedHashMap<>();
+        register(recommenders, "collaborative", recommendationService::getCollaborativeFilteringRecommendations);
+        register(recommenders, "content-based", recommendationService::getContentBasedRecommendations);
+        register(recommenders, "hybrid", recommendationService::getRecommendations);
+        // 基线：训练期预订最多、评分最高的房源，对所有用户相同
+        register(recommenders, "popular", (snapshot, userId, limit) -> limitList(snapshot.getColdStartPopular(), limit));
+        register(recommenders, "top-rated", (snapshot, userId, limit) -> limitList(snapshot.getColdStartTopRated(), limit));
+        for (OfflineRecommender recommender : additionalRecommenders) {
+            recommenders.put(recommender.getName(), recommender);
+        }
+        return recommenders;
+    }
+
+    private Map<String, OfflineRecommender> selectRecommenders(List<String> names) {
+        Map<String, OfflineRecommender> all = allRecommenders();
+        if (names == null || names.isEmpty()) {
+            return all;
+        }
+        Map<String, OfflineRecommender> selected = new LinkedHashMap<>();
+        for (String name : names) {
+            OfflineRecommender recommender = all.get(name);
+            if (recommender == null) {
+                throw new IllegalArgumentException("未知的推荐引擎: " + name + "，可选值为 " + all.keySet());
+            }
+            selected.put(name, recommender);
+        }
+        return selected;
+    }
+
+    /**
+     * 交互记录与未取消的订单（含已归档订单，视为预订交互）按时间排序
+     */
+    private List<UserPropertyInteraction> loadEvents() {
+        List<UserPropertyInteraction> events = new ArrayList<>(interactionMapper.selectList(null));
+        QueryWrapper<Order> orderQuery = new QueryWrapper<>();
+        orderQuery.select("user_id", "property_id", "created_at");
+        orderQuery.ne("status", Order.OrderStatus.CANCELLED.name());
+        List<Order> bookings = new ArrayList<>(orderMapper.selectList(orderQuery));
+        bookings.addAll(orderArchiveMapper.findBookingHistory());
+        for (Order order : bookings) {
+            UserPropertyInteraction booking = new UserPropertyInteraction();
+            booking.setUserId(order.getUserId());
+            booking.setPropertyId(order.getPropertyId());
+            booking.setType(UserPropertyInteraction.InteractionType.BOOK);
+            booking.setCreatedAt(order.getCreatedAt());
+            events.add(booking);
+        }
+        events.removeIf(event -> event.getCreatedAt() == null);
+        events.sort(Comparator.comparing(UserPropertyInteraction::getCreatedAt));
+        return events;
+    }
+
+    private LocalDateTime defaultSplit(List<UserPropertyInteraction> sortedEvents, Double heldOutRatio) {
+        double ratio = heldOutRatio == null ? 0.2 : heldOutRatio;
+        if (ratio <= 0 || ratio >= 1) {
+            throw new IllegalArgumentException("留出比例必须在0和1之间");
+        }
+        int index = (int) Math.floor(sortedEvents.size() * (1 - ratio));
+        return sortedEvents.get(Math.min(index, sortedEvents.size() - 1)).getCreatedAt();
+    }
+
+    /**
+     * 用训练期数据构建快照；冷启动列表也只按训练期的预订量与评分计算，不读取当前的 booking_count、
+     * rating 或实时趋势与分群排行，避免泄露留出期信息
+     */
+    private RecommendationSnapshot buildTrainingSnapshot(List<UserPropertyInteraction> training, List<Property> properties) {
+        Map<Long, Integer> bookings = new HashMap<>();
+        Map<Long, Integer> ratingSums = new HashMap<>();
+        Map<Long, Integer> ratingCounts = new HashMap<>();
+        for (UserPropertyInteraction event : training) {
+            if (event.getType() == UserPropertyInteraction.InteractionType.BOOK) {
+                bookings.merge(event.getPropertyId(), 1, Integer::sum);
+            }
+            if (event.getRating() != null) {
+                ratingSums.merge(event.getPropertyId(), event.getRating(), Integer::sum);
+                ratingCounts.merge(event.getPropertyId(), 1, Integer::sum);
+            }
+        }
+        Map<Long, Double> averageRatings = new HashMap<>();
+        ratingSums.forEach((propertyId, sum) -> averageRatings.put(propertyId, (double) sum / ratingCounts.get(propertyId)));
+        List<Property> available = properties.stream()
+                .filter(p -> Boolean.TRUE.equals(p.getAvailable()))
+                .collect(Collectors.toList());
+        List<Property> popular = available.stream()
+                .sorted(Comparator.comparingInt((Property p) -> bookings.getOrDefault(p.getId(), 0)).reversed())
+                .limit(100)
+                .collect(Collectors.toList());
+        List<Property> topRated = available.stream()
+                .sorted(Comparator.comparingDouble((Property p) -> averageRatings.getOrDefault(p.getId(), 0.0))
+                        .thenComparingInt(p -> ratingCounts.getOrDefault(p.getId(), 0))
+                        .reversed())
+                .limit(100)
+                .collect(Collectors.toList());
+        return new RecommendationSnapshot(training, properties, popular, topRated);
+    }
+
+    /**
+     * 留出期每个用户的正向目标房源，去掉训练期已交互的房源；按用户ID取前 maxUsers 个
+     */
+    private Map<Long, Set<Long>> buildRelevant(List<UserPropertyInteraction> heldOut,
+                                               RecommendationSnapshot snapshot, int maxUsers) {
+        Map<Long, Set<Long>> relevant = new HashMap<>();
+        for (UserPropertyInteraction event : heldOut) {
+            if (!RecommendationScorer.isPositive(event)) {
+                continue;
+            }
+            Set<Long> seen = snapshot.getUserPropertyMap().getOrDefault(event.getUserId(), Collections.emptySet());
+            if (!seen.contains(event.getPropertyId())) {
+                relevant.computeIfAbsent(event.getUserId(), id -> new HashSet<>()).add(event.getPropertyId());
+            }
+        }
+        return relevant.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .limit(maxUsers)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    private RecommendationEvaluationReport.EngineResult evaluateEngine(OfflineRecommender recommender,
+                                                                      RecommendationSnapshot snapshot,
+                                                                      Map<Long, Set<Long>> relevant, int k) {
+        RecommendationEvaluationReport.EngineResult result = new RecommendationEvaluationReport.EngineResult();
+        result.setEngine(recommender.getName());
+        AllocationMeter meter = AllocationMeter.create();
+        long[] latencies = new long[relevant.size()];
+        long allocated = 0;
+        double precision = 0;
+        double recall = 0;
+        double ndcg = 0;
+        Set<Long> recommendedIds = new HashSet<>();
+        int users = 0;
+        try {
+            for (Map.Entry<Long, Set<Long>> entry : relevant.entrySet()) {
+                long bytesBefore = meter.currentThreadAllocatedBytes();
+                long callStart = System.nanoTime();
+                List<Property> recommendations = recommender.recommend(snapshot, entry.getKey(), k);
+                latencies[users] = System.nanoTime() - callStart;
+                allocated += meter.currentThreadAllocatedBytes() - bytesBefore;
+
+                Set<Long> targets = entry.getValue();
+                int hits = 0;
+                double dcg = 0;
+                int rank = 0;
+                for (Property property : recommendations) {
+                    if (rank >= k) {
+                        break;
+                    }
+                    recommendedIds.add(property.getId());
+                    if (targets.contains(property.getId())) {
+                        hits++;
+                        dcg += 1.0 / log2(rank + 2);
+                    }
+                    rank++;
+                }
+                double idealDcg = 0;
+                for (int i = 0; i < Math.min(k, targets.size()); i++) {
+                    idealDcg += 1.0 / log2(i + 2);
+                }
+                precision += (double) hits / k;
+                recall += (double) hits / targets.size();
+                ndcg += dcg / idealDcg;
+                users++;
+            }
+        } catch (RuntimeException e) {
+            log.warn("Offline evaluation of engine {} failed", recommender.getName(), e);
+            result.setError(e.getMessage());
+        }
+        if (users > 0) {
+            long[] measured = Arrays.copyOf(latencies, users);
+            Arrays.sort(measured);
+            result.setPrecisionAtK(precision / users);
+            result.setRecallAtK(recall / users);
+            result.setNdcgAtK(ndcg / users);
+            result.setP50LatencyMillis(percentile(measured, 0.50) / 1_000_000.0);
+            result.setP99LatencyMillis(percentile(measured, 0.99) / 1_000_000.0);
+            result.setBytesAllocatedPerCall(meter.isSupported() ? allocated / users : -1);
+        }
+        int catalogueSize = snapshot.getAvailableProperties().size();
+        result.setCatalogueCoverage(catalogueSize == 0 ? 0.0 : (double) recommendedIds.size() / catalogueSize);
+        result.setUsers(users);
+        return result;
+    }
+
+    private static void register(Map<String, OfflineRecommender> recommenders, String name, Engine engine) {
+        recommenders.put(name, new OfflineRecommender() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public List<Property> recommend(RecommendationSnapshot snapshot, Long userId, int limit) {
+                return engine.recommend(snapshot, userId, limit);
+            }
+        });
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+
+    private static double log2(int value) {
+        return Math.log(value) / Math.log(2);
+    }
+
+    private static List<Property> limitList(List<Property> properties, int limit) {
+        return properties.stream().limit(limit).collect(Collectors.toList());
+    }
+
+    @FunctionalInterface
+    private interface Engine {
+        List<Property> recommend(RecommendationSnapshot snapshot, Long userId, int limit);
+    }
+
+    /**
+     * 基于 HotSpot 线程内存分配计数的测量工具；JVM 不支持时返回 0
+     */
+    private static final class AllocationMeter {
+        private final com.sun.management.ThreadMXBean threadBean;
+
+        private AllocationMeter(com.sun.management.ThreadMXBean threadBean) {
+            this.threadBean = threadBean;
+        }
+
+        static AllocationMeter create() {
+            java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+            if (bean instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean hotspot = (com.sun.management.ThreadMXBean) bean;
+                if (hotspot.isThreadAllocatedMemorySupported()) {
+                    if (!hotspot.isThreadAllocatedMemoryEnabled()) {
+                        hotspot.setThreadAllocatedMemoryEnabled(true);
+                    }
+                    return new AllocationMeter(hotspot);
+                }
+            }
+            return new AllocationMeter(null);
+        }
+
+        boolean isSupported() {
+            return threadBean != null;
+        }
+
+        long currentThreadAllocatedBytes() {
+            return threadBean == null ? 0 : threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * 推荐算法的打分核心
+ *
+ * 只依赖传入的数据，不访问数据库。在线推荐（逐个用户查库）与批量推荐（共享一次加载的快照）
+ * 都通过这里计算得分，保证两条路径的推荐结果一致。
+ *
+ * @author Homestay Recommendation System
+ */
+final class RecommendationScorer {
+
+    static final double COLLABORATIVE_WEIGHT = 0.6;
+    static final double CONTENT_WEIGHT = 0.4;
+
+    private RecommendationScorer() {
+    }
+
+    /**
+     * 正向交互：收藏、预订或 4 分及以上的评分
+     */
+    static boolean isPositive(UserPropertyInteraction interaction) {
+        return interaction.getType() == UserPropertyInteraction.InteractionType.FAVORITE
+                || interaction.getType() == UserPropertyInteraction.InteractionType.BOOK
+                || (interaction.getRating() != null && interaction.getRating() >= 4);
+    }
+
+    /**
+     * 协同过滤打分：按杰卡德相似度寻找相似用户，汇总其交互过、当前用户未交互的房源
+     *
+     * @param userPropertyMap 每个用户交互过的房源集合
+     * @param userId          当前用户
+     * @param excluded        需要排除的房源（当前用户已交互的房源）
+     * @return 房源ID到得分的映射
+     */
+    static Map<Long, Double> collaborativeScores(Map<Long, Set<Long>> userPropertyMap, Long userId, Set<Long> excluded) {
+        Set<Long> currentUserProperties = userPropertyMap.get(userId);
+        if (currentUserProperties == null) {
+            return Collections.emptyMap();
+        }
+
+        // 计算与其他用户的相似度
+        Map<Long, Double> similarityScores = new HashMap<>();
+        for (Map.Entry<Long, Set<Long>> entry : userPropertyMap.entrySet()) {
+            Long otherUserId = entry.getKey();
+            if (otherUserId.equals(userId)) continue;
+
+            double similarity = calculateJaccardSimilarity(currentUserProperties, entry.getValue());
+            if (similarity > 0) {
+                similarityScores.put(otherUserId, similarity);
+            }
+        }
+
+        return aggregateNeighbours(userPropertyMap, similarityScores, excluded);
+    }
+
+    /**
+     * 根据相似用户的交互汇总推荐得分
+     */
+    static Map<Long, Double> aggregateNeighbours(Map<Long, Set<Long>> userPropertyMap,
+                                                 Map<Long, Double> similarityScores,
+                                                 Set<Long> excluded) {
+        Map<Long, Double> recommendationScores = new HashMap<>();
+        for (Map.Entry<Long, Double> entry : similarityScores.entrySet()) {
+            Double similarity = entry.getValue();
+            for (Long propertyId : userPropertyMap.get(entry.getKey())) {
+                if (!excluded.contains(propertyId)) {
+                    recommendationScores.merge(propertyId, similarity, Double::sum);
+                }
+            }
+        }
+        return recommendationScores;
+    }
+
+    /**
+     * 基于内容打分：从用户喜欢的房源中提取城市、类型、价格与卧室数偏好，为候选房源打分
+     *
+     * @param likedProperties 用户喜欢的房源（可重复，重复次数即偏好强度）
+     * @param candidates      候选房源（通常为全部可用房源）
+     * @param excluded        需要排除的房源（用户已交互的房源）
+     * @return 房源ID到得分的映射
+     */
+    static Map<Long, Double> contentScores(List<Property> likedProperties,
+                                           Collection<Property> candidates,
+                                           Set<Long> excluded) {
+        // 提取用户偏好特征
+        Map<String, Integer> cityPreferences = new HashMap<>();
+        Map<String, Integer> typePreferences = new HashMap<>();
+        double totalPrice = 0.0;
+        int totalBedrooms = 0;
+
+        for (Property property : likedProperties) {
+            // 城市偏好（计数）
+            cityPreferences.merge(property.getCity(), 1, Integer::sum);
+            // 房源类型偏好（计数）
+            if (property.getPropertyType() != null) {
+                typePreferences.merge(property.getPropertyType(), 1, Integer::sum);
+            }
+            // 价格和卧室数累加（用于计算平均值）
+            totalPrice += property.getPrice().doubleValue();
+            totalBedrooms += property.getBedrooms();
+        }
+
+        // 计算偏好的平均价格和平均卧室数
+        final double avgPrice = totalPrice / likedProperties.size();
+        final int avgBedrooms = totalBedrooms / likedProperties.size();
+
+        Map<Long, Double> propertyScores = new HashMap<>();
+        for (Property property : candidates) {
+            // 跳过已交互的房源
+            if (excluded.contains(property.getId())) {
+                continue;
+            }
+
+            double score = 0.0;
+
+            // 城市偏好得分（权重30%）
+            Integer cityCount = cityPreferences.get(property.getCity());
+            if (cityCount != null) {
+                score += cityCount * 0.3;
+            }
+
+            // 房源类型偏好得分（权重20%）
+            if (property.getPropertyType() != null) {
+                Integer typeCount = typePreferences.get(property.getPropertyType());
+                if (typeCount != null) {
+                    score += typeCount * 0.2;
+                }
+            }
+
+            // 价格相似度得分（权重25%）：价格越接近用户偏好平均值，得分越高
+            double priceDiff = Math.abs(property.getPrice().doubleValue() - avgPrice);
+            double priceSimilarity = 1.0 / (1.0 + priceDiff / avgPrice); // 归一化到0-1
+            score += priceSimilarity * 0.25;
+
+            // 卧室数相似度得分（权重15%）：卧室数越接近偏好值，得分越高
+            int bedroomDiff = Math.abs(property.getBedrooms() - avgBedrooms);
+            double bedroomSimilarity = 1.0 / (1.0 + bedroomDiff); // 归一化到0-1
+            score += bedroomSimilarity * 0.15;
+
+            // 房源评分加分（权重10%）：满分5分归一化到0-1
+            score += (property.getRating().doubleValue() / 5.0) * 0.1;
+
+            propertyScores.put(property.getId(), score);
+        }
+        return propertyScores;
+    }
+
+    /**
+     * 混合打分：按两路推荐的名次加权，协同过滤 60%，内容相似 40%
+     */
+    static Map<Long, Double> hybridScores(List<Property> collaborative, List<Property> contentBased) {
+        Map<Long, Double> propertyScores = new HashMap<>();
+        for (int i = 0; i < collaborative.size(); i++) {
+            double score = (collaborative.size() - i) * COLLABORATIVE_WEIGHT;
+            propertyScores.merge(collaborative.get(i).getId(), score, Double::sum);
+        }
+        for (int i = 0; i < contentBased.size(); i++) {
+            double score = (contentBased.size() - i) * CONTENT_WEIGHT;
+            propertyScores.merge(contentBased.get(i).getId(), score, Double::sum);
+        }
+        return propertyScores;
+    }
+
+    /**
+     * 按得分降序取前 N 个房源ID
+     */
+    static List<Long> topIds(Map<Long, Double> scores, int limit) {
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 计算两个集合的杰卡德相似度
+     */
+    static double calculateJaccardSimilarity(Set<Long> set1, Set<Long> set2) {
+        if (set1.isEmpty() && set2.isEmpty()) return 0.0;
+
+        Set<Long> intersection = new HashSet<>(set1);
+        intersection.retainAll(set2);
+
+        Set<Long> union = new HashSet<>(set1);
+        union.addAll(set2);
+
+        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+    }
+}
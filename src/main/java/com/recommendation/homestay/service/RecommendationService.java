@@ -26,41 +26,33 @@ public class RecommendationService {
     @Autowired
     private UserPropertyInteractionMapper interactionMapper;
 
+    @Autowired
+    private TrendingService trendingService;
+
+    @Autowired
+    private SegmentRecommendationService segmentRecommendationService;
+
     /**
-     * 混合推荐：结合协同过滤与内容相似推荐，是核心的综合推荐算法
+     * 混合推荐：结合协同过滤与内容相似推荐，是核心的综合推荐算法；无任何交互记录的冷启动用户返回预计算的全局分群推荐
      */
     @Cacheable(value = "recommendations", key = "#userId")
     public List<Property> getRecommendations(Long userId, int limit) {
-        User user = userMapper.selectById(userId);
-        if (user == null) {
-            throw new RuntimeException("未找到用户");
+        if (isColdStart(userId)) {
+            List<Property> segmentResults = segmentRecommendationService.recommend(null, null, null, limit);
+            if (!segmentResults.isEmpty()) {
+                return new ArrayList<>(segmentResults);
+            }
         }
 
         // 同时获取两种算法的推荐结果
         List<Property> collaborativeRecommendations = getCollaborativeFilteringRecommendations(userId, limit * 2);
         List<Property> contentBasedRecommendations = getContentBasedRecommendations(userId, limit * 2);
 
-        // 合并并打分
-        Map<Long, Double> propertyScores = new HashMap<>();
-
-        // 权重：协同过滤 60%，内容相似 40%
-        for (int i = 0; i < collaborativeRecommendations.size(); i++) {
-            Property property = collaborativeRecommendations.get(i);
-            double score = (collaborativeRecommendations.size() - i) * 0.6;
-            propertyScores.merge(property.getId(), score, Double::sum);
-        }
-
-        for (int i = 0; i < contentBasedRecommendations.size(); i++) {
-            Property property = contentBasedRecommendations.get(i);
-            double score = (contentBasedRecommendations.size() - i) * 0.4;
-            propertyScores.merge(property.getId(), score, Double::sum);
-        }
-
-        // 按得分排序并返回前 N 个
-        return propertyScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> propertyMapper.selectById(entry.getKey()))
+        // 合并并打分（权重：协同过滤 60%，内容相似 40%），按得分排序并返回前 N 个
+        Map<Long, Double> propertyScores = RecommendationScorer.hybridScores(
+                collaborativeRecommendations, contentBasedRecommendations);
+        return RecommendationScorer.topIds(propertyScores, limit).stream()
+                .map(propertyMapper::selectById)
                 .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
@@ -75,8 +67,7 @@ public class RecommendationService {
 
         if (userInteractions.isEmpty()) {
             // 冷启动：返回热门房源
-            return propertyMapper.findTop10ByAvailableTrueOrderByBookingCountDesc()
-                    .stream().limit(limit).collect(Collectors.toList());
+            return getColdStartPopular(limit);
         }
 
         // 获取当前用户已交互的房源
@@ -93,45 +84,15 @@ public class RecommendationService {
                     .add(interaction.getPropertyId());
         }
 
-        // 计算与其他用户的相似度
-        Map<Long, Double> similarityScores = new HashMap<>();
-        Set<Long> currentUserProperties = userPropertyMap.get(userId);
-        
-        if (currentUserProperties == null) {
-            return propertyMapper.findTop10ByAvailableTrueOrderByBookingCountDesc()
-                    .stream().limit(limit).collect(Collectors.toList());
-        }
-
-        for (Map.Entry<Long, Set<Long>> entry : userPropertyMap.entrySet()) {
-            Long otherUserId = entry.getKey();
-            if (otherUserId.equals(userId)) continue;
-
-            Set<Long> otherUserProperties = entry.getValue();
-            double similarity = calculateJaccardSimilarity(currentUserProperties, otherUserProperties);
-            if (similarity > 0) {
-                similarityScores.put(otherUserId, similarity);
-            }
-        }
-
-        // 根据相似用户的交互汇总推荐
-        Map<Long, Double> recommendationScores = new HashMap<>();
-        for (Map.Entry<Long, Double> entry : similarityScores.entrySet()) {
-            Long similarUserId = entry.getKey();
-            Double similarity = entry.getValue();
-            
-            Set<Long> similarUserProperties = userPropertyMap.get(similarUserId);
-            for (Long propertyId : similarUserProperties) {
-                if (!interactedPropertyIds.contains(propertyId)) {
-                    recommendationScores.merge(propertyId, similarity, Double::sum);
-                }
-            }
+        if (!userPropertyMap.containsKey(userId)) {
+            return getColdStartPopular(limit);
         }
 
-        // 取出得分最高的推荐结果
-        return recommendationScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(limit)
-                .map(entry -> propertyMapper.selectById(entry.getKey()))
+        // 计算相似度并根据相似用户的交互汇总推荐，取出得分最高的推荐结果
+        Map<Long, Double> recommendationScores = RecommendationScorer.collaborativeScores(
+                userPropertyMap, userId, interactedPropertyIds);
+        return RecommendationScorer.topIds(recommendationScores, limit).stream()
+                .map(propertyMapper::selectById)
                 .filter(Objects::nonNull)
                 .filter(Property::getAvailable)
                 .collect(Collectors.toList());
@@ -148,19 +109,13 @@ public class RecommendationService {
 
         // 冷启动：无交互记录时返回评分最高的可用房源
         if (userInteractions.isEmpty()) {
-            return propertyMapper.findTop10ByAvailableTrueOrderByRatingDesc()
-                    .stream().limit(limit).collect(Collectors.toList());
+            return getColdStartTopRated(limit);
         }
 
         // 2. 筛选用户"喜欢"的房源（收藏/预订/高评分）
         List<Property> likedProperties = new ArrayList<>();
         for (UserPropertyInteraction interaction : userInteractions) {
-            // 过滤正向交互行为
-            boolean isPositiveInteraction = interaction.getType() == UserPropertyInteraction.InteractionType.FAVORITE
-                    || interaction.getType() == UserPropertyInteraction.InteractionType.BOOK
-                    || (interaction.getRating() != null && interaction.getRating() >= 4);
-
-            if (isPositiveInteraction) {
+            if (RecommendationScorer.isPositive(interaction)) {
                 Property property = propertyMapper.selectById(interaction.getPropertyId());
                 if (property != null) {
                     likedProperties.add(property);
@@ -170,33 +125,10 @@ public class RecommendationService {
 
         // 无正向交互时仍返回高评分房源
         if (likedProperties.isEmpty()) {
-            return propertyMapper.findTop10ByAvailableTrueOrderByRatingDesc()
-                    .stream().limit(limit).collect(Collectors.toList());
-        }
-
-        // 3. 提取用户偏好特征
-        Map<String, Integer> cityPreferences = new HashMap<>();
-        Map<String, Integer> typePreferences = new HashMap<>();
-        double totalPrice = 0.0;
-        int totalBedrooms = 0;
-
-        for (Property property : likedProperties) {
-            // 城市偏好（计数）
-            cityPreferences.merge(property.getCity(), 1, Integer::sum);
-            // 房源类型偏好（计数）
-            if (property.getPropertyType() != null) {
-                typePreferences.merge(property.getPropertyType(), 1, Integer::sum);
-            }
-            // 价格和卧室数累加（用于计算平均值）
-            totalPrice += property.getPrice().doubleValue();
-            totalBedrooms += property.getBedrooms();
+            return getColdStartTopRated(limit);
         }
 
-        // 计算偏好的平均价格和平均卧室数
-        double avgPrice = totalPrice / likedProperties.size();
-        int avgBedrooms = totalBedrooms / likedProperties.size();
-
-        // 4. 查询所有可用房源
+        // 3. 查询所有可用房源
         QueryWrapper<Property> availableQuery = new QueryWrapper<>();
         availableQuery.eq("available", true);
         List<Property> allProperties = propertyMapper.selectList(availableQuery);
@@ -206,67 +138,142 @@ public class RecommendationService {
                 .map(UserPropertyInteraction::getPropertyId)
                 .collect(Collectors.toSet());
 
-        // 5. 基于用户偏好为房源打分
-        Map<Long, Double> propertyScores = new HashMap<>();
-        final double finalAvgPrice = avgPrice;
-        final int finalAvgBedrooms = avgBedrooms;
-
-        for (Property property : allProperties) {
-            // 跳过已交互的房源
-            if (interactedIds.contains(property.getId())) {
-                continue;
-            }
-
-            double score = 0.0;
-
-            // 5.1 城市偏好得分（权重30%）
-            if (cityPreferences.containsKey(property.getCity())) {
-                score += cityPreferences.get(property.getCity()) * 0.3;
-            }
+        // 4. 基于用户偏好为房源打分，按得分降序取前N个返回
+        Map<Long, Double> propertyScores = RecommendationScorer.contentScores(
+                likedProperties, allProperties, interactedIds);
+        return RecommendationScorer.topIds(propertyScores, limit).stream()
+                .map(propertyMapper::selectById) // 用Mapper查询房源详情
+                .filter(Objects::nonNull) // 过滤空值（避免已删除的房源）
+                .collect(Collectors.toList());
+    }
 
-            // 5.2 房源类型偏好得分（权重20%）
-            if (property.getPropertyType() != null && typePreferences.containsKey(property.getPropertyType())) {
-                score += typePreferences.get(property.getPropertyType()) * 0.2;
-            }
+    /**
+     * 城市提示下的冷启动推荐：无任何交互记录的用户直接返回该城市预计算的分群推荐（内存读取，不缓存）。
+     * 用户已有交互或该城市排行尚未就绪时返回空列表，由调用方改用 getRecommendations；
+     * 城市提示因此不进入推荐缓存的键，交互变化后按用户ID清除一个缓存项即可。
+     */
+    public List<Property> getColdStartRecommendations(Long userId, int limit, String cityHint) {
+        if (!isColdStart(userId)) {
+            return Collections.emptyList();
+        }
+        return new ArrayList<>(segmentRecommendationService.recommend(cityHint, null, null, limit));
+    }
 
-            // 5.3 价格相似度得分（权重25%）：价格越接近用户偏好平均值，得分越高
-            double priceDiff = Math.abs(property.getPrice().doubleValue() - finalAvgPrice);
-            double priceSimilarity = 1.0 / (1.0 + priceDiff / finalAvgPrice); // 归一化到0-1
-            score += priceSimilarity * 0.25;
+    private boolean isColdStart(Long userId) {
+        User user = userMapper.selectById(userId);
+        if (user == null) {
+            throw new RuntimeException("未找到用户");
+        }
+        QueryWrapper<UserPropertyInteraction> historyQuery = new QueryWrapper<>();
+        historyQuery.eq("user_id", userId);
+        return interactionMapper.selectCount(historyQuery) == 0;
+    }
 
-            // 5.4 卧室数相似度得分（权重15%）：卧室数越接近偏好值，得分越高
-            int bedroomDiff = Math.abs(property.getBedrooms() - finalAvgBedrooms);
-            double bedroomSimilarity = 1.0 / (1.0 + bedroomDiff); // 归一化到0-1
-            score += bedroomSimilarity * 0.15;
+    /**
+     * 加载批量推荐使用的数据快照：全部交互记录、全部房源以及冷启动列表只查询一次
+     */
+    public RecommendationSnapshot loadSnapshot() {
+        List<UserPropertyInteraction> interactions = interactionMapper.selectList(null);
+        List<Property> properties = propertyMapper.selectList(null);
+        return new RecommendationSnapshot(interactions, properties,
+                getColdStartPopular(Integer.MAX_VALUE), getColdStartTopRated(Integer.MAX_VALUE));
+    }
 
-            // 5.5 房源评分加分（权重10%）：满分5分归一化到0-1
-            score += (property.getRating().doubleValue() / 5.0) * 0.1;
+    /**
+     * 基于快照的混合推荐，与 getRecommendations 的计算逻辑一致，但不访问数据库，也不读取实时排行
+     *
+     * 冷启动用户返回快照中的高评分列表：loadSnapshot 中它就是实时路径使用的全局分群排行，
+     * 离线评估中则是只按训练期数据计算的列表。
+     */
+    public List<Property> getRecommendations(RecommendationSnapshot snapshot, Long userId, int limit) {
+        if (snapshot.getInteractions(userId).isEmpty() && !snapshot.getColdStartTopRated().isEmpty()) {
+            return limitList(snapshot.getColdStartTopRated(), limit);
+        }
+        List<Property> collaborative = getCollaborativeFilteringRecommendations(snapshot, userId, limit * 2);
+        List<Property> contentBased = getContentBasedRecommendations(snapshot, userId, limit * 2);
+        Map<Long, Double> propertyScores = RecommendationScorer.hybridScores(collaborative, contentBased);
+        return RecommendationScorer.topIds(propertyScores, limit).stream()
+                .map(snapshot::getProperty)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
 
-            // 存入房源ID和对应得分
-            propertyScores.put(property.getId(), score);
+    /**
+     * 基于快照的协同过滤推荐
+     */
+    public List<Property> getCollaborativeFilteringRecommendations(RecommendationSnapshot snapshot, Long userId, int limit) {
+        List<UserPropertyInteraction> userInteractions = snapshot.getInteractions(userId);
+        if (userInteractions.isEmpty()) {
+            return limitList(snapshot.getColdStartPopular(), limit);
         }
+        Set<Long> interactedPropertyIds = snapshot.getUserPropertyMap().get(userId);
+        Map<Long, Double> recommendationScores = RecommendationScorer.collaborativeScores(
+                snapshot.getUserPropertyMap(), userId, interactedPropertyIds);
+        return RecommendationScorer.topIds(recommendationScores, limit).stream()
+                .map(snapshot::getProperty)
+                .filter(Objects::nonNull)
+                .filter(Property::getAvailable)
+                .collect(Collectors.toList());
+    }
 
-        // 6. 按得分降序排序，取前N个返回
-        return propertyScores.entrySet().stream()
-                .sorted((entry1, entry2) -> Double.compare(entry2.getValue(), entry1.getValue())) // 降序排序
-                .limit(limit)
-                .map(entry -> propertyMapper.selectById(entry.getKey())) // 用Mapper查询房源详情
-                .filter(Objects::nonNull) // 过滤空值（避免已删除的房源）
+    /**
+     * 基于快照的内容相似推荐
+     */
+    public List<Property> getContentBasedRecommendations(RecommendationSnapshot snapshot, Long userId, int limit) {
+        List<UserPropertyInteraction> userInteractions = snapshot.getInteractions(userId);
+        if (userInteractions.isEmpty()) {
+            return limitList(snapshot.getColdStartTopRated(), limit);
+        }
+        List<Property> likedProperties = new ArrayList<>();
+        for (UserPropertyInteraction interaction : userInteractions) {
+            if (RecommendationScorer.isPositive(interaction)) {
+                Property property = snapshot.getProperty(interaction.getPropertyId());
+                if (property != null) {
+                    likedProperties.add(property);
+                }
+            }
+        }
+        if (likedProperties.isEmpty()) {
+            return limitList(snapshot.getColdStartTopRated(), limit);
+        }
+        Map<Long, Double> propertyScores = RecommendationScorer.contentScores(
+                likedProperties, snapshot.getAvailableProperties(), snapshot.getUserPropertyMap().get(userId));
+        return RecommendationScorer.topIds(propertyScores, limit).stream()
+                .map(snapshot::getProperty)
+                .filter(Objects::nonNull)
                 .collect(Collectors.toList());
     }
 
     /**
-     * 计算两个集合的杰卡德相似度
+     * 冷启动热门房源：优先使用近 7 天的实时趋势排行，其次是预计算的全局分群排行，
+     * 两者都尚未就绪时回退到累计预订量排行
      */
-    private double calculateJaccardSimilarity(Set<Long> set1, Set<Long> set2) {
-        if (set1.isEmpty() && set2.isEmpty()) return 0.0;
-        
-        Set<Long> intersection = new HashSet<>(set1);
-        intersection.retainAll(set2);
-        
-        Set<Long> union = new HashSet<>(set1);
-        union.addAll(set2);
-        
-        return union.isEmpty() ? 0.0 : (double) intersection.size() / union.size();
+    private List<Property> getColdStartPopular(int limit) {
+        List<Property> trending = trendingService.getTrending(TrendingService.Window.WEEK, null, limit);
+        if (!trending.isEmpty()) {
+            return new ArrayList<>(trending);
+        }
+        List<Property> segmentResults = segmentRecommendationService.recommend(null, null, null, limit);
+        if (!segmentResults.isEmpty()) {
+            return new ArrayList<>(segmentResults);
+        }
+        return propertyMapper.findTop10ByAvailableTrueOrderByBookingCountDesc()
+                .stream().limit(limit).collect(Collectors.toList());
+    }
+
+    /**
+     * 冷启动高评分房源：使用预计算的全局分群排行（评分已做平滑），未就绪时回退到评分排行
+     */
+    private List<Property> getColdStartTopRated(int limit) {
+        List<Property> segmentResults = segmentRecommendationService.recommend(null, null, null, limit);
+        if (!segmentResults.isEmpty()) {
+            return new ArrayList<>(segmentResults);
+        }
+        return propertyMapper.findTop10ByAvailableTrueOrderByRatingDesc()
+                .stream().limit(limit).collect(Collectors.toList());
+    }
+
+    private static List<Property> limitList(List<Property> properties, int limit) {
+        return properties.stream().limit(limit).collect(Collectors.toList());
     }
 }
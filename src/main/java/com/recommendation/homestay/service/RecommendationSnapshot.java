@@ -0,0 +1,85 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
+
+import java.util.*;
+
+/**
+ * 推荐数据快照
+ *
+ * 一次性加载的交互记录与房源特征，供批量推荐在多个用户、多个线程之间共享。
+ * 构建完成后只读，可安全地并发访问。
+ *
+ * @author Homestay Recommendation System
+ */
+public final class RecommendationSnapshot {
+
+    private final Map<Long, List<UserPropertyInteraction>> interactionsByUser;
+    private final Map<Long, Set<Long>> userPropertyMap;
+    private final Map<Long, Property> propertiesById;
+    private final List<Property> availableProperties;
+    private final List<Property> coldStartPopular;
+    private final List<Property> coldStartTopRated;
+
+    public RecommendationSnapshot(List<UserPropertyInteraction> interactions,
+                                  List<Property> properties,
+                                  List<Property> coldStartPopular,
+                                  List<Property> coldStartTopRated) {
+        Map<Long, List<UserPropertyInteraction>> byUser = new HashMap<>();
+        Map<Long, Set<Long>> userProperties = new HashMap<>();
+        for (UserPropertyInteraction interaction : interactions) {
+            byUser.computeIfAbsent(interaction.getUserId(), k -> new ArrayList<>()).add(interaction);
+            userProperties.computeIfAbsent(interaction.getUserId(), k -> new HashSet<>())
+                    .add(interaction.getPropertyId());
+        }
+
+        Map<Long, Property> byId = new HashMap<>(properties.size() * 2);
+        List<Property> available = new ArrayList<>();
+        for (Property property : properties) {
+            byId.put(property.getId(), property);
+            if (Boolean.TRUE.equals(property.getAvailable())) {
+                available.add(property);
+            }
+        }
+
+        this.interactionsByUser = byUser;
+        this.userPropertyMap = userProperties;
+        this.propertiesById = byId;
+        this.availableProperties = Collections.unmodifiableList(available);
+        this.coldStartPopular = Collections.unmodifiableList(new ArrayList<>(coldStartPopular));
+        this.coldStartTopRated = Collections.unmodifiableList(new ArrayList<>(coldStartTopRated));
+    }
+
+    public List<UserPropertyInteraction> getInteractions(Long userId) {
+        return interactionsByUser.getOrDefault(userId, Collections.emptyList());
+    }
+
+    public Map<Long, Set<Long>> getUserPropertyMap() {
+        return userPropertyMap;
+    }
+
+    public Property getProperty(Long propertyId) {
+        return propertiesById.get(propertyId);
+    }
+
+    public List<Property> getAvailableProperties() {
+        return availableProperties;
+    }
+
+    public List<Property> getColdStartPopular() {
+        return coldStartPopular;
+    }
+
+    public List<Property> getColdStartTopRated() {
+        return coldStartTopRated;
+    }
+
+    public int getUserCount() {
+        return interactionsByUser.size();
+    }
+
+    public int getPropertyCount() {
+        return propertiesById.size();
+    }
+}
@@ -0,0 +1,253 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.entity.Order;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.mapper.PropertyNightInventoryMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 预订引擎：原子地检查并占用入住期间每一晚的库存
+ *
+ * 两层保护：
+ * 1. 节点内按房源分段加锁（reservation.lock-stripes 个 ReentrantLock），同一热门房源的并发请求在本节点排队，
+ *    先用内存房态日历快速拒绝已满的请求，避免它们在数据库行锁上堆积；锁持有到事务结束，
+ *    保证下一个请求看到的日历已包含上一个请求的结果。
+ * 2. 数据库层按晚的库存行（property_night_inventory）做条件 UPDATE，受影响行数必须等于晚数，
+ *    否则抛出异常使整个事务回滚。多节点部署时由这一层保证不超订。
+ *
+ * 必须在事务内调用。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class ReservationEngine {
+
+    @Autowired
+    private PropertyNightInventoryMapper inventoryMapper;
+
+    @Autowired
+    private AvailabilityCalendar availabilityCalendar;
+
+    @Value("${reservation.lock-stripes:64}")
+    private int lockStripes;
+
+    @Value("${reservation.lock-timeout-ms:3000}")
+    private long lockTimeoutMs;
+
+    private ReentrantLock[] locks;
+
+    @PostConstruct
+    public void init() {
+        int stripes = Integer.highestOneBit(Math.max(lockStripes - 1, 1)) << 1;
+        locks = new ReentrantLock[stripes];
+        for (int i = 0; i < stripes; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * 为房源占用 [checkIn, checkOut) 每晚一间房和 guests 位客人
+     *
+     * @throws RuntimeException 任意一晚已满或等待锁超时
+     */
+    public void reserve(Property property, LocalDate checkIn, LocalDate checkOut, int guests) {
+        ReentrantLock lock = lockFor(property.getId());
+        acquire(lock);
+        boolean handedOff = false;
+        try {
+            if (!availabilityCalendar.hasCapacity(property, checkIn, checkOut, guests)) {
+                throw new RuntimeException("所选日期房源已满");
+            }
+            List<LocalDate> nights = nights(checkIn, checkOut);
+            inventoryMapper.ensureNights(property.getId(), nights);
+            int reserved = inventoryMapper.reserveNights(property.getId(), checkIn, checkOut, guests,
+                    Math.max(Optional.ofNullable(property.getBedrooms()).orElse(0), 0),
+                    Math.max(Optional.ofNullable(property.getMaxGuests()).orElse(0), 0));
+            if (reserved != nights.size()) {
+                // 部分夜晚已满：抛出异常回滚事务，已占用的夜晚一并撤销
+                throw new RuntimeException("所选日期房源已满");
+            }
+            handedOff = releaseAfterCompletion(lock);
+        } finally {
+            if (!handedOff) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 在同一事务内为多项预订占用库存（团体预订），全部成功或由调用方整体回滚
+     *
+     * 先按分段锁下标升序一次性获取涉及的全部分段锁，再按房源ID、入住日期顺序更新库存行，
+     * 两个并发的团体预订以相同顺序加锁，不会互相死锁。同一房源的多项预订在数据库中逐项累加，
+     * 累计超出容量时后面的项失败。
+     *
+     * @return 第一个无法占用的预订在列表中的下标，全部成功时返回 -1；返回非负值时调用方必须回滚事务
+     * @throws RuntimeException 等待锁超时
+     */
+    public int reserveAll(List<Reservation> reservations) {
+        TreeSet<Integer> stripes = new TreeSet<>();
+        for (Reservation reservation : reservations) {
+            stripes.add(stripeOf(reservation.property.getId()));
+        }
+        List<ReentrantLock> acquired = new ArrayList<>(stripes.size());
+        boolean handedOff = false;
+        try {
+            for (int stripe : stripes) {
+                acquire(locks[stripe]);
+                acquired.add(locks[stripe]);
+            }
+            Integer[] order = new Integer[reservations.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing((Integer i) -> reservations.get(i).property.getId())
+                    .thenComparing(i -> reservations.get(i).checkIn));
+            for (int index : order) {
+                Reservation reservation = reservations.get(index);
+                Property property = reservation.property;
+                if (!availabilityCalendar.hasCapacity(property, reservation.checkIn, reservation.checkOut, reservation.guests)) {
+                    return index;
+                }
+                List<LocalDate> nights = nights(reservation.checkIn, reservation.checkOut);
+                inventoryMapper.ensureNights(property.getId(), nights);
+                int reserved = inventoryMapper.reserveNights(property.getId(), reservation.checkIn, reservation.checkOut,
+                        reservation.guests,
+                        Math.max(Optional.ofNullable(property.getBedrooms()).orElse(0), 0),
+                        Math.max(Optional.ofNullable(property.getMaxGuests()).orElse(0), 0));
+                if (reserved != nights.size()) {
+                    return index;
+                }
+            }
+            return -1;
+        } finally {
+            // 成功或失败都把解锁推迟到事务结束：失败时调用方回滚，回滚完成前不能让其他请求进入
+            if (!acquired.isEmpty()) {
+                handedOff = releaseAfterCompletion(acquired);
+            }
+            if (!handedOff) {
+                acquired.forEach(ReentrantLock::unlock);
+            }
+        }
+    }
+
+    /**
+     * 释放订单占用的库存（订单取消等离开占用状态时调用）
+     */
+    public void release(Order order) {
+        release(order.getPropertyId(), order.getCheckInDate(), order.getCheckOutDate(),
+                Optional.ofNullable(order.getGuestCount()).orElse(0));
+    }
+
+    /**
+     * 释放房源 [checkIn, checkOut) 每晚一间房和 guests 位客人（预订保留到期或取消时调用）
+     */
+    public void release(Long propertyId, LocalDate checkIn, LocalDate checkOut, int guests) {
+        ReentrantLock lock = lockFor(propertyId);
+        acquire(lock);
+        boolean handedOff = false;
+        try {
+            inventoryMapper.releaseNights(propertyId, checkIn, checkOut, Math.max(guests, 0));
+            handedOff = releaseAfterCompletion(lock);
+        } finally {
+            if (!handedOff) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 批量释放订单占用的库存（后台批量取消过期订单时调用）
+     *
+     * 不获取分段锁：释放只会让库存变宽松，提交前内存日历仍按占用计算，结果只会偏保守；
+     * 同一事务内逐个加锁反而会长时间挡住这些房源的新预订。
+     */
+    public void releaseAll(Collection<Order> orders) {
+        for (Order order : orders) {
+            inventoryMapper.releaseNights(order.getPropertyId(), order.getCheckInDate(), order.getCheckOutDate(),
+                    Math.max(Optional.ofNullable(order.getGuestCount()).orElse(0), 0));
+        }
+    }
+
+    private ReentrantLock lockFor(Long propertyId) {
+        return locks[stripeOf(propertyId)];
+    }
+
+    private int stripeOf(Long propertyId) {
+        int hash = propertyId.hashCode();
+        return (hash ^ (hash >>> 16)) & (locks.length - 1);
+    }
+
+    private void acquire(ReentrantLock lock) {
+        try {
+            if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                throw new RuntimeException("房源预订繁忙，请稍后重试");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("预订被中断", e);
+        }
+    }
+
+    /**
+     * 在事务中时把解锁推迟到事务结束（提交后的日历更新先于解锁执行）
+     */
+    private boolean releaseAfterCompletion(ReentrantLock lock) {
+        return releaseAfterCompletion(Collections.singletonList(lock));
+    }
+
+    private boolean releaseAfterCompletion(List<ReentrantLock> held) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                held.forEach(ReentrantLock::unlock);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * 一项待占用的预订
+     */
+    public static final class Reservation {
+        private final Property property;
+        private final LocalDate checkIn;
+        private final LocalDate checkOut;
+        private final int guests;
+
+        public Reservation(Property property, LocalDate checkIn, LocalDate checkOut, int guests) {
+            this.property = property;
+            this.checkIn = checkIn;
+            this.checkOut = checkOut;
+            this.guests = guests;
+        }
+    }
+
+    private static List<LocalDate> nights(LocalDate checkIn, LocalDate checkOut) {
+        List<LocalDate> nights = new ArrayList<>();
+        for (LocalDate night = checkIn; night.isBefore(checkOut); night = night.plusDays(1)) {
+            nights.add(night);
+        }
+        return nights;
+    }
+}
@@ -0,0 +1,226 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.dto.CursorPageResponse;
+import com.recommendation.homestay.dto.LandlordNotification;
+import com.recommendation.homestay.dto.PropertyReviewDTO;
+import com.recommendation.homestay.dto.ReviewRequest;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.UserPropertyInteraction;
+import com.recommendation.homestay.mapper.OrderMapper;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.mapper.UserPropertyInteractionMapper;
+import com.recommendation.homestay.support.AfterCommit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 房源评价与评分聚合
+ *
+ * 有已完成入住的用户可以对房源评价一次，评价记为 REVIEW 类型的用户交互。提交时在同一事务内
+ * 用一条 UPDATE 把新评分折入 properties.rating 与 review_count（新均值 = (均值 × 数量 + 评分) / (数量 + 1)），
+ * 请求路径上不做全量 AVG 重算，并发提交由行锁串行化。rating 与 review_count 只统计 REVIEW 记录，
+ * 早期手工填写的初始评分由 sql/reviews_schema.sql 一次性按评价记录重算，增量折入与校准使用同一口径。
+ *
+ * rating 保留两位小数，增量计算的舍入误差会逐渐累积，手工改库或删除评价也会造成偏差。
+ * 定时校准任务按主键分片（每片 reviews.reconcile.batch-size 个房源）从评价记录重新聚合，只改写有偏差的行，
+ * 片与片之间暂停 pause-ms 毫秒。每片先锁住房源行再聚合，与提交评价时的加锁顺序（先房源后评价）一致，
+ * 并发提交的评价要么在聚合前提交，要么等待本片完成后再折入。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class ReviewService {
+
+    private static final Logger log = LoggerFactory.getLogger(ReviewService.class);
+
+    @Autowired
+    private UserPropertyInteractionMapper interactionMapper;
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired
+    private OrderMapper orderMapper;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private LandlordEventStream landlordEventStream;
+
+    @Value("${reviews.reconcile.enabled:true}")
+    private boolean reconcileEnabled;
+
+    @Value("${reviews.reconcile.batch-size:500}")
+    private int batchSize;
+
+    @Value("${reviews.reconcile.pause-ms:100}")
+    private long pauseMs;
+
+    private final AtomicBoolean reconciling = new AtomicBoolean();
+
+    /**
+     * 提交评价并增量更新房源评分
+     */
+    @Transactional
+    @Caching(evict = {
+            @CacheEvict(value = "properties", key = "#propertyId"),
+            @CacheEvict(value = {"popularProperties", "topRatedProperties"}, allEntries = true)
+    })
+    public UserPropertyInteraction submitReview(Long propertyId, ReviewRequest request, Long userId) {
+        Property property = propertyMapper.selectById(propertyId);
+        if (property == null) {
+            throw new RuntimeException("未找到房源");
+        }
+        if (!orderMapper.hasCompletedStay(userId, propertyId)) {
+            throw new RuntimeException("入住完成后才能评价");
+        }
+        if (interactionMapper.countReview(userId, propertyId) > 0) {
+            throw new RuntimeException("已评价过该房源");
+        }
+
+        // 先更新房源行（加行锁），再插入评价，与校准任务的加锁顺序一致
+        propertyMapper.applyReview(propertyId, request.getRating());
+        UserPropertyInteraction review = new UserPropertyInteraction();
+        review.setUserId(userId);
+        review.setPropertyId(propertyId);
+        review.setType(UserPropertyInteraction.InteractionType.REVIEW);
+        review.setRating(request.getRating());
+        review.setComment(StringUtils.hasText(request.getComment()) ? request.getComment().trim() : null);
+        try {
+            interactionMapper.insert(review);
+        } catch (DuplicateKeyException e) {
+            // 同一用户并发提交，唯一索引拦下后一条，评分更新随事务回滚
+            throw new RuntimeException("已评价过该房源");
+        }
+
+        LandlordNotification notification = new LandlordNotification();
+        notification.setType(LandlordNotification.Type.REVIEW_CREATED);
+        notification.setLandlordId(property.getLandlordId());
+        notification.setPropertyId(propertyId);
+        notification.setRating(review.getRating());
+        notification.setOccurredAt(LocalDateTime.now());
+        AfterCommit.run(() -> landlordEventStream.publish(notification));
+        return review;
+    }
+
+    /**
+     * 房源评价列表：键集分页（ID 倒序）
+     *
+     * @param cursor 上一页返回的 nextCursor，首页为空
+     * @throws IllegalArgumentException 游标无效时抛出
+     */
+    public CursorPageResponse<PropertyReviewDTO> getReviews(Long propertyId, String cursor, int size) {
+        int pageSize = Math.min(Math.max(size, 1), 50);
+        Long beforeId = null;
+        if (StringUtils.hasText(cursor)) {
+            try {
+                beforeId = Long.parseLong(cursor);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的分页游标");
+            }
+        }
+        List<PropertyReviewDTO> rows = interactionMapper.findReviews(propertyId, beforeId, pageSize + 1);
+        boolean hasMore = rows.size() > pageSize;
+        List<PropertyReviewDTO> content = hasMore ? rows.subList(0, pageSize) : rows;
+        String nextCursor = hasMore ? String.valueOf(content.get(content.size() - 1).getId()) : null;
+        return new CursorPageResponse<>(content, content.size(), nextCursor, hasMore);
+    }
+
+    @Scheduled(fixedDelayString = "${reviews.reconcile.interval-ms:21600000}",
+            initialDelayString = "${reviews.reconcile.initial-delay-ms:900000}")
+    public void scheduledReconcile() {
+        if (reconcileEnabled) {
+            reconcile();
+        }
+    }
+
+    /**
+     * 执行一轮评分校准
+     *
+     * @return 本轮纠正的房源数；已有一轮在执行时返回 -1
+     */
+    public int reconcile() {
+        if (!reconciling.compareAndSet(false, true)) {
+            return -1;
+        }
+        long start = System.currentTimeMillis();
+        int corrected = 0;
+        int chunks = 0;
+        long afterId = 0;
+        try {
+            while (true) {
+                Long upto = propertyMapper.findChunkEnd(afterId, batchSize);
+                if (upto == null) {
+                    break;
+                }
+                long from = afterId;
+                Integer fixed = transactionTemplate.execute(status -> {
+                    propertyMapper.lockRange(from, upto);
+                    return propertyMapper.reconcileRatings(from, upto);
+                });
+                corrected += fixed == null ? 0 : fixed;
+                chunks++;
+                afterId = upto;
+                if (!pause()) {
+                    break;
+                }
+            }
+            if (corrected > 0) {
+                clearCaches();
+            }
+            log.info("Reconciled ratings of {} properties in {} chunks, {} ms", corrected, chunks,
+                    System.currentTimeMillis() - start);
+        } catch (Exception e) {
+            log.warn("Rating reconciliation stopped after property {} ({} corrected)", afterId, corrected, e);
+        } finally {
+            reconciling.set(false);
+        }
+        return corrected;
+    }
+
+    /**
+     * 校准只知道纠正的行数，直接清空房源详情与高分房源缓存
+     */
+    private void clearCaches() {
+        for (String name : new String[]{"properties", "topRatedProperties"}) {
+            Cache cache = cacheManager.getCache(name);
+            if (cache != null) {
+                cache.clear();
+            }
+        }
+    }
+
+    private boolean pause() {
+        if (pauseMs <= 0) {
+            return true;
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(pauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
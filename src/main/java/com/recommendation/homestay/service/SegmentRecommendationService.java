@@ -0,0 +1,182 @@
+package com.recommendation.homestay.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 分群预计算推荐服务
+ *
+ * 按 城市 × 价格档位 × 房源类型 将可用房源分群，后台定时为每个分群（以及去掉某些维度后的
+ * 汇总分群）计算排好序的推荐列表并整体替换到内存快照中。匿名访客和冷启动用户的推荐
+ * 只需一次 Map 查找，不再访问数据库。
+ *
+ * 分群内排序综合评分（按评价数做贝叶斯平滑）、累计预订量和近 7 天的实时趋势排名。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class SegmentRecommendationService {
+
+    private static final Logger log = LoggerFactory.getLogger(SegmentRecommendationService.class);
+
+    public static final String ANY = "*";
+    private static final int MAX_PER_SEGMENT = 50;
+    private static final double PRIOR_RATING = 3.5;
+    private static final int PRIOR_WEIGHT = 5;
+
+    /**
+     * 价格档位，边界由配置 segment.price-bands 指定（默认 300,800）。
+     */
+    public enum PriceBand {
+        BUDGET, MID, PREMIUM
+    }
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired
+    private TrendingService trendingService;
+
+    @Value("${segment.price-bands:300,800}")
+    private BigDecimal[] priceBands;
+
+    private volatile Map<String, List<Property>> segments = Collections.emptyMap();
+
+    /**
+     * 查找分群推荐：先按完整分群查找，为空时依次放宽类型、价格档位和城市。
+     *
+     * @param city         城市，可为空
+     * @param priceBand    价格档位（BUDGET/MID/PREMIUM），可为空
+     * @param propertyType 房源类型，可为空
+     * @param limit        返回数量上限
+     * @return 推荐房源列表，首次刷新完成前返回空列表
+     */
+    public List<Property> recommend(String city, String priceBand, String propertyType, int limit) {
+        String c = normalize(city);
+        String b = parseBand(priceBand);
+        String t = normalize(propertyType);
+        Map<String, List<Property>> snapshot = segments;
+
+        String[][] candidates = {
+                {c, b, t}, {c, b, ANY}, {c, ANY, ANY}, {ANY, b, t}, {ANY, b, ANY}, {ANY, ANY, ANY}
+        };
+        for (String[] candidate : candidates) {
+            List<Property> list = snapshot.get(segmentKey(candidate[0], candidate[1], candidate[2]));
+            if (list != null && !list.isEmpty()) {
+                return list.size() > limit ? list.subList(0, Math.max(limit, 0)) : list;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    @Scheduled(fixedDelayString = "${segment.refresh-interval-ms:600000}",
+            initialDelayString = "${segment.initial-delay-ms:5000}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        QueryWrapper<Property> availableQuery = new QueryWrapper<>();
+        availableQuery.eq("available", true);
+        List<Property> properties = propertyMapper.selectList(availableQuery);
+
+        Map<Long, Double> scores = new HashMap<>();
+        int maxBookings = properties.stream()
+                .mapToInt(p -> Optional.ofNullable(p.getBookingCount()).orElse(0))
+                .max().orElse(0);
+        Map<Long, Integer> trendingRank = new HashMap<>();
+        List<Property> trending = trendingService.getTrending(TrendingService.Window.WEEK, null, Integer.MAX_VALUE);
+        for (int i = 0; i < trending.size(); i++) {
+            trendingRank.put(trending.get(i).getId(), i);
+        }
+        for (Property property : properties) {
+            scores.put(property.getId(), score(property, maxBookings, trendingRank, trending.size()));
+        }
+
+        Map<String, List<Property>> grouped = new HashMap<>();
+        for (Property property : properties) {
+            String c = normalize(property.getCity());
+            String b = bandOf(property.getPrice()).name();
+            String t = normalize(property.getPropertyType());
+            // 每个房源同时进入完整分群和所有汇总分群
+            for (int mask = 0; mask < 8; mask++) {
+                String key = segmentKey(
+                        (mask & 4) == 0 ? c : ANY,
+                        (mask & 2) == 0 ? b : ANY,
+                        (mask & 1) == 0 ? t : ANY);
+                grouped.computeIfAbsent(key, k -> new ArrayList<>()).add(property);
+            }
+        }
+
+        Comparator<Property> byScore = Comparator.comparingDouble((Property p) -> scores.get(p.getId())).reversed();
+        Map<String, List<Property>> next = new HashMap<>(grouped.size() * 2);
+        grouped.forEach((key, list) -> {
+            list.sort(byScore);
+            List<Property> top = list.size() > MAX_PER_SEGMENT ? list.subList(0, MAX_PER_SEGMENT) : list;
+            next.put(key, Collections.unmodifiableList(new ArrayList<>(top)));
+        });
+        segments = next;
+        log.info("Segment recommendations refreshed: {} properties, {} segments in {} ms",
+                properties.size(), next.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * 根据价格返回所属档位。
+     */
+    public PriceBand bandOf(BigDecimal price) {
+        if (price == null || priceBands.length == 0 || price.compareTo(priceBands[0]) < 0) {
+            return PriceBand.BUDGET;
+        }
+        if (priceBands.length < 2 || price.compareTo(priceBands[1]) < 0) {
+            return PriceBand.MID;
+        }
+        return PriceBand.PREMIUM;
+    }
+
+    private double score(Property property, int maxBookings, Map<Long, Integer> trendingRank, int trendingSize) {
+        double rating = Optional.ofNullable(property.getRating()).map(BigDecimal::doubleValue).orElse(0.0);
+        int reviews = Optional.ofNullable(property.getReviewCount()).orElse(0);
+        double smoothedRating = (rating * reviews + PRIOR_RATING * PRIOR_WEIGHT) / (reviews + PRIOR_WEIGHT);
+
+        int bookings = Optional.ofNullable(property.getBookingCount()).orElse(0);
+        double bookingScore = maxBookings == 0 ? 0.0 : Math.log1p(bookings) / Math.log1p(maxBookings);
+
+        Integer rank = trendingRank.get(property.getId());
+        double trendingScore = rank == null ? 0.0 : 1.0 - (double) rank / trendingSize;
+
+        return (smoothedRating / 5.0) * 0.5 + bookingScore * 0.3 + trendingScore * 0.2;
+    }
+
+    private String parseBand(String priceBand) {
+        if (priceBand == null || priceBand.isBlank()) {
+            return ANY;
+        }
+        try {
+            return PriceBand.valueOf(priceBand.trim().toUpperCase(Locale.ROOT)).name();
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("价格档位参数无效，可选值为 BUDGET、MID、PREMIUM");
+        }
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? ANY : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String segmentKey(String city, String band, String type) {
+        return city + "|" + band + "|" + type;
+    }
+}
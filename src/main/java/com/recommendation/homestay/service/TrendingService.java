@@ -0,0 +1,345 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.support.CountMinSketch;
+import com.recommendation.homestay.support.SpaceSaving;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 实时趋势房源服务
+ *
+ * 以浏览和预订事件为输入，按 1 小时 / 24 小时 / 7 天三个滑动窗口统计全局与各城市的热门房源。
+ * 每个窗口由一圈时间桶组成，桶内保存一份 Count-Min 草图（按房源计频）和按范围划分的
+ * Space-Saving 摘要（全局 + 各城市的候选热门房源）。写入只触达当前桶，桶的轮转通过 CAS 完成，
+ * 只有同一范围摘要内部有一把短锁。
+ *
+ * 定时刷新时合并窗口内的桶（以及其他节点经 Redis 发布的窗口快照），排好序并一次性批量
+ * 加载房源实体，结果整体替换到只读快照中，接口读取为 O(1) 的 Map 查找。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class TrendingService {
+
+    private static final Logger log = LoggerFactory.getLogger(TrendingService.class);
+
+    public static final String GLOBAL_SCOPE = "*";
+    private static final long VIEW_WEIGHT = 1;
+    private static final long BOOKING_WEIGHT = 5;
+    private static final int SKETCH_DEPTH = 4;
+    private static final int SKETCH_WIDTH = 1024;
+    private static final int SUMMARY_CAPACITY = 64;
+    private static final int MAX_RESULTS = 50;
+    private static final String REDIS_KEY_PREFIX = "trending:snapshot:";
+
+    /**
+     * 滑动窗口定义：窗口长度 = 桶宽 × 桶数。
+     */
+    public enum Window {
+        HOUR("1h", Duration.ofMinutes(5), 12),
+        DAY("24h", Duration.ofHours(1), 24),
+        WEEK("7d", Duration.ofHours(6), 28);
+
+        private final String code;
+        private final long bucketMillis;
+        private final int bucketCount;
+
+        Window(String code, Duration bucketWidth, int bucketCount) {
+            this.code = code;
+            this.bucketMillis = bucketWidth.toMillis();
+            this.bucketCount = bucketCount;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+        public static Window fromCode(String code) {
+            for (Window window : values()) {
+                if (window.code.equalsIgnoreCase(code)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("不支持的时间窗口：" + code + "，可选值为 1h、24h、7d");
+        }
+    }
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${trending.node-id:}")
+    private String configuredNodeId;
+
+    @Value("${trending.cluster-merge-enabled:true}")
+    private boolean clusterMergeEnabled;
+
+    private final Map<Window, AtomicReferenceArray<Bucket>> rings = new HashMap<>();
+
+    /**
+     * 最近一次刷新得到的排行：key 为 窗口编码 + "|" + 范围（城市或 *）。
+     */
+    private volatile Map<String, List<Property>> rankings = Collections.emptyMap();
+
+    private String nodeId;
+
+    public TrendingService() {
+        for (Window window : Window.values()) {
+            rings.put(window, new AtomicReferenceArray<>(window.bucketCount));
+        }
+    }
+
+    public void recordView(Property property) {
+        record(property, VIEW_WEIGHT);
+    }
+
+    public void recordBooking(Property property) {
+        record(property, BOOKING_WEIGHT);
+    }
+
+    /**
+     * 读取趋势房源，直接返回最近一次刷新的结果。
+     *
+     * @param window 时间窗口
+     * @param city   城市，为空时返回全局排行
+     * @param limit  返回数量上限
+     * @return 趋势房源列表，尚无数据时返回空列表
+     */
+    public List<Property> getTrending(Window window, String city, int limit) {
+        String scope = city == null || city.isBlank() ? GLOBAL_SCOPE : normalizeCity(city);
+        List<Property> ranked = rankings.getOrDefault(rankingKey(window, scope), Collections.emptyList());
+        return ranked.size() > limit ? ranked.subList(0, Math.max(limit, 0)) : ranked;
+    }
+
+    @Scheduled(fixedDelayString = "${trending.refresh-interval-ms:60000}",
+            initialDelayString = "${trending.refresh-interval-ms:60000}")
+    public void refresh() {
+        long now = System.currentTimeMillis();
+        Map<String, List<Long>> rankedIds = new HashMap<>();
+        Set<Long> allIds = new HashSet<>();
+
+        for (Window window : Window.values()) {
+            WindowSummary summary = mergeWindow(window, now);
+            if (clusterMergeEnabled) {
+                publishAndMergePeers(window, summary);
+            }
+            for (Map.Entry<String, SpaceSaving> entry : summary.scopes.entrySet()) {
+                List<Long> ids = entry.getValue().top(SUMMARY_CAPACITY).stream()
+                        .sorted(Comparator.comparingLong((SpaceSaving.Entry e) ->
+                                Math.min(e.getCount(), summary.sketch.estimate(e.getKey()))).reversed())
+                        .limit(MAX_RESULTS)
+                        .map(SpaceSaving.Entry::getKey)
+                        .collect(Collectors.toList());
+                rankedIds.put(rankingKey(window, entry.getKey()), ids);
+                allIds.addAll(ids);
+            }
+        }
+
+        Map<Long, Property> properties = allIds.isEmpty()
+                ? Collections.emptyMap()
+                : propertyMapper.selectBatchIds(allIds).stream()
+                .filter(p -> Boolean.TRUE.equals(p.getAvailable()))
+                .collect(Collectors.toMap(Property::getId, Function.identity(), (a, b) -> a));
+
+        Map<String, List<Property>> next = new HashMap<>();
+        rankedIds.forEach((key, ids) -> next.put(key, Collections.unmodifiableList(ids.stream()
+                .map(properties::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()))));
+        rankings = next;
+    }
+
+    private void record(Property property, long weight) {
+        if (property == null || property.getId() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        String city = normalizeCity(property.getCity());
+        for (Window window : Window.values()) {
+            Bucket bucket = currentBucket(window, now);
+            bucket.sketch.add(property.getId(), weight);
+            bucket.scope(GLOBAL_SCOPE).offer(property.getId(), weight);
+            if (city != null) {
+                bucket.scope(city).offer(property.getId(), weight);
+            }
+        }
+    }
+
+    private Bucket currentBucket(Window window, long now) {
+        AtomicReferenceArray<Bucket> ring = rings.get(window);
+        long epoch = now / window.bucketMillis;
+        int slot = (int) (epoch % window.bucketCount);
+        while (true) {
+            Bucket bucket = ring.get(slot);
+            if (bucket != null && bucket.epoch >= epoch) {
+                // 时间戳稍旧的写入直接落到已轮转的新桶，避免把新桶换回旧桶
+                return bucket;
+            }
+            // 桶已过期（或尚未创建）：用新桶原子替换，竞争失败的线程重读即可
+            Bucket fresh = new Bucket(epoch);
+            if (ring.compareAndSet(slot, bucket, fresh)) {
+                return fresh;
+            }
+        }
+    }
+
+    private WindowSummary mergeWindow(Window window, long now) {
+        AtomicReferenceArray<Bucket> ring = rings.get(window);
+        long currentEpoch = now / window.bucketMillis;
+        WindowSummary summary = new WindowSummary();
+        for (int i = 0; i < ring.length(); i++) {
+            Bucket bucket = ring.get(i);
+            if (bucket == null || currentEpoch - bucket.epoch >= window.bucketCount) {
+                continue;
+            }
+            summary.sketch.merge(bucket.sketch);
+            bucket.scopes.forEach((scope, hh) -> summary.scope(scope).merge(hh));
+        }
+        return summary;
+    }
+
+    /**
+     * 将本节点的窗口摘要写入 Redis，并合并其他节点最近发布的摘要。
+     * Redis 不可用时只使用本节点数据。
+     */
+    private void publishAndMergePeers(Window window, WindowSummary local) {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        String hashKey = REDIS_KEY_PREFIX + window.code;
+        try {
+            Map<String, String> fields = new HashMap<>();
+            fields.put(resolveNodeId(), local.encode(System.currentTimeMillis()));
+            stringRedisTemplate.opsForHash().putAll(hashKey, fields);
+            stringRedisTemplate.expire(hashKey, Duration.ofMillis(window.bucketMillis * window.bucketCount));
+
+            long staleBefore = System.currentTimeMillis() - window.bucketMillis * window.bucketCount;
+            for (Map.Entry<Object, Object> entry : stringRedisTemplate.opsForHash().entries(hashKey).entrySet()) {
+                if (resolveNodeId().equals(entry.getKey())) {
+                    continue;
+                }
+                WindowSummary peer = WindowSummary.decode((String) entry.getValue(), staleBefore);
+                if (peer != null) {
+                    local.sketch.merge(peer.sketch);
+                    peer.scopes.forEach((scope, hh) -> local.scope(scope).merge(hh));
+                }
+            }
+        } catch (Exception e) {
+            log.debug("Failed to exchange trending snapshot for window {} via Redis", window.code, e);
+        }
+    }
+
+    private String resolveNodeId() {
+        if (nodeId == null) {
+            nodeId = configuredNodeId == null || configuredNodeId.isBlank()
+                    ? UUID.randomUUID().toString()
+                    : configuredNodeId;
+        }
+        return nodeId;
+    }
+
+    private static String rankingKey(Window window, String scope) {
+        return window.code + "|" + scope;
+    }
+
+    private static String normalizeCity(String city) {
+        return city == null || city.isBlank() ? null : city.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static final class Bucket {
+        private final long epoch;
+        private final CountMinSketch sketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        private final Map<String, SpaceSaving> scopes = new ConcurrentHashMap<>();
+
+        Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+
+        SpaceSaving scope(String scope) {
+            return scopes.computeIfAbsent(scope, key -> new SpaceSaving(SUMMARY_CAPACITY));
+        }
+    }
+
+    /**
+     * 一个窗口合并后的摘要，也是跨节点交换的序列化单元。
+     */
+    private static final class WindowSummary {
+        private final CountMinSketch sketch = new CountMinSketch(SKETCH_DEPTH, SKETCH_WIDTH);
+        private final Map<String, SpaceSaving> scopes = new HashMap<>();
+
+        SpaceSaving scope(String scope) {
+            return scopes.computeIfAbsent(scope, key -> new SpaceSaving(SUMMARY_CAPACITY));
+        }
+
+        String encode(long publishedAt) {
+            List<byte[]> parts = new ArrayList<>();
+            byte[] sketchBytes = sketch.toBytes();
+            int total = 8 + 4 + 4 + sketchBytes.length + 4;
+            for (Map.Entry<String, SpaceSaving> entry : scopes.entrySet()) {
+                byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+                byte[] summary = entry.getValue().toBytes();
+                parts.add(name);
+                parts.add(summary);
+                total += 8 + name.length + summary.length;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(total);
+            buffer.putLong(publishedAt);
+            buffer.putInt(sketchBytes.length).put(sketchBytes);
+            buffer.putInt(scopes.size());
+            for (int i = 0; i < parts.size(); i += 2) {
+                buffer.putInt(parts.get(i).length).put(parts.get(i));
+                buffer.putInt(parts.get(i + 1).length).put(parts.get(i + 1));
+            }
+            return Base64.getEncoder().encodeToString(buffer.array());
+        }
+
+        static WindowSummary decode(String encoded, long staleBefore) {
+            ByteBuffer buffer = ByteBuffer.wrap(Base64.getDecoder().decode(encoded));
+            if (buffer.getLong() < staleBefore) {
+                return null;
+            }
+            WindowSummary summary = new WindowSummary();
+            byte[] sketchBytes = new byte[buffer.getInt()];
+            buffer.get(sketchBytes);
+            summary.sketch.merge(CountMinSketch.fromBytes(sketchBytes));
+            int scopeCount = buffer.getInt();
+            for (int i = 0; i < scopeCount; i++) {
+                byte[] name = new byte[buffer.getInt()];
+                buffer.get(name);
+                byte[] hh = new byte[buffer.getInt()];
+                buffer.get(hh);
+                summary.scopes.put(new String(name, StandardCharsets.UTF_8), SpaceSaving.fromBytes(hh));
+            }
+            return summary;
+        }
+    }
+}
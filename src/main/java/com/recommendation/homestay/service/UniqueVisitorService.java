@@ -0,0 +1,310 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.support.HyperLogLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 房源每日独立访客估计
+ *
+ * 每个 房源 × 日期 一个 HyperLogLog（Redis 键 uv:{房源ID}:{yyyyMMdd}，最多约 12 KB），
+ * 访客为登录用户ID，未登录时为客户端 IP。浏览时先写入本节点当天的 {@link HyperLogLog}：
+ * 本地估计器与 Redis 逐位一致，寄存器没有变大的重复浏览（刷新）不再发往 Redis；
+ * 其余访客暂存后每隔 uv.flush-interval-ms 用一次管道批量 PFADD，各节点写入同一个键即完成集群合并。
+ * 寄存器变大的次数随访客数只呈对数增长，暂存量在 Redis 暂时不可用时也不会无限增长。
+ *
+ * 查询单日读 PFCOUNT；多个房源或多天的去重总数先 PFMERGE 到临时键再计数。Redis 不可用时
+ * 只能返回本节点当天的估计。键保留 uv.retention-days 天，更早的日期没有数据。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class UniqueVisitorService {
+
+    private static final Logger log = LoggerFactory.getLogger(UniqueVisitorService.class);
+    private static final String KEY_PREFIX = "uv:";
+    private static final DateTimeFormatter KEY_DATE = DateTimeFormatter.BASIC_ISO_DATE;
+
+    @Autowired(required = false)
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Value("${uv.retention-days:90}")
+    private int retentionDays;
+
+    @Value("${uv.max-merge-keys:5000}")
+    private int maxMergeKeys;
+
+    /**
+     * 本节点当天的估计器；日期变化后旧的一天在下次写回后丢弃
+     */
+    private volatile Day today = new Day(LocalDate.now());
+    private volatile Day previous;
+    private final Object dayLock = new Object();
+
+    /**
+     * 记录一次浏览
+     *
+     * @return 是否可能是当天的新访客（本地估计器有寄存器变大）
+     */
+    public boolean record(Long propertyId, String visitor) {
+        Day day = currentDay();
+        Visitors visitors = day.properties.computeIfAbsent(propertyId, id -> new Visitors());
+        synchronized (visitors) {
+            if (!visitors.sketch.add(visitor)) {
+                return false;
+            }
+            if (stringRedisTemplate != null) {
+                visitors.pending.add(visitor);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * [from, to) 内若干房源的去重访客估计；超出保留期的日期不计入。
+     * 涉及的键超过 uv.max-merge-keys 或没有任何可用数据时返回 null
+     */
+    public Long countUnion(Collection<Long> propertyIds, LocalDate from, LocalDate to) {
+        LocalDate start = from.isBefore(oldestRetained()) ? oldestRetained() : from;
+        LocalDate end = to.isAfter(LocalDate.now().plusDays(1)) ? LocalDate.now().plusDays(1) : to;
+        if (!start.isBefore(end) || propertyIds.isEmpty()) {
+            return null;
+        }
+        if (stringRedisTemplate == null) {
+            return countLocal(propertyIds, start, end);
+        }
+        List<String> keys = keys(propertyIds, start, end);
+        if (keys.size() > maxMergeKeys) {
+            return null;
+        }
+        try {
+            if (keys.size() == 1) {
+                return stringRedisTemplate.opsForHyperLogLog().size(keys.get(0));
+            }
+            String merged = KEY_PREFIX + "tmp:" + UUID.randomUUID();
+            List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    ops.opsForHyperLogLog().union(merged, keys.toArray(new String[0]));
+                    ops.opsForHyperLogLog().size(merged);
+                    ops.delete(merged);
+                    return null;
+                }
+            });
+            return (Long) results.get(1);
+        } catch (Exception e) {
+            log.warn("Failed to read unique visitors from Redis, using local estimates", e);
+            return countLocal(propertyIds, start, end);
+        }
+    }
+
+    /**
+     * 每个区间 [from, to) 内若干房源的去重访客估计，区间之间用一次管道查询；
+     * 某个区间没有可用数据时对应位置为 null
+     */
+    public List<Long> countPeriods(Collection<Long> propertyIds, List<LocalDate[]> periods) {
+        List<Long> counts = new ArrayList<>(periods.size());
+        if (stringRedisTemplate == null) {
+            for (LocalDate[] period : periods) {
+                counts.add(countLocal(propertyIds, period[0], period[1]));
+            }
+            return counts;
+        }
+        List<List<String>> periodKeys = new ArrayList<>(periods.size());
+        int totalKeys = 0;
+        for (LocalDate[] period : periods) {
+            LocalDate start = period[0].isBefore(oldestRetained()) ? oldestRetained() : period[0];
+            LocalDate end = period[1].isAfter(LocalDate.now().plusDays(1)) ? LocalDate.now().plusDays(1) : period[1];
+            List<String> keys = start.isBefore(end) ? keys(propertyIds, start, end) : List.of();
+            periodKeys.add(keys);
+            totalKeys += keys.size();
+        }
+        if (totalKeys == 0 || totalKeys > maxMergeKeys) {
+            periodKeys.forEach(keys -> counts.add(null));
+            return counts;
+        }
+        try {
+            List<Object> results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (List<String> keys : periodKeys) {
+                        if (!keys.isEmpty()) {
+                            // PFCOUNT 多个键时在服务端合并后计数，不修改原键
+                            ops.opsForHyperLogLog().size(keys.toArray(new String[0]));
+                        }
+                    }
+                    return null;
+                }
+            });
+            int next = 0;
+            for (List<String> keys : periodKeys) {
+                counts.add(keys.isEmpty() ? null : (Long) results.get(next++));
+            }
+        } catch (Exception e) {
+            log.warn("Failed to read unique visitor series from Redis", e);
+            counts.clear();
+            periodKeys.forEach(keys -> counts.add(null));
+        }
+        return counts;
+    }
+
+    /**
+     * 把暂存的新访客批量 PFADD 到 Redis；失败时留到下次
+     */
+    @Scheduled(fixedDelayString = "${uv.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        if (stringRedisTemplate == null) {
+            return;
+        }
+        Day old = previous;
+        Map<String, List<String>> batch = new HashMap<>();
+        Map<Visitors, List<String>> drained = new HashMap<>();
+        if (old != null) {
+            drain(old, batch, drained);
+        }
+        drain(today, batch, drained);
+        if (batch.isEmpty()) {
+            if (old != null) {
+                previous = null;
+            }
+            return;
+        }
+        Duration ttl = Duration.ofDays(retentionDays);
+        try {
+            stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    batch.forEach((key, visitors) -> {
+                        ops.opsForHyperLogLog().add(key, visitors.toArray(new String[0]));
+                        ops.expire(key, ttl);
+                    });
+                    return null;
+                }
+            });
+            if (old != null) {
+                previous = null;
+            }
+        } catch (Exception e) {
+            log.warn("Failed to flush unique visitors of {} property-days, retrying on the next flush", batch.size(), e);
+            drained.forEach((visitors, values) -> {
+                synchronized (visitors) {
+                    visitors.pending.addAll(values);
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void drain(Day day, Map<String, List<String>> batch, Map<Visitors, List<String>> drained) {
+        day.properties.forEach((propertyId, visitors) -> {
+            List<String> values;
+            synchronized (visitors) {
+                if (visitors.pending.isEmpty()) {
+                    return;
+                }
+                values = visitors.pending;
+                visitors.pending = new ArrayList<>();
+            }
+            batch.put(key(propertyId, day.date), values);
+            drained.put(visitors, values);
+        });
+    }
+
+    private Day currentDay() {
+        Day day = today;
+        LocalDate now = LocalDate.now();
+        if (day.date.equals(now)) {
+            return day;
+        }
+        synchronized (dayLock) {
+            if (!today.date.equals(now)) {
+                // 旧的一天保留到下一次写回完成
+                previous = today;
+                today = new Day(now);
+            }
+            return today;
+        }
+    }
+
+    private Long countLocal(Collection<Long> propertyIds, LocalDate from, LocalDate to) {
+        Day day = today;
+        if (day.date.isBefore(from) || !day.date.isBefore(to)) {
+            return null;
+        }
+        HyperLogLog union = new HyperLogLog();
+        for (Long propertyId : propertyIds) {
+            Visitors visitors = day.properties.get(propertyId);
+            if (visitors != null) {
+                synchronized (visitors) {
+                    union.merge(visitors.sketch);
+                }
+            }
+        }
+        return union.estimate();
+    }
+
+    private List<String> keys(Collection<Long> propertyIds, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate date = from; date.isBefore(to); date = date.plusDays(1)) {
+            for (Long propertyId : propertyIds) {
+                keys.add(key(propertyId, date));
+            }
+        }
+        return keys;
+    }
+
+    private LocalDate oldestRetained() {
+        return LocalDate.now().minusDays(retentionDays - 1L);
+    }
+
+    private static String key(Long propertyId, LocalDate date) {
+        return KEY_PREFIX + propertyId + ":" + KEY_DATE.format(date);
+    }
+
+    private static final class Day {
+        private final LocalDate date;
+        private final Map<Long, Visitors> properties = new ConcurrentHashMap<>();
+
+        private Day(LocalDate date) {
+            this.date = date;
+        }
+    }
+
+    /**
+     * 一个房源当天的本地估计器与尚未写入 Redis 的新访客
+     */
+    private static final class Visitors {
+        private final HyperLogLog sketch = new HyperLogLog();
+        private List<String> pending = new ArrayList<>();
+    }
+}
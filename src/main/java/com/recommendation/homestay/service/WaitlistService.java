@@ -0,0 +1,291 @@
+package com.recommendation.homestay.service;
+
+import com.recommendation.homestay.dto.WaitlistRequest;
+import com.recommendation.homestay.entity.Property;
+import com.recommendation.homestay.entity.WaitlistEntry;
+import com.recommendation.homestay.event.OrderEvent;
+import com.recommendation.homestay.mapper.PropertyMapper;
+import com.recommendation.homestay.mapper.WaitlistMapper;
+import com.recommendation.homestay.support.AfterCommit;
+import com.recommendation.homestay.support.IntervalTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 满房候补
+ *
+ * 用户只能为当前无法预订的日期登记候补。WAITING 状态的候补按房源放进内存区间树（键为入住区间），
+ * 订单取消、退订审核通过或待支付超时释放夜晚后，由订单事件消费者按释放的区间查出重叠的候补，
+ * 再逐条用房态日历确认整段是否已经可订，可订的一条 UPDATE 标记为 NOTIFIED 并记录通知时间。
+ * 用户在“我的候补”页面看到可以预订的候补，顶部导航按通知时间提示上次查看之后新增的通知。
+ * 每次释放的开销只与该房源命中的候补数有关，不扫描候补表。
+ *
+ * 启动时和定时重建时从数据库加载尚未入住的 WAITING 候补（同时把入住日已过的标记为 EXPIRED），
+ * 纠正其他节点登记的候补；重建只替换在读取数据库之后没有再被修改过的房源索引。
+ *
+ * @author Homestay Recommendation System
+ */
+@Service
+public class WaitlistService {
+
+    private static final Logger log = LoggerFactory.getLogger(WaitlistService.class);
+
+    @Autowired
+    private WaitlistMapper waitlistMapper;
+
+    @Autowired
+    private PropertyMapper propertyMapper;
+
+    @Autowired
+    private AvailabilityCalendar availabilityCalendar;
+
+    @Value("${waitlist.max-per-user:20}")
+    private int maxPerUser;
+
+    @Value("${waitlist.max-nights:30}")
+    private int maxNights;
+
+    @Value("${waitlist.batch-size:1000}")
+    private int batchSize;
+
+    private final Map<Long, PropertyIndex> indexes = new ConcurrentHashMap<>();
+    private final AtomicLong mutations = new AtomicLong();
+
+    /**
+     * 登记候补；所选日期仍可预订时拒绝，提示直接下单
+     */
+    @Transactional
+    public WaitlistEntry join(WaitlistRequest request, Long userId) {
+        Property property = propertyMapper.selectById(request.getPropertyId());
+        if (property == null) {
+            throw new RuntimeException("未找到房源");
+        }
+        if (!property.getAvailable()) {
+            throw new RuntimeException("房源不可用");
+        }
+        LocalDate checkIn = request.getCheckInDate();
+        LocalDate checkOut = request.getCheckOutDate();
+        if (checkIn.isBefore(LocalDate.now())) {
+            throw new RuntimeException("入住日期不能早于当前日期");
+        }
+        long nights = ChronoUnit.DAYS.between(checkIn, checkOut);
+        if (nights < 1) {
+            throw new RuntimeException("最少预订1晚");
+        }
+        if (nights > maxNights) {
+            throw new RuntimeException("候补最多" + maxNights + "晚");
+        }
+        if (property.getMaxGuests() != null && property.getMaxGuests() > 0
+                && request.getGuestCount() > property.getMaxGuests()) {
+            throw new RuntimeException("入住人数超过房源可容纳人数");
+        }
+        if (availabilityCalendar.hasCapacity(property, checkIn, checkOut, request.getGuestCount())) {
+            throw new RuntimeException("所选日期仍可预订，请直接下单");
+        }
+        if (waitlistMapper.countDuplicate(userId, property.getId(), checkIn, checkOut) > 0) {
+            throw new RuntimeException("已在该日期的候补名单中");
+        }
+        if (waitlistMapper.countWaitingByUser(userId) >= maxPerUser) {
+            throw new RuntimeException("候补数量过多，请先取消已有候补");
+        }
+
+        WaitlistEntry entry = new WaitlistEntry();
+        entry.setUserId(userId);
+        entry.setPropertyId(property.getId());
+        entry.setCheckInDate(checkIn);
+        entry.setCheckOutDate(checkOut);
+        entry.setGuestCount(request.getGuestCount());
+        entry.setStatus(WaitlistEntry.WaitlistStatus.WAITING);
+        waitlistMapper.insert(entry);
+        AfterCommit.run(() -> index(entry));
+        return entry;
+    }
+
+    /**
+     * 用户的候补记录（最近 100 条），附带房源信息
+     */
+    public List<WaitlistEntry> getUserWaitlist(Long userId) {
+        List<WaitlistEntry> entries = waitlistMapper.findByUser(userId, 100);
+        Set<Long> propertyIds = entries.stream().map(WaitlistEntry::getPropertyId).collect(Collectors.toSet());
+        if (!propertyIds.isEmpty()) {
+            Map<Long, Property> properties = propertyMapper.selectBatchIds(propertyIds).stream()
+                    .collect(Collectors.toMap(Property::getId, Function.identity()));
+            entries.forEach(entry -> entry.setProperty(properties.get(entry.getPropertyId())));
+        }
+        return entries;
+    }
+
+    /**
+     * 取消候补
+     */
+    @Transactional
+    public void cancel(Long entryId, Long userId) {
+        WaitlistEntry entry = waitlistMapper.selectById(entryId);
+        if (entry == null || !entry.getUserId().equals(userId) || waitlistMapper.cancel(entryId, userId) == 0) {
+            throw new RuntimeException("未找到等待中的候补");
+        }
+        AfterCommit.run(() -> unindex(entry));
+    }
+
+    /**
+     * 订单释放夜晚后通知可以预订的候补（由订单事件消费者调用，事件已在事务提交后发布）
+     *
+     * @return 标记为已通知的候补数
+     */
+    public int onNightsReleased(List<OrderEvent> events) {
+        Map<Long, List<OrderEvent>> byProperty = new LinkedHashMap<>();
+        for (OrderEvent event : events) {
+            if (event.getPropertyId() != null && indexes.containsKey(event.getPropertyId())) {
+                byProperty.computeIfAbsent(event.getPropertyId(), id -> new ArrayList<>()).add(event);
+            }
+        }
+        if (byProperty.isEmpty()) {
+            return 0;
+        }
+        Map<Long, Property> properties = propertyMapper.selectBatchIds(byProperty.keySet()).stream()
+                .collect(Collectors.toMap(Property::getId, Function.identity()));
+
+        List<WaitlistEntry> ready = new ArrayList<>();
+        byProperty.forEach((propertyId, released) -> {
+            Property property = properties.get(propertyId);
+            if (property == null) {
+                return;
+            }
+            Set<WaitlistEntry> candidates = new HashSet<>();
+            for (OrderEvent event : released) {
+                candidates.addAll(overlapping(propertyId,
+                        event.getCheckInDate().toEpochDay(), event.getCheckOutDate().toEpochDay()));
+            }
+            for (WaitlistEntry entry : candidates) {
+                if (availabilityCalendar.hasCapacity(property, entry.getCheckInDate(), entry.getCheckOutDate(),
+                        entry.getGuestCount())) {
+                    ready.add(entry);
+                }
+            }
+        });
+        if (ready.isEmpty()) {
+            return 0;
+        }
+        int notified = waitlistMapper.markNotified(ready.stream().map(WaitlistEntry::getId).collect(Collectors.toList()));
+        ready.forEach(this::unindex);
+        log.info("Waitlist: {} of {} matching entries notified after {} released stays",
+                notified, ready.size(), events.size());
+        return notified;
+    }
+
+    /**
+     * 从数据库重建候补索引
+     */
+    @Scheduled(fixedDelayString = "${waitlist.rebuild-interval-ms:600000}",
+            initialDelayString = "${waitlist.initial-delay-ms:0}")
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        LocalDate today = LocalDate.now();
+        int expired;
+        Map<Long, List<WaitlistEntry>> loaded = new HashMap<>();
+        long version = mutations.get();
+        try {
+            expired = waitlistMapper.expireStarted(today);
+            long afterId = 0;
+            while (true) {
+                List<WaitlistEntry> page = waitlistMapper.findWaiting(today, afterId, batchSize);
+                for (WaitlistEntry entry : page) {
+                    loaded.computeIfAbsent(entry.getPropertyId(), id -> new ArrayList<>()).add(entry);
+                }
+                if (page.size() < batchSize) {
+                    break;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } catch (Exception e) {
+            log.warn("Waitlist rebuild failed, keeping the current index", e);
+            return;
+        }
+
+        int total = 0;
+        Set<Long> propertyIds = new HashSet<>(indexes.keySet());
+        propertyIds.addAll(loaded.keySet());
+        for (Long propertyId : propertyIds) {
+            List<WaitlistEntry> entries = loaded.get(propertyId);
+            indexes.compute(propertyId, (id, current) -> {
+                if (current != null && current.version > version) {
+                    // 读取数据库之后有过增量修改，保留当前索引，下次重建再纠正
+                    return current;
+                }
+                if (entries == null) {
+                    return null;
+                }
+                PropertyIndex rebuilt = new PropertyIndex(version);
+                entries.forEach(rebuilt::add);
+                return rebuilt;
+            });
+            total += entries == null ? 0 : entries.size();
+        }
+        log.info("Waitlist index rebuilt: {} waiting entries on {} properties, {} expired in {} ms",
+                total, loaded.size(), expired, System.currentTimeMillis() - start);
+    }
+
+    private void index(WaitlistEntry entry) {
+        indexes.compute(entry.getPropertyId(), (id, index) -> {
+            if (index == null) {
+                index = new PropertyIndex(mutations.incrementAndGet());
+            } else {
+                index.version = mutations.incrementAndGet();
+            }
+            index.add(entry);
+            return index;
+        });
+    }
+
+    private void unindex(WaitlistEntry entry) {
+        indexes.computeIfPresent(entry.getPropertyId(), (id, index) -> {
+            index.version = mutations.incrementAndGet();
+            index.tree.remove(entry.getCheckInDate().toEpochDay(), entry.getCheckOutDate().toEpochDay(), entry.getId());
+            return index;
+        });
+    }
+
+    private List<WaitlistEntry> overlapping(Long propertyId, long from, long to) {
+        List<WaitlistEntry> result = new ArrayList<>();
+        indexes.computeIfPresent(propertyId, (id, index) -> {
+            result.addAll(index.tree.overlapping(from, to));
+            return index;
+        });
+        return result;
+    }
+
+    /**
+     * 单个房源的候补区间树，只在 ConcurrentHashMap 的 compute 中读写
+     */
+    private static final class PropertyIndex {
+        private final IntervalTree<WaitlistEntry> tree = new IntervalTree<>();
+        private long version;
+
+        private PropertyIndex(long version) {
+            this.version = version;
+        }
+
+        private void add(WaitlistEntry entry) {
+            tree.add(entry.getCheckInDate().toEpochDay(), entry.getCheckOutDate().toEpochDay(), entry.getId(), entry);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.recommendation.homestay.support;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 事务提交后执行回调
+ *
+ * 内存状态（日历、缓存、事件等）只能反映已提交的数据：在事务内调用时回调推迟到提交之后执行，
+ * 事务回滚则不执行；没有活动事务时立即执行。
+ *
+ * @author Homestay Recommendation System
+ */
+public final class AfterCommit {
+
+    private AfterCommit() {
+    }
+
+    public static void run(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.recommendation.homestay.support;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count-Min 频率草图
+ *
+ * 以 depth × width 的计数矩阵估算 long 键的出现次数，估计值只会偏大不会偏小。
+ * 写入无锁（AtomicLongArray），同尺寸的草图可直接逐格相加合并，便于跨时间桶与跨节点汇总。
+ *
+ * @author Homestay Recommendation System
+ */
+public class CountMinSketch {
+
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L,
+            0xFF51AFD7ED558CCDL, 0xC4CEB9FE1A85EC53L, 0x94D049BB133111EBL, 0xBF58476D1CE4E5B9L
+    };
+
+    private final int depth;
+    private final int width;
+    private final int mask;
+    private final AtomicLongArray table;
+
+    /**
+     * @param depth 哈希行数（1-8），越大误判概率越低
+     * @param width 每行宽度，会向上取整为 2 的幂，越大误差越小
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("depth 必须在 1 到 " + SEEDS.length + " 之间");
+        }
+        if (width < 1) {
+            throw new IllegalArgumentException("width 必须大于 0");
+        }
+        int roundedWidth = Integer.highestOneBit(width);
+        if (roundedWidth < width) {
+            roundedWidth <<= 1;
+        }
+        this.depth = depth;
+        this.width = roundedWidth;
+        this.mask = this.width - 1;
+        this.table = new AtomicLongArray(depth * this.width);
+    }
+
+    public void add(long key, long count) {
+        for (int row = 0; row < depth; row++) {
+            table.addAndGet(row * width + index(key, row), count);
+        }
+    }
+
+    public long estimate(long key) {
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            min = Math.min(min, table.get(row * width + index(key, row)));
+        }
+        return min;
+    }
+
+    /**
+     * 将另一个同尺寸草图的计数累加到当前草图。
+     */
+    public void merge(CountMinSketch other) {
+        if (other.depth != depth || other.width != width) {
+            throw new IllegalArgumentException("草图尺寸不一致，无法合并");
+        }
+        for (int i = 0; i < table.length(); i++) {
+            long value = other.table.get(i);
+            if (value != 0) {
+                table.addAndGet(i, value);
+            }
+        }
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + table.length() * 8);
+        buffer.putInt(depth).putInt(width);
+        for (int i = 0; i < table.length(); i++) {
+            buffer.putLong(table.get(i));
+        }
+        return buffer.array();
+    }
+
+    public static CountMinSketch fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        CountMinSketch sketch = new CountMinSketch(buffer.getInt(), buffer.getInt());
+        for (int i = 0; i < sketch.table.length(); i++) {
+            sketch.table.set(i, buffer.getLong());
+        }
+        return sketch;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    private int index(long key, int row) {
+        long h = (key + SEEDS[row]) * 0xBF58476D1CE4E5B9L;
+        h ^= h >>> 31;
+        h *= 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return (int) h & mask;
+    }
+}
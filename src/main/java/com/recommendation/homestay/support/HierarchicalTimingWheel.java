@@ -0,0 +1,243 @@
+package com.recommendation.homestay.support;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 分层时间轮
+ *
+ * 第 0 层每格一个 tick，第 i 层每格 wheelSize^i 个 tick。任务按到期 tick 放入能容纳其剩余时间的
+ * 最低一层；高层的格子转到时整格取出重新放入更低的层（级联），最终在第 0 层到期执行。
+ * 新增和取消都是 O(1)，推进一个 tick 只处理到期和需要级联的那一格，与任务总数无关，
+ * 适合大量“几分钟到几天后”到期、且大多会被提前取消的超时任务。超出最高层范围的任务先放在
+ * 最高层最远的格子，转到时再级联。
+ *
+ * 由一个守护线程按 tick 推进，到期任务交给 executor 执行，避免耗时任务拖慢时间轮。
+ *
+ * @author Homestay Recommendation System
+ */
+public class HierarchicalTimingWheel implements AutoCloseable {
+
+    private final long tickMillis;
+    private final int wheelSize;
+    private final int levels;
+    private final long[] levelTicks;
+    private final List<List<Set<Timeout>>> wheels;
+    private final Executor executor;
+    private final LongSupplier clock;
+    private final long startMillis;
+    private final Thread ticker;
+
+    private long currentTick;
+    private int pending;
+    private volatile boolean running = true;
+
+    /**
+     * @param name       推进线程名称
+     * @param tickMillis 每个 tick 的毫秒数
+     * @param wheelSize  每层格数
+     * @param levels     层数
+     * @param executor   到期任务的执行器
+     */
+    public HierarchicalTimingWheel(String name, long tickMillis, int wheelSize, int levels, Executor executor) {
+        this(name, tickMillis, wheelSize, levels, executor, System::currentTimeMillis, true);
+    }
+
+    /**
+     * @param clock       毫秒时钟
+     * @param startTicker 是否启动推进线程；不启动时由调用方用 {@link #tick()} 手动推进（测试用）
+     */
+    HierarchicalTimingWheel(String name, long tickMillis, int wheelSize, int levels, Executor executor,
+                            LongSupplier clock, boolean startTicker) {
+        if (tickMillis < 1 || wheelSize < 2 || levels < 1) {
+            throw new IllegalArgumentException("tickMillis 必须大于 0，wheelSize 至少为 2，levels 至少为 1");
+        }
+        this.tickMillis = tickMillis;
+        this.wheelSize = wheelSize;
+        this.levels = levels;
+        this.levelTicks = new long[levels + 1];
+        this.levelTicks[0] = 1;
+        for (int i = 1; i <= levels; i++) {
+            this.levelTicks[i] = Math.multiplyExact(levelTicks[i - 1], wheelSize);
+        }
+        this.wheels = new ArrayList<>(levels);
+        for (int level = 0; level < levels; level++) {
+            List<Set<Timeout>> slots = new ArrayList<>(wheelSize);
+            for (int slot = 0; slot < wheelSize; slot++) {
+                slots.add(new LinkedHashSet<>());
+            }
+            wheels.add(slots);
+        }
+        this.executor = executor;
+        this.clock = clock;
+        this.startMillis = clock.getAsLong();
+        this.ticker = new Thread(this::run, name);
+        this.ticker.setDaemon(true);
+        if (startTicker) {
+            this.ticker.start();
+        }
+    }
+
+    /**
+     * 在 deadlineMillis（毫秒时间戳）到期时执行 task；已过期的任务立即交给执行器
+     */
+    public Timeout schedule(long deadlineMillis, Runnable task) {
+        Timeout timeout = new Timeout(this, ceilTick(deadlineMillis), task);
+        boolean expired;
+        synchronized (this) {
+            expired = !place(timeout);
+            if (!expired) {
+                pending++;
+            }
+        }
+        if (expired) {
+            timeout.fire();
+        }
+        return timeout;
+    }
+
+    /**
+     * 尚未到期的任务数
+     */
+    public synchronized int size() {
+        return pending;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        ticker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long nextTickAt = startMillis + (currentTickSnapshot() + 1) * tickMillis;
+            long sleep = nextTickAt - clock.getAsLong();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+            }
+            tick();
+        }
+    }
+
+    /**
+     * 推进一个 tick 并执行到期任务
+     */
+    void tick() {
+        for (Timeout timeout : advance()) {
+            timeout.fire();
+        }
+    }
+
+    private synchronized long currentTickSnapshot() {
+        return currentTick;
+    }
+
+    /**
+     * 推进一个 tick：先由高到低级联转到的高层格子，再取出第 0 层到期的任务
+     */
+    private synchronized List<Timeout> advance() {
+        currentTick++;
+        for (int level = levels - 1; level >= 1; level--) {
+            if (currentTick % levelTicks[level] == 0) {
+                Set<Timeout> slot = wheels.get(level).get((int) ((currentTick / levelTicks[level]) % wheelSize));
+                List<Timeout> cascaded = new ArrayList<>(slot);
+                slot.clear();
+                for (Timeout timeout : cascaded) {
+                    timeout.slot = null;
+                    if (!place(timeout)) {
+                        // 级联后恰好到期的任务放回第 0 层当前格，与本 tick 的任务一起执行
+                        Set<Timeout> current = wheels.get(0).get((int) (currentTick % wheelSize));
+                        current.add(timeout);
+                        timeout.slot = current;
+                    }
+                }
+            }
+        }
+        Set<Timeout> slot = wheels.get(0).get((int) (currentTick % wheelSize));
+        List<Timeout> due = new ArrayList<>(slot);
+        slot.clear();
+        for (Timeout timeout : due) {
+            timeout.slot = null;
+        }
+        pending -= due.size();
+        return due;
+    }
+
+    /**
+     * 把任务放入合适的格子；已到期（不晚于当前 tick）时返回 false
+     */
+    private boolean place(Timeout timeout) {
+        long delta = timeout.deadlineTick - currentTick;
+        if (delta <= 0) {
+            return false;
+        }
+        int level = 0;
+        while (level < levels - 1 && delta >= levelTicks[level + 1]) {
+            level++;
+        }
+        long tick = Math.min(timeout.deadlineTick, currentTick + levelTicks[level + 1] - 1);
+        if (level > 0) {
+            // 高层格子在其起始 tick 级联，任务必须放在起始 tick 晚于当前的格子里
+            tick = Math.max(tick, (currentTick / levelTicks[level] + 1) * levelTicks[level]);
+        }
+        Set<Timeout> slot = wheels.get(level).get((int) ((tick / levelTicks[level]) % wheelSize));
+        slot.add(timeout);
+        timeout.slot = slot;
+        return true;
+    }
+
+    private long ceilTick(long deadlineMillis) {
+        long elapsed = deadlineMillis - startMillis;
+        return elapsed <= 0 ? 0 : (elapsed + tickMillis - 1) / tickMillis;
+    }
+
+    private synchronized boolean remove(Timeout timeout) {
+        if (timeout.slot == null) {
+            return false;
+        }
+        timeout.slot.remove(timeout);
+        timeout.slot = null;
+        pending--;
+        return true;
+    }
+
+    /**
+     * 已调度的任务，可在到期前取消
+     */
+    public static final class Timeout {
+        private final HierarchicalTimingWheel wheel;
+        private final long deadlineTick;
+        private final Runnable task;
+        private Set<Timeout> slot;
+
+        private Timeout(HierarchicalTimingWheel wheel, long deadlineTick, Runnable task) {
+            this.wheel = wheel;
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        /**
+         * 取消任务；已到期或已取消时返回 false
+         */
+        public boolean cancel() {
+            return wheel.remove(this);
+        }
+
+        private void fire() {
+            wheel.executor.execute(task);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+package com.recommendation.homestay.support;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 半开区间 [start, end) 的区间树
+ *
+ * 以 (start, end, id) 为键的 treap（优先级由 id 散列得到，结构与插入顺序无关），每个节点额外记录
+ * 子树内的最大 end。查询与 [from, to) 重叠的区间时，maxEnd 不超过 from 的子树整棵跳过，start 不小于
+ * to 的节点右侧整棵跳过，因此只会走到命中区间及其祖先路径上：插入、删除 O(log n)，
+ * 重叠查询 O(log n + m·log n)（m 为命中数），不随区间总数线性增长。
+ * 非线程安全，由调用方加锁。
+ *
+ * @param <V> 区间附带的值
+ * @author Homestay Recommendation System
+ */
+public class IntervalTree<V> {
+
+    private Node<V> root;
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * 加入区间；相同 (start, end, id) 的区间已存在时替换其值
+     */
+    public void add(long start, long end, long id, V value) {
+        if (end <= start) {
+            throw new IllegalArgumentException("区间结束必须大于开始");
+        }
+        if (replace(start, end, id, value)) {
+            return;
+        }
+        root = insert(root, new Node<>(start, end, id, value));
+        size++;
+    }
+
+    /**
+     * 移除区间，不存在时返回 false
+     */
+    public boolean remove(long start, long end, long id) {
+        int before = size;
+        root = remove(root, start, end, id);
+        return size < before;
+    }
+
+    /**
+     * 与 [from, to) 至少重叠一个点的全部区间的值，按 start 升序
+     */
+    public List<V> overlapping(long from, long to) {
+        List<V> result = new ArrayList<>();
+        if (from < to) {
+            collect(root, from, to, result);
+        }
+        return result;
+    }
+
+    private boolean replace(long start, long end, long id, V value) {
+        Node<V> node = root;
+        while (node != null) {
+            int cmp = compare(start, end, id, node);
+            if (cmp == 0) {
+                node.value = value;
+                return true;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return false;
+    }
+
+    private Node<V> insert(Node<V> node, Node<V> added) {
+        if (node == null) {
+            return added;
+        }
+        if (added.priority > node.priority) {
+            // 新节点优先级更高：把当前子树按键拆成两半挂到新节点下
+            split(node, added);
+            return update(added);
+        }
+        if (compare(added.start, added.end, added.id, node) < 0) {
+            node.left = insert(node.left, added);
+        } else {
+            node.right = insert(node.right, added);
+        }
+        return update(node);
+    }
+
+    /**
+     * 把 node 子树中键小于 pivot 的节点放到 pivot.left，其余放到 pivot.right
+     */
+    private void split(Node<V> node, Node<V> pivot) {
+        if (node == null) {
+            pivot.left = null;
+            pivot.right = null;
+            return;
+        }
+        if (compare(node.start, node.end, node.id, pivot) < 0) {
+            split(node.right, pivot);
+            node.right = pivot.left;
+            pivot.left = update(node);
+        } else {
+            split(node.left, pivot);
+            node.left = pivot.right;
+            pivot.right = update(node);
+        }
+    }
+
+    private Node<V> remove(Node<V> node, long start, long end, long id) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = compare(start, end, id, node);
+        if (cmp == 0) {
+            size--;
+            return merge(node.left, node.right);
+        }
+        if (cmp < 0) {
+            node.left = remove(node.left, start, end, id);
+        } else {
+            node.right = remove(node.right, start, end, id);
+        }
+        return update(node);
+    }
+
+    /**
+     * 合并两棵子树，left 中的键全部小于 right
+     */
+    private Node<V> merge(Node<V> left, Node<V> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private void collect(Node<V> node, long from, long to, List<V> result) {
+        if (node == null || node.maxEnd <= from) {
+            return;
+        }
+        collect(node.left, from, to, result);
+        if (node.start >= to) {
+            // 右子树的 start 更大，不可能重叠
+            return;
+        }
+        if (node.end > from) {
+            result.add(node.value);
+        }
+        collect(node.right, from, to, result);
+    }
+
+    private static <V> Node<V> update(Node<V> node) {
+        long maxEnd = node.end;
+        if (node.left != null) {
+            maxEnd = Math.max(maxEnd, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            maxEnd = Math.max(maxEnd, node.right.maxEnd);
+        }
+        node.maxEnd = maxEnd;
+        return node;
+    }
+
+    private static int compare(long start, long end, long id, Node<?> node) {
+        if (start != node.start) {
+            return Long.compare(start, node.start);
+        }
+        if (end != node.end) {
+            return Long.compare(end, node.end);
+        }
+        return Long.compare(id, node.id);
+    }
+
+    private static final class Node<V> {
+        private final long start;
+        private final long end;
+        private final long id;
+        private final int priority;
+        private V value;
+        private long maxEnd;
+        private Node<V> left;
+        private Node<V> right;
+
+        private Node(long start, long end, long id, V value) {
+            this.start = start;
+            this.end = end;
+            this.id = id;
+            this.value = value;
+            this.maxEnd = end;
+            // SplitMix64 终混，连续 ID 也能得到均匀分布的优先级
+            long h = id * 0x9E3779B97F4A7C15L;
+            h = (h ^ (h >>> 30)) * 0xBF58476D1CE4E5B9L;
+            h = (h ^ (h >>> 27)) * 0x94D049BB133111EBL;
+            this.priority = (int) (h ^ (h >>> 31));
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.recommendation.homestay.support;
+
+/**
+ * 支持区间加、区间最大值和单点查询的线段树
+ *
+ * 每个节点记录“整段待加值”和“子树最大值（含本节点待加值）”，区间加只在覆盖节点上累加，
+ * 查询时沿路径累计祖先的待加值，无需下推。区间加、区间最大值和单点查询都是 O(log n)。
+ * 非线程安全，由调用方加锁。
+ *
+ * @author Homestay Recommendation System
+ */
+public class MaxSegmentTree {
+
+    private final int size;
+    private final int[] max;
+    private final int[] pending;
+
+    public MaxSegmentTree(int size) {
+        if (size < 1) {
+            throw new IllegalArgumentException("size 必须大于 0");
+        }
+        this.size = size;
+        this.max = new int[4 * size];
+        this.pending = new int[4 * size];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 为 [from, to) 区间内每个位置加上 delta，超出范围的部分被忽略
+     */
+    public void add(int from, int to, int delta) {
+        int l = Math.max(from, 0);
+        int r = Math.min(to, size) - 1;
+        if (l <= r && delta != 0) {
+            add(1, 0, size - 1, l, r, delta);
+        }
+    }
+
+    /**
+     * [from, to) 区间内的最大值，区间为空时返回 0
+     */
+    public int max(int from, int to) {
+        int l = Math.max(from, 0);
+        int r = Math.min(to, size) - 1;
+        return l <= r ? max(1, 0, size - 1, l, r) : 0;
+    }
+
+    public int get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index);
+        }
+        int node = 1;
+        int lo = 0;
+        int hi = size - 1;
+        int value = 0;
+        while (lo < hi) {
+            value += pending[node];
+            int mid = (lo + hi) >>> 1;
+            if (index <= mid) {
+                node = 2 * node;
+                hi = mid;
+            } else {
+                node = 2 * node + 1;
+                lo = mid + 1;
+            }
+        }
+        return value + max[node];
+    }
+
+    private void add(int node, int lo, int hi, int l, int r, int delta) {
+        if (l <= lo && hi <= r) {
+            pending[node] += delta;
+            max[node] += delta;
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        if (l <= mid) {
+            add(2 * node, lo, mid, l, r, delta);
+        }
+        if (r > mid) {
+            add(2 * node + 1, mid + 1, hi, l, r, delta);
+        }
+        max[node] = Math.max(max[2 * node], max[2 * node + 1]) + pending[node];
+    }
+
+    private int max(int node, int lo, int hi, int l, int r) {
+        if (l <= lo && hi <= r) {
+            return max[node];
+        }
+        int mid = (lo + hi) >>> 1;
+        int result = Integer.MIN_VALUE;
+        if (l <= mid) {
+            result = max(2 * node, lo, mid, l, r);
+        }
+        if (r > mid) {
+            result = Math.max(result, max(2 * node + 1, mid + 1, hi, l, r));
+        }
+        return result + pending[node];
+    }
+}
@@ -0,0 +1,311 @@
+package com.recommendation.homestay.support;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 基于环形缓冲区的进程内事件总线（多生产者、多消费者广播）
+ *
+ * 生产者用 CAS 领取序号后写入对应槽位，再把序号写入 published 数组发布；每个消费者有独立线程和
+ * 独立的消费序号，按序读取连续已发布的事件，一次最多取 maxBatchSize 个交给处理器。
+ * 所有消费者都读过的槽位才会被覆盖：最慢的消费者落后一整圈时，生产者最多等待 publishTimeoutMillis，
+ * 仍无空位则放弃本次发布并计入 dropped（背压，不会无限占用内存或阻塞调用方）。
+ *
+ * 处理器抛出异常时按 retryBackoffMillis × 次数退避重试，超过 maxAttempts 次后记录错误并跳过该批，
+ * 不影响其他消费者。每个消费者的积压量（lag）等统计可随时读取。
+ *
+ * @param <E> 事件类型
+ * @author Homestay Recommendation System
+ */
+public class RingBufferEventBus<E> implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(RingBufferEventBus.class);
+
+    /**
+     * 批量事件处理器
+     */
+    @FunctionalInterface
+    public interface BatchHandler<E> {
+        void onBatch(List<E> events) throws Exception;
+    }
+
+    private final String name;
+    private final int capacity;
+    private final int mask;
+    private final Object[] entries;
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong dropped = new AtomicLong();
+    private final List<Worker> workers = new ArrayList<>();
+    private final int maxBatchSize;
+    private final int maxAttempts;
+    private final long retryBackoffMillis;
+    private final long publishTimeoutNanos;
+    private volatile boolean running = true;
+
+    /**
+     * @param name                 总线名称（消费者线程名前缀）
+     * @param bufferSize           环形缓冲区大小，向上取整为 2 的幂
+     * @param handlers             消费者名称到处理器的映射
+     * @param maxBatchSize         每批最多事件数
+     * @param maxAttempts          每批最多尝试次数
+     * @param retryBackoffMillis   重试退避基数
+     * @param publishTimeoutMillis 缓冲区满时发布的最长等待时间
+     */
+    public RingBufferEventBus(String name, int bufferSize, Map<String, BatchHandler<E>> handlers,
+                              int maxBatchSize, int maxAttempts, long retryBackoffMillis, long publishTimeoutMillis) {
+        if (bufferSize < 2 || maxBatchSize < 1 || maxAttempts < 1) {
+            throw new IllegalArgumentException("bufferSize 至少为 2，maxBatchSize 与 maxAttempts 至少为 1");
+        }
+        this.name = name;
+        this.capacity = Integer.highestOneBit(bufferSize - 1) << 1;
+        this.mask = capacity - 1;
+        this.entries = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+        this.maxBatchSize = maxBatchSize;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMillis = retryBackoffMillis;
+        this.publishTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(publishTimeoutMillis);
+        handlers.forEach((consumer, handler) -> workers.add(new Worker(consumer, handler)));
+        for (Worker worker : workers) {
+            worker.thread.start();
+        }
+    }
+
+    /**
+     * 发布事件；缓冲区已满且在超时时间内没有腾出空位时返回 false
+     */
+    public boolean publish(E event) {
+        if (!running) {
+            dropped.incrementAndGet();
+            return false;
+        }
+        if (workers.isEmpty()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + publishTimeoutNanos;
+        long sequence;
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            if (next - capacity > minimumConsumerSequence()) {
+                if (System.nanoTime() - deadline > 0) {
+                    dropped.incrementAndGet();
+                    return false;
+                }
+                LockSupport.parkNanos(50_000);
+                continue;
+            }
+            if (claimed.compareAndSet(current, next)) {
+                sequence = next;
+                break;
+            }
+        }
+        int index = (int) (sequence & mask);
+        entries[index] = event;
+        // volatile 写：消费者读到该序号时一定能看到上面写入的事件
+        published.set(index, sequence);
+        return true;
+    }
+
+    /**
+     * 当前各消费者的统计快照
+     */
+    public List<ConsumerStats> getStats() {
+        long head = claimed.get();
+        List<ConsumerStats> stats = new ArrayList<>(workers.size());
+        for (Worker worker : workers) {
+            stats.add(new ConsumerStats(worker.name, head - worker.sequence.get(), worker.processed.get(),
+                    worker.batches.get(), worker.retries.get(), worker.skipped.get()));
+        }
+        return Collections.unmodifiableList(stats);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 已发布的事件总数
+     */
+    public long getPublished() {
+        return claimed.get() + 1;
+    }
+
+    /**
+     * 因缓冲区满或总线已关闭而放弃的事件数
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * 停止接收新事件，等待消费者处理完已发布的事件（最多 timeoutMillis）
+     */
+    public void close(long timeoutMillis) {
+        running = false;
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        for (Worker worker : workers) {
+            try {
+                worker.thread.join(Math.max(deadline - System.currentTimeMillis(), 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (worker.thread.isAlive()) {
+                worker.thread.interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        close(5000);
+    }
+
+    private long minimumConsumerSequence() {
+        long minimum = Long.MAX_VALUE;
+        for (Worker worker : workers) {
+            minimum = Math.min(minimum, worker.sequence.get());
+        }
+        return minimum;
+    }
+
+    private final class Worker implements Runnable {
+        private final String name;
+        private final BatchHandler<E> handler;
+        private final Thread thread;
+        private final AtomicLong sequence = new AtomicLong(-1);
+        private final AtomicLong processed = new AtomicLong();
+        private final AtomicLong batches = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong skipped = new AtomicLong();
+
+        private Worker(String name, BatchHandler<E> handler) {
+            this.name = name;
+            this.handler = handler;
+            this.thread = new Thread(this, RingBufferEventBus.this.name + "-" + name);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void run() {
+            int idleRounds = 0;
+            while (true) {
+                long next = sequence.get() + 1;
+                long available = next - 1;
+                while (available + 1 - next < maxBatchSize && published.get((int) ((available + 1) & mask)) == available + 1) {
+                    available++;
+                }
+                if (available < next) {
+                    if (!running) {
+                        return;
+                    }
+                    idleRounds = idle(idleRounds);
+                    continue;
+                }
+                idleRounds = 0;
+
+                List<E> batch = new ArrayList<>((int) (available - next + 1));
+                for (long s = next; s <= available; s++) {
+                    batch.add((E) entries[(int) (s & mask)]);
+                }
+                deliver(batch);
+                processed.addAndGet(batch.size());
+                batches.incrementAndGet();
+                sequence.set(available);
+            }
+        }
+
+        private void deliver(List<E> batch) {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    handler.onBatch(Collections.unmodifiableList(batch));
+                    return;
+                } catch (Exception e) {
+                    if (attempt >= maxAttempts) {
+                        skipped.addAndGet(batch.size());
+                        log.error("Consumer {} on {} failed {} times, skipping {} events",
+                                name, RingBufferEventBus.this.name, attempt, batch.size(), e);
+                        return;
+                    }
+                    retries.incrementAndGet();
+                    log.warn("Consumer {} on {} failed (attempt {}), retrying", name, RingBufferEventBus.this.name, attempt, e);
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(retryBackoffMillis * attempt));
+                }
+            }
+        }
+
+        /**
+         * 先自旋，再让出 CPU，最后短暂休眠，兼顾延迟与空闲时的 CPU 占用
+         */
+        private int idle(int rounds) {
+            if (rounds < 100) {
+                Thread.onSpinWait();
+            } else if (rounds < 200) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(1_000_000);
+            }
+            return rounds + 1;
+        }
+    }
+
+    /**
+     * 消费者统计：lag 为已发布但该消费者尚未处理的事件数
+     */
+    public static final class ConsumerStats {
+        private final String consumer;
+        private final long lag;
+        private final long processed;
+        private final long batches;
+        private final long retries;
+        private final long skipped;
+
+        ConsumerStats(String consumer, long lag, long processed, long batches, long retries, long skipped) {
+            this.consumer = consumer;
+            this.lag = lag;
+            this.processed = processed;
+            this.batches = batches;
+            this.retries = retries;
+            this.skipped = skipped;
+        }
+
+        public String getConsumer() {
+            return consumer;
+        }
+
+        public long getLag() {
+            return lag;
+        }
+
+        public long getProcessed() {
+            return processed;
+        }
+
+        public long getBatches() {
+            return batches;
+        }
+
+        public long getRetries() {
+            return retries;
+        }
+
+        public long getSkipped() {
+            return skipped;
+        }
+    }
+}
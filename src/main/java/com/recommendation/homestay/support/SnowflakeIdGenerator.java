@@ -0,0 +1,156 @@
+package com.recommendation.homestay.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 无锁、按时间递增的雪花 ID 生成器
+ *
+ * 63 位：41 位毫秒时间戳（相对 epochMillis，约 69 年）| 10 位节点号 | 12 位毫秒内序号，
+ * 单节点每毫秒最多 4096 个。时间戳与序号合在一个 AtomicLong 里用 CAS 推进，不加锁。
+ *
+ * 时钟回拨时继续沿用上次的时间戳递增序号，序号用完就借用下一毫秒，因此同一节点生成的 ID
+ * 始终严格递增。逻辑时间领先系统时钟超过 maxDriftMillis 时（持续高压或时钟回拨超过该值）
+ * 短暂让出 CPU 等系统时钟追上；累计等待超过 maxWaitMillis 仍未追上时抛出
+ * {@link IllegalStateException}，不会无限期阻塞调用方（下单时调用方持有库存锁和行锁）。
+ *
+ * 节点号可以是固定配置，也可以是有期限的租约：调用 {@link #lease(long, long)} 后，
+ * 租约到期前未续约时 nextId 抛出 {@link IllegalStateException}，不会用可能已被其他节点领取的节点号生成 ID。
+ *
+ * {@link #nextBase32()} 输出 13 位定长 Crockford Base32（0-9、A-Z 去掉 I、L、O、U），
+ * 字典序与数值顺序一致，写入唯一索引时总是追加在末尾。
+ *
+ * @author Homestay Recommendation System
+ */
+public class SnowflakeIdGenerator {
+
+    public static final int NODE_BITS = 10;
+    public static final int SEQUENCE_BITS = 12;
+    public static final long MAX_NODE_ID = (1L << NODE_BITS) - 1;
+
+    private static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final int TIMESTAMP_SHIFT = NODE_BITS + SEQUENCE_BITS;
+    private static final char[] CROCKFORD = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int BASE32_LENGTH = 13;
+
+    private volatile long nodeBits;
+    private volatile boolean leased;
+    private volatile long leaseExpiresAtNanos;
+    private final long epochMillis;
+    private final long maxDriftMillis;
+    private final long maxWaitNanos;
+    private final LongSupplier clock;
+
+    /**
+     * 高位为相对时间戳，低 12 位为序号
+     */
+    private final AtomicLong state = new AtomicLong();
+
+    public SnowflakeIdGenerator(long nodeId, long epochMillis) {
+        this(nodeId, epochMillis, 1000, 2000, System::currentTimeMillis);
+    }
+
+    /**
+     * @param nodeId         节点号（0 ~ 1023），同一时刻运行的节点必须互不相同
+     * @param epochMillis    时间戳起点
+     * @param maxDriftMillis 逻辑时间允许领先系统时钟的最大毫秒数
+     * @param maxWaitMillis  超过 maxDriftMillis 时单次调用最多等待系统时钟追上的毫秒数
+     * @param clock          毫秒时钟
+     */
+    public SnowflakeIdGenerator(long nodeId, long epochMillis, long maxDriftMillis, long maxWaitMillis,
+                                LongSupplier clock) {
+        checkNodeId(nodeId);
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.epochMillis = epochMillis;
+        this.maxDriftMillis = maxDriftMillis;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+        this.clock = clock;
+    }
+
+    /**
+     * 生成下一个 ID
+     *
+     * @throws IllegalStateException 逻辑时间领先系统时钟过多且 maxWaitMillis 内未追上（时钟大幅回拨）
+     */
+    public long nextId() {
+        if (leased && System.nanoTime() - leaseExpiresAtNanos > 0) {
+            throw new IllegalStateException("节点号租约已过期，暂时无法生成 ID");
+        }
+        long waitStart = 0;
+        boolean waiting = false;
+        while (true) {
+            long now = clock.getAsLong() - epochMillis;
+            long current = state.get();
+            long last = current >>> SEQUENCE_BITS;
+            long next;
+            if (now > last) {
+                next = now << SEQUENCE_BITS;
+            } else {
+                // 同一毫秒或时钟回拨：序号加一，溢出时自然进位到下一毫秒
+                next = current + 1;
+                long drift = (next >>> SEQUENCE_BITS) - now;
+                if (drift > maxDriftMillis) {
+                    long nanos = System.nanoTime();
+                    if (!waiting) {
+                        waiting = true;
+                        waitStart = nanos;
+                    } else if (nanos - waitStart > maxWaitNanos) {
+                        throw new IllegalStateException("系统时钟回拨 " + drift + " 毫秒，暂时无法生成 ID");
+                    }
+                    LockSupport.parkNanos(100_000);
+                    continue;
+                }
+            }
+            if (state.compareAndSet(current, next)) {
+                long timestamp = next >>> SEQUENCE_BITS;
+                return (timestamp << TIMESTAMP_SHIFT) | nodeBits | (next & SEQUENCE_MASK);
+            }
+        }
+    }
+
+    /**
+     * 使用租约得到的节点号，租约在 expiresAtNanos（{@link System#nanoTime()}）到期；续约时再次调用
+     *
+     * 节点号可以随续约更换：序号状态不变，新节点号下的 ID 仍然唯一且递增。
+     */
+    public void lease(long nodeId, long expiresAtNanos) {
+        checkNodeId(nodeId);
+        this.nodeBits = nodeId << SEQUENCE_BITS;
+        this.leaseExpiresAtNanos = expiresAtNanos;
+        this.leased = true;
+    }
+
+    /**
+     * 生成下一个 ID 的 13 位 Crockford Base32 表示
+     */
+    public String nextBase32() {
+        return toBase32(nextId());
+    }
+
+    /**
+     * 定长 Crockford Base32 编码，非负数的字典序与数值顺序一致
+     */
+    public static String toBase32(long id) {
+        char[] chars = new char[BASE32_LENGTH];
+        for (int i = BASE32_LENGTH - 1; i >= 0; i--) {
+            chars[i] = CROCKFORD[(int) (id & 31)];
+            id >>>= 5;
+        }
+        return new String(chars);
+    }
+
+    private static void checkNodeId(long nodeId) {
+        if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+            throw new IllegalArgumentException("节点号必须在 0 ~ " + MAX_NODE_ID + " 之间");
+        }
+    }
+
+    /**
+     * 从 ID 中取出生成时的毫秒时间戳（逻辑时间）
+     */
+    public long timestampOf(long id) {
+        return (id >>> TIMESTAMP_SHIFT) + epochMillis;
+    }
+}
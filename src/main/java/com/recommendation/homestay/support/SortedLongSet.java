@@ -0,0 +1,97 @@
+package com.recommendation.homestay.support;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * 不可变的有序 long 集合
+ *
+ * 元素按升序存放在一个 long 数组中，每个元素 8 字节，没有装箱和哈希表开销；
+ * 成员判断为二分查找。修改操作返回新集合，原集合可以被多个线程同时读取。
+ *
+ * @author Homestay Recommendation System
+ */
+public final class SortedLongSet {
+
+    public static final SortedLongSet EMPTY = new SortedLongSet(new long[0]);
+
+    private final long[] values;
+
+    private SortedLongSet(long[] values) {
+        this.values = values;
+    }
+
+    /**
+     * 由任意顺序、可能重复的元素构造
+     */
+    public static SortedLongSet of(Collection<Long> elements) {
+        if (elements.isEmpty()) {
+            return EMPTY;
+        }
+        long[] sorted = new long[elements.size()];
+        int i = 0;
+        for (Long element : elements) {
+            sorted[i++] = element;
+        }
+        Arrays.sort(sorted);
+        int size = 0;
+        for (int j = 0; j < sorted.length; j++) {
+            if (size == 0 || sorted[size - 1] != sorted[j]) {
+                sorted[size++] = sorted[j];
+            }
+        }
+        return new SortedLongSet(size == sorted.length ? sorted : Arrays.copyOf(sorted, size));
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    /**
+     * 加入一个元素后的集合；已存在时返回自身
+     */
+    public SortedLongSet with(long value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position >= 0) {
+            return this;
+        }
+        position = -position - 1;
+        long[] next = new long[values.length + 1];
+        System.arraycopy(values, 0, next, 0, position);
+        next[position] = value;
+        System.arraycopy(values, position, next, position + 1, values.length - position);
+        return new SortedLongSet(next);
+    }
+
+    /**
+     * 去掉一个元素后的集合；不存在时返回自身
+     */
+    public SortedLongSet without(long value) {
+        int position = Arrays.binarySearch(values, value);
+        if (position < 0) {
+            return this;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        long[] next = new long[values.length - 1];
+        System.arraycopy(values, 0, next, 0, position);
+        System.arraycopy(values, position + 1, next, position, values.length - position - 1);
+        return new SortedLongSet(next);
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isEmpty() {
+        return values.length == 0;
+    }
+
+    /**
+     * 升序元素的副本
+     */
+    public long[] toArray() {
+        return values.clone();
+    }
+}
@@ -0,0 +1,185 @@
+package com.recommendation.homestay.support;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Space-Saving 热门元素（heavy hitter）摘要
+ *
+ * 在固定容量下跟踪出现频率最高的 long 键：满容量时新键替换当前最小计数的键，
+ * 并继承其计数作为误差上界。摘要可按 Agarwal 等人的可合并摘要方式合并，
+ * 用于跨时间桶、跨节点汇总热门房源。
+ *
+ * 容量通常只有几十，替换时线性扫描最小值即可，无需额外的堆结构。
+ *
+ * @author Homestay Recommendation System
+ */
+public class SpaceSaving {
+
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+
+    public SpaceSaving(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity 必须大于 0");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public synchronized void offer(long key, long weight) {
+        Counter counter = counters.get(key);
+        if (counter != null) {
+            counter.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            counters.put(key, new Counter(key, weight, 0));
+            return;
+        }
+        Counter min = findMin();
+        counters.remove(min.key);
+        counters.put(key, new Counter(key, min.count + weight, min.count));
+    }
+
+    /**
+     * 合并另一份摘要：两边都有的键计数相加；只在一边出现的键，
+     * 用另一边的最小计数补偿（该键在另一边至多被低估这么多），最后截断回容量。
+     */
+    public void merge(SpaceSaving other) {
+        // 先在对方的锁内取快照，避免两个摘要互相合并时嵌套加锁
+        List<Entry> otherEntries = other.entries();
+        long otherMin = other.minCount();
+        synchronized (this) {
+            mergeEntries(otherEntries, otherMin);
+        }
+    }
+
+    private void mergeEntries(List<Entry> otherEntries, long otherMin) {
+        long selfMin = counters.size() < capacity ? 0 : findMin().count;
+
+        Map<Long, Counter> merged = new HashMap<>(counters.size() + otherEntries.size());
+        for (Counter counter : counters.values()) {
+            merged.put(counter.key, new Counter(counter.key, counter.count + otherMin, counter.error + otherMin));
+        }
+        for (Entry entry : otherEntries) {
+            Counter existing = merged.get(entry.getKey());
+            if (existing != null) {
+                existing.count += entry.getCount() - otherMin;
+                existing.error += entry.getError() - otherMin;
+            } else {
+                merged.put(entry.getKey(), new Counter(entry.getKey(), entry.getCount() + selfMin, entry.getError() + selfMin));
+            }
+        }
+
+        List<Counter> sorted = new ArrayList<>(merged.values());
+        sorted.sort(Comparator.comparingLong((Counter c) -> c.count).reversed());
+        counters.clear();
+        for (int i = 0; i < Math.min(capacity, sorted.size()); i++) {
+            Counter counter = sorted.get(i);
+            counters.put(counter.key, counter);
+        }
+    }
+
+    /**
+     * 按计数降序返回前 n 个元素。
+     */
+    public synchronized List<Entry> top(int n) {
+        List<Entry> result = entries();
+        result.sort(Comparator.comparingLong(Entry::getCount).reversed());
+        return result.size() > n ? new ArrayList<>(result.subList(0, n)) : result;
+    }
+
+    public synchronized int size() {
+        return counters.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public synchronized byte[] toBytes() {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + counters.size() * 24);
+        buffer.putInt(capacity).putInt(counters.size());
+        for (Counter counter : counters.values()) {
+            buffer.putLong(counter.key).putLong(counter.count).putLong(counter.error);
+        }
+        return buffer.array();
+    }
+
+    public static SpaceSaving fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        SpaceSaving summary = new SpaceSaving(buffer.getInt());
+        int size = buffer.getInt();
+        for (int i = 0; i < size; i++) {
+            long key = buffer.getLong();
+            summary.counters.put(key, new Counter(key, buffer.getLong(), buffer.getLong()));
+        }
+        return summary;
+    }
+
+    private synchronized List<Entry> entries() {
+        List<Entry> result = new ArrayList<>(counters.size());
+        for (Counter counter : counters.values()) {
+            result.add(new Entry(counter.key, counter.count, counter.error));
+        }
+        return result;
+    }
+
+    private synchronized long minCount() {
+        return counters.size() < capacity ? 0 : findMin().count;
+    }
+
+    private Counter findMin() {
+        Counter min = null;
+        for (Counter counter : counters.values()) {
+            if (min == null || counter.count < min.count) {
+                min = counter;
+            }
+        }
+        return min;
+    }
+
+    private static final class Counter {
+        private final long key;
+        private long count;
+        private long error;
+
+        Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    /**
+     * 摘要条目：count 为估计计数（偏大），error 为可能的高估量上界。
+     */
+    public static final class Entry {
+        private final long key;
+        private final long count;
+        private final long error;
+
+        public Entry(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
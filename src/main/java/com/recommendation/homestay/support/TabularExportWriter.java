@@ -0,0 +1,183 @@
+package com.recommendation.homestay.support;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 逐行写出表格数据的导出器，支持 CSV 与 NDJSON
+ *
+ * 每行直接编码进固定大小的缓冲区，不在内存中保留已写出的行，导出任意行数时堆占用不变。
+ * 缓冲区写满或调用 {@link #flush()} 时才写入底层输出流；客户端读取慢时写操作阻塞在输出流上，
+ * 数据库侧的读取随之放慢，形成自然的背压。
+ *
+ * CSV 带 UTF-8 BOM（Excel 打开中文不乱码），按 RFC 4180 转义；以 = + - @ 开头的文本前加单引号，
+ * 防止在电子表格中被当作公式执行。NDJSON 每行一个对象，字段名即列名，数字保持数字类型。
+ *
+ * @author Homestay Recommendation System
+ */
+public class TabularExportWriter {
+
+    /**
+     * 导出格式
+     */
+    public enum Format {
+        CSV("text/csv;charset=UTF-8", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("不支持的导出格式：" + value + "（可选 csv、ndjson）");
+            }
+        }
+    }
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Format format;
+    private final String[] columns;
+    private final Writer writer;
+    private final JsonGenerator json;
+    private long rows;
+
+    public TabularExportWriter(OutputStream out, Format format, String... columns) throws IOException {
+        this.format = format;
+        this.columns = columns;
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (format == Format.CSV) {
+            this.json = null;
+            writer.write('\uFEFF');
+            writeCsvLine(columns);
+        } else {
+            this.json = JSON_FACTORY.createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            json.setRootValueSeparator(null);
+        }
+    }
+
+    /**
+     * 写出一行，values 与列一一对应
+     */
+    public void writeRow(Object... values) throws IOException {
+        if (values.length != columns.length) {
+            throw new IllegalArgumentException("列数不匹配：期望 " + columns.length + "，实际 " + values.length);
+        }
+        if (format == Format.CSV) {
+            writeCsvLine(values);
+        } else {
+            writeJsonLine(values);
+        }
+        rows++;
+    }
+
+    /**
+     * 把缓冲区内容推送给客户端
+     */
+    public void flush() throws IOException {
+        if (json != null) {
+            json.flush();
+        }
+        writer.flush();
+    }
+
+    /**
+     * 已写出的数据行数（不含表头）
+     */
+    public long getRows() {
+        return rows;
+    }
+
+    private void writeCsvLine(Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            Object value = values[i];
+            if (value == null) {
+                continue;
+            }
+            if (value instanceof Number || value instanceof Boolean) {
+                writer.write(plain(value));
+                continue;
+            }
+            String text = value.toString();
+            if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0) {
+                text = "'" + text;
+            }
+            if (needsQuoting(text)) {
+                writer.write('"');
+                writer.write(text.replace("\"", "\"\""));
+                writer.write('"');
+            } else {
+                writer.write(text);
+            }
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeJsonLine(Object[] values) throws IOException {
+        json.writeStartObject();
+        for (int i = 0; i < values.length; i++) {
+            json.writeFieldName(columns[i]);
+            Object value = values[i];
+            if (value == null) {
+                json.writeNull();
+            } else if (value instanceof BigDecimal) {
+                json.writeNumber((BigDecimal) value);
+            } else if (value instanceof Long || value instanceof Integer) {
+                json.writeNumber(((Number) value).longValue());
+            } else if (value instanceof Number) {
+                json.writeNumber(((Number) value).doubleValue());
+            } else if (value instanceof Boolean) {
+                json.writeBoolean((Boolean) value);
+            } else {
+                json.writeString(value.toString());
+            }
+        }
+        json.writeEndObject();
+        json.flush();
+        writer.write('\n');
+    }
+
+    private static String plain(Object value) {
+        return value instanceof BigDecimal ? ((BigDecimal) value).toPlainString() : value.toString();
+    }
+
+    private static boolean needsQuoting(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
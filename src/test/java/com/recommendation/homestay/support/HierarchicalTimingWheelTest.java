@@ -0,0 +1,161 @@
+package com.recommendation.homestay.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HierarchicalTimingWheel 的 tick 取整、跨层级联与取消测试
+ *
+ * 使用固定的假时钟且不启动推进线程，由测试逐个 tick 推进，任务在调用线程上同步执行。
+ * 时间轮为 4 格 × 3 层：第 0 层覆盖 1~3 个 tick，第 1 层 4~15，第 2 层 16~63，更远的任务先停在第 2 层。
+ *
+ * @author Homestay Recommendation System
+ */
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK_MILLIS = 100;
+    private static final long START_MILLIS = 1_700_000_000_000L;
+
+    private final AtomicLong now = new AtomicLong(START_MILLIS);
+    private final HierarchicalTimingWheel wheel = new HierarchicalTimingWheel("test-wheel", TICK_MILLIS, 4, 3,
+            Runnable::run, now::get, false);
+    private long tick;
+
+    @Test
+    void deadlinesRoundUpToTheNextTick() {
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(START_MILLIS + 201, () -> fired.add("201ms@" + tick));
+        wheel.schedule(START_MILLIS + 300, () -> fired.add("300ms@" + tick));
+        wheel.schedule(START_MILLIS + 1, () -> fired.add("1ms@" + tick));
+
+        advance(1);
+        assertEquals(List.of("1ms@1"), fired);
+        advance(2);
+        // 201 ms 向上取整到第 3 个 tick，不会提前到第 2 个
+        assertEquals(List.of("1ms@1", "201ms@3", "300ms@3"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastAndCurrentDeadlinesFireImmediately() {
+        List<String> fired = new ArrayList<>();
+        wheel.schedule(START_MILLIS - 5000, () -> fired.add("past"));
+        assertEquals(List.of("past"), fired);
+
+        advance(5);
+        wheel.schedule(START_MILLIS + 5 * TICK_MILLIS, () -> fired.add("current"));
+        wheel.schedule(START_MILLIS + 4 * TICK_MILLIS + 1, () -> fired.add("inside current tick"));
+        assertEquals(List.of("past", "current", "inside current tick"), fired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void everyDelayFiresOnItsDeadlineTickFromEveryStartOffset() {
+        // 覆盖各层边界（3/4、15/16、63/64）以及超出最高层范围需要多次级联的延迟
+        Map<Long, Long> firedAt = new HashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        long id = 0;
+        for (int offset = 0; offset < 70; offset++) {
+            for (long delay = 1; delay <= 200; delay++) {
+                long key = id++;
+                long deadlineTick = tick + delay;
+                expected.put(key, deadlineTick);
+                wheel.schedule(START_MILLIS + deadlineTick * TICK_MILLIS, () -> firedAt.put(key, tick));
+            }
+            advance(1);
+        }
+        advance(250);
+        assertEquals(expected, firedAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void randomScheduleAndCancelMatchesExpectedFiring() {
+        Random random = new Random(7);
+        Map<Long, Long> firedAt = new HashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        List<Object[]> live = new ArrayList<>();
+        long id = 0;
+        for (int step = 0; step < 3000; step++) {
+            int scheduled = random.nextInt(4);
+            for (int i = 0; i < scheduled; i++) {
+                long key = id++;
+                long deadlineMillis = START_MILLIS + tick * TICK_MILLIS + random.nextInt(300 * (int) TICK_MILLIS);
+                long deadlineTick = Math.max(tick, (deadlineMillis - START_MILLIS + TICK_MILLIS - 1) / TICK_MILLIS);
+                HierarchicalTimingWheel.Timeout timeout = wheel.schedule(deadlineMillis,
+                        () -> assertEquals(null, firedAt.put(key, tick), "task " + key + " fired twice"));
+                if (deadlineTick > tick) {
+                    expected.put(key, deadlineTick);
+                    live.add(new Object[]{key, timeout, deadlineTick});
+                } else {
+                    expected.put(key, tick);
+                }
+            }
+            if (!live.isEmpty() && random.nextInt(3) == 0) {
+                Object[] victim = live.remove(random.nextInt(live.size()));
+                long key = (Long) victim[0];
+                HierarchicalTimingWheel.Timeout timeout = (HierarchicalTimingWheel.Timeout) victim[1];
+                boolean pending = (Long) victim[2] > tick;
+                assertEquals(pending, timeout.cancel(), "cancel of task " + key);
+                if (pending) {
+                    expected.remove(key);
+                }
+                assertFalse(timeout.cancel());
+            }
+            advance(1);
+        }
+        advance(400);
+        assertEquals(expected, firedAt);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelBeforeFireOnEveryLevel() {
+        List<Long> fired = new ArrayList<>();
+        HierarchicalTimingWheel.Timeout level0 = schedule(2, fired);
+        HierarchicalTimingWheel.Timeout level1 = schedule(10, fired);
+        HierarchicalTimingWheel.Timeout level2 = schedule(40, fired);
+        HierarchicalTimingWheel.Timeout beyond = schedule(150, fired);
+        HierarchicalTimingWheel.Timeout cascaded = schedule(20, fired);
+        HierarchicalTimingWheel.Timeout kept = schedule(20, fired);
+        assertEquals(6, wheel.size());
+
+        assertTrue(level0.cancel());
+        assertTrue(level1.cancel());
+        assertTrue(level2.cancel());
+        assertTrue(beyond.cancel());
+        assertEquals(2, wheel.size());
+
+        // 第 16 个 tick 时 20 从第 2 层级联到第 1 层，再在第 20 个 tick 前取消
+        advance(17);
+        assertTrue(cascaded.cancel());
+        assertFalse(cascaded.cancel());
+        advance(200);
+
+        assertEquals(List.of(20L), fired);
+        assertFalse(kept.cancel(), "already fired");
+        assertEquals(0, wheel.size());
+    }
+
+    private HierarchicalTimingWheel.Timeout schedule(long deadlineTick, List<Long> fired) {
+        return wheel.schedule(START_MILLIS + deadlineTick * TICK_MILLIS, () -> fired.add(tick));
+    }
+
+    private void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            tick++;
+            now.addAndGet(TICK_MILLIS);
+            wheel.tick();
+        }
+    }
+}
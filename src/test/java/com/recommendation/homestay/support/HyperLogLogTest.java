@@ -0,0 +1,180 @@
+package com.recommendation.homestay.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * HyperLogLog 与 Redis PFADD 逐位一致性测试
+ *
+ * 期望值取自 Redis 6.2：寄存器来自 PFDEBUG GETREG，紧凑字节来自 GET 去掉 16 字节头部，
+ * 变化标记来自 PFADD 的返回值；数组类期望值以 SHA-256 摘要保存。
+ *
+ * @author Homestay Recommendation System
+ */
+class HyperLogLogTest {
+
+    /**
+     * 依次加入 "visitor-" + (i * 7919 % 12000)，i 从 0 到 19999：前 12000 个互不相同，之后全部重复
+     */
+    private static final int SEQUENCE_LENGTH = 20000;
+    private static final int SPARSE_CHECKPOINT = 1000;
+
+    @Test
+    void hashMatchesRedisMurmurHash64A() {
+        assertEquals(0xd8dfea6585bc9732L, hash(""));
+        assertEquals(0x53d2470a9b43b1a7L, hash("a"));
+        assertEquals(0x22fe613bb08c9602L, hash("abcdefg"));
+        assertEquals(0xf3a65df559914567L, hash("abcdefgh"));
+        assertEquals(0x5bda2bce4663521bL, hash("u:42"));
+        assertEquals(0xa63bab8d5fa84eb8L, hash("a:203.0.113.7"));
+        assertEquals(0xf386604ad4cef127L, hash("visitor:访客"));
+        assertEquals(0xa9b9ed93197d7db3L, hash("the quick brown fox"));
+    }
+
+    @Test
+    void singleElementLandsInSameRegisterAsRedis() {
+        assertSingleRegister("", 5938, 2);
+        assertSingleRegister("a", 12711, 2);
+        assertSingleRegister("abcdefg", 5634, 2);
+        assertSingleRegister("abcdefgh", 1383, 1);
+        assertSingleRegister("u:42", 4635, 1);
+        assertSingleRegister("visitor:访客", 12583, 1);
+    }
+
+    @Test
+    void addReportsChangesExactlyLikePfadd() throws Exception {
+        HyperLogLog hll = new HyperLogLog();
+        byte[] changed = new byte[SEQUENCE_LENGTH];
+        int changes = 0;
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            if (hll.add(element(i))) {
+                changed[i] = 1;
+                changes++;
+            }
+        }
+        assertEquals(9623, changes);
+        assertEquals("8e52aef02f009a8a4e8b8e7b729f08f5b556383ebd2b9c99121101c307efca8f", sha256(changed));
+    }
+
+    @Test
+    void sparseRegistersMatchRedis() throws Exception {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < SPARSE_CHECKPOINT; i++) {
+            hll.add(element(i));
+        }
+        assertNull(hll.denseRegisters(), "972 个非零寄存器应仍为稀疏表示");
+        assertEquals("e2f9a6e09e1689696ddbbc60cf2a77ac77065a6dd547fee22f5fc07001005148", sha256(registers(hll)));
+    }
+
+    @Test
+    void denseRegistersAndPackingMatchRedis() throws Exception {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            hll.add(element(i));
+        }
+        byte[] dense = hll.denseRegisters();
+        assertNotNull(dense, "8518 个非零寄存器应已转为紧凑表示");
+        assertEquals("801557ec107c41b52c81b8ca53187ea6b3e063bcf913d1966fa16a849bdfaedc", sha256(registers(hll)));
+        assertEquals("159387fa9db616a902d5765ba713d5b33107e86d981d8adcde4208c591d0aaa1", sha256(dense));
+    }
+
+    @Test
+    void conversionToDenseKeepsEveryRegister() {
+        HyperLogLog hll = new HyperLogLog();
+        byte[] before = registers(hll);
+        int i = 0;
+        while (hll.denseRegisters() == null) {
+            before = registers(hll);
+            hll.add(element(i++));
+        }
+        int nonZero = 0;
+        for (byte register : before) {
+            if (register != 0) {
+                nonZero++;
+            }
+        }
+        assertEquals(HyperLogLog.SPARSE_LIMIT, nonZero);
+
+        // 转换后的寄存器 = 转换前的寄存器与触发转换的元素逐个取最大值
+        HyperLogLog single = new HyperLogLog();
+        single.add(element(i - 1));
+        byte[] added = registers(single);
+        byte[] expected = new byte[before.length];
+        for (int j = 0; j < expected.length; j++) {
+            expected[j] = (byte) Math.max(before[j], added[j]);
+        }
+        assertArrayEquals(expected, registers(hll));
+    }
+
+    @Test
+    void mergeEqualsAddingEverything() throws Exception {
+        HyperLogLog sparse = new HyperLogLog();
+        HyperLogLog dense = new HyperLogLog();
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            (i < SPARSE_CHECKPOINT ? sparse : dense).add(element(i));
+        }
+        HyperLogLog merged = new HyperLogLog();
+        merged.merge(sparse);
+        merged.merge(dense);
+        assertEquals("801557ec107c41b52c81b8ca53187ea6b3e063bcf913d1966fa16a849bdfaedc", sha256(registers(merged)));
+
+        HyperLogLog reversed = new HyperLogLog();
+        reversed.merge(dense);
+        reversed.merge(sparse);
+        assertArrayEquals(registers(merged), registers(reversed));
+    }
+
+    @Test
+    void estimateIsWithinTwoPercent() {
+        HyperLogLog hll = new HyperLogLog();
+        for (int i = 0; i < SEQUENCE_LENGTH; i++) {
+            hll.add(element(i));
+        }
+        long estimate = hll.estimate();
+        assertTrue(Math.abs(estimate - 12000) < 240, "estimate " + estimate);
+        assertFalse(hll.add(element(0)));
+    }
+
+    private static void assertSingleRegister(String element, int index, int rank) {
+        HyperLogLog hll = new HyperLogLog();
+        assertTrue(hll.add(element));
+        assertFalse(hll.add(element));
+        byte[] registers = registers(hll);
+        for (int i = 0; i < registers.length; i++) {
+            assertEquals(i == index ? rank : 0, registers[i], "register " + i + " of \"" + element + "\"");
+        }
+    }
+
+    private static long hash(String element) {
+        return HyperLogLog.hash(element.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String element(int i) {
+        return "visitor-" + (i * 7919 % 12000);
+    }
+
+    private static byte[] registers(HyperLogLog hll) {
+        byte[] registers = new byte[HyperLogLog.REGISTERS];
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) hll.register(i);
+        }
+        return registers;
+    }
+
+    private static String sha256(byte[] bytes) throws Exception {
+        StringBuilder hex = new StringBuilder();
+        for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
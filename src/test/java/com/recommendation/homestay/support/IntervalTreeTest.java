@@ -0,0 +1,128 @@
+package com.recommendation.homestay.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * IntervalTree 与逐个扫描结果对照的随机测试
+ *
+ * @author Homestay Recommendation System
+ */
+class IntervalTreeTest {
+
+    private static final Comparator<long[]> KEY_ORDER = Comparator.<long[]>comparingLong(k -> k[0])
+            .thenComparingLong(k -> k[1])
+            .thenComparingLong(k -> k[2]);
+
+    @Test
+    void halfOpenBoundaries() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.add(10, 20, 1, "a");
+
+        assertEquals(List.of(), tree.overlapping(0, 10));
+        assertEquals(List.of(), tree.overlapping(20, 30));
+        assertEquals(List.of("a"), tree.overlapping(9, 11));
+        assertEquals(List.of("a"), tree.overlapping(19, 20));
+        assertEquals(List.of(), tree.overlapping(15, 15));
+        assertThrows(IllegalArgumentException.class, () -> tree.add(5, 5, 2, "empty"));
+    }
+
+    @Test
+    void replaceKeepsSizeAndUpdatesValue() {
+        IntervalTree<String> tree = new IntervalTree<>();
+        tree.add(1, 4, 7, "old");
+        tree.add(1, 4, 7, "new");
+        tree.add(1, 4, 8, "other");
+
+        assertEquals(2, tree.size());
+        assertEquals(List.of("new", "other"), tree.overlapping(0, 10));
+        assertTrue(tree.remove(1, 4, 7));
+        assertFalse(tree.remove(1, 4, 7));
+        assertFalse(tree.remove(1, 5, 8));
+        assertEquals(List.of("other"), tree.overlapping(0, 10));
+    }
+
+    @Test
+    void randomOperationsMatchBruteForce() {
+        for (long seed = 1; seed <= 20; seed++) {
+            runRandom(new Random(seed), 3000, 200, 30);
+            runRandom(new Random(seed), 3000, 10_000, 5_000);
+        }
+    }
+
+    @Test
+    void longIntervalsHiddenDeepInTheTreeAreFound() {
+        // 大量短区间中夹杂少量很长的区间，只有依赖子树 maxEnd 才能从左侧找回它们
+        IntervalTree<Long> tree = new IntervalTree<>();
+        for (long id = 0; id < 2000; id++) {
+            tree.add(id * 10, id * 10 + 5, id, id);
+        }
+        tree.add(3, 19_000, 5000, 5000L);
+        assertEquals(List.of(5000L, 1500L), tree.overlapping(15_001, 15_003));
+        assertTrue(tree.remove(3, 19_000, 5000));
+        assertEquals(List.of(1500L), tree.overlapping(15_001, 15_003));
+        assertEquals(List.of(), tree.overlapping(15_006, 15_010));
+    }
+
+    private static void runRandom(Random random, int operations, int range, int maxLength) {
+        IntervalTree<Long> tree = new IntervalTree<>();
+        TreeMap<long[], Long> model = new TreeMap<>(KEY_ORDER);
+        List<long[]> keys = new ArrayList<>();
+        long nextId = 0;
+        for (int op = 0; op < operations; op++) {
+            int kind = random.nextInt(10);
+            if (kind < 4 || keys.isEmpty()) {
+                long start = random.nextInt(range);
+                long end = start + 1 + random.nextInt(maxLength);
+                long[] key = {start, end, nextId++};
+                long value = random.nextLong();
+                tree.add(key[0], key[1], key[2], value);
+                model.put(key, value);
+                keys.add(key);
+            } else if (kind < 5) {
+                long[] key = keys.get(random.nextInt(keys.size()));
+                long value = random.nextLong();
+                tree.add(key[0], key[1], key[2], value);
+                model.put(key, value);
+            } else if (kind < 7) {
+                long[] key = keys.remove(random.nextInt(keys.size()));
+                assertTrue(tree.remove(key[0], key[1], key[2]));
+                model.remove(key);
+                assertFalse(tree.remove(key[0], key[1], key[2]));
+            } else {
+                long from = random.nextInt(range + maxLength) - maxLength / 2;
+                long to = from + random.nextInt(maxLength * 2 + 1);
+                assertEquals(bruteForce(model, from, to), tree.overlapping(from, to),
+                        "overlapping(" + from + ", " + to + ") after " + op + " operations");
+            }
+            assertEquals(model.size(), tree.size());
+        }
+        assertEquals(new ArrayList<>(model.values()), tree.overlapping(Long.MIN_VALUE, Long.MAX_VALUE));
+        for (long[] key : keys) {
+            assertTrue(tree.remove(key[0], key[1], key[2]));
+        }
+        assertTrue(tree.isEmpty());
+        assertEquals(Collections.emptyList(), tree.overlapping(Long.MIN_VALUE, Long.MAX_VALUE));
+    }
+
+    private static List<Long> bruteForce(TreeMap<long[], Long> model, long from, long to) {
+        List<Long> result = new ArrayList<>();
+        model.forEach((key, value) -> {
+            if (from < to && key[0] < to && key[1] > from) {
+                result.add(value);
+            }
+        });
+        return result;
+    }
+}
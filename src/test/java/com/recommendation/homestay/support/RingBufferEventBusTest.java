@@ -0,0 +1,184 @@
+package com.recommendation.homestay.support;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * RingBufferEventBus 的发布、背压与重试测试
+ *
+ * @author Homestay Recommendation System
+ */
+class RingBufferEventBusTest {
+
+    @Test
+    void capacityIsRoundedUpToPowerOfTwo() {
+        try (RingBufferEventBus<Integer> bus = bus(5, Map.of("c", events -> { }), 4, 1, 0)) {
+            assertEquals(8, bus.getCapacity());
+        }
+        try (RingBufferEventBus<Integer> bus = bus(8, Map.of("c", events -> { }), 4, 1, 0)) {
+            assertEquals(8, bus.getCapacity());
+        }
+    }
+
+    @Test
+    void everyConsumerSeesEveryEventInPublishOrderPerProducer() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        Map<String, List<long[]>> received = new LinkedHashMap<>();
+        Map<String, RingBufferEventBus.BatchHandler<long[]>> handlers = new LinkedHashMap<>();
+        for (String consumer : List.of("fast", "batched")) {
+            List<long[]> events = Collections.synchronizedList(new ArrayList<>());
+            received.put(consumer, events);
+            handlers.put(consumer, events::addAll);
+        }
+        try (RingBufferEventBus<long[]> bus = new RingBufferEventBus<>("test", 64, handlers, 16, 1, 0, 10_000)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int p = 0; p < producers; p++) {
+                long producer = p;
+                Thread thread = new Thread(() -> {
+                    for (long i = 0; i < perProducer; i++) {
+                        assertTrue(bus.publish(new long[]{producer, i}));
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            await(() -> received.values().stream().allMatch(events -> events.size() == producers * perProducer));
+
+            assertEquals(0, bus.getDropped());
+            assertEquals(producers * perProducer, bus.getPublished());
+            for (Map.Entry<String, List<long[]>> entry : received.entrySet()) {
+                long[] next = new long[producers];
+                for (long[] event : entry.getValue()) {
+                    int producer = (int) event[0];
+                    assertEquals(next[producer], event[1], entry.getKey() + " order for producer " + producer);
+                    next[producer]++;
+                }
+            }
+            for (RingBufferEventBus.ConsumerStats stats : bus.getStats()) {
+                assertEquals(0, stats.getLag());
+                assertEquals(producers * perProducer, stats.getProcessed());
+            }
+        }
+    }
+
+    @Test
+    void slowConsumerLimitsProducersToOneLapAndExcessIsDropped() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> slowReceived = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> fastReceived = Collections.synchronizedList(new ArrayList<>());
+        Map<String, RingBufferEventBus.BatchHandler<Integer>> handlers = new LinkedHashMap<>();
+        handlers.put("slow", events -> {
+            entered.countDown();
+            release.await();
+            slowReceived.addAll(events);
+        });
+        handlers.put("fast", fastReceived::addAll);
+
+        try (RingBufferEventBus<Integer> bus = bus(8, handlers, 1, 1, 20)) {
+            assertTrue(bus.publish(0));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+            // 慢消费者卡在第 0 个事件上：它的序号仍是 -1，只能再发布 7 个，凑满一圈
+            for (int i = 1; i < 8; i++) {
+                assertTrue(bus.publish(i), "event " + i + " fits in the first lap");
+            }
+            await(() -> fastReceived.size() == 8);
+            assertFalse(bus.publish(8), "the fast consumer must not let producers overwrite the slow one");
+            assertFalse(bus.publish(9));
+            assertEquals(2, bus.getDropped());
+            assertEquals(8, bus.getPublished());
+
+            release.countDown();
+            await(() -> slowReceived.size() == 8);
+            assertTrue(bus.publish(10));
+            await(() -> slowReceived.size() == 9 && fastReceived.size() == 9);
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 10), slowReceived);
+            assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7, 10), fastReceived);
+        }
+    }
+
+    @Test
+    void publishAfterCloseIsDropped() {
+        RingBufferEventBus<Integer> bus = bus(8, Map.of("c", events -> { }), 4, 1, 0);
+        bus.close(1000);
+        assertFalse(bus.publish(1));
+        assertEquals(1, bus.getDropped());
+    }
+
+    @Test
+    void failingBatchIsRetriedThenSkippedWithoutStoppingTheConsumer() throws Exception {
+        AtomicInteger poisonAttempts = new AtomicInteger();
+        AtomicInteger flakyAttempts = new AtomicInteger();
+        List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+        RingBufferEventBus.BatchHandler<Integer> handler = events -> {
+            int event = events.get(0);
+            if (event == 1) {
+                poisonAttempts.incrementAndGet();
+                throw new IllegalStateException("poison");
+            }
+            if (event == 2 && flakyAttempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("flaky");
+            }
+            delivered.addAll(events);
+        };
+        List<Integer> other = Collections.synchronizedList(new ArrayList<>());
+        Map<String, RingBufferEventBus.BatchHandler<Integer>> handlers = new LinkedHashMap<>();
+        handlers.put("failing", handler);
+        handlers.put("other", other::addAll);
+
+        try (RingBufferEventBus<Integer> bus = bus(8, handlers, 1, 3, 100)) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(bus.publish(i));
+            }
+            await(() -> delivered.size() == 3 && other.size() == 4);
+
+            assertEquals(List.of(0, 2, 3), delivered);
+            assertEquals(List.of(0, 1, 2, 3), other);
+            assertEquals(3, poisonAttempts.get());
+            assertEquals(2, flakyAttempts.get());
+            RingBufferEventBus.ConsumerStats failing = bus.getStats().get(0);
+            assertEquals("failing", failing.getConsumer());
+            assertEquals(1, failing.getSkipped());
+            // 毒事件重试 2 次，偶发失败重试 1 次
+            assertEquals(3, failing.getRetries());
+            assertEquals(4, failing.getProcessed());
+            assertEquals(0, failing.getLag());
+            RingBufferEventBus.ConsumerStats unaffected = bus.getStats().get(1);
+            assertEquals(0, unaffected.getRetries());
+            assertEquals(0, unaffected.getSkipped());
+        }
+    }
+
+    private static RingBufferEventBus<Integer> bus(int bufferSize, Map<String, RingBufferEventBus.BatchHandler<Integer>> handlers,
+                                                   int maxBatchSize, int maxAttempts, long publishTimeoutMillis) {
+        return new RingBufferEventBus<>("test", bufferSize, handlers, maxBatchSize, maxAttempts, 1, publishTimeoutMillis);
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condition.getAsBoolean()) {
+            if (System.nanoTime() - deadline > 0) {
+                fail("condition not reached within 10 s");
+            }
+            Thread.sleep(1);
+        }
+    }
+}